@@ -1,7 +1,10 @@
 package com.ctrip.framework.apollo.adminservice.controller;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -11,19 +14,32 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.ctrip.framework.apollo.biz.entity.Item;
 import com.ctrip.framework.apollo.biz.entity.Namespace;
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.service.ItemService;
 import com.ctrip.framework.apollo.biz.service.NamespaceService;
+import com.ctrip.framework.apollo.biz.service.ReleaseService;
+import com.ctrip.framework.apollo.common.dto.ItemDTO;
 import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceDetailDTO;
+import com.ctrip.framework.apollo.common.dto.ReleaseDTO;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.common.exception.NotFoundException;
 import com.ctrip.framework.apollo.common.utils.BeanUtils;
 import com.ctrip.framework.apollo.common.utils.InputValidator;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 @RestController
 public class NamespaceController {
 
   @Autowired
   private NamespaceService namespaceService;
+  @Autowired
+  private ItemService itemService;
+  @Autowired
+  private ReleaseService releaseService;
 
   @RequestMapping(path = "/apps/{appId}/clusters/{clusterName}/namespaces", method = RequestMethod.POST)
   public NamespaceDTO create(@PathVariable("appId") String appId,
@@ -63,6 +79,38 @@ public class NamespaceController {
     return BeanUtils.batchTransform(NamespaceDTO.class, groups);
   }
 
+  /**
+   * all namespaces of the cluster with their items and latest active release, loaded with one query each
+   */
+  @RequestMapping(value = "/apps/{appId}/clusters/{clusterName}/namespace-details", method = RequestMethod.GET)
+  public List<NamespaceDetailDTO> findDetails(@PathVariable("appId") String appId,
+                                              @PathVariable("clusterName") String clusterName) {
+    List<Namespace> namespaces = namespaceService.findNamespaces(appId, clusterName);
+    if (namespaces == null || namespaces.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    List<Long> namespaceIds = Lists.newArrayListWithCapacity(namespaces.size());
+    Set<String> namespaceNames = Sets.newHashSetWithExpectedSize(namespaces.size());
+    for (Namespace namespace : namespaces) {
+      namespaceIds.add(namespace.getId());
+      namespaceNames.add(namespace.getNamespaceName());
+    }
+
+    Map<Long, List<Item>> items = itemService.findItemsWithOrdered(namespaceIds);
+    Map<String, Release> latestReleases = releaseService.findLatestActiveReleases(appId, clusterName, namespaceNames);
+
+    List<NamespaceDetailDTO> details = new ArrayList<>(namespaces.size());
+    for (Namespace namespace : namespaces) {
+      NamespaceDetailDTO detail = new NamespaceDetailDTO();
+      detail.setBaseInfo(BeanUtils.transfrom(NamespaceDTO.class, namespace));
+      detail.setItems(BeanUtils.batchTransform(ItemDTO.class, items.get(namespace.getId())));
+      detail.setLatestRelease(BeanUtils.transfrom(ReleaseDTO.class, latestReleases.get(namespace.getNamespaceName())));
+      details.add(detail);
+    }
+    return details;
+  }
+
   @RequestMapping(value = "/namespaces/{namespaceId}", method = RequestMethod.GET)
   public NamespaceDTO get(@PathVariable("namespaceId") Long namespaceId) {
     Namespace namespace = namespaceService.findOne(namespaceId);
@@ -0,0 +1,90 @@
+package com.ctrip.framework.apollo.adminservice.message;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.message.MessagePusher;
+import com.ctrip.framework.apollo.core.ServiceNameConsts;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.shared.Application;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pushes the ids of new release messages to all the config services registered in eureka over http
+ */
+@Component
+public class HttpMessagePusher implements MessagePusher {
+  private static final Logger logger = LoggerFactory.getLogger(HttpMessagePusher.class);
+  private static final int PUSH_THREADS = 4;
+  private static final int CONNECT_TIMEOUT_IN_MILLI = 1000;
+  private static final int READ_TIMEOUT_IN_MILLI = 3000;
+  private final ExecutorService pushExecutorService;
+  private final RestTemplate restTemplate;
+
+  @Autowired
+  private EurekaClient eurekaClient;
+
+  @Autowired
+  private BizConfig bizConfig;
+
+  public HttpMessagePusher() {
+    pushExecutorService = Executors.newFixedThreadPool(PUSH_THREADS,
+        ApolloThreadFactory.create("HttpMessagePusher", true));
+    SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+    requestFactory.setConnectTimeout(CONNECT_TIMEOUT_IN_MILLI);
+    requestFactory.setReadTimeout(READ_TIMEOUT_IN_MILLI);
+    restTemplate = new RestTemplate(requestFactory);
+  }
+
+  @Override
+  public void push(ReleaseMessage message) {
+    if (!bizConfig.isReleaseMessagePushEnabled()) {
+      return;
+    }
+
+    // only the id is pushed, config services load the message itself from database
+    long messageId = message.getId();
+    for (InstanceInfo instance : getConfigServiceInstances()) {
+      String url = instance.getHomePageUrl();
+      pushExecutorService.submit(() -> doPush(url, messageId));
+    }
+  }
+
+  private void doPush(String homePageUrl, long messageId) {
+    Transaction transaction = Tracer.newTransaction("Apollo.AdminService", "pushMessage");
+    try {
+      String url = homePageUrl.endsWith("/") ? homePageUrl : homePageUrl + "/";
+      restTemplate.postForEntity(url + "releasemessages?id={id}", null, Void.class, messageId);
+      transaction.setStatus(Transaction.SUCCESS);
+    } catch (Throwable ex) {
+      // config service will load the message in its next database scan
+      logger.warn("Push release message {} to {} failed", messageId, homePageUrl, ex);
+      transaction.setStatus(ex);
+    } finally {
+      transaction.complete();
+    }
+  }
+
+  private List<InstanceInfo> getConfigServiceInstances() {
+    Application application = eurekaClient.getApplication(ServiceNameConsts.APOLLO_CONFIGSERVICE);
+    if (application == null) {
+      Tracer.logEvent("Apollo.EurekaDiscovery.NotFound", ServiceNameConsts.APOLLO_CONFIGSERVICE);
+      return Collections.emptyList();
+    }
+    return application.getInstances();
+  }
+}
@@ -9,6 +9,7 @@ import com.ctrip.framework.apollo.adminservice.controller.ControllerIntegrationE
 import com.ctrip.framework.apollo.adminservice.controller.InstanceConfigControllerTest;
 import com.ctrip.framework.apollo.adminservice.controller.ItemSetControllerTest;
 import com.ctrip.framework.apollo.adminservice.controller.ReleaseControllerTest;
+import com.ctrip.framework.apollo.adminservice.message.HttpMessagePusherTest;
 
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
@@ -19,7 +20,7 @@ import org.junit.runners.Suite.SuiteClasses;
     AppControllerTest.class, ReleaseControllerTest.class, ItemSetControllerTest.class,
     ControllerExceptionTest.class, ControllerIntegrationExceptionTest.class,
     NamespaceLockTest.class, InstanceConfigControllerTest.class, AppNamespaceControllerTest.class,
-    NamespaceUnlockAspectTest.class
+    NamespaceUnlockAspectTest.class, HttpMessagePusherTest.class
 })
 public class AllTests {
 
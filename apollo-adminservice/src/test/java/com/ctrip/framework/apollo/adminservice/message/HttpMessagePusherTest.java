@@ -0,0 +1,125 @@
+package com.ctrip.framework.apollo.adminservice.message;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.core.ServiceNameConsts;
+import com.google.common.collect.Lists;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.shared.Application;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class HttpMessagePusherTest {
+  private HttpMessagePusher httpMessagePusher;
+  @Mock
+  private EurekaClient eurekaClient;
+  @Mock
+  private BizConfig bizConfig;
+  @Mock
+  private RestTemplate restTemplate;
+  @Mock
+  private Application configServiceApplication;
+  @Mock
+  private InstanceInfo someConfigServiceInstance;
+  @Mock
+  private InstanceInfo anotherConfigServiceInstance;
+  @Mock
+  private InstanceInfo yetAnotherConfigServiceInstance;
+  private String someUrl;
+  private String anotherUrl;
+  private String yetAnotherUrl;
+  private long someMessageId;
+  private ReleaseMessage someMessage;
+
+  @Before
+  public void setUp() throws Exception {
+    httpMessagePusher = new HttpMessagePusher();
+    ReflectionTestUtils.setField(httpMessagePusher, "eurekaClient", eurekaClient);
+    ReflectionTestUtils.setField(httpMessagePusher, "bizConfig", bizConfig);
+    ReflectionTestUtils.setField(httpMessagePusher, "restTemplate", restTemplate);
+
+    someUrl = "http://1.1.1.1:8080/releasemessages?id={id}";
+    anotherUrl = "http://2.2.2.2:8080/releasemessages?id={id}";
+    yetAnotherUrl = "http://3.3.3.3:8080/releasemessages?id={id}";
+    when(someConfigServiceInstance.getHomePageUrl()).thenReturn("http://1.1.1.1:8080/");
+    when(anotherConfigServiceInstance.getHomePageUrl()).thenReturn("http://2.2.2.2:8080");
+    when(yetAnotherConfigServiceInstance.getHomePageUrl()).thenReturn("http://3.3.3.3:8080/");
+    when(configServiceApplication.getInstances()).thenReturn(Lists.newArrayList(someConfigServiceInstance,
+        anotherConfigServiceInstance, yetAnotherConfigServiceInstance));
+    when(eurekaClient.getApplication(ServiceNameConsts.APOLLO_CONFIGSERVICE)).thenReturn(configServiceApplication);
+    when(bizConfig.isReleaseMessagePushEnabled()).thenReturn(true);
+
+    someMessageId = 1;
+    someMessage = new ReleaseMessage("someMessage");
+    someMessage.setId(someMessageId);
+  }
+
+  @Test
+  public void testPushToAllConfigServices() throws Exception {
+    httpMessagePusher.push(someMessage);
+
+    verify(restTemplate, timeout(1000)).postForEntity(someUrl, null, Void.class, someMessageId);
+    verify(restTemplate, timeout(1000)).postForEntity(anotherUrl, null, Void.class, someMessageId);
+    verify(restTemplate, timeout(1000)).postForEntity(yetAnotherUrl, null, Void.class, someMessageId);
+  }
+
+  @Test
+  public void testFailedConfigServiceDoesNotBlockOthers() throws Exception {
+    CountDownLatch someInstanceReleased = new CountDownLatch(1);
+    when(restTemplate.postForEntity(someUrl, null, Void.class, someMessageId)).thenAnswer(invocation -> {
+      // a config service hanging until the read timeout
+      someInstanceReleased.await(5, TimeUnit.SECONDS);
+      return null;
+    });
+    when(restTemplate.postForEntity(anotherUrl, null, Void.class, someMessageId))
+        .thenThrow(new ResourceAccessException("Connection refused"));
+
+    httpMessagePusher.push(someMessage);
+
+    verify(restTemplate, timeout(1000)).postForEntity(anotherUrl, null, Void.class, someMessageId);
+    verify(restTemplate, timeout(1000)).postForEntity(yetAnotherUrl, null, Void.class, someMessageId);
+
+    someInstanceReleased.countDown();
+
+    verify(restTemplate, timeout(1000)).postForEntity(someUrl, null, Void.class, someMessageId);
+  }
+
+  @Test
+  public void testPushWhenPushDisabled() throws Exception {
+    when(bizConfig.isReleaseMessagePushEnabled()).thenReturn(false);
+
+    httpMessagePusher.push(someMessage);
+
+    TimeUnit.MILLISECONDS.sleep(100);
+
+    verifyZeroInteractions(eurekaClient, restTemplate);
+  }
+
+  @Test
+  public void testPushWithoutConfigServices() throws Exception {
+    when(eurekaClient.getApplication(ServiceNameConsts.APOLLO_CONFIGSERVICE)).thenReturn(null);
+
+    httpMessagePusher.push(someMessage);
+
+    TimeUnit.MILLISECONDS.sleep(100);
+
+    verifyZeroInteractions(restTemplate);
+  }
+}
@@ -28,8 +28,14 @@ public class BizConfig extends RefreshableConfig {
   private static final int DEFAULT_APPNAMESPACE_CACHE_SCAN_INTERVAL = 1; //1s
   private static final int DEFAULT_RELEASE_MESSAGE_CACHE_SCAN_INTERVAL = 1; //1s
   private static final int DEFAULT_RELEASE_MESSAGE_SCAN_INTERVAL_IN_MS = 1000; //1000ms
+  private static final int DEFAULT_RELEASE_MESSAGE_FALLBACK_SCAN_INTERVAL_IN_MS = 10000; //10s
   private static final int DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH = 100;
   private static final int DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH_INTERVAL_IN_MILLI = 100;//100ms
+  private static final int DEFAULT_RELEASE_MESSAGE_NOTIFICATION_THREADS = 4;
+  private static final int DEFAULT_CONFIG_RESPONSE_COMPRESSION_THRESHOLD = 1024; //1KB
+  private static final int DEFAULT_INSTANCE_CONFIG_AUDIT_THREADS = 2;
+  private static final int DEFAULT_INSTANCE_CONFIG_AUDIT_BATCH = 100;
+  private static final int DEFAULT_INSTANCE_CONFIG_AUDIT_FLUSH_INTERVAL_IN_MILLI = 1000;//1s
 
   private Gson gson = new Gson();
   private static final Type namespaceValueLengthOverrideTypeReference =
@@ -126,6 +132,19 @@ public class BizConfig extends RefreshableConfig {
     return checkInt(interval, 100, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_SCAN_INTERVAL_IN_MS);
   }
 
+  /**
+   * Whether admin service pushes release messages to config services directly, the database scan is then only a
+   * fallback to fill the gaps
+   */
+  public boolean isReleaseMessagePushEnabled() {
+    return getBooleanProperty("apollo.release-message.push.enabled", false);
+  }
+
+  public int releaseMessageFallbackScanIntervalInMilli() {
+    int interval = getIntProperty("apollo.message-scan.fallback.interval", DEFAULT_RELEASE_MESSAGE_FALLBACK_SCAN_INTERVAL_IN_MS);
+    return checkInt(interval, 100, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_FALLBACK_SCAN_INTERVAL_IN_MS);
+  }
+
   public int releaseMessageNotificationBatch() {
     int batch = getIntProperty("apollo.release-message.notification.batch", DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH);
     return checkInt(batch, 1, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH);
@@ -136,10 +155,60 @@ public class BizConfig extends RefreshableConfig {
     return checkInt(interval, 10, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH_INTERVAL_IN_MILLI);
   }
 
+  /**
+   * @return the target number of long polling clients notified per second, defaults to one batch per batch interval
+   */
+  public int releaseMessageNotificationRate() {
+    int defaultRate = (int) Math.min(Integer.MAX_VALUE,
+        releaseMessageNotificationBatch() * 1000L / releaseMessageNotificationBatchIntervalInMilli());
+    int rate = getIntProperty("apollo.release-message.notification.rate", defaultRate);
+    return checkInt(rate, 1, Integer.MAX_VALUE, defaultRate);
+  }
+
+  public int releaseMessageNotificationThreads() {
+    int threads = getIntProperty("apollo.release-message.notification.threads", DEFAULT_RELEASE_MESSAGE_NOTIFICATION_THREADS);
+    return checkInt(threads, 1, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_NOTIFICATION_THREADS);
+  }
+
   public boolean isConfigServiceCacheEnabled() {
     return getBooleanProperty("config-service.cache.enabled", false);
   }
 
+  public boolean isConfigResponseCompressionEnabled() {
+    return getBooleanProperty("config-service.response.compression.enabled", true);
+  }
+
+  /**
+   * @return the minimum size in bytes of config responses to compress
+   */
+  public int configResponseCompressionThreshold() {
+    int threshold = getIntProperty("config-service.response.compression.threshold",
+        DEFAULT_CONFIG_RESPONSE_COMPRESSION_THRESHOLD);
+    return checkInt(threshold, 0, Integer.MAX_VALUE, DEFAULT_CONFIG_RESPONSE_COMPRESSION_THRESHOLD);
+  }
+
+  public int instanceConfigAuditThreads() {
+    int threads = getIntProperty("apollo.instance-config.audit.threads", DEFAULT_INSTANCE_CONFIG_AUDIT_THREADS);
+    return checkInt(threads, 1, Integer.MAX_VALUE, DEFAULT_INSTANCE_CONFIG_AUDIT_THREADS);
+  }
+
+  /**
+   * @return the number of coalesced audits which triggers a flush
+   */
+  public int instanceConfigAuditBatch() {
+    int batch = getIntProperty("apollo.instance-config.audit.batch", DEFAULT_INSTANCE_CONFIG_AUDIT_BATCH);
+    return checkInt(batch, 1, Integer.MAX_VALUE, DEFAULT_INSTANCE_CONFIG_AUDIT_BATCH);
+  }
+
+  /**
+   * @return the max time in ms an audit waits in memory before it is flushed
+   */
+  public int instanceConfigAuditFlushIntervalInMilli() {
+    int interval = getIntProperty("apollo.instance-config.audit.flush.interval",
+        DEFAULT_INSTANCE_CONFIG_AUDIT_FLUSH_INTERVAL_IN_MILLI);
+    return checkInt(interval, 10, Integer.MAX_VALUE, DEFAULT_INSTANCE_CONFIG_AUDIT_FLUSH_INTERVAL_IN_MILLI);
+  }
+
   int checkInt(int value, int min, int max, int defaultValue) {
     if (value >= min && value <= max) {
       return value;
@@ -0,0 +1,157 @@
+package com.ctrip.framework.apollo.biz.grayReleaseRule;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import com.ctrip.framework.apollo.common.constants.NamespaceBranchStatus;
+import com.ctrip.framework.apollo.common.dto.GrayReleaseRuleItemDTO;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Immutable index of the active gray release rules.
+ *
+ * <p>{@link GrayReleaseRulesHolder} builds a new index whenever the rules change and swaps it in, so lookups need
+ * neither locks nor copies. If several active rules match a client, the latest rule wins.</p>
+ */
+class GrayReleaseRuleIndex {
+  static final GrayReleaseRuleIndex EMPTY = new GrayReleaseRuleIndex(ImmutableMap.of(), ImmutableMap.of());
+
+  //configAppId+configCluster+configNamespace -> clientAppId -> rules
+  private final Map<String, Map<String, ClientRules>> rulesByConfigNamespace;
+  //clientAppId -> configNamespace -> rules of all the config apps and clusters
+  private final Map<String, Map<String, ClientRules>> rulesByClientAppId;
+
+  private GrayReleaseRuleIndex(Map<String, Map<String, ClientRules>> rulesByConfigNamespace,
+                               Map<String, Map<String, ClientRules>> rulesByClientAppId) {
+    this.rulesByConfigNamespace = rulesByConfigNamespace;
+    this.rulesByClientAppId = rulesByClientAppId;
+  }
+
+  /**
+   * @param rules configAppId+configCluster+configNamespace -> rules, inactive rules are ignored
+   */
+  static GrayReleaseRuleIndex build(Map<String, ? extends Collection<GrayReleaseRuleCache>> rules) {
+    Map<String, Map<String, ClientRules>> rulesByConfigNamespace = Maps.newHashMap();
+    Map<String, Map<String, ClientRules>> rulesByClientAppId = Maps.newHashMap();
+
+    for (Map.Entry<String, ? extends Collection<GrayReleaseRuleCache>> entry : rules.entrySet()) {
+      for (GrayReleaseRuleCache ruleCache : entry.getValue()) {
+        if (ruleCache.getBranchStatus() != NamespaceBranchStatus.ACTIVE) {
+          continue;
+        }
+        IndexedRule rule = new IndexedRule(ruleCache.getRuleId(), ruleCache.getReleaseId());
+        for (GrayReleaseRuleItemDTO ruleItem : ruleCache.getRuleItems()) {
+          addRule(rulesByConfigNamespace, entry.getKey(), ruleItem.getClientAppId(), ruleItem, rule);
+          addRule(rulesByClientAppId, ruleItem.getClientAppId(), ruleCache.getNamespaceName(), ruleItem, rule);
+        }
+      }
+    }
+
+    if (rulesByConfigNamespace.isEmpty()) {
+      return EMPTY;
+    }
+    return new GrayReleaseRuleIndex(freeze(rulesByConfigNamespace), freeze(rulesByClientAppId));
+  }
+
+  boolean isEmpty() {
+    return rulesByConfigNamespace.isEmpty();
+  }
+
+  /**
+   * @return the release id of the latest active rule matching the client, or null if none
+   */
+  Long findReleaseId(String configNamespaceKey, String clientAppId, String clientIp) {
+    IndexedRule rule = find(rulesByConfigNamespace, configNamespaceKey, clientAppId, clientIp);
+    return rule == null ? null : rule.releaseId;
+  }
+
+  boolean hasRule(String clientAppId, String configNamespaceName, String clientIp) {
+    return find(rulesByClientAppId, clientAppId, configNamespaceName, clientIp) != null;
+  }
+
+  private static IndexedRule find(Map<String, Map<String, ClientRules>> index, String key, String subKey,
+                                  String clientIp) {
+    Map<String, ClientRules> rules = index.get(key);
+    if (rules == null) {
+      return null;
+    }
+    ClientRules clientRules = rules.get(subKey);
+    if (clientRules == null) {
+      return null;
+    }
+    return clientRules.find(clientIp);
+  }
+
+  private static void addRule(Map<String, Map<String, ClientRules>> index, String key, String subKey,
+                              GrayReleaseRuleItemDTO ruleItem, IndexedRule rule) {
+    Map<String, ClientRules> rules = index.get(key);
+    if (rules == null) {
+      rules = Maps.newHashMap();
+      index.put(key, rules);
+    }
+    ClientRules clientRules = rules.get(subKey);
+    if (clientRules == null) {
+      clientRules = new ClientRules();
+      rules.put(subKey, clientRules);
+    }
+    for (String clientIp : ruleItem.getClientIpList()) {
+      clientRules.add(clientIp, rule);
+    }
+  }
+
+  private static Map<String, Map<String, ClientRules>> freeze(Map<String, Map<String, ClientRules>> index) {
+    ImmutableMap.Builder<String, Map<String, ClientRules>> builder = ImmutableMap.builder();
+    for (Map.Entry<String, Map<String, ClientRules>> entry : index.entrySet()) {
+      for (ClientRules clientRules : entry.getValue().values()) {
+        clientRules.freeze();
+      }
+      builder.put(entry.getKey(), ImmutableMap.copyOf(entry.getValue()));
+    }
+    return builder.build();
+  }
+
+  private static class ClientRules {
+    private Map<String, IndexedRule> rulesByIp = Maps.newHashMap();
+    private IndexedRule allIpRule;
+
+    void add(String clientIp, IndexedRule rule) {
+      if (GrayReleaseRuleItemDTO.ALL_IP.equals(clientIp)) {
+        allIpRule = latest(allIpRule, rule);
+      } else {
+        rulesByIp.put(clientIp, latest(rulesByIp.get(clientIp), rule));
+      }
+    }
+
+    void freeze() {
+      rulesByIp = ImmutableMap.copyOf(rulesByIp);
+    }
+
+    IndexedRule find(String clientIp) {
+      IndexedRule rule = clientIp == null ? null : rulesByIp.get(clientIp);
+      return latest(rule, allIpRule);
+    }
+
+    private static IndexedRule latest(IndexedRule some, IndexedRule another) {
+      if (some == null) {
+        return another;
+      }
+      if (another == null) {
+        return some;
+      }
+      return some.ruleId >= another.ruleId ? some : another;
+    }
+  }
+
+  private static class IndexedRule {
+    private final long ruleId;
+    //boxed once, so lookups don't allocate
+    private final Long releaseId;
+
+    IndexedRule(long ruleId, long releaseId) {
+      this.ruleId = ruleId;
+      this.releaseId = releaseId;
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package com.ctrip.framework.apollo.biz.message;
+
+import java.util.List;
+
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+
+/**
+ * Release message listener which receives all the messages of one scan at once, so that it could merge the messages
+ * of the same key instead of handling every intermediate one.
+ */
+public interface BatchReleaseMessageListener extends ReleaseMessageListener {
+  /**
+   * @param messages the scanned messages, in ascending id order
+   */
+  void handleMessages(List<ReleaseMessage> messages, String channel);
+}
@@ -13,6 +13,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 import java.util.Objects;
@@ -38,6 +40,9 @@ public class DatabaseMessageSender implements MessageSender {
   @Autowired
   private ReleaseMessageRepository releaseMessageRepository;
 
+  @Autowired(required = false)
+  private MessagePusher messagePusher;
+
   public DatabaseMessageSender() {
     cleanExecutorService = Executors.newSingleThreadExecutor(ApolloThreadFactory.create("DatabaseMessageSender", true));
     cleanStopped = new AtomicBoolean(false);
@@ -57,6 +62,9 @@ public class DatabaseMessageSender implements MessageSender {
     try {
       ReleaseMessage newMessage = releaseMessageRepository.save(new ReleaseMessage(message));
       toClean.offer(newMessage.getId());
+      if (messagePusher != null) {
+        pushAfterCommit(newMessage);
+      }
       transaction.setStatus(Transaction.SUCCESS);
     } catch (Throwable ex) {
       logger.error("Sending message to database failed", ex);
@@ -67,6 +75,22 @@ public class DatabaseMessageSender implements MessageSender {
     }
   }
 
+  /**
+   * Config services may only see the message after the transaction is committed
+   */
+  private void pushAfterCommit(ReleaseMessage message) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      messagePusher.push(message);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCommit() {
+        messagePusher.push(message);
+      }
+    });
+  }
+
   @PostConstruct
   private void initialize() {
     cleanExecutorService.submit(() -> {
@@ -0,0 +1,11 @@
+package com.ctrip.framework.apollo.biz.message;
+
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+
+/**
+ * Pushes saved release messages to the config services directly, so they don't have to wait for the next database
+ * scan. Implementations should be asynchronous and must not throw, the database scan covers any lost push.
+ */
+public interface MessagePusher {
+  void push(ReleaseMessage message);
+}
@@ -28,7 +28,6 @@ public class ReleaseMessageScanner implements InitializingBean {
 	private BizConfig bizConfig;
 	@Autowired
 	private ReleaseMessageRepository releaseMessageRepository;
-	private int databaseScanInterval;
 	private List<ReleaseMessageListener> listeners;
 	private ScheduledExecutorService executorService;
 	private long maxIdScanned;
@@ -41,9 +40,16 @@ public class ReleaseMessageScanner implements InitializingBean {
 
 	@Override
 	public void afterPropertiesSet() throws Exception {
-		databaseScanInterval = bizConfig.releaseMessageScanIntervalInMilli();
 		maxIdScanned = loadLargestMessageId();
-		executorService.scheduleWithFixedDelay((Runnable) () -> {
+		scheduleScan();
+	}
+
+	/**
+	 * Schedule the next database scan. Each run schedules the one after it, so the delay follows the push switch as it is
+	 * turned on or off at runtime.
+	 */
+	private void scheduleScan() {
+		executorService.schedule(() -> {
 			Transaction transaction = Tracer.newTransaction("Apollo.ReleaseMessageScanner", "scanMessage");
 			try {
 				scanMessages();
@@ -53,9 +59,15 @@ public class ReleaseMessageScanner implements InitializingBean {
 				logger.error("Scan and send message failed", ex);
 			} finally {
 				transaction.complete();
+				scheduleScan();
 			}
-		}, databaseScanInterval, databaseScanInterval, TimeUnit.MILLISECONDS);
+		}, getDatabaseScanInterval(), TimeUnit.MILLISECONDS);
+	}
 
+	private int getDatabaseScanInterval() {
+		// when messages are pushed, the database scan only fills the gaps
+		return bizConfig.isReleaseMessagePushEnabled() ? bizConfig.releaseMessageFallbackScanIntervalInMilli()
+				: bizConfig.releaseMessageScanIntervalInMilli();
 	}
 
 	/**
@@ -68,6 +80,38 @@ public class ReleaseMessageScanner implements InitializingBean {
 		}
 	}
 
+	/**
+	 * Handle the id of a message pushed by admin service. The id is only a hint to scan the database right away: the
+	 * messages are always loaded from the database on the scanning thread, so an id already scanned is dropped and gaps
+	 * in the ids, e.g. rolled back inserts, are loaded like in a regular scan.
+	 */
+	public void onMessagePushed(long messageId) {
+		executorService.submit(() -> {
+			Transaction transaction = Tracer.newTransaction("Apollo.ReleaseMessageScanner", "pushMessage");
+			try {
+				handlePushedMessage(messageId);
+				transaction.setStatus(Transaction.SUCCESS);
+			} catch (Throwable ex) {
+				transaction.setStatus(ex);
+				logger.error("Handle pushed message failed", ex);
+			} finally {
+				transaction.complete();
+			}
+		});
+	}
+
+	private void handlePushedMessage(long messageId) {
+		if (messageId <= maxIdScanned) {
+			Tracer.logEvent("Apollo.ReleaseMessageScanner.PushDuplicated", String.valueOf(messageId));
+			return;
+		}
+		scanMessages();
+		if (messageId > maxIdScanned) {
+			// not visible in the database yet, or not a real message id, the next scan picks it up if it exists
+			Tracer.logEvent("Apollo.ReleaseMessageScanner.PushNotFound", String.valueOf(messageId));
+		}
+	}
+
 	/**
 	 * Scan messages, continue scanning until there is no more messages
 	 */
@@ -106,12 +150,36 @@ public class ReleaseMessageScanner implements InitializingBean {
 	}
 
 	/**
-	 * Notify listeners with messages loaded
+	 * Log the latency between saving the message in admin service and handing it to the listeners
+	 */
+	private void logMessageLatency(List<ReleaseMessage> messages) {
+		long now = System.currentTimeMillis();
+		for (ReleaseMessage message : messages) {
+			if (message.getDataChangeLastModifiedTime() == null) {
+				continue;
+			}
+			long latency = now - message.getDataChangeLastModifiedTime().getTime();
+			Tracer.logEvent("Apollo.ReleaseMessageScanner.Latency", message.getMessage(), "0", "latencyInMs=" + latency);
+		}
+	}
+
+	/**
+	 * Notify listeners with messages loaded, batch listeners receive all the messages at once
 	 * @param messages
 	 */
 	private void fireMessageScanned(List<ReleaseMessage> messages) {
-		for (ReleaseMessage message : messages) {
-			for (ReleaseMessageListener listener : listeners) {
+		logMessageLatency(messages);
+		for (ReleaseMessageListener listener : listeners) {
+			if (listener instanceof BatchReleaseMessageListener) {
+				try {
+					((BatchReleaseMessageListener) listener).handleMessages(messages, Topics.APOLLO_RELEASE_TOPIC);
+				} catch (Throwable ex) {
+					Tracer.logError(ex);
+					logger.error("Failed to invoke message listener {}", listener.getClass(), ex);
+				}
+				continue;
+			}
+			for (ReleaseMessage message : messages) {
 				try {
 					listener.handleMessage(message, Topics.APOLLO_RELEASE_TOPIC);
 				} catch (Throwable ex) {
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -29,6 +30,11 @@ public interface ReleaseRepository extends PagingAndSortingRepository<Release, L
 
   List<Release> findByIdIn(Set<Long> releaseIds);
 
+  @Query("SELECT r FROM Release r WHERE r.id IN (SELECT MAX(r2.id) FROM Release r2 WHERE r2.appId = ?1 "
+      + "AND r2.clusterName = ?2 AND r2.namespaceName IN ?3 AND r2.isAbandoned = false AND r2.isDeleted = false "
+      + "GROUP BY r2.namespaceName)")
+  List<Release> findLatestActiveReleases(String appId, String clusterName, Collection<String> namespaceNames);
+
   @Modifying
   @Query("update Release set isdeleted=1,DataChange_LastModifiedBy = ?4 where appId=?1 and clusterName=?2 and namespaceName = ?3")
   int batchDelete(String appId, String clusterName, String namespaceName, String operator);
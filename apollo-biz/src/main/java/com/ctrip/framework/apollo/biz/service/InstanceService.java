@@ -61,6 +61,14 @@ public class InstanceService {
             instanceId, configAppId, configNamespaceName);
   }
 
+  public List<InstanceConfig> findInstanceConfigsByInstanceIds(Set<Long> instanceIds) {
+    List<InstanceConfig> instanceConfigs = instanceConfigRepository.findByInstanceIdIn(instanceIds);
+    if (CollectionUtils.isEmpty(instanceConfigs)) {
+      return Collections.emptyList();
+    }
+    return instanceConfigs;
+  }
+
   public Page<InstanceConfig> findActiveInstanceConfigsByReleaseKey(String releaseKey, Pageable
       pageable) {
     Page<InstanceConfig> instanceConfigs = instanceConfigRepository
@@ -170,6 +178,14 @@ public class InstanceService {
     return instanceConfigRepository.save(existedInstanceConfig);
   }
 
+  /**
+   * Create the new instance configs and update the existing ones in one transaction
+   */
+  @Transactional
+  public List<InstanceConfig> batchSaveInstanceConfigs(List<InstanceConfig> instanceConfigs) {
+    return Lists.newArrayList(instanceConfigRepository.save(instanceConfigs));
+  }
+
   @Transactional
   public int batchDeleteInstanceConfig(String configAppId, String configClusterName, String configNamespaceName){
     return instanceConfigRepository.batchDelete(configAppId, configClusterName, configNamespaceName);
@@ -10,11 +10,15 @@ import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.common.exception.NotFoundException;
 import com.ctrip.framework.apollo.common.utils.BeanUtils;
 import com.ctrip.framework.apollo.core.utils.StringUtils;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.CollectionUtils;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -110,6 +114,25 @@ public class ItemService {
     return items;
   }
 
+  /**
+   * items of several namespaces in one query, grouped by namespace id and ordered by line num
+   */
+  public Map<Long, List<Item>> findItemsWithOrdered(Collection<Long> namespaceIds) {
+    if (CollectionUtils.isEmpty(namespaceIds)) {
+      return Collections.emptyMap();
+    }
+    Map<Long, List<Item>> result = Maps.newHashMap();
+    for (Item item : itemRepository.findByNamespaceIdInOrderByLineNumAsc(namespaceIds)) {
+      List<Item> items = result.get(item.getNamespaceId());
+      if (items == null) {
+        items = Lists.newArrayList();
+        result.put(item.getNamespaceId(), items);
+      }
+      items.add(item);
+    }
+    return result;
+  }
+
   public List<Item> findItemsWithOrdered(String appId, String clusterName, String namespaceName) {
     Namespace namespace = namespaceService.findOne(appId, clusterName, namespaceName);
     if (namespace != null) {
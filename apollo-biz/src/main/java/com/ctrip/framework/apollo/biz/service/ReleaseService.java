@@ -29,6 +29,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -96,6 +97,21 @@ public class ReleaseService {
                                                                                                             namespaceName);
   }
 
+  /**
+   * latest active releases of several namespaces of a cluster in one query, keyed by namespace name
+   */
+  public Map<String, Release> findLatestActiveReleases(String appId, String clusterName,
+                                                       Collection<String> namespaceNames) {
+    if (CollectionUtils.isEmpty(namespaceNames)) {
+      return Collections.emptyMap();
+    }
+    Map<String, Release> result = Maps.newHashMap();
+    for (Release release : releaseRepository.findLatestActiveReleases(appId, clusterName, namespaceNames)) {
+      result.put(release.getNamespaceName(), release);
+    }
+    return result;
+  }
+
   public List<Release> findAllReleases(String appId, String clusterName, String namespaceName, Pageable page) {
     List<Release> releases = releaseRepository.findByAppIdAndClusterNameAndNamespaceNameOrderByIdDesc(appId,
                                                                                                       clusterName,
@@ -1,6 +1,7 @@
 package com.ctrip.framework.apollo.biz;
 
 import com.ctrip.framework.apollo.biz.config.BizConfigTest;
+import com.ctrip.framework.apollo.biz.grayReleaseRule.GrayReleaseRuleIndexTest;
 import com.ctrip.framework.apollo.biz.grayReleaseRule.GrayReleaseRulesHolderTest;
 import com.ctrip.framework.apollo.biz.message.DatabaseMessageSenderTest;
 import com.ctrip.framework.apollo.biz.message.ReleaseMessageScannerTest;
@@ -37,6 +38,7 @@ import org.junit.runners.Suite.SuiteClasses;
     ReleaseKeyGeneratorTest.class,
     InstanceServiceTest.class,
     GrayReleaseRulesHolderTest.class,
+    GrayReleaseRuleIndexTest.class,
     NamespaceBranchServiceTest.class,
     ReleaseCreationTest.class,
     NamespacePublishInfoTest.class,
@@ -0,0 +1,199 @@
+package com.ctrip.framework.apollo.biz.grayReleaseRule;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.Sets;
+
+import com.ctrip.framework.apollo.common.constants.NamespaceBranchStatus;
+import com.ctrip.framework.apollo.common.dto.GrayReleaseRuleItemDTO;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the lookups of {@link GrayReleaseRuleIndex} with the synchronized multimaps GrayReleaseRulesHolder used
+ * before, from as many threads as there are processors.
+ *
+ * <ul>
+ *   <li>{@code findReleaseId}: the gray release of a config request, half of the clients match a rule</li>
+ *   <li>{@code hasRule}: the gray release check of a notification request</li>
+ * </ul>
+ *
+ * The gc profiler shows the bytes allocated per lookup, and running it again with {@code -t 1} shows how the
+ * throughput scales with the threads.
+ *
+ * Run the main method after {@code mvn test-compile}, the benchmarks are not part of the test suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(Threads.MAX)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class GrayReleaseRuleIndexBenchmark {
+  private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
+  private static final int IPS_PER_RULE = 10;
+  private static final int LOOKUPS = 1024;
+
+  @Param({"index", "synchronizedMultimap"})
+  public String implementation;
+
+  @Param({"10", "100", "1000"})
+  public int rules;
+
+  private Rules grayReleaseRules;
+  private String[] configNamespaceKeys;
+  private String[] namespaceNames;
+  private String[] clientAppIds;
+  private String[] clientIps;
+
+  @Setup
+  public void setUp() {
+    Multimap<String, GrayReleaseRuleCache> ruleCaches = HashMultimap.create();
+    for (int i = 0; i < rules; i++) {
+      Set<String> clientIps = Sets.newHashSet();
+      for (int j = 0; j < IPS_PER_RULE; j++) {
+        clientIps.add(String.format("10.0.%d.%d", i % 256, j));
+      }
+      Set<GrayReleaseRuleItemDTO> ruleItems = Sets.newHashSet(new GrayReleaseRuleItemDTO("clientAppId" + i, clientIps));
+      ruleCaches.put(STRING_JOINER.join("someAppId" + i, "default", "namespace" + i),
+          new GrayReleaseRuleCache(i, "someBranch", "namespace" + i, i, NamespaceBranchStatus.ACTIVE, 0, ruleItems));
+    }
+    grayReleaseRules = "index".equals(implementation) ? new IndexedRules(ruleCaches) :
+        new SynchronizedMultimapRules(ruleCaches);
+
+    configNamespaceKeys = new String[LOOKUPS];
+    namespaceNames = new String[LOOKUPS];
+    clientAppIds = new String[LOOKUPS];
+    clientIps = new String[LOOKUPS];
+    for (int i = 0; i < LOOKUPS; i++) {
+      int rule = i % rules;
+      configNamespaceKeys[i] = STRING_JOINER.join("someAppId" + rule, "default", "namespace" + rule);
+      namespaceNames[i] = "namespace" + rule;
+      clientAppIds[i] = "clientAppId" + rule;
+      // every other client is outside the gray release
+      clientIps[i] = String.format(i % 2 == 0 ? "10.0.%d.%d" : "10.1.%d.%d", rule % 256, i % IPS_PER_RULE);
+    }
+  }
+
+  @Benchmark
+  public Long findReleaseId(Cursor cursor) {
+    int i = cursor.next();
+    return grayReleaseRules.findReleaseId(configNamespaceKeys[i], clientAppIds[i], clientIps[i]);
+  }
+
+  @Benchmark
+  public boolean hasRule(Cursor cursor) {
+    int i = cursor.next();
+    return grayReleaseRules.hasRule(clientAppIds[i], namespaceNames[i], clientIps[i]);
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int position;
+
+    int next() {
+      position = (position + 1) & (LOOKUPS - 1);
+      return position;
+    }
+  }
+
+  private interface Rules {
+    Long findReleaseId(String configNamespaceKey, String clientAppId, String clientIp);
+
+    boolean hasRule(String clientAppId, String namespaceName, String clientIp);
+  }
+
+  private static class IndexedRules implements Rules {
+    private final GrayReleaseRuleIndex index;
+
+    IndexedRules(Multimap<String, GrayReleaseRuleCache> ruleCaches) {
+      index = GrayReleaseRuleIndex.build(ruleCaches.asMap());
+    }
+
+    @Override
+    public Long findReleaseId(String configNamespaceKey, String clientAppId, String clientIp) {
+      return index.findReleaseId(configNamespaceKey, clientAppId, clientIp);
+    }
+
+    @Override
+    public boolean hasRule(String clientAppId, String namespaceName, String clientIp) {
+      return index.hasRule(clientAppId, namespaceName, clientIp);
+    }
+  }
+
+  /**
+   * The lookups of GrayReleaseRulesHolder before the index
+   */
+  private static class SynchronizedMultimapRules implements Rules {
+    private final Multimap<String, GrayReleaseRuleCache> grayReleaseRuleCache =
+        Multimaps.synchronizedSetMultimap(HashMultimap.create());
+    private final Multimap<String, Long> reversedGrayReleaseRuleCache =
+        Multimaps.synchronizedSetMultimap(HashMultimap.create());
+
+    SynchronizedMultimapRules(Multimap<String, GrayReleaseRuleCache> ruleCaches) {
+      grayReleaseRuleCache.putAll(ruleCaches);
+      for (GrayReleaseRuleCache ruleCache : ruleCaches.values()) {
+        for (GrayReleaseRuleItemDTO ruleItemDTO : ruleCache.getRuleItems()) {
+          for (String clientIp : ruleItemDTO.getClientIpList()) {
+            reversedGrayReleaseRuleCache.put(STRING_JOINER.join(ruleItemDTO.getClientAppId(),
+                ruleCache.getNamespaceName(), clientIp), ruleCache.getRuleId());
+          }
+        }
+      }
+    }
+
+    @Override
+    public Long findReleaseId(String configNamespaceKey, String clientAppId, String clientIp) {
+      if (!grayReleaseRuleCache.containsKey(configNamespaceKey)) {
+        return null;
+      }
+      //create a new list to avoid ConcurrentModificationException
+      List<GrayReleaseRuleCache> rules = Lists.newArrayList(grayReleaseRuleCache.get(configNamespaceKey));
+      for (GrayReleaseRuleCache rule : rules) {
+        //check branch status
+        if (rule.getBranchStatus() != NamespaceBranchStatus.ACTIVE) {
+          continue;
+        }
+        if (rule.matches(clientAppId, clientIp)) {
+          return rule.getReleaseId();
+        }
+      }
+      return null;
+    }
+
+    @Override
+    public boolean hasRule(String clientAppId, String namespaceName, String clientIp) {
+      return reversedGrayReleaseRuleCache.containsKey(STRING_JOINER.join(clientAppId, namespaceName, clientIp))
+          || reversedGrayReleaseRuleCache.containsKey(STRING_JOINER.join(clientAppId, namespaceName,
+          GrayReleaseRuleItemDTO.ALL_IP));
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(GrayReleaseRuleIndexBenchmark.class.getSimpleName()).addProfiler("gc")
+        .build()).run();
+  }
+}
@@ -0,0 +1,140 @@
+package com.ctrip.framework.apollo.biz.grayReleaseRule;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+
+import com.ctrip.framework.apollo.common.constants.NamespaceBranchStatus;
+import com.ctrip.framework.apollo.common.dto.GrayReleaseRuleItemDTO;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GrayReleaseRuleIndexTest {
+  private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
+  private Multimap<String, GrayReleaseRuleCache> rules;
+  private String someConfigNamespaceKey;
+  private String someNamespaceName;
+  private String someClientAppId;
+  private String anotherClientAppId;
+  private String someClientIp;
+  private String anotherClientIp;
+
+  @Before
+  public void setUp() throws Exception {
+    rules = HashMultimap.create();
+    someNamespaceName = "someNamespace";
+    someConfigNamespaceKey = STRING_JOINER.join("someConfigAppId", "someCluster", someNamespaceName);
+    someClientAppId = "someClientAppId";
+    anotherClientAppId = "anotherClientAppId";
+    someClientIp = "1.1.1.1";
+    anotherClientIp = "2.2.2.2";
+  }
+
+  @Test
+  public void testFindReleaseId() throws Exception {
+    long someReleaseId = 1;
+    rules.put(someConfigNamespaceKey, assembleRuleCache(1, someReleaseId, NamespaceBranchStatus.ACTIVE,
+        new GrayReleaseRuleItemDTO(someClientAppId, Sets.newHashSet(someClientIp))));
+
+    GrayReleaseRuleIndex index = GrayReleaseRuleIndex.build(rules.asMap());
+
+    assertEquals(someReleaseId, (long) index.findReleaseId(someConfigNamespaceKey, someClientAppId, someClientIp));
+    assertNull(index.findReleaseId(someConfigNamespaceKey, someClientAppId, anotherClientIp));
+    assertNull(index.findReleaseId(someConfigNamespaceKey, anotherClientAppId, someClientIp));
+    assertNull(index.findReleaseId(someConfigNamespaceKey, someClientAppId, null));
+    assertNull(index.findReleaseId("someOtherKey", someClientAppId, someClientIp));
+
+    assertTrue(index.hasRule(someClientAppId, someNamespaceName, someClientIp));
+    assertFalse(index.hasRule(someClientAppId, someNamespaceName, anotherClientIp));
+    assertFalse(index.hasRule(someClientAppId, "anotherNamespace", someClientIp));
+  }
+
+  @Test
+  public void testFindReleaseIdWithAllIp() throws Exception {
+    long someReleaseId = 1;
+    rules.put(someConfigNamespaceKey, assembleRuleCache(1, someReleaseId, NamespaceBranchStatus.ACTIVE,
+        new GrayReleaseRuleItemDTO(someClientAppId, Sets.newHashSet(GrayReleaseRuleItemDTO.ALL_IP))));
+
+    GrayReleaseRuleIndex index = GrayReleaseRuleIndex.build(rules.asMap());
+
+    assertEquals(someReleaseId, (long) index.findReleaseId(someConfigNamespaceKey, someClientAppId, someClientIp));
+    assertEquals(someReleaseId, (long) index.findReleaseId(someConfigNamespaceKey, someClientAppId, null));
+    assertNull(index.findReleaseId(someConfigNamespaceKey, anotherClientAppId, someClientIp));
+    assertTrue(index.hasRule(someClientAppId, someNamespaceName, anotherClientIp));
+  }
+
+  @Test
+  public void testLatestRuleWins() throws Exception {
+    long someReleaseId = 1;
+    long anotherReleaseId = 2;
+    rules.put(someConfigNamespaceKey, assembleRuleCache(1, someReleaseId, NamespaceBranchStatus.ACTIVE,
+        new GrayReleaseRuleItemDTO(someClientAppId, Sets.newHashSet(someClientIp))));
+    rules.put(someConfigNamespaceKey, assembleRuleCache(2, anotherReleaseId, NamespaceBranchStatus.ACTIVE,
+        new GrayReleaseRuleItemDTO(someClientAppId, Sets.newHashSet(GrayReleaseRuleItemDTO.ALL_IP))));
+
+    GrayReleaseRuleIndex index = GrayReleaseRuleIndex.build(rules.asMap());
+
+    assertEquals(anotherReleaseId, (long) index.findReleaseId(someConfigNamespaceKey, someClientAppId,
+        someClientIp));
+    assertEquals(anotherReleaseId, (long) index.findReleaseId(someConfigNamespaceKey, someClientAppId,
+        anotherClientIp));
+  }
+
+  @Test
+  public void testInactiveRulesAreIgnored() throws Exception {
+    rules.put(someConfigNamespaceKey, assembleRuleCache(1, 1, NamespaceBranchStatus.DELETED,
+        new GrayReleaseRuleItemDTO(someClientAppId, Sets.newHashSet(someClientIp))));
+
+    GrayReleaseRuleIndex index = GrayReleaseRuleIndex.build(rules.asMap());
+
+    assertTrue(index.isEmpty());
+    assertSame(GrayReleaseRuleIndex.EMPTY, index);
+    assertNull(index.findReleaseId(someConfigNamespaceKey, someClientAppId, someClientIp));
+    assertFalse(index.hasRule(someClientAppId, someNamespaceName, someClientIp));
+  }
+
+  @Test
+  public void testFindReleaseIdWithManyRules() throws Exception {
+    int someNamespaces = 1000;
+    int someIpsPerRule = 100;
+    for (int i = 0; i < someNamespaces; i++) {
+      String configNamespaceKey = STRING_JOINER.join("someConfigAppId", "someCluster", "namespace" + i);
+      rules.put(configNamespaceKey, assembleRuleCache(i, i, NamespaceBranchStatus.ACTIVE,
+          new GrayReleaseRuleItemDTO(someClientAppId, assembleIps(i, someIpsPerRule))));
+    }
+
+    GrayReleaseRuleIndex index = GrayReleaseRuleIndex.build(rules.asMap());
+
+    for (int i = 0; i < someNamespaces; i++) {
+      String configNamespaceKey = STRING_JOINER.join("someConfigAppId", "someCluster", "namespace" + i);
+      assertEquals(i, (long) index.findReleaseId(configNamespaceKey, someClientAppId,
+          String.format("10.%d.0.%d", i % 256, someIpsPerRule - 1)));
+      assertNull(index.findReleaseId(configNamespaceKey, someClientAppId, "192.168.0.1"));
+    }
+  }
+
+  private Set<String> assembleIps(int seed, int size) {
+    Set<String> ips = Sets.newHashSet();
+    for (int i = 0; i < size; i++) {
+      ips.add(String.format("10.%d.0.%d", seed % 256, i));
+    }
+    return ips;
+  }
+
+  private GrayReleaseRuleCache assembleRuleCache(long ruleId, long releaseId, int branchStatus,
+                                                 GrayReleaseRuleItemDTO ruleItem) {
+    return new GrayReleaseRuleCache(ruleId, "someBranch" + ruleId, someNamespaceName, releaseId, branchStatus, 0,
+        Sets.newHashSet(ruleItem));
+  }
+}
@@ -48,6 +48,19 @@ public class DatabaseMessageSenderTest extends AbstractUnitTest{
     assertEquals(someMessage, captor.getValue().getMessage());
   }
 
+  @Test
+  public void testSendMessageWithPusher() throws Exception {
+    String someMessage = "some-message";
+    ReleaseMessage someReleaseMessage = mock(ReleaseMessage.class);
+    MessagePusher someMessagePusher = mock(MessagePusher.class);
+    ReflectionTestUtils.setField(messageSender, "messagePusher", someMessagePusher);
+    when(releaseMessageRepository.save(any(ReleaseMessage.class))).thenReturn(someReleaseMessage);
+
+    messageSender.sendMessage(someMessage, Topics.APOLLO_RELEASE_TOPIC);
+
+    verify(someMessagePusher, times(1)).push(someReleaseMessage);
+  }
+
   @Test
   public void testSendUnsupportedMessage() throws Exception {
     String someMessage = "some-message";
@@ -14,9 +14,12 @@ import org.mockito.Mock;
 import org.springframework.core.env.Environment;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
 /**
@@ -79,6 +82,90 @@ public class ReleaseMessageScannerTest extends AbstractUnitTest {
 
   }
 
+  @Test
+  public void testScanMessageAndNotifyBatchMessageListener() throws Exception {
+    SettableFuture<List<ReleaseMessage>> someListenerFuture = SettableFuture.create();
+    BatchReleaseMessageListener someListener = new BatchReleaseMessageListener() {
+      @Override
+      public void handleMessages(List<ReleaseMessage> messages, String channel) {
+        someListenerFuture.set(messages);
+      }
+
+      @Override
+      public void handleMessage(ReleaseMessage message, String channel) {
+        throw new UnsupportedOperationException();
+      }
+    };
+    releaseMessageScanner.addMessageListener(someListener);
+
+    ReleaseMessage someReleaseMessage = assembleReleaseMessage(100, "someMessage");
+    ReleaseMessage anotherReleaseMessage = assembleReleaseMessage(101, "anotherMessage");
+
+    when(releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0L)).thenReturn(
+        Lists.newArrayList(someReleaseMessage, anotherReleaseMessage));
+
+    List<ReleaseMessage> someListenerMessages = someListenerFuture.get(5000, TimeUnit.MILLISECONDS);
+
+    assertEquals(Lists.newArrayList(someReleaseMessage, anotherReleaseMessage), someListenerMessages);
+  }
+
+  @Test
+  public void testPushedMessagesAreLoadedFromDatabase() throws Exception {
+    List<Long> someListenerIds = Collections.synchronizedList(Lists.newArrayList());
+    ReleaseMessageListener someListener = (message, channel) -> someListenerIds.add(message.getId());
+    releaseMessageScanner.addMessageListener(someListener);
+
+    ReleaseMessage someReleaseMessage = assembleReleaseMessage(1, "someMessage");
+    ReleaseMessage anotherReleaseMessage = assembleReleaseMessage(2, "anotherMessage");
+    // id 3 is skipped, e.g. a rolled back insert
+    ReleaseMessage yetAnotherReleaseMessage = assembleReleaseMessage(4, "yetAnotherMessage");
+
+    when(releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0L)).thenReturn(
+        Lists.newArrayList(someReleaseMessage));
+    when(releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(1L)).thenReturn(
+        Lists.newArrayList(anotherReleaseMessage, yetAnotherReleaseMessage));
+
+    releaseMessageScanner.onMessagePushed(1);
+    releaseMessageScanner.onMessagePushed(1);
+    // a forged id moves nothing, the messages still come from database
+    releaseMessageScanner.onMessagePushed(100);
+    releaseMessageScanner.onMessagePushed(4);
+    releaseMessageScanner.onMessagePushed(2);
+
+    for (int i = 0; i < 50 && someListenerIds.size() < 3; i++) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    TimeUnit.MILLISECONDS.sleep(databaseScanInterval);
+
+    assertEquals(Lists.newArrayList(1L, 2L, 4L), someListenerIds);
+  }
+
+  @Test
+  public void testScanIntervalFollowsPushSwitch() throws Exception {
+    List<Long> someListenerIds = Collections.synchronizedList(Lists.newArrayList());
+    ReleaseMessageListener someListener = (message, channel) -> someListenerIds.add(message.getId());
+    releaseMessageScanner.addMessageListener(someListener);
+
+    when(bizConfig.isReleaseMessagePushEnabled()).thenReturn(true);
+    when(bizConfig.releaseMessageFallbackScanIntervalInMilli()).thenReturn(60000);
+    // let the scan already scheduled run and pick up the fallback interval
+    TimeUnit.MILLISECONDS.sleep(databaseScanInterval * 3);
+
+    when(releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0L)).thenReturn(
+        Lists.newArrayList(assembleReleaseMessage(1, "someMessage")));
+    TimeUnit.MILLISECONDS.sleep(databaseScanInterval * 5);
+
+    assertTrue(someListenerIds.isEmpty());
+
+    releaseMessageScanner.onMessagePushed(1);
+
+    for (int i = 0; i < 50 && someListenerIds.isEmpty(); i++) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+
+    assertEquals(Lists.newArrayList(1L), someListenerIds);
+  }
+
   private ReleaseMessage assembleReleaseMessage(long id, String message) {
     ReleaseMessage releaseMessage = new ReleaseMessage();
     releaseMessage.setId(id);
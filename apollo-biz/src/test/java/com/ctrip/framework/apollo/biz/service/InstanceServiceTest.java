@@ -110,6 +110,40 @@ public class InstanceServiceTest extends AbstractIntegrationTest {
     assertEquals(anotherReleaseKey, updated.getReleaseKey());
   }
 
+  @Test
+  @Rollback
+  public void testBatchSaveAndFindInstanceConfigs() throws Exception {
+    long someInstanceId = 1;
+    long anotherInstanceId = 2;
+    String someConfigAppId = "someConfigAppId";
+    String someConfigClusterName = "someConfigClusterName";
+    String someConfigNamespaceName = "someConfigNamespaceName";
+    String anotherConfigNamespaceName = "anotherConfigNamespaceName";
+    String someReleaseKey = "someReleaseKey";
+    String anotherReleaseKey = "anotherReleaseKey";
+
+    InstanceConfig someInstanceConfig = instanceService.createInstanceConfig(assembleInstanceConfig(someInstanceId,
+        someConfigAppId, someConfigClusterName, someConfigNamespaceName, someReleaseKey));
+    someInstanceConfig.setReleaseKey(anotherReleaseKey);
+
+    instanceService.batchSaveInstanceConfigs(Lists.newArrayList(someInstanceConfig,
+        assembleInstanceConfig(someInstanceId, someConfigAppId, someConfigClusterName, anotherConfigNamespaceName,
+            someReleaseKey),
+        assembleInstanceConfig(anotherInstanceId, someConfigAppId, someConfigClusterName, someConfigNamespaceName,
+            someReleaseKey)));
+
+    List<InstanceConfig> instanceConfigs = instanceService.findInstanceConfigsByInstanceIds(
+        Sets.newHashSet(someInstanceId));
+
+    assertEquals(2, instanceConfigs.size());
+    assertEquals(anotherReleaseKey, instanceService.findInstanceConfig(someInstanceId, someConfigAppId,
+        someConfigNamespaceName).getReleaseKey());
+    assertEquals(someReleaseKey, instanceService.findInstanceConfig(someInstanceId, someConfigAppId,
+        anotherConfigNamespaceName).getReleaseKey());
+    assertEquals(3, instanceService.findInstanceConfigsByInstanceIds(
+        Sets.newHashSet(someInstanceId, anotherInstanceId)).size());
+  }
+
   @Test
   @Rollback
   public void testFindActiveInstanceConfigs() throws Exception {
@@ -0,0 +1,79 @@
+package com.ctrip.framework.apollo;
+
+/**
+ * A {@link Config} which also returns the property values as primitives, without boxing them, for the hot paths.
+ *
+ * <p>The configs created by the default {@link com.ctrip.framework.apollo.spi.ConfigFactory} implement it, so callers
+ * of {@link ConfigService} may cast to it, while other implementations of {@link Config} don't have to.</p>
+ */
+public interface PrimitiveConfig extends Config {
+  /**
+   * Return the int property value with the given key, or {@code defaultValue} if the key doesn't
+   * exist. Same as {@link #getIntProperty(String, Integer)} but without boxing, for the hot paths.
+   *
+   * @param key          the property name
+   * @param defaultValue the default value when key is not found or any error occurred
+   * @return the property value as int
+   */
+  public int getInt(String key, int defaultValue);
+
+  /**
+   * Return the long property value with the given key, or {@code defaultValue} if the key doesn't
+   * exist. Same as {@link #getLongProperty(String, Long)} but without boxing, for the hot paths.
+   *
+   * @param key          the property name
+   * @param defaultValue the default value when key is not found or any error occurred
+   * @return the property value as long
+   */
+  public long getLong(String key, long defaultValue);
+
+  /**
+   * Return the short property value with the given key, or {@code defaultValue} if the key doesn't
+   * exist. Same as {@link #getShortProperty(String, Short)} but without boxing, for the hot paths.
+   *
+   * @param key          the property name
+   * @param defaultValue the default value when key is not found or any error occurred
+   * @return the property value as short
+   */
+  public short getShort(String key, short defaultValue);
+
+  /**
+   * Return the float property value with the given key, or {@code defaultValue} if the key doesn't
+   * exist. Same as {@link #getFloatProperty(String, Float)} but without boxing, for the hot paths.
+   *
+   * @param key          the property name
+   * @param defaultValue the default value when key is not found or any error occurred
+   * @return the property value as float
+   */
+  public float getFloat(String key, float defaultValue);
+
+  /**
+   * Return the double property value with the given key, or {@code defaultValue} if the key doesn't
+   * exist. Same as {@link #getDoubleProperty(String, Double)} but without boxing, for the hot paths.
+   *
+   * @param key          the property name
+   * @param defaultValue the default value when key is not found or any error occurred
+   * @return the property value as double
+   */
+  public double getDouble(String key, double defaultValue);
+
+  /**
+   * Return the byte property value with the given key, or {@code defaultValue} if the key doesn't
+   * exist. Same as {@link #getByteProperty(String, Byte)} but without boxing, for the hot paths.
+   *
+   * @param key          the property name
+   * @param defaultValue the default value when key is not found or any error occurred
+   * @return the property value as byte
+   */
+  public byte getByte(String key, byte defaultValue);
+
+  /**
+   * Return the boolean property value with the given key, or {@code defaultValue} if the key doesn't
+   * exist. Same as {@link #getBooleanProperty(String, Boolean)} but without boxing, for the hot paths.
+   *
+   * @param key          the property name
+   * @param defaultValue the default value when key is not found or any error occurred
+   * @return the property value as boolean
+   */
+  public boolean getBoolean(String key, boolean defaultValue);
+}
@@ -6,27 +6,19 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicLong;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import com.ctrip.framework.apollo.Config;
 import com.ctrip.framework.apollo.ConfigChangeListener;
+import com.ctrip.framework.apollo.PrimitiveConfig;
 import com.ctrip.framework.apollo.build.ApolloInjector;
-import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.enums.PropertyChangeType;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
 import com.ctrip.framework.apollo.model.ConfigChange;
 import com.ctrip.framework.apollo.model.ConfigChangeEvent;
 import com.ctrip.framework.apollo.tracer.Tracer;
-import com.ctrip.framework.apollo.tracer.spi.Transaction;
 import com.ctrip.framework.apollo.util.ConfigUtil;
 import com.ctrip.framework.apollo.util.function.Functions;
 import com.ctrip.framework.apollo.util.parser.Parsers;
-import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
@@ -37,36 +29,34 @@ import com.google.common.collect.Sets;
 /**
  * @author Jason Song(song_s@ctrip.com)
  */
-public abstract class AbstractConfig implements Config {
-  private static final Logger logger = LoggerFactory.getLogger(AbstractConfig.class);
+public abstract class AbstractConfig implements PrimitiveConfig {
+  private static final ChangeListenerDispatcher<ConfigChangeListener, ConfigChangeEvent> s_dispatcher =
+      new ChangeListenerDispatcher<ConfigChangeListener, ConfigChangeEvent>("Config", "Apollo.ConfigChangeListener") {
+        @Override
+        protected void onChange(ConfigChangeListener listener, ConfigChangeEvent event) {
+          listener.onChange(event);
+        }
+
+        @Override
+        protected ConfigChangeEvent merge(ConfigChangeEvent previous, ConfigChangeEvent next) {
+          return mergeConfigChanges(previous, next);
+        }
+      };
 
-  private static ExecutorService m_executorService;
+  private static final AtomicLong s_configChangeCount = new AtomicLong(); //indicate changes of all the configs
 
   private List<ConfigChangeListener> m_listeners = Lists.newCopyOnWriteArrayList();
   private ConfigUtil m_configUtil;
-  private volatile Cache<String, Integer> m_integerCache;
-  private volatile Cache<String, Long> m_longCache;
-  private volatile Cache<String, Short> m_shortCache;
-  private volatile Cache<String, Float> m_floatCache;
-  private volatile Cache<String, Double> m_doubleCache;
-  private volatile Cache<String, Byte> m_byteCache;
-  private volatile Cache<String, Boolean> m_booleanCache;
-  private volatile Cache<String, Date> m_dateCache;
-  private volatile Cache<String, Long> m_durationCache;
-  private Map<String, Cache<String, String[]>> m_arrayCache;
-  private List<Cache> allCaches;
+  private Cache<String, TypedProperty> m_typedPropertyCache;
   private AtomicLong m_configVersion; //indicate config version
 
-  static {
-    m_executorService = Executors.newCachedThreadPool(ApolloThreadFactory
-        .create("Config", true));
-  }
-
   public AbstractConfig() {
       m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
       m_configVersion = new AtomicLong();
-      m_arrayCache = Maps.newConcurrentMap();
-      allCaches = Lists.newArrayList();
+      m_typedPropertyCache = CacheBuilder.newBuilder()
+          .maximumSize(m_configUtil.getMaxConfigCacheSize())
+          .expireAfterAccess(m_configUtil.getConfigCacheExpireTime(), m_configUtil.getConfigCacheExpireTimeUnit())
+          .build();
   }
 
   @Override
@@ -79,15 +69,10 @@ public abstract class AbstractConfig implements Config {
   @Override
   public Integer getIntProperty(String key, Integer defaultValue) {
     try {
-      if (m_integerCache == null) {
-        synchronized (this) {
-          if (m_integerCache == null) {
-            m_integerCache = newCache();
-          }
-        }
+      TypedProperty property = getTypedProperty(key, TypedProperty.INT, null);
+      if (property != null) {
+        return property.intValue;
       }
-
-      return getValueFromCache(key, Functions.TO_INT_FUNCTION, m_integerCache, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getIntProperty for %s failed, return default value %d", key,
@@ -97,17 +82,27 @@ public abstract class AbstractConfig implements Config {
   }
 
   @Override
-  public Long getLongProperty(String key, Long defaultValue) {
+  public int getInt(String key, int defaultValue) {
     try {
-      if (m_longCache == null) {
-        synchronized (this) {
-          if (m_longCache == null) {
-            m_longCache = newCache();
-          }
-        }
+      TypedProperty property = getTypedProperty(key, TypedProperty.INT, null);
+      if (property != null) {
+        return property.intValue;
       }
+    } catch (Throwable ex) {
+      Tracer.logError(new ApolloConfigException(
+          String.format("getInt for %s failed, return default value %d", key,
+              defaultValue), ex));
+    }
+    return defaultValue;
+  }
 
-      return getValueFromCache(key, Functions.TO_LONG_FUNCTION, m_longCache, defaultValue);
+  @Override
+  public Long getLongProperty(String key, Long defaultValue) {
+    try {
+      TypedProperty property = getTypedProperty(key, TypedProperty.LONG, null);
+      if (property != null) {
+        return property.longValue;
+      }
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getLongProperty for %s failed, return default value %d", key,
@@ -117,17 +112,27 @@ public abstract class AbstractConfig implements Config {
   }
 
   @Override
-  public Short getShortProperty(String key, Short defaultValue) {
+  public long getLong(String key, long defaultValue) {
     try {
-      if (m_shortCache == null) {
-        synchronized (this) {
-          if (m_shortCache == null) {
-            m_shortCache = newCache();
-          }
-        }
+      TypedProperty property = getTypedProperty(key, TypedProperty.LONG, null);
+      if (property != null) {
+        return property.longValue;
       }
+    } catch (Throwable ex) {
+      Tracer.logError(new ApolloConfigException(
+          String.format("getLong for %s failed, return default value %d", key,
+              defaultValue), ex));
+    }
+    return defaultValue;
+  }
 
-      return getValueFromCache(key, Functions.TO_SHORT_FUNCTION, m_shortCache, defaultValue);
+  @Override
+  public Short getShortProperty(String key, Short defaultValue) {
+    try {
+      TypedProperty property = getTypedProperty(key, TypedProperty.SHORT, null);
+      if (property != null) {
+        return property.shortValue;
+      }
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getShortProperty for %s failed, return default value %d", key,
@@ -137,17 +142,27 @@ public abstract class AbstractConfig implements Config {
   }
 
   @Override
-  public Float getFloatProperty(String key, Float defaultValue) {
+  public short getShort(String key, short defaultValue) {
     try {
-      if (m_floatCache == null) {
-        synchronized (this) {
-          if (m_floatCache == null) {
-            m_floatCache = newCache();
-          }
-        }
+      TypedProperty property = getTypedProperty(key, TypedProperty.SHORT, null);
+      if (property != null) {
+        return property.shortValue;
       }
+    } catch (Throwable ex) {
+      Tracer.logError(new ApolloConfigException(
+          String.format("getShort for %s failed, return default value %d", key,
+              defaultValue), ex));
+    }
+    return defaultValue;
+  }
 
-      return getValueFromCache(key, Functions.TO_FLOAT_FUNCTION, m_floatCache, defaultValue);
+  @Override
+  public Float getFloatProperty(String key, Float defaultValue) {
+    try {
+      TypedProperty property = getTypedProperty(key, TypedProperty.FLOAT, null);
+      if (property != null) {
+        return property.floatValue;
+      }
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getFloatProperty for %s failed, return default value %f", key,
@@ -157,17 +172,27 @@ public abstract class AbstractConfig implements Config {
   }
 
   @Override
-  public Double getDoubleProperty(String key, Double defaultValue) {
+  public float getFloat(String key, float defaultValue) {
     try {
-      if (m_doubleCache == null) {
-        synchronized (this) {
-          if (m_doubleCache == null) {
-            m_doubleCache = newCache();
-          }
-        }
+      TypedProperty property = getTypedProperty(key, TypedProperty.FLOAT, null);
+      if (property != null) {
+        return property.floatValue;
       }
+    } catch (Throwable ex) {
+      Tracer.logError(new ApolloConfigException(
+          String.format("getFloat for %s failed, return default value %f", key,
+              defaultValue), ex));
+    }
+    return defaultValue;
+  }
 
-      return getValueFromCache(key, Functions.TO_DOUBLE_FUNCTION, m_doubleCache, defaultValue);
+  @Override
+  public Double getDoubleProperty(String key, Double defaultValue) {
+    try {
+      TypedProperty property = getTypedProperty(key, TypedProperty.DOUBLE, null);
+      if (property != null) {
+        return property.doubleValue;
+      }
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getDoubleProperty for %s failed, return default value %f", key,
@@ -177,17 +202,27 @@ public abstract class AbstractConfig implements Config {
   }
 
   @Override
-  public Byte getByteProperty(String key, Byte defaultValue) {
+  public double getDouble(String key, double defaultValue) {
     try {
-      if (m_byteCache == null) {
-        synchronized (this) {
-          if (m_byteCache == null) {
-            m_byteCache = newCache();
-          }
-        }
+      TypedProperty property = getTypedProperty(key, TypedProperty.DOUBLE, null);
+      if (property != null) {
+        return property.doubleValue;
       }
+    } catch (Throwable ex) {
+      Tracer.logError(new ApolloConfigException(
+          String.format("getDouble for %s failed, return default value %f", key,
+              defaultValue), ex));
+    }
+    return defaultValue;
+  }
 
-      return getValueFromCache(key, Functions.TO_BYTE_FUNCTION, m_byteCache, defaultValue);
+  @Override
+  public Byte getByteProperty(String key, Byte defaultValue) {
+    try {
+      TypedProperty property = getTypedProperty(key, TypedProperty.BYTE, null);
+      if (property != null) {
+        return property.byteValue;
+      }
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getByteProperty for %s failed, return default value %d", key,
@@ -197,17 +232,27 @@ public abstract class AbstractConfig implements Config {
   }
 
   @Override
-  public Boolean getBooleanProperty(String key, Boolean defaultValue) {
+  public byte getByte(String key, byte defaultValue) {
     try {
-      if (m_booleanCache == null) {
-        synchronized (this) {
-          if (m_booleanCache == null) {
-            m_booleanCache = newCache();
-          }
-        }
+      TypedProperty property = getTypedProperty(key, TypedProperty.BYTE, null);
+      if (property != null) {
+        return property.byteValue;
       }
+    } catch (Throwable ex) {
+      Tracer.logError(new ApolloConfigException(
+          String.format("getByte for %s failed, return default value %d", key,
+              defaultValue), ex));
+    }
+    return defaultValue;
+  }
 
-      return getValueFromCache(key, Functions.TO_BOOLEAN_FUNCTION, m_booleanCache, defaultValue);
+  @Override
+  public Boolean getBooleanProperty(String key, Boolean defaultValue) {
+    try {
+      TypedProperty property = getTypedProperty(key, TypedProperty.BOOLEAN, null);
+      if (property != null) {
+        return property.booleanValue;
+      }
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getBooleanProperty for %s failed, return default value %b", key,
@@ -217,29 +262,27 @@ public abstract class AbstractConfig implements Config {
   }
 
   @Override
-  public String[] getArrayProperty(String key, final String delimiter, String[] defaultValue) {
+  public boolean getBoolean(String key, boolean defaultValue) {
     try {
-      if (!m_arrayCache.containsKey(delimiter)) {
-        synchronized (this) {
-          if (!m_arrayCache.containsKey(delimiter)) {
-            m_arrayCache.put(delimiter, this.<String[]>newCache());
-          }
-        }
+      TypedProperty property = getTypedProperty(key, TypedProperty.BOOLEAN, null);
+      if (property != null) {
+        return property.booleanValue;
       }
+    } catch (Throwable ex) {
+      Tracer.logError(new ApolloConfigException(
+          String.format("getBoolean for %s failed, return default value %b", key,
+              defaultValue), ex));
+    }
+    return defaultValue;
+  }
 
-      Cache<String, String[]> cache = m_arrayCache.get(delimiter);
-      String[] result = cache.getIfPresent(key);
-
-      if (result != null) {
-        return result;
+  @Override
+  public String[] getArrayProperty(String key, final String delimiter, String[] defaultValue) {
+    try {
+      TypedProperty property = getTypedProperty(key, TypedProperty.ARRAY, delimiter);
+      if (property != null) {
+        return property.arrayValue(delimiter);
       }
-
-      return getValueAndStoreToCache(key, new Function<String, String[]>() {
-        @Override
-        public String[] apply(String input) {
-          return input.split(delimiter);
-        }
-      }, cache, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getArrayProperty for %s failed, return default value", key), ex));
@@ -267,15 +310,10 @@ public abstract class AbstractConfig implements Config {
   @Override
   public Date getDateProperty(String key, Date defaultValue) {
     try {
-      if (m_dateCache == null) {
-        synchronized (this) {
-          if (m_dateCache == null) {
-            m_dateCache = newCache();
-          }
-        }
+      TypedProperty property = getTypedProperty(key, TypedProperty.DATE, null);
+      if (property != null) {
+        return property.dateValue;
       }
-
-      return getValueFromCache(key, Functions.TO_DATE_FUNCTION, m_dateCache, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getDateProperty for %s failed, return default value %s", key,
@@ -322,15 +360,10 @@ public abstract class AbstractConfig implements Config {
   @Override
   public long getDurationProperty(String key, long defaultValue) {
     try {
-      if (m_durationCache == null) {
-        synchronized (this) {
-          if (m_durationCache == null) {
-            m_durationCache = newCache();
-          }
-        }
+      TypedProperty property = getTypedProperty(key, TypedProperty.DURATION, null);
+      if (property != null) {
+        return property.durationValue;
       }
-
-      return getValueFromCache(key, Functions.TO_DURATION_FUNCTION, m_durationCache, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getDurationProperty for %s failed, return default value %d", key,
@@ -340,79 +373,95 @@ public abstract class AbstractConfig implements Config {
     return defaultValue;
   }
 
-  private <T> T getValueFromCache(String key, Function<String, T> parser, Cache<String, T> cache, T defaultValue) {
-    T result = cache.getIfPresent(key);
+  /**
+   * Get the typed property of the current config version with the given type parsed, the property value is only
+   * parsed when it is not yet parsed to the type since the last config change.
+   *
+   * @return the typed property, or null if the key doesn't exist
+   */
+  private TypedProperty getTypedProperty(String key, int type, String delimiter) {
+    long currentConfigVersion = m_configVersion.get();
+    TypedProperty property = m_typedPropertyCache.getIfPresent(key);
 
-    if (result != null) {
-      return result;
+    if (property != null && property.version == currentConfigVersion && property.isParsed(type, delimiter)) {
+      return property;
     }
 
-    return getValueAndStoreToCache(key, parser, cache, defaultValue);
-  }
-
-  private <T> T getValueAndStoreToCache(String key, Function<String, T> parser, Cache<String, T> cache, T defaultValue) {
-    long currentConfigVersion = m_configVersion.get();
     String value = getProperty(key, null);
-
-    if (value != null) {
-      T result = parser.apply(value);
-
-      if (result != null) {
-        synchronized (this) {
-          if (m_configVersion.get() == currentConfigVersion) {
-            cache.put(key, result);
-          }
-        }
-        return result;
-      }
+    if (value == null) {
+      return null;
     }
 
-    return defaultValue;
+    if (property == null || property.version != currentConfigVersion) {
+      //the property is stamped with the version read before the value, so a change in between makes it stale
+      property = new TypedProperty(currentConfigVersion);
+      m_typedPropertyCache.put(key, property);
+    }
+    property.parse(type, value, delimiter);
+    return property;
   }
 
-  private <T> Cache<String, T> newCache() {
-    Cache<String, T> cache = CacheBuilder.newBuilder()
-        .maximumSize(m_configUtil.getMaxConfigCacheSize())
-        .expireAfterAccess(m_configUtil.getConfigCacheExpireTime(), m_configUtil.getConfigCacheExpireTimeUnit())
-        .build();
-    allCaches.add(cache);
-    return cache;
+  /**
+   * @return the number of changes of all the configs, which is increased right after the properties of any config are
+   * changed and before the change listeners are notified
+   */
+  public static long getConfigChangeCount() {
+    return s_configChangeCount.get();
   }
 
   /**
-   * Clear config cache
+   * Clear config cache, the cached properties of the previous versions are simply ignored from now on
    */
   protected void clearConfigCache() {
-    synchronized (this) {
-      for (Cache c : allCaches) {
-        if (c != null) {
-          c.invalidateAll();
-        }
-      }
-      m_configVersion.incrementAndGet();
+    m_configVersion.incrementAndGet();
+    s_configChangeCount.incrementAndGet();
+  }
+
+  protected void fireConfigChange(ConfigChangeEvent changeEvent) {
+    for (ConfigChangeListener listener : m_listeners) {
+      s_dispatcher.dispatch(changeEvent.getNamespace(), listener, changeEvent);
     }
   }
 
-  protected void fireConfigChange(final ConfigChangeEvent changeEvent) {
-    for (final ConfigChangeListener listener : m_listeners) {
-      m_executorService.submit(new Runnable() {
-        @Override
-        public void run() {
-          String listenerName = listener.getClass().getName();
-          Transaction transaction = Tracer.newTransaction("Apollo.ConfigChangeListener", listenerName);
-          try {
-            listener.onChange(changeEvent);
-            transaction.setStatus(Transaction.SUCCESS);
-          } catch (Throwable ex) {
-            transaction.setStatus(ex);
-            Tracer.logError(ex);
-            logger.error("Failed to invoke config change listener {}", listenerName, ex);
-          } finally {
-            transaction.complete();
-          }
-        }
-      });
+  /**
+   * Merge two change events of a namespace into the net changes, a key changed back to its previous value is left out
+   *
+   * @return the merged event, or null if nothing is changed in the end
+   */
+  static ConfigChangeEvent mergeConfigChanges(ConfigChangeEvent previous, ConfigChangeEvent next) {
+    Map<String, ConfigChange> changes = Maps.newHashMap();
+    for (String key : previous.changedKeys()) {
+      changes.put(key, previous.getChange(key));
+    }
+
+    for (String key : next.changedKeys()) {
+      ConfigChange previousChange = changes.get(key);
+      ConfigChange nextChange = next.getChange(key);
+      if (previousChange == null) {
+        changes.put(key, nextChange);
+        continue;
+      }
+
+      String oldValue = previousChange.getOldValue();
+      String newValue = nextChange.getNewValue();
+      if (Objects.equal(oldValue, newValue)) {
+        changes.remove(key);
+        continue;
+      }
+
+      PropertyChangeType changeType = PropertyChangeType.MODIFIED;
+      if (oldValue == null) {
+        changeType = PropertyChangeType.ADDED;
+      } else if (newValue == null) {
+        changeType = PropertyChangeType.DELETED;
+      }
+      changes.put(key, new ConfigChange(nextChange.getNamespace(), key, oldValue, newValue, changeType));
     }
+
+    if (changes.isEmpty()) {
+      return null;
+    }
+    return new ConfigChangeEvent(next.getNamespace(), changes);
   }
 
   List<ConfigChange> calcPropertyChanges(String namespace, Properties previous,
@@ -456,4 +505,103 @@ public abstract class AbstractConfig implements Config {
 
     return changes;
   }
+
+  /**
+   * The value of a property parsed to the types it has been read as, for one config version. The primitive types are
+   * kept in their own slots so that reading them doesn't box.
+   */
+  private static class TypedProperty {
+    static final int INT = 1;
+    static final int LONG = 1 << 1;
+    static final int SHORT = 1 << 2;
+    static final int FLOAT = 1 << 3;
+    static final int DOUBLE = 1 << 4;
+    static final int BYTE = 1 << 5;
+    static final int BOOLEAN = 1 << 6;
+    static final int DATE = 1 << 7;
+    static final int DURATION = 1 << 8;
+    static final int ARRAY = 1 << 9;
+
+    final long version;
+    //the slots are written before the type is marked as parsed, so they are visible to whoever sees the mark
+    private volatile int m_parsedTypes;
+    private volatile Map<String, String[]> m_arrayValues;
+
+    int intValue;
+    long longValue;
+    short shortValue;
+    float floatValue;
+    double doubleValue;
+    byte byteValue;
+    boolean booleanValue;
+    Date dateValue;
+    long durationValue;
+
+    TypedProperty(long version) {
+      this.version = version;
+    }
+
+    boolean isParsed(int type, String delimiter) {
+      if (type == ARRAY) {
+        Map<String, String[]> arrayValues = m_arrayValues;
+        return arrayValues != null && arrayValues.containsKey(delimiter);
+      }
+      return (m_parsedTypes & type) != 0;
+    }
+
+    void parse(int type, String value, String delimiter) {
+      switch (type) {
+        case INT:
+          intValue = Integer.parseInt(value);
+          break;
+        case LONG:
+          longValue = Long.parseLong(value);
+          break;
+        case SHORT:
+          shortValue = Short.parseShort(value);
+          break;
+        case FLOAT:
+          floatValue = Float.parseFloat(value);
+          break;
+        case DOUBLE:
+          doubleValue = Double.parseDouble(value);
+          break;
+        case BYTE:
+          byteValue = Byte.parseByte(value);
+          break;
+        case BOOLEAN:
+          booleanValue = Boolean.parseBoolean(value);
+          break;
+        case DATE:
+          dateValue = Functions.TO_DATE_FUNCTION.apply(value);
+          break;
+        case DURATION:
+          durationValue = Functions.TO_DURATION_FUNCTION.apply(value);
+          break;
+        case ARRAY:
+          arrayValues().put(delimiter, value.split(delimiter));
+          return;
+        default:
+          throw new IllegalArgumentException("Unknown property type " + type);
+      }
+      synchronized (this) {
+        m_parsedTypes |= type;
+      }
+    }
+
+    String[] arrayValue(String delimiter) {
+      return m_arrayValues.get(delimiter);
+    }
+
+    private Map<String, String[]> arrayValues() {
+      if (m_arrayValues == null) {
+        synchronized (this) {
+          if (m_arrayValues == null) {
+            m_arrayValues = Maps.newConcurrentMap();
+          }
+        }
+      }
+      return m_arrayValues;
+    }
+  }
 }
@@ -3,8 +3,6 @@ package com.ctrip.framework.apollo.internals;
 import java.util.List;
 import java.util.Objects;
 import java.util.Properties;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
@@ -12,11 +10,9 @@ import org.slf4j.LoggerFactory;
 
 import com.ctrip.framework.apollo.ConfigFile;
 import com.ctrip.framework.apollo.ConfigFileChangeListener;
-import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.enums.PropertyChangeType;
 import com.ctrip.framework.apollo.model.ConfigFileChangeEvent;
 import com.ctrip.framework.apollo.tracer.Tracer;
-import com.ctrip.framework.apollo.tracer.spi.Transaction;
 import com.ctrip.framework.apollo.util.ExceptionUtil;
 import com.google.common.collect.Lists;
 
@@ -25,17 +21,24 @@ import com.google.common.collect.Lists;
  */
 public abstract class AbstractConfigFile implements ConfigFile, RepositoryChangeListener {
   private static final Logger logger = LoggerFactory.getLogger(AbstractConfigFile.class);
-  private static ExecutorService m_executorService;
+  private static final ChangeListenerDispatcher<ConfigFileChangeListener, ConfigFileChangeEvent> s_dispatcher =
+      new ChangeListenerDispatcher<ConfigFileChangeListener, ConfigFileChangeEvent>("ConfigFile",
+          "Apollo.ConfigFileChangeListener") {
+        @Override
+        protected void onChange(ConfigFileChangeListener listener, ConfigFileChangeEvent event) {
+          listener.onChange(event);
+        }
+
+        @Override
+        protected ConfigFileChangeEvent merge(ConfigFileChangeEvent previous, ConfigFileChangeEvent next) {
+          return mergeConfigFileChanges(previous, next);
+        }
+      };
   protected ConfigRepository m_configRepository;
   protected String m_namespace;
   protected AtomicReference<Properties> m_configProperties;
   private List<ConfigFileChangeListener> m_listeners = Lists.newCopyOnWriteArrayList();
 
-  static {
-    m_executorService = Executors.newCachedThreadPool(ApolloThreadFactory
-        .create("ConfigFile", true));
-  }
-
   public AbstractConfigFile(String namespace, ConfigRepository configRepository) {
     m_configRepository = configRepository;
     m_namespace = namespace;
@@ -98,25 +101,30 @@ public abstract class AbstractConfigFile implements ConfigFile, RepositoryChange
     }
   }
 
-  private void fireConfigChange(final ConfigFileChangeEvent changeEvent) {
-    for (final ConfigFileChangeListener listener : m_listeners) {
-      m_executorService.submit(new Runnable() {
-        @Override
-        public void run() {
-          String listenerName = listener.getClass().getName();
-          Transaction transaction = Tracer.newTransaction("Apollo.ConfigFileChangeListener", listenerName);
-          try {
-            listener.onChange(changeEvent);
-            transaction.setStatus(Transaction.SUCCESS);
-          } catch (Throwable ex) {
-            transaction.setStatus(ex);
-            Tracer.logError(ex);
-            logger.error("Failed to invoke config file change listener {}", listenerName, ex);
-          } finally {
-            transaction.complete();
-          }
-        }
-      });
+  private void fireConfigChange(ConfigFileChangeEvent changeEvent) {
+    for (ConfigFileChangeListener listener : m_listeners) {
+      s_dispatcher.dispatch(m_namespace, listener, changeEvent);
+    }
+  }
+
+  /**
+   * Merge two change events of a config file into the net change
+   *
+   * @return the merged event, or null if the content is changed back in the end
+   */
+  static ConfigFileChangeEvent mergeConfigFileChanges(ConfigFileChangeEvent previous, ConfigFileChangeEvent next) {
+    String oldValue = previous.getOldValue();
+    String newValue = next.getNewValue();
+    if (Objects.equals(oldValue, newValue)) {
+      return null;
+    }
+
+    PropertyChangeType changeType = PropertyChangeType.MODIFIED;
+    if (oldValue == null) {
+      changeType = PropertyChangeType.ADDED;
+    } else if (newValue == null) {
+      changeType = PropertyChangeType.DELETED;
     }
+    return new ConfigFileChangeEvent(next.getNamespace(), oldValue, newValue, changeType);
   }
 }
@@ -0,0 +1,242 @@
+package com.ctrip.framework.apollo.internals;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.base.Objects;
+import com.google.common.collect.Maps;
+
+/**
+ * Delivers change events to the listeners on a bounded thread pool.
+ *
+ * <p>Each listener gets the events of a namespace in order, one at a time. The events that queue up while the listener
+ * is still busy are merged into one event of the net changes, see {@link #merge(Object, Object)}. A listener that runs
+ * longer than the timeout is interrupted. The time an event waits in the queue, the number of events merged and the
+ * time the listener takes are reported along with the listener transaction.</p>
+ */
+abstract class ChangeListenerDispatcher<L, E> {
+  private static final Logger logger = LoggerFactory.getLogger(ChangeListenerDispatcher.class);
+  private static final int DEFAULT_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+  private static final long DEFAULT_TIMEOUT_IN_MILLS = 60000;//1 minute
+
+  private final String m_transactionType;
+  private final long m_timeoutInMills;
+  private final ExecutorService m_executorService;
+  private final ScheduledThreadPoolExecutor m_timeoutService;
+  private final ConcurrentMap<Channel, Channel> m_channels = Maps.newConcurrentMap();
+  private final AtomicInteger m_queueDepth = new AtomicInteger();
+
+  /**
+   * @param name            the name of the threads
+   * @param transactionType the transaction type of the listener invocations
+   */
+  ChangeListenerDispatcher(String name, String transactionType) {
+    this(name, transactionType, DEFAULT_THREADS, DEFAULT_TIMEOUT_IN_MILLS);
+  }
+
+  ChangeListenerDispatcher(String name, String transactionType, int threads, long timeoutInMills) {
+    m_transactionType = transactionType;
+    m_timeoutInMills = timeoutInMills;
+
+    ThreadPoolExecutor executorService = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), ApolloThreadFactory.create(name, true));
+    executorService.allowCoreThreadTimeOut(true);
+    m_executorService = executorService;
+
+    m_timeoutService = new ScheduledThreadPoolExecutor(1, ApolloThreadFactory.create(name + "Timeout", true));
+    m_timeoutService.setRemoveOnCancelPolicy(true);
+  }
+
+  /**
+   * Invoke the listener with the event.
+   */
+  protected abstract void onChange(L listener, E event);
+
+  /**
+   * Merge two events of the same namespace into one.
+   *
+   * @param previous the earlier event
+   * @param next     the later event
+   * @return the event of the net changes, or null if the later event reverts the earlier one
+   */
+  protected abstract E merge(E previous, E next);
+
+  /**
+   * Queue the event for the listener, it is delivered after the events queued before for the listener and namespace.
+   */
+  void dispatch(String namespace, L listener, E event) {
+    Channel key = new Channel(namespace, listener);
+    Channel channel = m_channels.get(key);
+    if (channel == null) {
+      Channel existing = m_channels.putIfAbsent(key, key);
+      channel = existing == null ? key : existing;
+    }
+    channel.offer(event);
+  }
+
+  /**
+   * @return the number of events waiting to be delivered
+   */
+  int getQueueDepth() {
+    return m_queueDepth.get();
+  }
+
+  private void deliver(String namespace, L listener, E event, int mergedEvents, long queuedAt) {
+    String listenerName = listener.getClass().getName();
+    Transaction transaction = Tracer.newTransaction(m_transactionType, listenerName);
+    transaction.addData("Namespace", namespace);
+    transaction.addData("QueueTimeInMills", System.currentTimeMillis() - queuedAt);
+    transaction.addData("QueueDepth", m_queueDepth.get());
+    if (mergedEvents > 1) {
+      transaction.addData("MergedEvents", mergedEvents);
+    }
+
+    Timeout timeout = new Timeout(namespace, listenerName, Thread.currentThread());
+    if (m_timeoutInMills > 0) {
+      timeout.m_future = m_timeoutService.schedule(timeout, m_timeoutInMills, TimeUnit.MILLISECONDS);
+    }
+    try {
+      onChange(listener, event);
+      transaction.setStatus(Transaction.SUCCESS);
+    } catch (Throwable ex) {
+      transaction.setStatus(ex);
+      Tracer.logError(ex);
+      logger.error("Failed to invoke change listener {}", listenerName, ex);
+    } finally {
+      if (timeout.finish()) {
+        //clear the interruption, so that the thread could go on with other listeners
+        Thread.interrupted();
+      }
+      transaction.complete();
+    }
+  }
+
+  /**
+   * The events of one namespace for one listener, delivered one at a time.
+   */
+  private class Channel implements Runnable {
+    private final String m_namespace;
+    private final L m_listener;
+    private E m_pendingEvent;
+    private int m_pendingEvents;
+    private long m_queuedAt;
+    private boolean m_scheduled;
+
+    Channel(String namespace, L listener) {
+      m_namespace = namespace;
+      m_listener = listener;
+    }
+
+    synchronized void offer(E event) {
+      if (m_pendingEvents == 0) {
+        m_queuedAt = System.currentTimeMillis();
+      }
+      m_pendingEvent = m_pendingEvent == null ? event : merge(m_pendingEvent, event);
+      m_pendingEvents++;
+      m_queueDepth.incrementAndGet();
+
+      if (!m_scheduled) {
+        m_scheduled = true;
+        m_executorService.execute(this);
+      }
+    }
+
+    @Override
+    public void run() {
+      E event;
+      int events;
+      long queuedAt;
+      synchronized (this) {
+        event = m_pendingEvent;
+        events = m_pendingEvents;
+        queuedAt = m_queuedAt;
+        m_pendingEvent = null;
+        m_pendingEvents = 0;
+      }
+      m_queueDepth.addAndGet(-events);
+
+      try {
+        //null if the events queued up revert each other
+        if (event != null) {
+          deliver(m_namespace, m_listener, event, events, queuedAt);
+        }
+      } finally {
+        synchronized (this) {
+          if (m_pendingEvents > 0) {
+            //go to the end of the queue, so that other channels get their turn
+            m_executorService.execute(this);
+          } else {
+            m_scheduled = false;
+          }
+        }
+      }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ChangeListenerDispatcher.Channel)) {
+        return false;
+      }
+      Channel channel = (Channel) o;
+      return m_namespace.equals(channel.m_namespace) && m_listener.equals(channel.m_listener);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(m_namespace, m_listener);
+    }
+  }
+
+  private class Timeout implements Runnable {
+    private final String m_namespace;
+    private final String m_listenerName;
+    private final Thread m_thread;
+    private ScheduledFuture<?> m_future;
+    private boolean m_finished;
+    private boolean m_timedOut;
+
+    Timeout(String namespace, String listenerName, Thread thread) {
+      m_namespace = namespace;
+      m_listenerName = listenerName;
+      m_thread = thread;
+    }
+
+    @Override
+    public synchronized void run() {
+      if (m_finished) {
+        return;
+      }
+      m_timedOut = true;
+      Tracer.logEvent(m_transactionType + ".Timeout", m_listenerName);
+      logger.warn("Change listener {} did not finish handling the changes of namespace {} in {} ms, interrupting it",
+          m_listenerName, m_namespace, m_timeoutInMills);
+      m_thread.interrupt();
+    }
+
+    /**
+     * @return whether the listener was interrupted
+     */
+    synchronized boolean finish() {
+      m_finished = true;
+      if (m_future != null) {
+        m_future.cancel(false);
+      }
+      return m_timedOut;
+    }
+  }
+}
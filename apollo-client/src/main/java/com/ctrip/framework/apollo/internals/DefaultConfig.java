@@ -3,6 +3,7 @@ package com.ctrip.framework.apollo.internals;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -28,9 +29,10 @@ import com.google.common.util.concurrent.RateLimiter;
  */
 public class DefaultConfig extends AbstractConfig implements RepositoryChangeListener {
   private static final Logger logger = LoggerFactory.getLogger(DefaultConfig.class);
+  private static volatile Map<String, String> s_systemProperties = Collections.emptyMap();
   private final String m_namespace;
   private Properties m_resourceProperties;
-  private AtomicReference<Properties> m_configProperties;
+  private AtomicReference<PropertiesSnapshot> m_snapshot;
   private ConfigRepository m_configRepository;
   private RateLimiter m_warnLogRateLimiter;
 
@@ -44,14 +46,32 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
     m_namespace = namespace;
     m_resourceProperties = loadFromResource(m_namespace);
     m_configRepository = configRepository;
-    m_configProperties = new AtomicReference<>();
+    m_snapshot = new AtomicReference<>(new PropertiesSnapshot(null, m_resourceProperties));
     m_warnLogRateLimiter = RateLimiter.create(0.017); // 1 warning log output per minute
+    refreshSystemProperties();
     initialize();
   }
 
+  /**
+   * Take a new snapshot of the system properties for all the configs. System.getProperty locks the whole system
+   * properties on every call, so the configs look up a snapshot which is taken whenever a config is created. A system
+   * property set at runtime, after the configs are created, is only seen once this method is called.
+   */
+  public static void refreshSystemProperties() {
+    Properties systemProperties = System.getProperties();
+    Map<String, String> snapshot = new HashMap<>();
+    for (String key : systemProperties.stringPropertyNames()) {
+      String value = systemProperties.getProperty(key);
+      if (value != null) {
+        snapshot.put(key, value);
+      }
+    }
+    s_systemProperties = snapshot;
+  }
+
   private void initialize() {
     try {
-      m_configProperties.set(m_configRepository.getConfig());
+      m_snapshot.set(new PropertiesSnapshot(m_configRepository.getConfig(), m_resourceProperties));
     } catch (Throwable ex) {
       Tracer.logError(ex);
       logger.warn("Init Apollo Local Config failed - namespace: {}, reason: {}.",
@@ -65,29 +85,16 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
 
   @Override
   public String getProperty(String key, String defaultValue) {
-    // step 1: check system properties, i.e. -Dkey=value
-    String value = System.getProperty(key);
+    // step 1: check system properties, i.e. -Dkey=value, in the snapshot of all configs, see refreshSystemProperties
+    String value = s_systemProperties.get(key);
 
-    // step 2: check local cached properties file
-    if (value == null && m_configProperties.get() != null) {
-      value = m_configProperties.get().getProperty(key);
-    }
-
-    /**
-     * step 3: check env variable, i.e. PATH=...
-     * normally system environment variables are in UPPERCASE, however there might be exceptions.
-     * so the caller should provide the key in the right case
-     */
+    // step 2 ~ 4: check local cached properties file, then env variable, then properties file from classpath
+    PropertiesSnapshot snapshot = m_snapshot.get();
     if (value == null) {
-      value = System.getenv(key);
-    }
-
-    // step 4: check properties file from classpath
-    if (value == null && m_resourceProperties != null) {
-      value = (String) m_resourceProperties.get(key);
+      value = snapshot.getProperty(key);
     }
 
-    if (value == null && m_configProperties.get() == null && m_warnLogRateLimiter.tryAcquire()) {
+    if (value == null && snapshot.configProperties == null && m_warnLogRateLimiter.tryAcquire()) {
       logger.warn("Could not load config for namespace {} from Apollo, please check whether the configs are released in Apollo! Return default value now!", m_namespace);
     }
 
@@ -96,17 +103,12 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
 
   @Override
   public Set<String> getPropertyNames() {
-    Properties properties = m_configProperties.get();
-    if (properties == null) {
-      return Collections.emptySet();
-    }
-
-    return properties.stringPropertyNames();
+    return m_snapshot.get().propertyNames;
   }
 
   @Override
   public synchronized void onRepositoryChange(String namespace, Properties newProperties) {
-    if (newProperties.equals(m_configProperties.get())) {
+    if (newProperties.equals(m_snapshot.get().configProperties)) {
       return;
     }
     Properties newConfigProperties = new Properties();
@@ -126,7 +128,7 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
 
   private Map<String, ConfigChange> updateAndCalcConfigChanges(Properties newConfigProperties) {
     List<ConfigChange> configChanges =
-        calcPropertyChanges(m_namespace, m_configProperties.get(), newConfigProperties);
+        calcPropertyChanges(m_namespace, m_snapshot.get().configProperties, newConfigProperties);
 
     ImmutableMap.Builder<String, ConfigChange> actualChanges =
         new ImmutableMap.Builder<>();
@@ -138,8 +140,8 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
       change.setOldValue(this.getProperty(change.getPropertyName(), change.getOldValue()));
     }
 
-    //2. update m_configProperties
-    m_configProperties.set(newConfigProperties);
+    //2. update m_snapshot
+    m_snapshot.set(new PropertiesSnapshot(newConfigProperties, m_resourceProperties));
     clearConfigCache();
 
     //3. use getProperty to update configChange's new value and calc the final changes
@@ -201,4 +203,50 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
 
     return properties;
   }
+
+  /**
+   * The config properties merged with the properties file from classpath, the latter already overridden by the env
+   * variables of the same keys, so that a lookup is a single read of a map that is never modified after it is built.
+   * Keys in neither of them fall back to the env variables, which are immutable. A new snapshot is built on each change.
+   */
+  private static class PropertiesSnapshot {
+    private final Properties configProperties;
+    private final Map<String, String> mergedProperties;
+    private final Set<String> propertyNames;
+
+    PropertiesSnapshot(Properties configProperties, Properties resourceProperties) {
+      this.configProperties = configProperties;
+
+      Map<String, String> merged = new HashMap<>();
+      if (resourceProperties != null) {
+        for (String key : resourceProperties.stringPropertyNames()) {
+          String envValue = System.getenv(key);
+          merged.put(key, envValue != null ? envValue : resourceProperties.getProperty(key));
+        }
+      }
+      if (configProperties != null) {
+        Set<String> configPropertyNames = configProperties.stringPropertyNames();
+        for (String key : configPropertyNames) {
+          merged.put(key, configProperties.getProperty(key));
+        }
+        this.propertyNames = Collections.unmodifiableSet(configPropertyNames);
+      } else {
+        this.propertyNames = Collections.emptySet();
+      }
+      this.mergedProperties = merged;
+    }
+
+    String getProperty(String key) {
+      String value = mergedProperties.get(key);
+      if (value == null) {
+        /**
+         * check env variable, i.e. PATH=...
+         * normally system environment variables are in UPPERCASE, however there might be exceptions.
+         * so the caller should provide the key in the right case
+         */
+        value = System.getenv(key);
+      }
+      return value;
+    }
+  }
 }
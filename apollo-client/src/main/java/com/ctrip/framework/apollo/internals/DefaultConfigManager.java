@@ -1,6 +1,7 @@
 package com.ctrip.framework.apollo.internals;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import com.ctrip.framework.apollo.Config;
 import com.ctrip.framework.apollo.ConfigFile;
@@ -18,6 +19,8 @@ public class DefaultConfigManager implements ConfigManager {
 
   private Map<String, Config> m_configs = Maps.newConcurrentMap();
   private Map<String, ConfigFile> m_configFiles = Maps.newConcurrentMap();
+  //namespace -> lock, so that namespaces are created in parallel while each one is still created only once
+  private ConcurrentMap<String, Object> m_locks = Maps.newConcurrentMap();
 
   public DefaultConfigManager() {
     m_factoryManager = ApolloInjector.getInstance(ConfigFactoryManager.class);
@@ -28,7 +31,7 @@ public class DefaultConfigManager implements ConfigManager {
     Config config = m_configs.get(namespace);
 
     if (config == null) {
-      synchronized (this) {
+      synchronized (lockOf(namespace)) {
         config = m_configs.get(namespace);
 
         if (config == null) {
@@ -49,7 +52,7 @@ public class DefaultConfigManager implements ConfigManager {
     ConfigFile configFile = m_configFiles.get(namespaceFileName);
 
     if (configFile == null) {
-      synchronized (this) {
+      synchronized (lockOf(namespaceFileName)) {
         configFile = m_configFiles.get(namespaceFileName);
 
         if (configFile == null) {
@@ -63,4 +66,16 @@ public class DefaultConfigManager implements ConfigManager {
 
     return configFile;
   }
+
+  private Object lockOf(String key) {
+    Object lock = m_locks.get(key);
+    if (lock == null) {
+      lock = new Object();
+      Object existing = m_locks.putIfAbsent(key, lock);
+      if (existing != null) {
+        lock = existing;
+      }
+    }
+    return lock;
+  }
 }
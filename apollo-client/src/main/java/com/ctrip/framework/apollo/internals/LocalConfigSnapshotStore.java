@@ -0,0 +1,310 @@
+package com.ctrip.framework.apollo.internals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.ctrip.framework.apollo.util.ExceptionUtil;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Keeps the local cache of a namespace in a binary snapshot file, next to the .properties file of the same name.
+ *
+ * <p>Writes are done by a background thread: each file is written to a temp file first and then renamed over the old
+ * one, so a crash in the middle never leaves a truncated cache behind. Writes of the same namespace that queue up are
+ * coalesced, and a load in the meantime sees the latest pending properties. The first write of each namespace is
+ * waited for, and a shutdown hook waits for the pending ones, so that a short-lived process still leaves its cache
+ * behind.</p>
+ *
+ * <p>The snapshot file is laid out as: magic, format version, entry count, then the length prefixed UTF-8 key and
+ * value of each entry, followed by the CRC32 of all the bytes before it. The .properties file is still read when there
+ * is no newer snapshot, e.g. caches written by older clients, and is also written unless
+ * {@link com.ctrip.framework.apollo.util.ConfigUtil#isPropertiesCacheFileEnabled()} is off.</p>
+ */
+class LocalConfigSnapshotStore {
+  private static final Logger logger = LoggerFactory.getLogger(LocalConfigSnapshotStore.class);
+  static final String PROPERTIES_FILE_EXTENSION = ".properties";
+  static final String SNAPSHOT_FILE_EXTENSION = ".snapshot";
+  private static final int MAGIC = 0x4150534E; // "APSN"
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_LENGTH = 12;
+  private static final int CHECKSUM_LENGTH = 8;
+  private static final long WRITE_TIMEOUT_IN_SECONDS = 5;
+
+  private static final ExecutorService s_writer;
+  // properties file -> the latest properties not written yet
+  private static final ConcurrentMap<File, Properties> s_pendingWrites = Maps.newConcurrentMap();
+  // properties files written, or being written, by this process
+  private static final Set<File> s_persistedFiles = Sets.newConcurrentHashSet();
+
+  private final boolean m_propertiesFileEnabled;
+
+  static {
+    s_writer = Executors.newSingleThreadExecutor(ApolloThreadFactory
+        .create("LocalConfigSnapshotStore", true));
+    //the writer is a daemon thread, so the pending writes would be lost on exit
+    Runtime.getRuntime().addShutdownHook(new Thread("LocalConfigSnapshotStore-shutdown") {
+      @Override
+      public void run() {
+        if (!awaitPendingWrites(WRITE_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)) {
+          logger.warn("Local config cache files are not all persisted before shutdown");
+        }
+      }
+    });
+  }
+
+  LocalConfigSnapshotStore(boolean propertiesFileEnabled) {
+    m_propertiesFileEnabled = propertiesFileEnabled;
+  }
+
+  /**
+   * Load the local cache, from the latest pending write, the snapshot file or the properties file, whichever is the
+   * most recent.
+   *
+   * @param propertiesFile the .properties file of the namespace
+   */
+  Properties load(File propertiesFile) throws IOException {
+    Properties pending = s_pendingWrites.get(propertiesFile);
+    if (pending != null) {
+      Properties result = new Properties();
+      result.putAll(pending);
+      return result;
+    }
+
+    File snapshotFile = snapshotFileOf(propertiesFile);
+    boolean propertiesFileReadable = propertiesFile.isFile() && propertiesFile.canRead();
+
+    if (snapshotFile.isFile() && snapshotFile.canRead()
+        && (!propertiesFileReadable || snapshotFile.lastModified() >= propertiesFile.lastModified())) {
+      try {
+        Properties properties = decode(Files.readAllBytes(snapshotFile.toPath()));
+        logger.debug("Loading local config snapshot {} successfully!", snapshotFile.getAbsolutePath());
+        return properties;
+      } catch (IOException ex) {
+        if (!propertiesFileReadable) {
+          throw ex;
+        }
+        Tracer.logError(ex);
+        logger.warn("Loading local config snapshot {} failed, will load {} instead, reason: {}",
+            snapshotFile.getAbsolutePath(), propertiesFile.getAbsolutePath(), ExceptionUtil.getDetailMessage(ex));
+      }
+    }
+
+    if (!propertiesFileReadable) {
+      throw new ApolloConfigException(
+          String.format("Cannot read from local cache file %s", propertiesFile.getAbsolutePath()));
+    }
+
+    Properties properties = new Properties();
+    properties.load(new ByteArrayInputStream(Files.readAllBytes(propertiesFile.toPath())));
+    logger.debug("Loading local config file {} successfully!", propertiesFile.getAbsolutePath());
+    return properties;
+  }
+
+  /**
+   * Persist the properties in the background, only the latest properties are written if several are queued up. The
+   * first write of the namespace is waited for, as the process may be gone before the background thread is scheduled.
+   *
+   * @param propertiesFile the .properties file of the namespace
+   */
+  void persist(final File propertiesFile, Properties properties) {
+    Properties snapshot = new Properties();
+    snapshot.putAll(properties);
+    s_pendingWrites.put(propertiesFile, snapshot);
+
+    Future<?> future = s_writer.submit(new Runnable() {
+      @Override
+      public void run() {
+        Properties latest = s_pendingWrites.get(propertiesFile);
+        if (latest == null) {
+          //already written along with a previous change
+          return;
+        }
+        try {
+          write(propertiesFile, latest);
+        } finally {
+          s_pendingWrites.remove(propertiesFile, latest);
+        }
+      }
+    });
+
+    if (s_persistedFiles.add(propertiesFile)) {
+      try {
+        future.get(WRITE_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      } catch (Throwable ex) {
+        logger.warn("Waiting for local cache file {} to be persisted failed, reason: {}.",
+            propertiesFile.getAbsolutePath(), ExceptionUtil.getDetailMessage(ex));
+      }
+    }
+  }
+
+  /**
+   * Wait for the writes submitted so far to finish.
+   *
+   * @return true if they finished in time
+   */
+  static boolean awaitPendingWrites(long timeout, TimeUnit unit) {
+    Future<?> marker = s_writer.submit(new Runnable() {
+      @Override
+      public void run() {
+        //nothing to do, the writes before are done once this runs
+      }
+    });
+    try {
+      marker.get(timeout, unit);
+      return true;
+    } catch (Throwable ex) {
+      return false;
+    }
+  }
+
+  private void write(File propertiesFile, Properties properties) {
+    Transaction transaction = Tracer.newTransaction("Apollo.ConfigService", "persistLocalConfigFile");
+    transaction.addData("LocalConfigFile", propertiesFile.getAbsolutePath());
+    try {
+      //the properties file goes first, so that the snapshot is not older than it
+      if (m_propertiesFileEnabled) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        properties.store(out, "Persisted by DefaultConfig");
+        writeAtomically(propertiesFile, out.toByteArray());
+      }
+      writeAtomically(snapshotFileOf(propertiesFile), encode(properties));
+      transaction.setStatus(Transaction.SUCCESS);
+    } catch (Throwable ex) {
+      ApolloConfigException exception =
+          new ApolloConfigException(
+              String.format("Persist local cache file %s failed", propertiesFile.getAbsolutePath()), ex);
+      Tracer.logError(exception);
+      transaction.setStatus(exception);
+      logger.warn("Persist local cache file {} failed, reason: {}.", propertiesFile.getAbsolutePath(),
+          ExceptionUtil.getDetailMessage(ex));
+    } finally {
+      transaction.complete();
+    }
+  }
+
+  private void writeAtomically(File file, byte[] content) throws IOException {
+    File tempFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+    try {
+      FileOutputStream out = new FileOutputStream(tempFile);
+      try {
+        out.write(content);
+        out.getFD().sync();
+      } finally {
+        out.close();
+      }
+      try {
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException ex) {
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      if (tempFile.exists()) {
+        tempFile.delete();
+      }
+    }
+  }
+
+  static byte[] encode(Properties properties) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT_VERSION);
+    Set<String> keys = properties.stringPropertyNames();
+    out.writeInt(keys.size());
+    for (String key : keys) {
+      writeString(out, key);
+      writeString(out, properties.getProperty(key));
+    }
+    out.flush();
+
+    CRC32 crc = new CRC32();
+    crc.update(bytes.toByteArray());
+    out.writeLong(crc.getValue());
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  static Properties decode(byte[] content) throws IOException {
+    if (content.length < HEADER_LENGTH + CHECKSUM_LENGTH) {
+      throw new IOException("Local config snapshot is truncated");
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(content);
+    int dataLength = content.length - CHECKSUM_LENGTH;
+
+    CRC32 crc = new CRC32();
+    crc.update(content, 0, dataLength);
+    if (crc.getValue() != buffer.getLong(dataLength)) {
+      throw new IOException("Local config snapshot checksum mismatch");
+    }
+    if (buffer.getInt() != MAGIC) {
+      throw new IOException("Not a local config snapshot");
+    }
+    int formatVersion = buffer.getInt();
+    if (formatVersion != FORMAT_VERSION) {
+      throw new IOException(String.format("Unsupported local config snapshot version %d", formatVersion));
+    }
+
+    buffer.limit(dataLength);
+    int count = buffer.getInt();
+    Properties properties = new Properties();
+    try {
+      for (int i = 0; i < count; i++) {
+        String key = readString(buffer);
+        String value = readString(buffer);
+        properties.setProperty(key, value);
+      }
+    } catch (RuntimeException ex) {
+      throw new IOException("Local config snapshot is corrupted", ex);
+    }
+    return properties;
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+    buffer.position(buffer.position() + length);
+    return value;
+  }
+
+  static File snapshotFileOf(File propertiesFile) {
+    String name = propertiesFile.getName();
+    if (name.endsWith(PROPERTIES_FILE_EXTENSION)) {
+      name = name.substring(0, name.length() - PROPERTIES_FILE_EXTENSION.length());
+    }
+    return new File(propertiesFile.getParentFile(), name + SNAPSHOT_FILE_EXTENSION);
+  }
+}
@@ -1,11 +1,7 @@
 package com.ctrip.framework.apollo.internals;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -35,6 +31,7 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
   private final String m_namespace;
   private File m_baseDir;
   private final ConfigUtil m_configUtil;
+  private final LocalConfigSnapshotStore m_snapshotStore;
   private volatile Properties m_fileProperties;
   private volatile ConfigRepository m_upstream;
 
@@ -50,6 +47,7 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
   public LocalFileConfigRepository(String namespace, ConfigRepository upstream) {
     m_namespace = namespace;
     m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
+    m_snapshotStore = new LocalConfigSnapshotStore(m_configUtil.isPropertiesCacheFileEnabled());
     this.setLocalCacheDir(findLocalCacheDir(), false);
     this.setUpstreamRepository(upstream);
     this.trySync();
@@ -174,70 +172,22 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
     Preconditions.checkNotNull(baseDir, "Basedir cannot be null");
 
     File file = assembleLocalCacheFile(baseDir, namespace);
-    Properties properties = null;
 
-    if (file.isFile() && file.canRead()) {
-      InputStream in = null;
-
-      try {
-        in = new FileInputStream(file);
-
-        properties = new Properties();
-        properties.load(in);
-        logger.debug("Loading local config file {} successfully!", file.getAbsolutePath());
-      } catch (IOException ex) {
-        Tracer.logError(ex);
-        throw new ApolloConfigException(String
-            .format("Loading config from local cache file %s failed", file.getAbsolutePath()), ex);
-      } finally {
-        try {
-          if (in != null) {
-            in.close();
-          }
-        } catch (IOException ex) {
-          // ignore
-        }
-      }
-    } else {
-      throw new ApolloConfigException(
-          String.format("Cannot read from local cache file %s", file.getAbsolutePath()));
+    try {
+      return m_snapshotStore.load(file);
+    } catch (IOException ex) {
+      Tracer.logError(ex);
+      throw new ApolloConfigException(String
+          .format("Loading config from local cache file %s failed", file.getAbsolutePath()), ex);
     }
-
-    return properties;
   }
 
   void persistLocalCacheFile(File baseDir, String namespace) {
     if (baseDir == null) {
       return;
     }
-    File file = assembleLocalCacheFile(baseDir, namespace);
-
-    OutputStream out = null;
-
-    Transaction transaction = Tracer.newTransaction("Apollo.ConfigService", "persistLocalConfigFile");
-    transaction.addData("LocalConfigFile", file.getAbsolutePath());
-    try {
-      out = new FileOutputStream(file);
-      m_fileProperties.store(out, "Persisted by DefaultConfig");
-      transaction.setStatus(Transaction.SUCCESS);
-    } catch (IOException ex) {
-      ApolloConfigException exception =
-          new ApolloConfigException(
-              String.format("Persist local cache file %s failed", file.getAbsolutePath()), ex);
-      Tracer.logError(exception);
-      transaction.setStatus(exception);
-      logger.warn("Persist local cache file {} failed, reason: {}.", file.getAbsolutePath(),
-          ExceptionUtil.getDetailMessage(ex));
-    } finally {
-      if (out != null) {
-        try {
-          out.close();
-        } catch (IOException ex) {
-          //ignore
-        }
-      }
-      transaction.complete();
-    }
+    //written in the background, so that the change notification is not held up by the disk
+    m_snapshotStore.persist(assembleLocalCacheFile(baseDir, namespace), m_fileProperties);
   }
 
   private void checkLocalConfigCacheDir(File baseDir) {
@@ -0,0 +1,340 @@
+package com.ctrip.framework.apollo.internals;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ctrip.framework.apollo.build.ApolloInjector;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigResult;
+import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.ctrip.framework.apollo.util.ExceptionUtil;
+import com.ctrip.framework.apollo.util.http.HttpRequest;
+import com.ctrip.framework.apollo.util.http.HttpResponse;
+import com.ctrip.framework.apollo.util.http.HttpUtil;
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.escape.Escaper;
+import com.google.common.net.UrlEscapers;
+import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * Loads the configs of several namespaces in one request.
+ *
+ * <p>Works like a group commit: the first caller sends the request right away, and all callers that arrive while a
+ * request is in flight are sent together in the next request, by the first of them once the request in flight is
+ * done. Each caller sends at most one request, the one containing its own namespace, so it waits for at most the
+ * request in flight and its own, while concurrent syncs, e.g. after a notification touching several namespaces, share
+ * one request.</p>
+ *
+ * <p>Callers should load the namespace on their own if {@link #load} fails.</p>
+ */
+public class RemoteConfigBatchLoader {
+  private static final Logger logger = LoggerFactory.getLogger(RemoteConfigBatchLoader.class);
+  private static final Joiner.MapJoiner MAP_JOINER = Joiner.on("&").withKeyValueSeparator("=");
+  private static final Escaper pathEscaper = UrlEscapers.urlPathSegmentEscaper();
+  private static final Escaper queryParamEscaper = UrlEscapers.urlFormParameterEscaper();
+  private final ConfigUtil m_configUtil;
+  private final HttpUtil m_httpUtil;
+  private final ConfigServiceLocator m_serviceLocator;
+  private final Gson gson;
+  private final Random m_random;
+  private final Type m_responseType;
+  private final AtomicBoolean m_batchSupported;
+  private final Object m_lock = new Object();
+  //guarded by m_lock
+  private Map<String, PendingLoad> m_pendingLoads;
+  //guarded by m_lock
+  private boolean m_loading;
+
+  public RemoteConfigBatchLoader() {
+    m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
+    m_httpUtil = ApolloInjector.getInstance(HttpUtil.class);
+    m_serviceLocator = ApolloInjector.getInstance(ConfigServiceLocator.class);
+    gson = new Gson();
+    m_random = new Random();
+    m_responseType = new TypeToken<List<ApolloConfigResult>>() {
+    }.getType();
+    m_batchSupported = new AtomicBoolean(true);
+    m_pendingLoads = Maps.newLinkedHashMap();
+  }
+
+  public boolean isEnabled() {
+    return m_configUtil.isConfigBatchLoadEnabled() && m_batchSupported.get();
+  }
+
+  /**
+   * Load the config of the namespace, possibly together with other namespaces.
+   *
+   * @param namespace      the namespace
+   * @param previousConfig the config the caller has, null if none
+   * @param remoteMessages the notification messages the caller received
+   * @param configService  the config service to load from, e.g. the one which notified the caller, null for any
+   * @return the loaded config, or previousConfig itself if the config is not modified
+   * @throws ApolloConfigException if the namespace could not be loaded in batch
+   */
+  public ApolloConfig load(String namespace, ApolloConfig previousConfig,
+                           ApolloNotificationMessages remoteMessages, ServiceDTO configService) {
+    PendingLoad pendingLoad = new PendingLoad(namespace, previousConfig, remoteMessages, configService);
+    synchronized (m_lock) {
+      if (m_pendingLoads.containsKey(namespace)) {
+        throw new ApolloConfigException(String.format("Namespace %s is being loaded in batch already", namespace));
+      }
+      m_pendingLoads.put(namespace, pendingLoad);
+      if (!m_loading) {
+        m_loading = true;
+        pendingLoad.leader = true;
+      }
+    }
+
+    try {
+      //the request in flight has to be done before the one containing this namespace is sent
+      long timeout = 2L * (m_configUtil.getConnectTimeout() + m_configUtil.getReadTimeout());
+      long deadline = System.currentTimeMillis() + timeout;
+      if (awaitLeadership(pendingLoad, timeout)) {
+        loadBatch();
+      }
+      return pendingLoad.result.get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+    } catch (Throwable ex) {
+      throw new ApolloConfigException(String.format("Load config in batch failed for namespace %s", namespace), ex);
+    }
+  }
+
+  /**
+   * Wait until the namespace is sent by another caller, or the caller is to send the next batch itself.
+   *
+   * @return true if the caller is to send the next batch
+   */
+  private boolean awaitLeadership(PendingLoad pendingLoad, long timeout) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + timeout;
+    synchronized (m_lock) {
+      try {
+        while (!pendingLoad.leader && !pendingLoad.result.isDone()) {
+          long remaining = deadline - System.currentTimeMillis();
+          if (remaining <= 0) {
+            abandon(pendingLoad, new ApolloConfigException(
+                String.format("Timeout waiting for the batch of namespace %s to be sent", pendingLoad.namespace)));
+            return false;
+          }
+          m_lock.wait(remaining);
+        }
+      } catch (InterruptedException ex) {
+        if (!pendingLoad.leader) {
+          abandon(pendingLoad, ex);
+          throw ex;
+        }
+        //the others queued are waiting for this caller to send them
+        Thread.currentThread().interrupt();
+      }
+      return pendingLoad.leader;
+    }
+  }
+
+  /**
+   * Remove the namespace if it is not sent yet, so that it won't be handed the next batch, must hold m_lock.
+   */
+  private void abandon(PendingLoad pendingLoad, Throwable cause) {
+    if (m_pendingLoads.get(pendingLoad.namespace) == pendingLoad) {
+      m_pendingLoads.remove(pendingLoad.namespace);
+      pendingLoad.result.setException(cause);
+    }
+  }
+
+  /**
+   * Send all the pending namespaces, including the caller's own, in one request, then hand over to the first caller
+   * queued meanwhile, so that no caller sends requests for others after its own namespace is loaded.
+   */
+  private void loadBatch() {
+    List<PendingLoad> batch;
+    synchronized (m_lock) {
+      batch = Lists.newArrayList(m_pendingLoads.values());
+      m_pendingLoads = Maps.newLinkedHashMap();
+    }
+
+    try {
+      doLoad(batch);
+    } catch (Throwable ex) {
+      for (PendingLoad pendingLoad : batch) {
+        pendingLoad.result.setException(ex);
+      }
+    } finally {
+      synchronized (m_lock) {
+        if (m_pendingLoads.isEmpty()) {
+          m_loading = false;
+        } else {
+          m_pendingLoads.values().iterator().next().leader = true;
+        }
+        m_lock.notifyAll();
+      }
+    }
+  }
+
+  private void doLoad(List<PendingLoad> batch) {
+    ServiceDTO configService = selectConfigService(batch);
+
+    String url = assembleBatchQueryConfigUrl(configService.getHomepageUrl(), m_configUtil.getAppId(),
+        m_configUtil.getCluster(), m_configUtil.getDataCenter(), batch);
+
+    logger.debug("Loading {} namespaces from {}", batch.size(), url);
+
+    Transaction transaction = Tracer.newTransaction("Apollo.ConfigService", "queryConfigs");
+    transaction.addData("Url", url);
+    transaction.addData("Namespaces", batch.size());
+    try {
+      HttpResponse<List<ApolloConfigResult>> response = m_httpUtil.doGet(new HttpRequest(url), m_responseType);
+      complete(batch, response.getBody());
+      transaction.setStatus(Transaction.SUCCESS);
+    } catch (ApolloConfigStatusCodeException ex) {
+      //the config service does not support batch query yet
+      if (ex.getStatusCode() == 404 || ex.getStatusCode() == 405) {
+        disableBatch(ex);
+      }
+      transaction.setStatus(ex);
+      throw ex;
+    } catch (ApolloConfigException ex) {
+      if (ex.getCause() instanceof JsonParseException) {
+        disableBatch(ex);
+      }
+      transaction.setStatus(ex);
+      throw ex;
+    } catch (Throwable ex) {
+      transaction.setStatus(ex);
+      throw ex;
+    } finally {
+      transaction.complete();
+    }
+  }
+
+  /**
+   * The config service which notified the callers is preferred, as the other ones may not have the latest release yet.
+   */
+  private ServiceDTO selectConfigService(List<PendingLoad> batch) {
+    for (PendingLoad pendingLoad : batch) {
+      if (pendingLoad.configService != null) {
+        return pendingLoad.configService;
+      }
+    }
+
+    List<ServiceDTO> configServices = m_serviceLocator.getConfigServices();
+    if (configServices.isEmpty()) {
+      throw new ApolloConfigException("No available config service");
+    }
+    return configServices.get(m_random.nextInt(configServices.size()));
+  }
+
+  private void complete(List<PendingLoad> batch, List<ApolloConfigResult> results) {
+    Map<String, ApolloConfigResult> resultsByNamespace = Maps.newHashMap();
+    if (results != null) {
+      for (ApolloConfigResult result : results) {
+        resultsByNamespace.put(result.getNamespaceName(), result);
+      }
+    }
+
+    for (PendingLoad pendingLoad : batch) {
+      ApolloConfigResult result = resultsByNamespace.get(pendingLoad.namespace);
+      if (result == null) {
+        pendingLoad.result.setException(new ApolloConfigException(
+            String.format("No result for namespace %s in batch response", pendingLoad.namespace)));
+        continue;
+      }
+      switch (result.getStatusCode()) {
+        case 200:
+          pendingLoad.result.set(result.getConfig());
+          break;
+        case 304:
+          if (pendingLoad.previousConfig != null) {
+            pendingLoad.result.set(pendingLoad.previousConfig);
+            break;
+          }
+          //fall through, as there is nothing to compare with
+        default:
+          pendingLoad.result.setException(new ApolloConfigStatusCodeException(result.getStatusCode(),
+              String.format("Load config in batch failed for namespace %s", pendingLoad.namespace)));
+      }
+    }
+  }
+
+  private void disableBatch(Throwable ex) {
+    if (m_batchSupported.compareAndSet(true, false)) {
+      logger.warn("Config service does not support batch config query, will load namespaces one by one. Reason: {}",
+          ExceptionUtil.getDetailMessage(ex));
+      Tracer.logEvent("Apollo.Client.BatchLoadDisabled", ExceptionUtil.getDetailMessage(ex));
+    }
+  }
+
+  String assembleBatchQueryConfigUrl(String uri, String appId, String cluster, String dataCenter,
+                                     List<PendingLoad> batch) {
+    String path = String.format("configs/%s/%s", pathEscaper.escape(appId), pathEscaper.escape(cluster));
+
+    Map<String, String> releaseKeys = Maps.newLinkedHashMap();
+    ApolloNotificationMessages remoteMessages = null;
+    for (PendingLoad pendingLoad : batch) {
+      releaseKeys.put(pendingLoad.namespace,
+          pendingLoad.previousConfig == null ? "-1" : pendingLoad.previousConfig.getReleaseKey());
+      if (pendingLoad.remoteMessages != null) {
+        if (remoteMessages == null) {
+          remoteMessages = new ApolloNotificationMessages();
+        }
+        remoteMessages.mergeFrom(pendingLoad.remoteMessages);
+      }
+    }
+
+    Map<String, String> queryParams = Maps.newLinkedHashMap();
+    queryParams.put("namespaces", queryParamEscaper.escape(gson.toJson(releaseKeys)));
+    queryParams.put("delta", "true");
+
+    if (!Strings.isNullOrEmpty(dataCenter)) {
+      queryParams.put("dataCenter", queryParamEscaper.escape(dataCenter));
+    }
+
+    String localIp = m_configUtil.getLocalIp();
+    if (!Strings.isNullOrEmpty(localIp)) {
+      queryParams.put("ip", queryParamEscaper.escape(localIp));
+    }
+
+    if (remoteMessages != null) {
+      queryParams.put("messages", queryParamEscaper.escape(gson.toJson(remoteMessages)));
+    }
+
+    if (!uri.endsWith("/")) {
+      uri += "/";
+    }
+    return uri + path + "?" + MAP_JOINER.join(queryParams);
+  }
+
+  static class PendingLoad {
+    private final String namespace;
+    private final ApolloConfig previousConfig;
+    private final ApolloNotificationMessages remoteMessages;
+    private final ServiceDTO configService;
+    private final SettableFuture<ApolloConfig> result;
+    //guarded by m_lock, whether the caller is to send the next batch
+    private boolean leader;
+
+    PendingLoad(String namespace, ApolloConfig previousConfig, ApolloNotificationMessages remoteMessages,
+                ServiceDTO configService) {
+      this.namespace = namespace;
+      this.previousConfig = previousConfig;
+      this.remoteMessages = remoteMessages;
+      this.configService = configService;
+      this.result = SettableFuture.create();
+    }
+  }
+}
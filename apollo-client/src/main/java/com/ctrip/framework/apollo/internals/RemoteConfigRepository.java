@@ -51,6 +51,7 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
   private HttpUtil m_httpUtil;
   private ConfigUtil m_configUtil;
   private RemoteConfigLongPollService remoteConfigLongPollService;
+  private RemoteConfigBatchLoader m_batchLoader;
   private volatile AtomicReference<ApolloConfig> m_configCache;
   private final String m_namespace;
   private final static ScheduledExecutorService m_executorService;
@@ -64,7 +65,8 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
   private static final Escaper queryParamEscaper = UrlEscapers.urlFormParameterEscaper();
 
   static {
-    m_executorService = Executors.newScheduledThreadPool(1,
+    //more than one thread, so that namespaces notified together could sync concurrently and be loaded in batch
+    m_executorService = Executors.newScheduledThreadPool(4,
         ApolloThreadFactory.create("RemoteConfigRepository", true));
   }
 
@@ -80,6 +82,7 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
     m_httpUtil = ApolloInjector.getInstance(HttpUtil.class);
     m_serviceLocator = ApolloInjector.getInstance(ConfigServiceLocator.class);
     remoteConfigLongPollService = ApolloInjector.getInstance(RemoteConfigLongPollService.class);
+    m_batchLoader = ApolloInjector.getInstance(RemoteConfigBatchLoader.class);
     m_longPollServiceDto = new AtomicReference<>();
     m_remoteMessages = new AtomicReference<>();
     m_loadConfigRateLimiter = RateLimiter.create(m_configUtil.getLoadConfigQPS());
@@ -168,6 +171,14 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
     String cluster = m_configUtil.getCluster();
     String dataCenter = m_configUtil.getDataCenter();
     Tracer.logEvent("Apollo.Client.ConfigMeta", STRING_JOINER.join(appId, cluster, m_namespace));
+
+    if (m_batchLoader.isEnabled()) {
+      ApolloConfig result = tryLoadApolloConfigInBatch();
+      if (result != null) {
+        return result;
+      }
+    }
+
     int maxRetries = m_configNeedForceRefresh.get() ? 2 : 1;
     long onErrorSleepTime = 0; // 0 means no sleep
     Throwable exception = null;
@@ -219,6 +230,19 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
 
           ApolloConfig result = response.getBody();
 
+          if (result != null && result.getBaseReleaseKey() != null) {
+            ApolloConfig previous = m_configCache.get();
+            if (previous != null && result.getBaseReleaseKey().equals(previous.getReleaseKey())) {
+              result = applyDelta(previous, result);
+            } else {
+              //the delta is not based on what we have, so load the full config instead
+              Tracer.logEvent("Apollo.Client.ConfigDeltaMismatch", m_namespace);
+              url = assembleQueryConfigUrl(configService.getHomepageUrl(), appId, cluster, m_namespace,
+                  dataCenter, m_remoteMessages.get(), null);
+              result = m_httpUtil.doGet(new HttpRequest(url), ApolloConfig.class).getBody();
+            }
+          }
+
           logger.debug("Loaded config for {}: {}", m_namespace, result);
 
           return result;
@@ -256,6 +280,37 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
     throw new ApolloConfigException(message, exception);
   }
 
+  /**
+   * @return the loaded config, or null if the config should be loaded on its own
+   */
+  private ApolloConfig tryLoadApolloConfigInBatch() {
+    ApolloConfig previous = m_configCache.get();
+    //access the server which notifies the client first, it is kept for loading on its own if the batch fails
+    ServiceDTO longPollServiceDto = m_longPollServiceDto.get();
+    try {
+      ApolloConfig result = m_batchLoader.load(m_namespace, previous, m_remoteMessages.get(), longPollServiceDto);
+
+      if (result.getBaseReleaseKey() != null) {
+        if (previous == null || !result.getBaseReleaseKey().equals(previous.getReleaseKey())) {
+          return null;
+        }
+        result = applyDelta(previous, result);
+      }
+
+      m_longPollServiceDto.compareAndSet(longPollServiceDto, null);
+      m_configNeedForceRefresh.set(false);
+      m_loadConfigFailSchedulePolicy.success();
+
+      logger.debug("Loaded config for {} in batch: {}", m_namespace, result);
+
+      return result;
+    } catch (Throwable ex) {
+      logger.debug("Load config for {} in batch failed, will load it on its own. Reason: {}", m_namespace,
+          ExceptionUtil.getDetailMessage(ex));
+      return null;
+    }
+  }
+
   String assembleQueryConfigUrl(String uri, String appId, String cluster, String namespace,
                                 String dataCenter, ApolloNotificationMessages remoteMessages, ApolloConfig previousConfig) {
 
@@ -267,6 +322,8 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
 
     if (previousConfig != null) {
       queryParams.put("releaseKey", queryParamEscaper.escape(previousConfig.getReleaseKey()));
+      //we have the previous config, so only the changes are needed
+      queryParams.put("delta", "true");
     }
 
     if (!Strings.isNullOrEmpty(dataCenter)) {
@@ -293,6 +350,26 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
     return uri + pathExpanded;
   }
 
+  /**
+   * Apply the changes in delta to the previous config, previous config is left untouched
+   */
+  ApolloConfig applyDelta(ApolloConfig previous, ApolloConfig delta) {
+    Map<String, String> configurations = Maps.newHashMap(previous.getConfigurations());
+    if (delta.getConfigurations() != null) {
+      configurations.putAll(delta.getConfigurations());
+    }
+    if (delta.getDeletedKeys() != null) {
+      for (String deletedKey : delta.getDeletedKeys()) {
+        configurations.remove(deletedKey);
+      }
+    }
+
+    ApolloConfig result = new ApolloConfig(delta.getAppId(), delta.getCluster(), delta.getNamespaceName(),
+        delta.getReleaseKey());
+    result.setConfigurations(configurations);
+    return result;
+  }
+
   private void scheduleLongPollingRefresh() {
     remoteConfigLongPollService.submit(m_namespace, this);
   }
@@ -0,0 +1,144 @@
+package com.ctrip.framework.apollo.spring.config;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.core.env.EnumerablePropertySource;
+
+import com.ctrip.framework.apollo.Config;
+import com.ctrip.framework.apollo.ConfigChangeListener;
+import com.ctrip.framework.apollo.internals.AbstractConfig;
+import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Property source of all the apollo namespaces, the namespaces added first take precedence.
+ *
+ * <p>Instead of asking the configs of the namespaces one by one, a property is looked up in an index of the property
+ * names to the config which provides the value, and the property names are kept in an array. The index is stamped
+ * with the change count of all the configs, see {@link AbstractConfig#getConfigChangeCount()}, and is rebuilt on the
+ * first access after any config is changed, so it never waits for the change listeners which are notified
+ * asynchronously and a lookup only compares two numbers however many namespaces there are. Other {@link Config}
+ * implementations only invalidate the index through their change listeners. Properties the configs
+ * don't list in {@link Config#getPropertyNames()}, e.g. system properties, are still looked up in the configs one by
+ * one.</p>
+ */
+public class CompositeConfigPropertySource extends EnumerablePropertySource<List<ConfigPropertySource>>
+    implements ConfigChangeListener {
+  private static final String[] EMPTY_ARRAY = new String[0];
+
+  private final AtomicInteger m_version = new AtomicInteger();
+  private volatile PropertyIndex m_index = new PropertyIndex(-1, -1, Collections.<String, Config>emptyMap());
+
+  public CompositeConfigPropertySource(String name) {
+    super(name, new CopyOnWriteArrayList<ConfigPropertySource>());
+  }
+
+  /**
+   * Add the property source of a namespace, the ones added before take precedence over it.
+   */
+  public void addPropertySource(ConfigPropertySource propertySource) {
+    this.source.add(propertySource);
+    propertySource.getSource().addChangeListener(this);
+    m_version.incrementAndGet();
+  }
+
+  @Override
+  public Object getProperty(String name) {
+    Config config = getIndex().m_configs.get(name);
+    if (config != null) {
+      String value = config.getProperty(name, null);
+      if (value != null) {
+        return value;
+      }
+    }
+
+    //not listed by any config, or removed since the index was built
+    for (ConfigPropertySource propertySource : this.source) {
+      Object value = propertySource.getProperty(name);
+      if (value != null) {
+        return value;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public boolean containsProperty(String name) {
+    return getProperty(name) != null;
+  }
+
+  /**
+   * @return the property names of all the namespaces, the array is shared so it must not be modified
+   */
+  @Override
+  public String[] getPropertyNames() {
+    return getIndex().m_propertyNames;
+  }
+
+  @Override
+  public void onChange(ConfigChangeEvent changeEvent) {
+    m_version.incrementAndGet();
+  }
+
+  private PropertyIndex getIndex() {
+    PropertyIndex index = m_index;
+    if (index.isCurrent(m_version.get(), AbstractConfig.getConfigChangeCount())) {
+      return index;
+    }
+
+    synchronized (this) {
+      index = m_index;
+      int version = m_version.get();
+      //the change count is read before the properties, so a change in between makes the index stale
+      long configChangeCount = AbstractConfig.getConfigChangeCount();
+      if (!index.isCurrent(version, configChangeCount)) {
+        index = buildIndex(version, configChangeCount);
+        m_index = index;
+      }
+    }
+    return index;
+  }
+
+  private PropertyIndex buildIndex(int version, long configChangeCount) {
+    List<ConfigPropertySource> propertySources = Lists.newArrayList(this.source);
+    Map<String, Config> configs = Maps.newLinkedHashMap();
+    for (ConfigPropertySource propertySource : propertySources) {
+      for (String name : propertySource.getSource().getPropertyNames()) {
+        if (configs.containsKey(name)) {
+          continue;
+        }
+        //a config added before may still provide the value, e.g. from a system property
+        for (ConfigPropertySource candidate : propertySources) {
+          if (candidate.getProperty(name) != null) {
+            configs.put(name, candidate.getSource());
+            break;
+          }
+        }
+      }
+    }
+    return new PropertyIndex(version, configChangeCount, configs);
+  }
+
+  private static class PropertyIndex {
+    private final int m_version;
+    private final long m_configChangeCount;
+    private final Map<String, Config> m_configs;
+    private final String[] m_propertyNames;
+
+    PropertyIndex(int version, long configChangeCount, Map<String, Config> configs) {
+      m_version = version;
+      m_configChangeCount = configChangeCount;
+      m_configs = configs;
+      m_propertyNames = configs.isEmpty() ? EMPTY_ARRAY : configs.keySet().toArray(new String[configs.size()]);
+    }
+
+    boolean isCurrent(int version, long configChangeCount) {
+      return m_version == version && m_configChangeCount == configChangeCount;
+    }
+  }
+}
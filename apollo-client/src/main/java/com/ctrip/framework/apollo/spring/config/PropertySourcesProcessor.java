@@ -2,10 +2,15 @@ package com.ctrip.framework.apollo.spring.config;
 
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
 
 import com.ctrip.framework.apollo.Config;
 import com.ctrip.framework.apollo.ConfigService;
+import com.ctrip.framework.apollo.build.ApolloInjector;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.util.ConfigUtil;
 
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
@@ -13,12 +18,16 @@ import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.context.EnvironmentAware;
 import org.springframework.core.Ordered;
 import org.springframework.core.PriorityOrdered;
-import org.springframework.core.env.CompositePropertySource;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.env.Environment;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Apollo Property Sources processor for Spring Annotation Based Application. <br /> <br />
@@ -33,6 +42,7 @@ import java.util.Iterator;
 public class PropertySourcesProcessor implements BeanFactoryPostProcessor, EnvironmentAware, PriorityOrdered {
   private static final String APOLLO_PROPERTY_SOURCE_NAME = "ApolloPropertySources";
   private static final Multimap<Integer, String> NAMESPACE_NAMES = HashMultimap.create();
+  private static final int MAX_PREFETCH_THREADS = 8;
 
   private ConfigurableEnvironment environment;
 
@@ -50,7 +60,14 @@ public class PropertySourcesProcessor implements BeanFactoryPostProcessor, Envir
       //already initialized
       return;
     }
-    CompositePropertySource composite = new CompositePropertySource(APOLLO_PROPERTY_SOURCE_NAME);
+    ConfigUtil configUtil = ApolloInjector.getInstance(ConfigUtil.class);
+    if (configUtil.isBootstrapPrefetchEnabled()) {
+      Set<String> namespaces = Sets.newLinkedHashSet(NAMESPACE_NAMES.values());
+      namespaces.addAll(configUtil.getBootstrapNamespaces());
+      prefetchConfigs(namespaces);
+    }
+
+    CompositeConfigPropertySource composite = new CompositeConfigPropertySource(APOLLO_PROPERTY_SOURCE_NAME);
 
     //sort by order asc
     ImmutableSortedSet<Integer> orders = ImmutableSortedSet.copyOf(NAMESPACE_NAMES.keySet());
@@ -67,6 +84,37 @@ public class PropertySourcesProcessor implements BeanFactoryPostProcessor, Envir
     environment.getPropertySources().addFirst(composite);
   }
 
+  /**
+   * Get the configs of the namespaces concurrently, so that their first syncs with the config service overlap (and
+   * go in one request when config batch load is enabled) instead of running one after another. The configs are kept by
+   * ConfigService, so the property sources built afterwards get them right away. Failures are ignored here, as getting
+   * the config in order again reports them.
+   */
+  private void prefetchConfigs(Collection<String> namespaces) {
+    if (namespaces.size() < 2) {
+      return;
+    }
+    List<Callable<Config>> tasks = Lists.newArrayListWithCapacity(namespaces.size());
+    for (final String namespace : namespaces) {
+      tasks.add(new Callable<Config>() {
+        @Override
+        public Config call() throws Exception {
+          return ConfigService.getConfig(namespace);
+        }
+      });
+    }
+
+    ExecutorService executorService = Executors.newFixedThreadPool(Math.min(tasks.size(), MAX_PREFETCH_THREADS),
+        ApolloThreadFactory.create("PropertySourcesProcessor", true));
+    try {
+      executorService.invokeAll(tasks);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
   @Override
   public void setEnvironment(Environment environment) {
     //it is safe enough to cast as all known environment is derived from ConfigurableEnvironment
@@ -1,5 +1,7 @@
 package com.ctrip.framework.apollo.util;
 
+import java.util.Collections;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -11,7 +13,9 @@ import com.ctrip.framework.apollo.core.enums.Env;
 import com.ctrip.framework.apollo.core.enums.EnvUtils;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
 import com.ctrip.framework.foundation.Foundation;
+import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
@@ -33,6 +37,10 @@ public class ConfigUtil {
   private long configCacheExpireTime = 1;//1 minute
   private TimeUnit configCacheExpireTimeUnit = TimeUnit.MINUTES;//1 minute
   private long longPollingInitialDelayInMills = 2000;//2 seconds
+  private boolean configBatchLoadEnabled = true;
+  private boolean propertiesCacheFileEnabled = true;
+  private boolean bootstrapPrefetchEnabled = true;
+  private Set<String> bootstrapNamespaces = Collections.emptySet();
 
   public ConfigUtil() {
     initRefreshInterval();
@@ -42,6 +50,9 @@ public class ConfigUtil {
     initQPS();
     initMaxConfigCacheSize();
     initLongPollingInitialDelayInMills();
+    initConfigBatchLoadEnabled();
+    initPropertiesCacheFileEnabled();
+    initBootstrap();
   }
 
   /**
@@ -263,4 +274,59 @@ public class ConfigUtil {
   public long getLongPollingInitialDelayInMills() {
     return longPollingInitialDelayInMills;
   }
+
+  private void initConfigBatchLoadEnabled() {
+    String customizedConfigBatchLoadEnabled = System.getProperty("apollo.configBatchLoadEnabled");
+    if (!Strings.isNullOrEmpty(customizedConfigBatchLoadEnabled)) {
+      configBatchLoadEnabled = Boolean.parseBoolean(customizedConfigBatchLoadEnabled.trim());
+    }
+  }
+
+  /**
+   * @return whether to load the configs of concurrently syncing namespaces in one request
+   */
+  public boolean isConfigBatchLoadEnabled() {
+    return configBatchLoadEnabled;
+  }
+
+  private void initPropertiesCacheFileEnabled() {
+    String customizedPropertiesCacheFileEnabled = System.getProperty("apollo.propertiesCacheFileEnabled");
+    if (!Strings.isNullOrEmpty(customizedPropertiesCacheFileEnabled)) {
+      propertiesCacheFileEnabled = Boolean.parseBoolean(customizedPropertiesCacheFileEnabled.trim());
+    }
+  }
+
+  /**
+   * @return whether to keep the local cache in the readable .properties format as well as the binary snapshot
+   */
+  public boolean isPropertiesCacheFileEnabled() {
+    return propertiesCacheFileEnabled;
+  }
+
+  private void initBootstrap() {
+    String customizedBootstrapPrefetchEnabled = System.getProperty("apollo.bootstrap.prefetchEnabled");
+    if (!Strings.isNullOrEmpty(customizedBootstrapPrefetchEnabled)) {
+      bootstrapPrefetchEnabled = Boolean.parseBoolean(customizedBootstrapPrefetchEnabled.trim());
+    }
+
+    String customizedBootstrapNamespaces = System.getProperty("apollo.bootstrap.namespaces");
+    if (!Strings.isNullOrEmpty(customizedBootstrapNamespaces)) {
+      bootstrapNamespaces = ImmutableSet.copyOf(
+          Splitter.on(",").omitEmptyStrings().trimResults().split(customizedBootstrapNamespaces));
+    }
+  }
+
+  /**
+   * @return whether to fetch all the namespaces declared in spring at once, before the property sources are built
+   */
+  public boolean isBootstrapPrefetchEnabled() {
+    return bootstrapPrefetchEnabled;
+  }
+
+  /**
+   * @return the namespaces to fetch along with the ones declared in spring, e.g. namespaces read via ConfigService only
+   */
+  public Set<String> getBootstrapNamespaces() {
+    return bootstrapNamespaces;
+  }
 }
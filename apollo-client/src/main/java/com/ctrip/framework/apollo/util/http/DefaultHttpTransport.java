@@ -0,0 +1,77 @@
+package com.ctrip.framework.apollo.util.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The transport on top of {@link HttpURLConnection}.
+ *
+ * <p>According to https://docs.oracle.com/javase/7/docs/technotes/guides/net/http-keepalive.html, the connection is
+ * kept alive for the next request to the same server only if the response body is read to the end, so the body is
+ * always drained, including the rest of a gzip stream after the json is parsed and the body of an error response.</p>
+ */
+public class DefaultHttpTransport implements HttpTransport {
+  private static final int DISCARD_BUFFER_SIZE = 4096;
+
+  @Override
+  public <T> HttpResponse<T> doGet(HttpRequest httpRequest, HttpResponseBodyReader<T> bodyReader)
+      throws IOException {
+    HttpURLConnection conn = (HttpURLConnection) new URL(httpRequest.getUrl()).openConnection();
+
+    conn.setRequestMethod("GET");
+    conn.setRequestProperty("Accept-Encoding", "gzip");
+    conn.setConnectTimeout(httpRequest.getConnectTimeout());
+    conn.setReadTimeout(httpRequest.getReadTimeout());
+
+    conn.connect();
+
+    int statusCode = conn.getResponseCode();
+
+    if (statusCode != 200) {
+      try {
+        discard(statusCode < 400 ? conn.getInputStream() : conn.getErrorStream());
+      } catch (IOException ex) {
+        //ignore
+      }
+      return new HttpResponse<>(statusCode, null);
+    }
+
+    InputStream body = conn.getInputStream();
+    try {
+      T result = bodyReader.read(new InputStreamReader(decode(conn, body), StandardCharsets.UTF_8));
+      discard(body);
+      return new HttpResponse<>(statusCode, result);
+    } finally {
+      body.close();
+    }
+  }
+
+  /**
+   * Decompress the response body on the fly if the server compressed it
+   */
+  private InputStream decode(HttpURLConnection conn, InputStream inputStream) throws IOException {
+    if ("gzip".equalsIgnoreCase(conn.getContentEncoding())) {
+      return new GZIPInputStream(inputStream);
+    }
+    return inputStream;
+  }
+
+  private void discard(InputStream inputStream) throws IOException {
+    if (inputStream == null) {
+      return;
+    }
+    try {
+      byte[] buffer = new byte[DISCARD_BUFFER_SIZE];
+      while (inputStream.read(buffer) != -1) {
+        //read to the end
+      }
+    } finally {
+      inputStream.close();
+    }
+  }
+}
@@ -0,0 +1,15 @@
+package com.ctrip.framework.apollo.util.http;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Converts the response body while it is being received, instead of after it is read into memory as a whole.
+ */
+public interface HttpResponseBodyReader<T> {
+  /**
+   * @param body the decoded response body, closed by the transport afterwards
+   * @return the converted body
+   */
+  T read(Reader body) throws IOException;
+}
@@ -0,0 +1,18 @@
+package com.ctrip.framework.apollo.util.http;
+
+import java.io.IOException;
+
+/**
+ * Sends the http requests of {@link HttpUtil}, replace the binding in the injector to use another http client.
+ */
+public interface HttpTransport {
+  /**
+   * Do get operation for the http request.
+   *
+   * @param httpRequest the request, whose timeouts are already resolved
+   * @param bodyReader  reads the body of a 200 response as it is received
+   * @return the response, whose body is null unless the status code is 200
+   * @throws IOException if the request could not be completed
+   */
+  <T> HttpResponse<T> doGet(HttpRequest httpRequest, HttpResponseBodyReader<T> bodyReader) throws IOException;
+}
@@ -6,11 +6,14 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 import com.ctrip.framework.apollo.integration.ConfigIntegrationTest;
+import com.ctrip.framework.apollo.internals.ChangeListenerDispatcherTest;
 import com.ctrip.framework.apollo.internals.DefaultConfigManagerTest;
 import com.ctrip.framework.apollo.internals.DefaultConfigTest;
 import com.ctrip.framework.apollo.internals.JsonConfigFileTest;
+import com.ctrip.framework.apollo.internals.LocalConfigSnapshotStoreTest;
 import com.ctrip.framework.apollo.internals.LocalFileConfigRepositoryTest;
 import com.ctrip.framework.apollo.internals.PropertiesConfigFileTest;
+import com.ctrip.framework.apollo.internals.RemoteConfigBatchLoaderTest;
 import com.ctrip.framework.apollo.internals.RemoteConfigLongPollServiceTest;
 import com.ctrip.framework.apollo.internals.RemoteConfigRepositoryTest;
 import com.ctrip.framework.apollo.internals.SimpleConfigTest;
@@ -22,8 +25,10 @@ import com.ctrip.framework.apollo.spring.JavaConfigAnnotationTest;
 import com.ctrip.framework.apollo.spring.JavaConfigPlaceholderTest;
 import com.ctrip.framework.apollo.spring.XMLConfigAnnotationTest;
 import com.ctrip.framework.apollo.spring.XmlConfigPlaceholderTest;
+import com.ctrip.framework.apollo.spring.config.CompositeConfigPropertySourceTest;
 import com.ctrip.framework.apollo.util.ConfigUtilTest;
 import com.ctrip.framework.apollo.util.ExceptionUtilTest;
+import com.ctrip.framework.apollo.util.http.HttpUtilTest;
 import com.ctrip.framework.apollo.util.parser.DateParserTest;
 import com.ctrip.framework.apollo.util.parser.DurationParserTest;
 
@@ -35,7 +40,9 @@ import com.ctrip.framework.apollo.util.parser.DurationParserTest;
     ConfigIntegrationTest.class, ExceptionUtilTest.class, XmlConfigFileTest.class, PropertiesConfigFileTest.class,
     RemoteConfigLongPollServiceTest.class, DateParserTest.class, DurationParserTest.class, JsonConfigFileTest.class,
     XmlConfigPlaceholderTest.class, JavaConfigPlaceholderTest.class, XMLConfigAnnotationTest.class,
-    JavaConfigAnnotationTest.class, ConfigUtilTest.class
+    JavaConfigAnnotationTest.class, ConfigUtilTest.class, RemoteConfigBatchLoaderTest.class,
+    LocalConfigSnapshotStoreTest.class, HttpUtilTest.class, ChangeListenerDispatcherTest.class,
+    CompositeConfigPropertySourceTest.class
 })
 public class AllTests {
 
@@ -14,6 +14,7 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -38,6 +39,7 @@ import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
 import com.ctrip.framework.apollo.core.utils.ClassLoaderUtil;
 import com.ctrip.framework.apollo.internals.RemoteConfigLongPollService;
 import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
@@ -110,6 +112,36 @@ public class ConfigIntegrationTest extends BaseIntegrationTest {
     assertEquals(someDefaultValue, config.getProperty(someNonExistedKey, someDefaultValue));
   }
 
+  @Test
+  public void testGetConfigWithGzipCompressedRemoteConfig() throws Exception {
+    String someKey = "someKey";
+    String someValue = "someValue";
+    ApolloConfig apolloConfig = assembleApolloConfig(ImmutableMap.of(someKey, someValue));
+    final String body = gson.toJson(apolloConfig);
+
+    ContextHandler handler = new ContextHandler("/configs/*");
+    handler.setHandler(new AbstractHandler() {
+      @Override
+      public void handle(String target, Request baseRequest, HttpServletRequest request,
+                         HttpServletResponse response) throws IOException, ServletException {
+        assertEquals("gzip", request.getHeader("Accept-Encoding"));
+
+        response.setContentType("application/json;charset=UTF-8");
+        response.setHeader("Content-Encoding", "gzip");
+        response.setStatus(HttpServletResponse.SC_OK);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(response.getOutputStream())) {
+          gzip.write(body.getBytes(Charsets.UTF_8));
+        }
+        baseRequest.setHandled(true);
+      }
+    });
+    startServerWithHandlers(handler);
+
+    Config config = ConfigService.getAppConfig();
+
+    assertEquals(someValue, config.getProperty(someKey, null));
+  }
+
   @Test
   public void testGetConfigWithLocalFileAndWithRemoteConfig() throws Exception {
     String someKey = "someKey";
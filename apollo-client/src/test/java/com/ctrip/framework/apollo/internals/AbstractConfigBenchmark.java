@@ -0,0 +1,260 @@
+package com.ctrip.framework.apollo.internals;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.ctrip.framework.apollo.build.MockInjector;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.ctrip.framework.apollo.util.function.Functions;
+import com.google.common.base.Function;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Compares the typed reads of {@link AbstractConfig}, which share one cache of {@code TypedProperty} entries keeping
+ * the parsed values in primitive slots, with the boxed cache per type it kept before, from as many threads as there
+ * are processors. The values are out of the range of the boxes the jdk caches, so every boxing allocates.
+ *
+ * <ul>
+ *   <li>{@code getIntProperty} and {@code getLongProperty}: the boxed reads of {@link com.ctrip.framework.apollo.Config}</li>
+ *   <li>{@code getInt} and {@code getLong}: the primitive reads of {@link com.ctrip.framework.apollo.PrimitiveConfig},
+ *   for the cache per type they are the boxed reads unboxed by the caller</li>
+ * </ul>
+ *
+ * The gc profiler shows the bytes allocated per read, and running it again with {@code -t 1} shows how the throughput
+ * scales with the threads.
+ *
+ * Run the main method after {@code mvn test-compile}, the benchmarks are not part of the test suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(Threads.MAX)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class AbstractConfigBenchmark {
+  private static final int PROPERTIES = 100;
+
+  @Param({"typedProperty", "perTypeCache"})
+  public String implementation;
+
+  private TypedReads typedReads;
+  private String[] intKeys;
+  private String[] longKeys;
+
+  @Setup
+  public void setUp() {
+    MockInjector.reset();
+    MockInjector.setInstance(ConfigUtil.class, new ConfigUtil());
+
+    final Properties properties = new Properties();
+    intKeys = new String[PROPERTIES];
+    longKeys = new String[PROPERTIES];
+    for (int i = 0; i < PROPERTIES; i++) {
+      intKeys[i] = "intKey" + i;
+      properties.setProperty(intKeys[i], String.valueOf(100000 + i));
+      longKeys[i] = "longKey" + i;
+      properties.setProperty(longKeys[i], String.valueOf(10000000000L + i));
+    }
+    DefaultConfig config = new DefaultConfig("application", new AbstractConfigRepository() {
+      @Override
+      public Properties getConfig() {
+        return properties;
+      }
+
+      @Override
+      public void setUpstreamRepository(ConfigRepository upstreamConfigRepository) {
+      }
+
+      @Override
+      protected void sync() {
+      }
+    });
+
+    typedReads = "typedProperty".equals(implementation) ? new TypedPropertyReads(config) :
+        new PerTypeCacheReads(config, new ConfigUtil());
+  }
+
+  @Benchmark
+  public Integer getIntProperty(Cursor cursor) {
+    return typedReads.getIntProperty(intKeys[cursor.next(PROPERTIES)], 0);
+  }
+
+  @Benchmark
+  public int getInt(Cursor cursor) {
+    return typedReads.getInt(intKeys[cursor.next(PROPERTIES)], 0);
+  }
+
+  @Benchmark
+  public Long getLongProperty(Cursor cursor) {
+    return typedReads.getLongProperty(longKeys[cursor.next(PROPERTIES)], 0L);
+  }
+
+  @Benchmark
+  public long getLong(Cursor cursor) {
+    return typedReads.getLong(longKeys[cursor.next(PROPERTIES)], 0L);
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int m_position;
+
+    int next(int length) {
+      if (++m_position >= length) {
+        m_position = 0;
+      }
+      return m_position;
+    }
+  }
+
+  private interface TypedReads {
+    Integer getIntProperty(String key, Integer defaultValue);
+
+    int getInt(String key, int defaultValue);
+
+    Long getLongProperty(String key, Long defaultValue);
+
+    long getLong(String key, long defaultValue);
+  }
+
+  private static class TypedPropertyReads implements TypedReads {
+    private final AbstractConfig m_config;
+
+    TypedPropertyReads(AbstractConfig config) {
+      m_config = config;
+    }
+
+    @Override
+    public Integer getIntProperty(String key, Integer defaultValue) {
+      return m_config.getIntProperty(key, defaultValue);
+    }
+
+    @Override
+    public int getInt(String key, int defaultValue) {
+      return m_config.getInt(key, defaultValue);
+    }
+
+    @Override
+    public Long getLongProperty(String key, Long defaultValue) {
+      return m_config.getLongProperty(key, defaultValue);
+    }
+
+    @Override
+    public long getLong(String key, long defaultValue) {
+      return m_config.getLong(key, defaultValue);
+    }
+  }
+
+  /**
+   * The typed reads of AbstractConfig before the typed properties, without the error tracing
+   */
+  private static class PerTypeCacheReads implements TypedReads {
+    private final AbstractConfig m_config;
+    private final ConfigUtil m_configUtil;
+    private final AtomicLong m_configVersion = new AtomicLong();
+    private volatile Cache<String, Integer> m_integerCache;
+    private volatile Cache<String, Long> m_longCache;
+
+    PerTypeCacheReads(AbstractConfig config, ConfigUtil configUtil) {
+      m_config = config;
+      m_configUtil = configUtil;
+    }
+
+    @Override
+    public Integer getIntProperty(String key, Integer defaultValue) {
+      if (m_integerCache == null) {
+        synchronized (this) {
+          if (m_integerCache == null) {
+            m_integerCache = newCache();
+          }
+        }
+      }
+
+      return getValueFromCache(key, Functions.TO_INT_FUNCTION, m_integerCache, defaultValue);
+    }
+
+    @Override
+    public int getInt(String key, int defaultValue) {
+      return getIntProperty(key, defaultValue);
+    }
+
+    @Override
+    public Long getLongProperty(String key, Long defaultValue) {
+      if (m_longCache == null) {
+        synchronized (this) {
+          if (m_longCache == null) {
+            m_longCache = newCache();
+          }
+        }
+      }
+
+      return getValueFromCache(key, Functions.TO_LONG_FUNCTION, m_longCache, defaultValue);
+    }
+
+    @Override
+    public long getLong(String key, long defaultValue) {
+      return getLongProperty(key, defaultValue);
+    }
+
+    private <T> T getValueFromCache(String key, Function<String, T> parser, Cache<String, T> cache, T defaultValue) {
+      T result = cache.getIfPresent(key);
+
+      if (result != null) {
+        return result;
+      }
+
+      return getValueAndStoreToCache(key, parser, cache, defaultValue);
+    }
+
+    private <T> T getValueAndStoreToCache(String key, Function<String, T> parser, Cache<String, T> cache,
+                                          T defaultValue) {
+      long currentConfigVersion = m_configVersion.get();
+      String value = m_config.getProperty(key, null);
+
+      if (value != null) {
+        T result = parser.apply(value);
+
+        if (result != null) {
+          synchronized (this) {
+            if (m_configVersion.get() == currentConfigVersion) {
+              cache.put(key, result);
+            }
+          }
+          return result;
+        }
+      }
+
+      return defaultValue;
+    }
+
+    private <T> Cache<String, T> newCache() {
+      return CacheBuilder.newBuilder()
+          .maximumSize(m_configUtil.getMaxConfigCacheSize())
+          .expireAfterAccess(m_configUtil.getConfigCacheExpireTime(), m_configUtil.getConfigCacheExpireTimeUnit())
+          .build();
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(AbstractConfigBenchmark.class.getSimpleName()).addProfiler("gc").build())
+        .run();
+  }
+}
@@ -0,0 +1,208 @@
+package com.ctrip.framework.apollo.internals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ctrip.framework.apollo.enums.PropertyChangeType;
+import com.ctrip.framework.apollo.model.ConfigChange;
+import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.ctrip.framework.apollo.model.ConfigFileChangeEvent;
+import com.google.common.collect.Maps;
+
+public class ChangeListenerDispatcherTest {
+  private static final String REVERT = "revert";
+  private String someNamespace;
+  private ChangeListenerDispatcher<SomeListener, String> dispatcher;
+
+  @Before
+  public void setUp() throws Exception {
+    someNamespace = "someNamespace";
+    dispatcher = new SomeDispatcher(2, 200);
+  }
+
+  @Test
+  public void testEventsQueuedUpAreMergedAndDeliveredInOrder() throws Exception {
+    CountDownLatch firstEventReceived = new CountDownLatch(1);
+    CountDownLatch releaseListener = new CountDownLatch(1);
+    SomeListener someListener = new SomeListener(firstEventReceived, releaseListener);
+
+    dispatcher.dispatch(someNamespace, someListener, "1");
+    assertTrue(firstEventReceived.await(5, TimeUnit.SECONDS));
+    dispatcher.dispatch(someNamespace, someListener, "2");
+    dispatcher.dispatch(someNamespace, someListener, "3");
+    dispatcher.dispatch(someNamespace, someListener, "4");
+
+    assertEquals(3, dispatcher.getQueueDepth());
+
+    releaseListener.countDown();
+
+    assertEquals("1", someListener.events.poll(5, TimeUnit.SECONDS));
+    assertEquals("2,3,4", someListener.events.poll(5, TimeUnit.SECONDS));
+    assertNull(someListener.events.poll(100, TimeUnit.MILLISECONDS));
+    assertEquals(0, dispatcher.getQueueDepth());
+  }
+
+  @Test
+  public void testEventsRevertingEachOtherAreNotDelivered() throws Exception {
+    CountDownLatch firstEventReceived = new CountDownLatch(1);
+    CountDownLatch releaseListener = new CountDownLatch(1);
+    SomeListener someListener = new SomeListener(firstEventReceived, releaseListener);
+
+    dispatcher.dispatch(someNamespace, someListener, "1");
+    assertTrue(firstEventReceived.await(5, TimeUnit.SECONDS));
+    dispatcher.dispatch(someNamespace, someListener, "2");
+    dispatcher.dispatch(someNamespace, someListener, REVERT);
+    releaseListener.countDown();
+
+    assertEquals("1", someListener.events.poll(5, TimeUnit.SECONDS));
+    assertNull(someListener.events.poll(100, TimeUnit.MILLISECONDS));
+
+    dispatcher.dispatch(someNamespace, someListener, "3");
+
+    assertEquals("3", someListener.events.poll(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testSlowListenerDoesNotBlockOtherListeners() throws Exception {
+    CountDownLatch firstEventReceived = new CountDownLatch(1);
+    CountDownLatch releaseListener = new CountDownLatch(1);
+    SomeListener slowListener = new SomeListener(firstEventReceived, releaseListener);
+    SomeListener anotherListener = new SomeListener(null, null);
+
+    dispatcher.dispatch(someNamespace, slowListener, "1");
+    assertTrue(firstEventReceived.await(5, TimeUnit.SECONDS));
+    dispatcher.dispatch(someNamespace, anotherListener, "1");
+    dispatcher.dispatch("anotherNamespace", slowListener, "2");
+
+    assertEquals("1", anotherListener.events.poll(5, TimeUnit.SECONDS));
+    assertEquals("2", slowListener.events.poll(5, TimeUnit.SECONDS));
+    releaseListener.countDown();
+  }
+
+  @Test
+  public void testListenerRunningOverTimeoutIsInterrupted() throws Exception {
+    CountDownLatch firstEventReceived = new CountDownLatch(1);
+    CountDownLatch neverReleased = new CountDownLatch(1);
+    SomeListener someListener = new SomeListener(firstEventReceived, neverReleased);
+
+    dispatcher.dispatch(someNamespace, someListener, "1");
+    dispatcher.dispatch(someNamespace, someListener, "2");
+
+    assertTrue(firstEventReceived.await(5, TimeUnit.SECONDS));
+    assertEquals("1", someListener.events.poll(5, TimeUnit.SECONDS));
+    assertTrue(someListener.interrupted);
+    assertEquals("2", someListener.events.poll(5, TimeUnit.SECONDS));
+    assertFalse(someListener.interruptedAfterwards);
+  }
+
+  @Test
+  public void testMergeConfigChanges() throws Exception {
+    ConfigChangeEvent previous = assembleChangeEvent(
+        new ConfigChange(someNamespace, "a", null, "1", PropertyChangeType.ADDED),
+        new ConfigChange(someNamespace, "b", "1", "2", PropertyChangeType.MODIFIED),
+        new ConfigChange(someNamespace, "c", "1", "2", PropertyChangeType.MODIFIED),
+        new ConfigChange(someNamespace, "d", "1", null, PropertyChangeType.DELETED));
+    ConfigChangeEvent next = assembleChangeEvent(
+        new ConfigChange(someNamespace, "a", "1", null, PropertyChangeType.DELETED),
+        new ConfigChange(someNamespace, "b", "2", "3", PropertyChangeType.MODIFIED),
+        new ConfigChange(someNamespace, "c", "2", "1", PropertyChangeType.MODIFIED),
+        new ConfigChange(someNamespace, "d", null, "2", PropertyChangeType.ADDED),
+        new ConfigChange(someNamespace, "e", null, "1", PropertyChangeType.ADDED));
+
+    ConfigChangeEvent merged = AbstractConfig.mergeConfigChanges(previous, next);
+
+    assertEquals(someNamespace, merged.getNamespace());
+    assertEquals(3, merged.changedKeys().size());
+    assertChange(merged.getChange("b"), "1", "3", PropertyChangeType.MODIFIED);
+    assertChange(merged.getChange("d"), "1", "2", PropertyChangeType.MODIFIED);
+    assertChange(merged.getChange("e"), null, "1", PropertyChangeType.ADDED);
+    assertNull(AbstractConfig.mergeConfigChanges(
+        assembleChangeEvent(new ConfigChange(someNamespace, "a", null, "1", PropertyChangeType.ADDED)),
+        assembleChangeEvent(new ConfigChange(someNamespace, "a", "1", null, PropertyChangeType.DELETED))));
+  }
+
+  @Test
+  public void testMergeConfigFileChanges() throws Exception {
+    ConfigFileChangeEvent merged = AbstractConfigFile.mergeConfigFileChanges(
+        new ConfigFileChangeEvent(someNamespace, null, "a", PropertyChangeType.ADDED),
+        new ConfigFileChangeEvent(someNamespace, "a", "b", PropertyChangeType.MODIFIED));
+
+    assertEquals(null, merged.getOldValue());
+    assertEquals("b", merged.getNewValue());
+    assertEquals(PropertyChangeType.ADDED, merged.getChangeType());
+    assertNull(AbstractConfigFile.mergeConfigFileChanges(
+        new ConfigFileChangeEvent(someNamespace, "a", "b", PropertyChangeType.MODIFIED),
+        new ConfigFileChangeEvent(someNamespace, "b", "a", PropertyChangeType.MODIFIED)));
+  }
+
+  private ConfigChangeEvent assembleChangeEvent(ConfigChange... changes) {
+    Map<String, ConfigChange> changeMap = Maps.newHashMap();
+    for (ConfigChange change : changes) {
+      changeMap.put(change.getPropertyName(), change);
+    }
+    return new ConfigChangeEvent(someNamespace, changeMap);
+  }
+
+  private void assertChange(ConfigChange change, String oldValue, String newValue, PropertyChangeType changeType) {
+    assertEquals(oldValue, change.getOldValue());
+    assertEquals(newValue, change.getNewValue());
+    assertEquals(changeType, change.getChangeType());
+  }
+
+  private static class SomeListener {
+    private final CountDownLatch firstEventReceived;
+    private final CountDownLatch releaseListener;
+    private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+    private volatile boolean interrupted;
+    private volatile boolean interruptedAfterwards;
+
+    SomeListener(CountDownLatch firstEventReceived, CountDownLatch releaseListener) {
+      this.firstEventReceived = firstEventReceived;
+      this.releaseListener = releaseListener;
+    }
+
+    void onChange(String event) {
+      if (firstEventReceived != null && firstEventReceived.getCount() > 0) {
+        firstEventReceived.countDown();
+        try {
+          releaseListener.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+          interrupted = true;
+        }
+      } else if (Thread.currentThread().isInterrupted()) {
+        interruptedAfterwards = true;
+      }
+      events.add(event);
+    }
+  }
+
+  private static class SomeDispatcher extends ChangeListenerDispatcher<SomeListener, String> {
+    SomeDispatcher(int threads, long timeoutInMills) {
+      super("SomeDispatcher", "Apollo.SomeListener", threads, timeoutInMills);
+    }
+
+    @Override
+    protected void onChange(SomeListener listener, String event) {
+      listener.onChange(event);
+    }
+
+    @Override
+    protected String merge(String previous, String next) {
+      if (REVERT.equals(next)) {
+        return null;
+      }
+      return previous + "," + next;
+    }
+  }
+}
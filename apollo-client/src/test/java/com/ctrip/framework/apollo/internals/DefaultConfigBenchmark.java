@@ -0,0 +1,102 @@
+package com.ctrip.framework.apollo.internals;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.ctrip.framework.apollo.build.MockInjector;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+
+/**
+ * Measures {@link DefaultConfig#getProperty(String, String)} from as many threads as there are processors.
+ *
+ * <ul>
+ *   <li>{@code getProperty}: the lookup as it is, the system properties are read from the snapshot</li>
+ *   <li>{@code getPropertyWithSystemGetProperty}: the same lookup after a System.getProperty of the key, which is
+ *   what DefaultConfig did before and locks the system properties on every call</li>
+ * </ul>
+ *
+ * Run the main method after {@code mvn test-compile}, the benchmarks are not part of the test suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(Threads.MAX)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class DefaultConfigBenchmark {
+  private static final int PROPERTIES = 100;
+
+  private DefaultConfig config;
+  private String[] keys;
+
+  @Setup
+  public void setUp() {
+    MockInjector.reset();
+    MockInjector.setInstance(ConfigUtil.class, new ConfigUtil());
+
+    final Properties properties = new Properties();
+    keys = new String[PROPERTIES];
+    for (int i = 0; i < PROPERTIES; i++) {
+      keys[i] = "key" + i;
+      properties.setProperty(keys[i], "value" + i);
+    }
+    config = new DefaultConfig("application", new AbstractConfigRepository() {
+      @Override
+      public Properties getConfig() {
+        return properties;
+      }
+
+      @Override
+      public void setUpstreamRepository(ConfigRepository upstreamConfigRepository) {
+      }
+
+      @Override
+      protected void sync() {
+      }
+    });
+  }
+
+  @Benchmark
+  public String getProperty(Cursor cursor) {
+    return config.getProperty(keys[cursor.next(keys.length)], null);
+  }
+
+  @Benchmark
+  public String getPropertyWithSystemGetProperty(Cursor cursor) {
+    String key = keys[cursor.next(keys.length)];
+    String value = System.getProperty(key);
+    return value != null ? value : config.getProperty(key, null);
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int m_position;
+
+    int next(int length) {
+      if (++m_position >= length) {
+        m_position = 0;
+      }
+      return m_position;
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(DefaultConfigBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -2,11 +2,20 @@ package com.ctrip.framework.apollo.internals;
 
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -58,6 +67,65 @@ public class DefaultConfigManagerTest {
         config, equalTo(anotherConfig));
   }
 
+  @Test
+  public void testGetConfigOfAnotherNamespaceWhileOneIsBeingCreated() throws Exception {
+    final String someNamespace = "someName";
+    String anotherNamespace = "anotherName";
+    final CountDownLatch someNamespaceCreating = new CountDownLatch(1);
+    final CountDownLatch anotherNamespaceCreated = new CountDownLatch(1);
+    final AtomicInteger createTimes = new AtomicInteger();
+
+    MockInjector.setInstance(ConfigFactoryManager.class, new ConfigFactoryManager() {
+      @Override
+      public ConfigFactory getFactory(String namespace) {
+        final ConfigFactory delegate = new MockConfigFactoryManager().getFactory(namespace);
+        return new ConfigFactory() {
+          @Override
+          public Config create(String namespace) {
+            createTimes.incrementAndGet();
+            if (someNamespace.equals(namespace)) {
+              someNamespaceCreating.countDown();
+              try {
+                anotherNamespaceCreated.await(5, TimeUnit.SECONDS);
+              } catch (InterruptedException ex) {
+                //ignore
+              }
+            }
+            return delegate.create(namespace);
+          }
+
+          @Override
+          public ConfigFile createConfigFile(String namespace, ConfigFileFormat configFileFormat) {
+            return delegate.createConfigFile(namespace, configFileFormat);
+          }
+        };
+      }
+    });
+    final DefaultConfigManager configManager = new DefaultConfigManager();
+
+    ExecutorService executorService = Executors.newFixedThreadPool(2);
+    Callable<Config> getSomeConfig = new Callable<Config>() {
+      @Override
+      public Config call() throws Exception {
+        return configManager.getConfig(someNamespace);
+      }
+    };
+    Future<Config> someConfig = executorService.submit(getSomeConfig);
+    assertTrue(someNamespaceCreating.await(5, TimeUnit.SECONDS));
+    Future<Config> sameConfig = executorService.submit(getSomeConfig);
+
+    long start = System.currentTimeMillis();
+    Config anotherConfig = configManager.getConfig(anotherNamespace);
+    anotherNamespaceCreated.countDown();
+
+    assertTrue("another namespace should not wait for the creation of some namespace",
+        System.currentTimeMillis() - start < 5000);
+    assertEquals(anotherNamespace + ":someKey", anotherConfig.getProperty("someKey", null));
+    assertSame(someConfig.get(5, TimeUnit.SECONDS), sameConfig.get(5, TimeUnit.SECONDS));
+    assertEquals(2, createTimes.get());
+    executorService.shutdown();
+  }
+
   @Test
   public void testGetConfigFile() throws Exception {
     String someNamespace = "someName";
@@ -2,14 +2,19 @@ package com.ctrip.framework.apollo.internals;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
 
@@ -113,6 +118,66 @@ public class DefaultConfigTest {
 
   }
 
+  @Test
+  public void testGetSystemPropertySetAfterConfigIsCreated() throws Exception {
+    String someKey = "someKey";
+    String someLocalFileValue = "local-file-value";
+    String someSystemPropertyValue = "system-property-value";
+
+    someProperties = new Properties();
+    someProperties.setProperty(someKey, someLocalFileValue);
+    when(configRepository.getConfig()).thenReturn(someProperties);
+
+    DefaultConfig defaultConfig = new DefaultConfig(someNamespace, configRepository);
+
+    System.setProperty(someKey, someSystemPropertyValue);
+
+    String valueBeforeRefresh = defaultConfig.getProperty(someKey, null);
+
+    DefaultConfig.refreshSystemProperties();
+
+    String valueAfterRefresh = defaultConfig.getProperty(someKey, null);
+
+    //clean up
+    System.clearProperty(someKey);
+    DefaultConfig.refreshSystemProperties();
+
+    assertEquals(someLocalFileValue, valueBeforeRefresh);
+    assertEquals(someSystemPropertyValue, valueAfterRefresh);
+    assertEquals(someLocalFileValue, defaultConfig.getProperty(someKey, null));
+  }
+
+  @Test
+  public void testGetPropertyWithEnvVariable() throws Exception {
+    Map.Entry<String, String> someEnvVariable = System.getenv().entrySet().iterator().next();
+    String someEnvKey = someEnvVariable.getKey();
+    String someResourceValue = "resource-value";
+    String someLocalFileValue = "local-file-value";
+
+    //set up config repo
+    someProperties = new Properties();
+    when(configRepository.getConfig()).thenReturn(someProperties);
+
+    //set up resource file
+    File resourceFile = new File(someResourceDir, someNamespace + ".properties");
+    Files.write(someEnvKey + "=" + someResourceValue, resourceFile, Charsets.UTF_8);
+
+    DefaultConfig defaultConfig =
+        new DefaultConfig(someNamespace, configRepository);
+
+    assertEquals(someEnvVariable.getValue(), defaultConfig.getProperty(someEnvKey, null));
+    assertEquals(Collections.emptySet(), defaultConfig.getPropertyNames());
+
+    Properties newProperties = new Properties();
+    newProperties.setProperty(someEnvKey, someLocalFileValue);
+
+    defaultConfig.onRepositoryChange(someNamespace, newProperties);
+
+    assertEquals(someLocalFileValue, defaultConfig.getProperty(someEnvKey, null));
+    assertEquals(Collections.singleton(someEnvKey), defaultConfig.getPropertyNames());
+    assertSame(defaultConfig.getPropertyNames(), defaultConfig.getPropertyNames());
+  }
+
   @Test
   public void testGetIntProperty() throws Exception {
     String someStringKey = "someStringKey";
@@ -144,18 +209,18 @@ public class DefaultConfigTest {
     Integer someDefaultValue = -1;
 
     //set up config repo
-    someProperties = mock(Properties.class);
-    when(someProperties.getProperty(someKey)).thenReturn(String.valueOf(someValue));
+    someProperties = new Properties();
+    someProperties.setProperty(someKey, String.valueOf(someValue));
     when(configRepository.getConfig()).thenReturn(someProperties);
 
     DefaultConfig defaultConfig =
-        new DefaultConfig(someNamespace, configRepository);
+        spy(new DefaultConfig(someNamespace, configRepository));
 
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
 
-    verify(someProperties, times(1)).getProperty(someKey);
+    verify(defaultConfig, times(1)).getProperty(someKey, null);
   }
 
   @Test
@@ -197,27 +262,27 @@ public class DefaultConfigTest {
     MockInjector.setInstance(ConfigUtil.class, new MockConfigUtilWithSmallCache());
 
     //set up config repo
-    someProperties = mock(Properties.class);
-    when(someProperties.getProperty(someKey)).thenReturn(String.valueOf(someValue));
-    when(someProperties.getProperty(anotherKey)).thenReturn(String.valueOf(anotherValue));
+    someProperties = new Properties();
+    someProperties.setProperty(someKey, String.valueOf(someValue));
+    someProperties.setProperty(anotherKey, String.valueOf(anotherValue));
     when(configRepository.getConfig()).thenReturn(someProperties);
 
     DefaultConfig defaultConfig =
-        new DefaultConfig(someNamespace, configRepository);
+        spy(new DefaultConfig(someNamespace, configRepository));
 
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
 
-    verify(someProperties, times(1)).getProperty(someKey);
+    verify(defaultConfig, times(1)).getProperty(someKey, null);
 
     assertEquals(anotherValue, defaultConfig.getIntProperty(anotherKey, someDefaultValue));
     assertEquals(anotherValue, defaultConfig.getIntProperty(anotherKey, someDefaultValue));
 
-    verify(someProperties, times(1)).getProperty(anotherKey);
+    verify(defaultConfig, times(1)).getProperty(anotherKey, null);
 
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
 
-    verify(someProperties, times(2)).getProperty(someKey);
+    verify(defaultConfig, times(2)).getProperty(someKey, null);
   }
 
   @Test
@@ -230,24 +295,88 @@ public class DefaultConfigTest {
     MockInjector.setInstance(ConfigUtil.class, new MockConfigUtilWithShortExpireTime());
 
     //set up config repo
-    someProperties = mock(Properties.class);
-    when(someProperties.getProperty(someKey)).thenReturn(String.valueOf(someValue));
+    someProperties = new Properties();
+    someProperties.setProperty(someKey, String.valueOf(someValue));
     when(configRepository.getConfig()).thenReturn(someProperties);
 
     DefaultConfig defaultConfig =
-        new DefaultConfig(someNamespace, configRepository);
+        spy(new DefaultConfig(someNamespace, configRepository));
 
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
 
-    verify(someProperties, times(1)).getProperty(someKey);
+    verify(defaultConfig, times(1)).getProperty(someKey, null);
 
     TimeUnit.MILLISECONDS.sleep(50);
 
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
 
-    verify(someProperties, times(2)).getProperty(someKey);
+    verify(defaultConfig, times(2)).getProperty(someKey, null);
+  }
+
+  @Test
+  public void testGetPrimitiveProperties() throws Exception {
+    String someStringKey = "someStringKey";
+    String someStringValue = "someStringValue";
+
+    String someIntKey = "someIntKey";
+    String someDoubleKey = "someDoubleKey";
+    String someBooleanKey = "someBooleanKey";
+
+    //set up config repo
+    someProperties = new Properties();
+    someProperties.setProperty(someStringKey, someStringValue);
+    someProperties.setProperty(someIntKey, "2");
+    someProperties.setProperty(someDoubleKey, "2.5");
+    someProperties.setProperty(someBooleanKey, "true");
+    when(configRepository.getConfig()).thenReturn(someProperties);
+
+    DefaultConfig defaultConfig =
+        new DefaultConfig(someNamespace, configRepository);
+
+    assertEquals(2, defaultConfig.getInt(someIntKey, -1));
+    assertEquals(2L, defaultConfig.getLong(someIntKey, -1L));
+    assertEquals(2, defaultConfig.getShort(someIntKey, (short) -1));
+    assertEquals(2, defaultConfig.getByte(someIntKey, (byte) -1));
+    assertEquals(2.5, defaultConfig.getDouble(someDoubleKey, -1), 0);
+    assertEquals(2.5f, defaultConfig.getFloat(someDoubleKey, -1), 0);
+    assertEquals(true, defaultConfig.getBoolean(someBooleanKey, false));
+
+    assertEquals(-1, defaultConfig.getInt(someStringKey, -1));
+    assertEquals(-1, defaultConfig.getInt("someNotExistKey", -1));
+    assertEquals(-1, defaultConfig.getDouble(someStringKey, -1), 0);
+    assertFalse(defaultConfig.getBoolean("someNotExistKey", false));
+  }
+
+  @Test
+  public void testGetIntMultipleTimesWithCacheAndPropertyChanges() throws Exception {
+    String someKey = "someKey";
+    int someValue = 2;
+    int anotherValue = 3;
+
+    int someDefaultValue = -1;
+
+    //set up config repo
+    someProperties = new Properties();
+    someProperties.setProperty(someKey, String.valueOf(someValue));
+    when(configRepository.getConfig()).thenReturn(someProperties);
+
+    DefaultConfig defaultConfig =
+        spy(new DefaultConfig(someNamespace, configRepository));
+
+    assertEquals(someValue, defaultConfig.getInt(someKey, someDefaultValue));
+    assertEquals(someValue, defaultConfig.getInt(someKey, someDefaultValue));
+    assertEquals(Integer.valueOf(someValue), defaultConfig.getIntProperty(someKey, someDefaultValue));
+
+    verify(defaultConfig, times(1)).getProperty(someKey, null);
+
+    Properties anotherProperties = new Properties();
+    anotherProperties.setProperty(someKey, String.valueOf(anotherValue));
+
+    defaultConfig.onRepositoryChange(someNamespace, anotherProperties);
+
+    assertEquals(anotherValue, defaultConfig.getInt(someKey, someDefaultValue));
   }
 
   @Test
@@ -424,24 +553,24 @@ public class DefaultConfigTest {
     String[] someDefaultValue = new String[]{"1", "2"};
 
     //set up config repo
-    someProperties = mock(Properties.class);
-    when(someProperties.getProperty(someKey)).thenReturn(someValue);
+    someProperties = new Properties();
+    someProperties.setProperty(someKey, someValue);
     when(configRepository.getConfig()).thenReturn(someProperties);
 
     DefaultConfig defaultConfig =
-        new DefaultConfig(someNamespace, configRepository);
+        spy(new DefaultConfig(someNamespace, configRepository));
 
     assertArrayEquals(values, defaultConfig.getArrayProperty(someKey, someDelimiter, someDefaultValue));
     assertArrayEquals(values, defaultConfig.getArrayProperty(someKey, someDelimiter, someDefaultValue));
 
-    verify(someProperties, times(1)).getProperty(someKey);
+    verify(defaultConfig, times(1)).getProperty(someKey, null);
 
     assertArrayEquals(someDefaultValue, defaultConfig.getArrayProperty(someKey, someInvalidDelimiter,
         someDefaultValue));
     assertArrayEquals(someDefaultValue, defaultConfig.getArrayProperty(someKey, someInvalidDelimiter,
         someDefaultValue));
 
-    verify(someProperties, times(3)).getProperty(someKey);
+    verify(defaultConfig, times(3)).getProperty(someKey, null);
   }
 
   @Test
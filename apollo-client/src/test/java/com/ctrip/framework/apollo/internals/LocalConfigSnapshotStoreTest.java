@@ -0,0 +1,148 @@
+package com.ctrip.framework.apollo.internals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class LocalConfigSnapshotStoreTest {
+  private File someBaseDir;
+  private File somePropertiesFile;
+  private File someSnapshotFile;
+  private Properties someProperties;
+
+  @Before
+  public void setUp() throws Exception {
+    someBaseDir = new File("src/test/resources/config-snapshot");
+    someBaseDir.mkdir();
+
+    somePropertiesFile = new File(someBaseDir, "someApp+someCluster+someNamespace.properties");
+    someSnapshotFile = new File(someBaseDir, "someApp+someCluster+someNamespace.snapshot");
+
+    someProperties = new Properties();
+    someProperties.setProperty("someKey", "someValue");
+    someProperties.setProperty("anotherKey", "中文\nanotherValue");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    LocalConfigSnapshotStore.awaitPendingWrites(5, TimeUnit.SECONDS);
+    recursiveDelete(someBaseDir);
+  }
+
+  //helper method to clean created files
+  private void recursiveDelete(File file) {
+    if (!file.exists()) {
+      return;
+    }
+    if (file.isDirectory()) {
+      for (File f : file.listFiles()) {
+        recursiveDelete(f);
+      }
+    }
+    file.delete();
+  }
+
+  @Test
+  public void testEncodeAndDecode() throws Exception {
+    Properties properties = new Properties();
+    for (int i = 0; i < 10000; i++) {
+      properties.setProperty("someKey" + i, "someValue" + i);
+    }
+    properties.putAll(someProperties);
+
+    assertEquals(properties, LocalConfigSnapshotStore.decode(LocalConfigSnapshotStore.encode(properties)));
+  }
+
+  @Test(expected = IOException.class)
+  public void testDecodeCorruptedSnapshot() throws Exception {
+    byte[] content = LocalConfigSnapshotStore.encode(someProperties);
+    content[content.length / 2] ^= 1;
+
+    LocalConfigSnapshotStore.decode(content);
+  }
+
+  @Test(expected = IOException.class)
+  public void testDecodeTruncatedSnapshot() throws Exception {
+    byte[] content = LocalConfigSnapshotStore.encode(someProperties);
+    byte[] truncated = new byte[content.length - 3];
+    System.arraycopy(content, 0, truncated, 0, truncated.length);
+
+    LocalConfigSnapshotStore.decode(truncated);
+  }
+
+  @Test
+  public void testPersistAndLoad() throws Exception {
+    LocalConfigSnapshotStore store = new LocalConfigSnapshotStore(true);
+
+    store.persist(somePropertiesFile, someProperties);
+
+    assertEquals(someProperties, store.load(somePropertiesFile));
+    assertTrue(LocalConfigSnapshotStore.awaitPendingWrites(5, TimeUnit.SECONDS));
+    assertTrue(somePropertiesFile.isFile());
+    assertTrue(someSnapshotFile.isFile());
+    assertEquals(2, someBaseDir.listFiles().length);
+
+    somePropertiesFile.delete();
+
+    assertEquals(someProperties, new LocalConfigSnapshotStore(true).load(somePropertiesFile));
+  }
+
+  @Test
+  public void testFirstPersistOfNamespaceIsWaitedFor() throws Exception {
+    //a namespace not persisted by the other tests
+    File anotherPropertiesFile = new File(someBaseDir, "someApp+someCluster+anotherNamespace.properties");
+    LocalConfigSnapshotStore store = new LocalConfigSnapshotStore(true);
+
+    store.persist(anotherPropertiesFile, someProperties);
+
+    assertTrue(anotherPropertiesFile.isFile());
+    assertTrue(new File(someBaseDir, "someApp+someCluster+anotherNamespace.snapshot").isFile());
+  }
+
+  @Test
+  public void testPersistWithPropertiesFileDisabled() throws Exception {
+    LocalConfigSnapshotStore store = new LocalConfigSnapshotStore(false);
+
+    store.persist(somePropertiesFile, someProperties);
+
+    assertTrue(LocalConfigSnapshotStore.awaitPendingWrites(5, TimeUnit.SECONDS));
+    assertFalse(somePropertiesFile.exists());
+    assertEquals(someProperties, store.load(somePropertiesFile));
+  }
+
+  @Test
+  public void testLoadPropertiesFileWhenSnapshotIsCorrupted() throws Exception {
+    LocalConfigSnapshotStore store = new LocalConfigSnapshotStore(true);
+    store.persist(somePropertiesFile, someProperties);
+    assertTrue(LocalConfigSnapshotStore.awaitPendingWrites(5, TimeUnit.SECONDS));
+
+    Files.write("corrupted", someSnapshotFile, Charsets.UTF_8);
+    someSnapshotFile.setLastModified(somePropertiesFile.lastModified());
+
+    assertEquals(someProperties, store.load(somePropertiesFile));
+  }
+
+  @Test
+  public void testLoadPropertiesFileNewerThanSnapshot() throws Exception {
+    LocalConfigSnapshotStore store = new LocalConfigSnapshotStore(true);
+    store.persist(somePropertiesFile, someProperties);
+    assertTrue(LocalConfigSnapshotStore.awaitPendingWrites(5, TimeUnit.SECONDS));
+
+    Files.write("someKey=editedValue", somePropertiesFile, Charsets.UTF_8);
+    someSnapshotFile.setLastModified(somePropertiesFile.lastModified() - 10000);
+
+    assertEquals("editedValue", store.load(somePropertiesFile).getProperty("someKey"));
+  }
+}
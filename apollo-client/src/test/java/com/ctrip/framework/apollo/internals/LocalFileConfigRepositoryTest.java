@@ -13,6 +13,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
 import org.junit.Before;
@@ -58,6 +59,7 @@ public class LocalFileConfigRepositoryTest {
 
   @After
   public void tearDown() throws Exception {
+    LocalConfigSnapshotStore.awaitPendingWrites(5, TimeUnit.SECONDS);
     recursiveDelete(someBaseDir);
   }
 
@@ -0,0 +1,274 @@
+package com.ctrip.framework.apollo.internals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import com.ctrip.framework.apollo.build.MockInjector;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigResult;
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.ctrip.framework.apollo.util.http.DefaultHttpTransport;
+import com.ctrip.framework.apollo.util.http.HttpRequest;
+import com.ctrip.framework.apollo.util.http.HttpResponse;
+import com.ctrip.framework.apollo.util.http.HttpTransport;
+import com.ctrip.framework.apollo.util.http.HttpUtil;
+import com.google.common.collect.Lists;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RemoteConfigBatchLoaderTest {
+  private RemoteConfigBatchLoader remoteConfigBatchLoader;
+  @Mock
+  private HttpUtil httpUtil;
+  @Mock
+  private ConfigServiceLocator configServiceLocator;
+  private ExecutorService executorService;
+  private String someNamespace;
+  private String anotherNamespace;
+  private String yetAnotherNamespace;
+
+  @Before
+  public void setUp() throws Exception {
+    MockInjector.reset();
+    MockInjector.setInstance(ConfigUtil.class, new RemoteConfigRepositoryTest.MockConfigUtil());
+    MockInjector.setInstance(HttpUtil.class, httpUtil);
+    MockInjector.setInstance(ConfigServiceLocator.class, configServiceLocator);
+
+    ServiceDTO serviceDTO = mock(ServiceDTO.class);
+    when(serviceDTO.getHomepageUrl()).thenReturn("http://someServer");
+    when(configServiceLocator.getConfigServices()).thenReturn(Lists.newArrayList(serviceDTO));
+
+    remoteConfigBatchLoader = new RemoteConfigBatchLoader();
+    executorService = Executors.newCachedThreadPool();
+
+    someNamespace = "someNamespace";
+    anotherNamespace = "anotherNamespace";
+    yetAnotherNamespace = "yetAnotherNamespace";
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testLoadWithConcurrentCallersInOneRequest() throws Exception {
+    final CountDownLatch firstRequestStarted = new CountDownLatch(1);
+    final CountDownLatch othersPending = new CountDownLatch(1);
+
+    when(httpUtil.doGet(any(HttpRequest.class), any(Type.class))).thenAnswer(new Answer<HttpResponse>() {
+      private int count = 0;
+
+      @Override
+      public HttpResponse answer(InvocationOnMock invocation) throws Throwable {
+        if (count++ == 0) {
+          firstRequestStarted.countDown();
+          othersPending.await(5, TimeUnit.SECONDS);
+          return assembleResponse(assembleResult(someNamespace));
+        }
+        return assembleResponse(assembleResult(anotherNamespace), assembleResult(yetAnotherNamespace));
+      }
+    });
+
+    Future<ApolloConfig> someResult = load(someNamespace);
+    assertTrue(firstRequestStarted.await(5, TimeUnit.SECONDS));
+    Future<ApolloConfig> anotherResult = load(anotherNamespace);
+    Future<ApolloConfig> yetAnotherResult = load(yetAnotherNamespace);
+
+    //wait until both are queued
+    TimeUnit.MILLISECONDS.sleep(100);
+    othersPending.countDown();
+
+    assertEquals(someNamespace, someResult.get(5, TimeUnit.SECONDS).getNamespaceName());
+    assertEquals(anotherNamespace, anotherResult.get(5, TimeUnit.SECONDS).getNamespaceName());
+    assertEquals(yetAnotherNamespace, yetAnotherResult.get(5, TimeUnit.SECONDS).getNamespaceName());
+
+    ArgumentCaptor<HttpRequest> requestCaptor = ArgumentCaptor.forClass(HttpRequest.class);
+    verify(httpUtil, times(2)).doGet(requestCaptor.capture(), any(Type.class));
+    String secondUrl = requestCaptor.getAllValues().get(1).getUrl();
+    assertTrue(secondUrl.contains(anotherNamespace));
+    assertTrue(secondUrl.contains(yetAnotherNamespace));
+  }
+
+  @Test
+  public void testLeaderDoesNotSendBatchesOfOthers() throws Exception {
+    final CountDownLatch firstRequestStarted = new CountDownLatch(1);
+    final CountDownLatch othersPending = new CountDownLatch(1);
+    final CountDownLatch secondRequestStarted = new CountDownLatch(1);
+    final CountDownLatch secondRequestReleased = new CountDownLatch(1);
+
+    when(httpUtil.doGet(any(HttpRequest.class), any(Type.class))).thenAnswer(new Answer<HttpResponse>() {
+      private int count = 0;
+
+      @Override
+      public HttpResponse answer(InvocationOnMock invocation) throws Throwable {
+        if (count++ == 0) {
+          firstRequestStarted.countDown();
+          othersPending.await(5, TimeUnit.SECONDS);
+          return assembleResponse(assembleResult(someNamespace));
+        }
+        secondRequestStarted.countDown();
+        secondRequestReleased.await(5, TimeUnit.SECONDS);
+        return assembleResponse(assembleResult(anotherNamespace));
+      }
+    });
+
+    Future<ApolloConfig> someResult = load(someNamespace);
+    assertTrue(firstRequestStarted.await(5, TimeUnit.SECONDS));
+    Future<ApolloConfig> anotherResult = load(anotherNamespace);
+
+    //wait until it is queued
+    TimeUnit.MILLISECONDS.sleep(100);
+    othersPending.countDown();
+
+    assertTrue(secondRequestStarted.await(5, TimeUnit.SECONDS));
+    //the first caller returns while the second request is still in flight
+    assertEquals(someNamespace, someResult.get(1, TimeUnit.SECONDS).getNamespaceName());
+
+    secondRequestReleased.countDown();
+    assertEquals(anotherNamespace, anotherResult.get(5, TimeUnit.SECONDS).getNamespaceName());
+  }
+
+  @Test
+  public void testLoadFromGivenConfigService() throws Exception {
+    ServiceDTO someConfigService = mock(ServiceDTO.class);
+    when(someConfigService.getHomepageUrl()).thenReturn("http://someNotifiedServer");
+    when(httpUtil.doGet(any(HttpRequest.class), any(Type.class))).thenReturn(assembleResponse(
+        assembleResult(someNamespace)));
+
+    remoteConfigBatchLoader.load(someNamespace, null, null, someConfigService);
+
+    ArgumentCaptor<HttpRequest> requestCaptor = ArgumentCaptor.forClass(HttpRequest.class);
+    verify(httpUtil, times(1)).doGet(requestCaptor.capture(), any(Type.class));
+    assertTrue(requestCaptor.getValue().getUrl().startsWith("http://someNotifiedServer/"));
+  }
+
+  @Test
+  public void testLoadNotModified() throws Exception {
+    ApolloConfig previousConfig = new ApolloConfig("someApp", "someCluster", someNamespace, "someReleaseKey");
+    when(httpUtil.doGet(any(HttpRequest.class), any(Type.class))).thenReturn(assembleResponse(
+        new ApolloConfigResult(someNamespace, 304, null)));
+
+    assertSame(previousConfig, remoteConfigBatchLoader.load(someNamespace, previousConfig, null, null));
+  }
+
+  @Test(expected = ApolloConfigException.class)
+  public void testLoadNotFound() throws Exception {
+    when(httpUtil.doGet(any(HttpRequest.class), any(Type.class))).thenReturn(assembleResponse(
+        new ApolloConfigResult(someNamespace, 404, null)));
+
+    remoteConfigBatchLoader.load(someNamespace, null, null, null);
+  }
+
+  @Test
+  public void testDisableBatchWhenNotSupported() throws Exception {
+    when(httpUtil.doGet(any(HttpRequest.class), any(Type.class))).thenThrow(
+        new ApolloConfigStatusCodeException(404, "some message"));
+
+    assertTrue(remoteConfigBatchLoader.isEnabled());
+
+    try {
+      remoteConfigBatchLoader.load(someNamespace, null, null, null);
+    } catch (ApolloConfigException ex) {
+      //expected
+    }
+
+    assertFalse(remoteConfigBatchLoader.isEnabled());
+  }
+
+  @Test
+  public void testDisableBatchWhenConfigServiceRespondsNotFound() throws Exception {
+    Server server = new Server(0);
+    ContextHandler context = new ContextHandler("/configs");
+    context.setHandler(new AbstractHandler() {
+      @Override
+      public void handle(String target, Request baseRequest, HttpServletRequest request,
+                         HttpServletResponse response) throws IOException, ServletException {
+        //a config service without the batch query
+        response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+        baseRequest.setHandled(true);
+      }
+    });
+    server.setHandler(context);
+    server.start();
+
+    try {
+      MockInjector.setInstance(HttpTransport.class, new DefaultHttpTransport());
+      MockInjector.setInstance(HttpUtil.class, new HttpUtil());
+      ServiceDTO someConfigService = mock(ServiceDTO.class);
+      when(someConfigService.getHomepageUrl()).thenReturn(
+          String.format("http://localhost:%d", ((ServerConnector) server.getConnectors()[0]).getLocalPort()));
+      RemoteConfigBatchLoader someBatchLoader = new RemoteConfigBatchLoader();
+
+      assertTrue(someBatchLoader.isEnabled());
+
+      try {
+        someBatchLoader.load(someNamespace, null, null, someConfigService);
+        fail("Should throw ApolloConfigException");
+      } catch (ApolloConfigException ex) {
+        //expected
+      }
+
+      assertFalse(someBatchLoader.isEnabled());
+    } finally {
+      server.stop();
+    }
+  }
+
+  private Future<ApolloConfig> load(final String namespace) {
+    return executorService.submit(new Callable<ApolloConfig>() {
+      @Override
+      public ApolloConfig call() throws Exception {
+        return remoteConfigBatchLoader.load(namespace, null, null, null);
+      }
+    });
+  }
+
+  private ApolloConfigResult assembleResult(String namespace) {
+    return new ApolloConfigResult(namespace, 200, new ApolloConfig("someApp", "someCluster", namespace,
+        "someReleaseKey"));
+  }
+
+  private HttpResponse assembleResponse(ApolloConfigResult... results) {
+    return new HttpResponse<List<ApolloConfigResult>>(200, Lists.newArrayList(results));
+  }
+}
@@ -1,12 +1,14 @@
 package com.ctrip.framework.apollo.internals;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -62,6 +64,8 @@ public class RemoteConfigRepositoryTest {
   @Mock
   private static HttpResponse<List<ApolloConfigNotification>> pollResponse;
   private RemoteConfigLongPollService remoteConfigLongPollService;
+  @Mock
+  private RemoteConfigBatchLoader remoteConfigBatchLoader;
 
   @Before
   public void setUp() throws Exception {
@@ -87,6 +91,7 @@ public class RemoteConfigRepositoryTest {
     remoteConfigLongPollService = new RemoteConfigLongPollService();
 
     MockInjector.setInstance(RemoteConfigLongPollService.class, remoteConfigLongPollService);
+    MockInjector.setInstance(RemoteConfigBatchLoader.class, remoteConfigBatchLoader);
   }
 
   @Test
@@ -148,6 +153,99 @@ public class RemoteConfigRepositoryTest {
     remoteConfigLongPollService.stopLongPollingRefresh();
   }
 
+  @Test
+  public void testLoadConfigInBatch() throws Exception {
+    Map<String, String> configurations = ImmutableMap.of("someKey", "someValue");
+    ApolloConfig someApolloConfig = assembleApolloConfig(configurations);
+
+    when(remoteConfigBatchLoader.isEnabled()).thenReturn(true);
+    when(remoteConfigBatchLoader.load(eq(someNamespace), any(ApolloConfig.class),
+        any(ApolloNotificationMessages.class), any(ServiceDTO.class))).thenReturn(someApolloConfig);
+
+    RemoteConfigRepository remoteConfigRepository = new RemoteConfigRepository(someNamespace);
+    remoteConfigLongPollService.stopLongPollingRefresh();
+
+    assertEquals(configurations, remoteConfigRepository.getConfig());
+    verify(httpUtil, never()).doGet(any(HttpRequest.class), eq(ApolloConfig.class));
+  }
+
+  @Test
+  public void testLoadConfigOnItsOwnWhenBatchLoadFailed() throws Exception {
+    Map<String, String> configurations = ImmutableMap.of("someKey", "someValue");
+    ApolloConfig someApolloConfig = assembleApolloConfig(configurations);
+
+    when(someResponse.getStatusCode()).thenReturn(200);
+    when(someResponse.getBody()).thenReturn(someApolloConfig);
+    when(remoteConfigBatchLoader.isEnabled()).thenReturn(true);
+    when(remoteConfigBatchLoader.load(eq(someNamespace), any(ApolloConfig.class),
+        any(ApolloNotificationMessages.class), any(ServiceDTO.class))).thenThrow(new ApolloConfigException("some exception"));
+
+    RemoteConfigRepository remoteConfigRepository = new RemoteConfigRepository(someNamespace);
+    remoteConfigLongPollService.stopLongPollingRefresh();
+
+    assertEquals(configurations, remoteConfigRepository.getConfig());
+    verify(httpUtil, times(1)).doGet(any(HttpRequest.class), eq(ApolloConfig.class));
+  }
+
+  @Test
+  public void testSyncWithDelta() throws Exception {
+    Map<String, String> configurations = ImmutableMap.of("someKey", "someValue", "anotherKey", "anotherValue",
+        "yetAnotherKey", "yetAnotherValue");
+    ApolloConfig someApolloConfig = assembleApolloConfig(configurations);
+
+    when(someResponse.getStatusCode()).thenReturn(200);
+    when(someResponse.getBody()).thenReturn(someApolloConfig);
+
+    RemoteConfigRepository remoteConfigRepository = new RemoteConfigRepository(someNamespace);
+    remoteConfigLongPollService.stopLongPollingRefresh();
+
+    ApolloConfig delta = new ApolloConfig("appId", "cluster", someNamespace, "2");
+    delta.setBaseReleaseKey(someApolloConfig.getReleaseKey());
+    delta.setConfigurations(ImmutableMap.of("someKey", "newValue", "newKey", "newValue"));
+    delta.setDeletedKeys(Lists.newArrayList("anotherKey"));
+    when(someResponse.getBody()).thenReturn(delta);
+
+    remoteConfigRepository.sync();
+
+    Properties config = remoteConfigRepository.getConfig();
+    assertEquals(ImmutableMap.of("someKey", "newValue", "yetAnotherKey", "yetAnotherValue", "newKey", "newValue"),
+        config);
+
+    final ArgumentCaptor<HttpRequest> httpRequestArgumentCaptor = ArgumentCaptor.forClass(HttpRequest.class);
+    verify(httpUtil, times(2)).doGet(httpRequestArgumentCaptor.capture(), eq(ApolloConfig.class));
+    assertFalse(httpRequestArgumentCaptor.getAllValues().get(0).getUrl().contains("delta=true"));
+    assertTrue(httpRequestArgumentCaptor.getAllValues().get(1).getUrl().contains("delta=true"));
+  }
+
+  @Test
+  public void testSyncWithMismatchedDeltaFallsBackToFullConfig() throws Exception {
+    Map<String, String> configurations = ImmutableMap.of("someKey", "someValue");
+    ApolloConfig someApolloConfig = assembleApolloConfig(configurations);
+
+    when(someResponse.getStatusCode()).thenReturn(200);
+    when(someResponse.getBody()).thenReturn(someApolloConfig);
+
+    RemoteConfigRepository remoteConfigRepository = new RemoteConfigRepository(someNamespace);
+    remoteConfigLongPollService.stopLongPollingRefresh();
+
+    ApolloConfig delta = new ApolloConfig("appId", "cluster", someNamespace, "3");
+    delta.setBaseReleaseKey("someOtherReleaseKey");
+    delta.setConfigurations(ImmutableMap.of("someKey", "newValue"));
+    Map<String, String> newConfigurations = ImmutableMap.of("someKey", "newValue", "anotherKey", "anotherValue");
+    ApolloConfig fullApolloConfig = assembleApolloConfig(newConfigurations);
+    when(someResponse.getBody()).thenReturn(delta, fullApolloConfig);
+
+    remoteConfigRepository.sync();
+
+    assertEquals(newConfigurations, remoteConfigRepository.getConfig());
+
+    final ArgumentCaptor<HttpRequest> httpRequestArgumentCaptor = ArgumentCaptor.forClass(HttpRequest.class);
+    verify(httpUtil, times(3)).doGet(httpRequestArgumentCaptor.capture(), eq(ApolloConfig.class));
+    String fullConfigUrl = httpRequestArgumentCaptor.getValue().getUrl();
+    assertFalse(fullConfigUrl.contains("delta=true"));
+    assertFalse(fullConfigUrl.contains("releaseKey="));
+  }
+
   @Test
   public void testLongPollingRefresh() throws Exception {
     Map<String, String> configurations = ImmutableMap.of("someKey", "someValue");
@@ -235,6 +333,7 @@ public class RemoteConfigRepositoryTest {
         .contains("releaseKey=20160705193346-583078ef5716c055%2B20160705193308-31c471ddf9087c3f"));
     assertTrue(queryConfigUrl
         .contains("messages=" + UrlEscapers.urlFormParameterEscaper().escape(gson.toJson(notificationMessages))));
+    assertTrue(queryConfigUrl.contains("delta=true"));
   }
 
   private ApolloConfig assembleApolloConfig(Map<String, String> configurations) {
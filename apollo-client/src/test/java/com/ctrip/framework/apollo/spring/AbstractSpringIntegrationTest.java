@@ -14,6 +14,7 @@ import com.ctrip.framework.apollo.build.MockInjector;
 import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
 import com.ctrip.framework.apollo.internals.ConfigManager;
 import com.ctrip.framework.apollo.spring.config.PropertySourcesProcessor;
+import com.ctrip.framework.apollo.util.ConfigUtil;
 import com.google.common.collect.Maps;
 
 /**
@@ -43,6 +44,7 @@ public abstract class AbstractSpringIntegrationTest {
     ReflectionUtils.invokeMethod(CONFIG_SERVICE_RESET, null);
     MockInjector.reset();
     MockInjector.setInstance(ConfigManager.class, new MockConfigManager());
+    MockInjector.setInstance(ConfigUtil.class, new ConfigUtil());
   }
 
   @After
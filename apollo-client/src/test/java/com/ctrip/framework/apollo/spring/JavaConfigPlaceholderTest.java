@@ -1,12 +1,21 @@
 package com.ctrip.framework.apollo.spring;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.context.annotation.Bean;
@@ -14,8 +23,11 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.stereotype.Component;
 
 import com.ctrip.framework.apollo.Config;
+import com.ctrip.framework.apollo.build.MockInjector;
 import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.internals.ConfigManager;
 import com.ctrip.framework.apollo.spring.annotation.EnableApolloConfig;
+import com.ctrip.framework.apollo.util.ConfigUtil;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
@@ -133,6 +145,71 @@ public class JavaConfigPlaceholderTest extends AbstractSpringIntegrationTest {
     assertEquals(someBatch, bean.getBatch());
   }
 
+  @Test
+  public void testNamespacesAreFetchedConcurrently() throws Exception {
+    int someTimeout = 1000;
+    int someBatch = 2000;
+
+    final Config application = mock(Config.class);
+    when(application.getProperty(eq(TIMEOUT_PROPERTY), anyString())).thenReturn(String.valueOf(someTimeout));
+    when(application.getProperty(eq(BATCH_PROPERTY), anyString())).thenReturn(String.valueOf(someBatch));
+    final Config fxApollo = mock(Config.class);
+
+    //each namespace waits until the other one is being fetched as well
+    final CountDownLatch bothFetching = new CountDownLatch(2);
+    final AtomicBoolean fetchedConcurrently = new AtomicBoolean(true);
+    ConfigManager configManager = mock(ConfigManager.class);
+    when(configManager.getConfig(anyString())).thenAnswer(new Answer<Config>() {
+      @Override
+      public Config answer(InvocationOnMock invocation) throws Throwable {
+        bothFetching.countDown();
+        if (!bothFetching.await(1, TimeUnit.SECONDS)) {
+          fetchedConcurrently.set(false);
+        }
+        return ConfigConsts.NAMESPACE_APPLICATION.equals(invocation.getArguments()[0]) ? application : fxApollo;
+      }
+    });
+    MockInjector.setInstance(ConfigManager.class, configManager);
+
+    check(someTimeout, someBatch, AppConfig3.class);
+
+    assertTrue(fetchedConcurrently.get());
+  }
+
+  @Test
+  public void testBootstrapNamespacesArePrefetched() throws Exception {
+    String someBootstrapNamespace = "someBootstrapNamespace";
+    ConfigManager configManager = mock(ConfigManager.class);
+    when(configManager.getConfig(anyString())).thenReturn(mock(Config.class));
+    MockInjector.setInstance(ConfigManager.class, configManager);
+
+    System.setProperty("apollo.bootstrap.namespaces", someBootstrapNamespace);
+    MockInjector.setInstance(ConfigUtil.class, new ConfigUtil());
+    System.clearProperty("apollo.bootstrap.namespaces");
+
+    check(DEFAULT_TIMEOUT, DEFAULT_BATCH, AppConfig2.class);
+
+    verify(configManager).getConfig(someBootstrapNamespace);
+  }
+
+  @Test
+  public void testBootstrapNamespacesWithPrefetchDisabled() throws Exception {
+    String someBootstrapNamespace = "someBootstrapNamespace";
+    ConfigManager configManager = mock(ConfigManager.class);
+    when(configManager.getConfig(anyString())).thenReturn(mock(Config.class));
+    MockInjector.setInstance(ConfigManager.class, configManager);
+
+    System.setProperty("apollo.bootstrap.prefetchEnabled", "false");
+    System.setProperty("apollo.bootstrap.namespaces", someBootstrapNamespace);
+    MockInjector.setInstance(ConfigUtil.class, new ConfigUtil());
+    System.clearProperty("apollo.bootstrap.prefetchEnabled");
+    System.clearProperty("apollo.bootstrap.namespaces");
+
+    check(DEFAULT_TIMEOUT, DEFAULT_BATCH, AppConfig3.class);
+
+    verify(configManager, never()).getConfig(someBootstrapNamespace);
+  }
+
   private void check(int expectedTimeout, int expectedBatch, Class<?>... annotatedClasses) {
     AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(annotatedClasses);
 
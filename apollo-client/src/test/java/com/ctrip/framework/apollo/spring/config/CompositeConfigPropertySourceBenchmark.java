@@ -0,0 +1,167 @@
+package com.ctrip.framework.apollo.spring.config;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.env.CompositePropertySource;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import com.ctrip.framework.apollo.Config;
+import com.ctrip.framework.apollo.build.MockInjector;
+import com.ctrip.framework.apollo.internals.ConfigRepository;
+import com.ctrip.framework.apollo.internals.RepositoryChangeListener;
+import com.ctrip.framework.apollo.internals.SimpleConfig;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.google.common.collect.Lists;
+
+/**
+ * Compares the spring property lookups of the indexed {@link CompositeConfigPropertySource} with the
+ * {@link CompositePropertySource} it replaced, for a growing number of namespaces.
+ *
+ * <ul>
+ *   <li>{@code getProperty}: {@link ConfigurableEnvironment#getProperty(String)} of the properties of all the
+ *   namespaces in turn</li>
+ *   <li>{@code startup}: registering the namespaces in a new environment and resolving every property once, like the
+ *   placeholders of the beans are resolved when the application context starts</li>
+ * </ul>
+ *
+ * Run the main method after {@code mvn test-compile}, the benchmarks are not part of the test suite.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class CompositeConfigPropertySourceBenchmark {
+  private static final String APOLLO_PROPERTY_SOURCE_NAME = "ApolloPropertySources";
+  private static final int PROPERTIES_PER_NAMESPACE = 100;
+
+  @Param({"1", "10", "50"})
+  public int namespaces;
+
+  @Param({"indexed", "composite"})
+  public String propertySource;
+
+  private List<Config> configs;
+  private String[] propertyNames;
+  private ConfigurableEnvironment environment;
+
+  @Setup
+  public void setUp() {
+    MockInjector.reset();
+    MockInjector.setInstance(ConfigUtil.class, new ConfigUtil());
+
+    configs = Lists.newArrayList();
+    List<String> names = Lists.newArrayList();
+    for (int i = 0; i < namespaces; i++) {
+      Properties properties = new Properties();
+      for (int j = 0; j < PROPERTIES_PER_NAMESPACE; j++) {
+        String name = String.format("namespace%d.key%d", i, j);
+        properties.setProperty(name, "value" + j);
+        names.add(name);
+      }
+      configs.add(new SimpleConfig("namespace" + i, new StaticConfigRepository(properties)));
+    }
+    propertyNames = names.toArray(new String[names.size()]);
+    environment = assembleEnvironment();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public String getProperty(Cursor cursor) {
+    return environment.getProperty(propertyNames[cursor.next(propertyNames.length)]);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public ConfigurableEnvironment startup() {
+    ConfigurableEnvironment environment = assembleEnvironment();
+    for (String name : propertyNames) {
+      environment.getProperty(name);
+    }
+    return environment;
+  }
+
+  private ConfigurableEnvironment assembleEnvironment() {
+    EnumerablePropertySource<?> apolloPropertySource;
+    if ("indexed".equals(propertySource)) {
+      CompositeConfigPropertySource composite =
+          new CompositeConfigPropertySource(APOLLO_PROPERTY_SOURCE_NAME);
+      for (int i = 0; i < configs.size(); i++) {
+        composite.addPropertySource(new ConfigPropertySource("namespace" + i, configs.get(i)));
+      }
+      apolloPropertySource = composite;
+    } else {
+      CompositePropertySource composite =
+          new CompositePropertySource(APOLLO_PROPERTY_SOURCE_NAME);
+      for (int i = 0; i < configs.size(); i++) {
+        composite.addPropertySource(new ConfigPropertySource("namespace" + i, configs.get(i)));
+      }
+      apolloPropertySource = composite;
+    }
+
+    ConfigurableEnvironment environment = new StandardEnvironment();
+    environment.getPropertySources().addFirst(apolloPropertySource);
+    return environment;
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int m_position;
+
+    int next(int length) {
+      if (++m_position >= length) {
+        m_position = 0;
+      }
+      return m_position;
+    }
+  }
+
+  private static class StaticConfigRepository implements ConfigRepository {
+    private final Properties m_properties;
+
+    StaticConfigRepository(Properties properties) {
+      m_properties = properties;
+    }
+
+    @Override
+    public Properties getConfig() {
+      return m_properties;
+    }
+
+    @Override
+    public void setUpstreamRepository(ConfigRepository upstreamConfigRepository) {
+    }
+
+    @Override
+    public void addChangeListener(RepositoryChangeListener listener) {
+    }
+
+    @Override
+    public void removeChangeListener(RepositoryChangeListener listener) {
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(CompositeConfigPropertySourceBenchmark.class.getSimpleName())
+        .addProfiler("gc").build()).run();
+  }
+}
@@ -0,0 +1,156 @@
+package com.ctrip.framework.apollo.spring.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.ctrip.framework.apollo.Config;
+import com.ctrip.framework.apollo.build.MockInjector;
+import com.ctrip.framework.apollo.internals.ConfigRepository;
+import com.ctrip.framework.apollo.internals.SimpleConfig;
+import com.ctrip.framework.apollo.model.ConfigChange;
+import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class CompositeConfigPropertySourceTest {
+  private CompositeConfigPropertySource compositeSource;
+  private Map<String, String> someProperties;
+  private Map<String, String> anotherProperties;
+  private Config someConfig;
+  private Config anotherConfig;
+
+  @Before
+  public void setUp() throws Exception {
+    compositeSource = new CompositeConfigPropertySource("someName");
+
+    someProperties = Maps.newHashMap(ImmutableMap.of("a", "someA", "b", "someB"));
+    anotherProperties = Maps.newHashMap(ImmutableMap.of("b", "anotherB", "c", "anotherC"));
+    someConfig = mockConfig(someProperties);
+    anotherConfig = mockConfig(anotherProperties);
+
+    compositeSource.addPropertySource(new ConfigPropertySource("someNamespace", someConfig));
+    compositeSource.addPropertySource(new ConfigPropertySource("anotherNamespace", anotherConfig));
+  }
+
+  @Test
+  public void testGetPropertyInOrderOfNamespaces() throws Exception {
+    assertEquals("someA", compositeSource.getProperty("a"));
+    assertEquals("someB", compositeSource.getProperty("b"));
+    assertEquals("anotherC", compositeSource.getProperty("c"));
+    assertNull(compositeSource.getProperty("d"));
+    assertTrue(compositeSource.containsProperty("c"));
+    assertFalse(compositeSource.containsProperty("d"));
+
+    verify(someConfig).addChangeListener(compositeSource);
+    verify(anotherConfig).addChangeListener(compositeSource);
+  }
+
+  @Test
+  public void testGetPropertyNotListedByConfig() throws Exception {
+    String someKey = "someKey";
+    String someValue = "someValue";
+    when(anotherConfig.getProperty(someKey, null)).thenReturn(someValue);
+
+    assertEquals(someValue, compositeSource.getProperty(someKey));
+  }
+
+  @Test
+  public void testGetPropertyNamesIsCachedUntilChanged() throws Exception {
+    String[] propertyNames = compositeSource.getPropertyNames();
+
+    assertEquals(ImmutableSet.of("a", "b", "c"), Sets.newHashSet(propertyNames));
+    assertSame(propertyNames, compositeSource.getPropertyNames());
+
+    anotherProperties.put("d", "anotherD");
+    compositeSource.onChange(assembleChangeEvent("anotherNamespace", "d", null, "anotherD"));
+
+    assertEquals(ImmutableSet.of("a", "b", "c", "d"), Sets.newHashSet(compositeSource.getPropertyNames()));
+    assertEquals("anotherD", compositeSource.getProperty("d"));
+  }
+
+  @Test
+  public void testGetPropertyAfterChanged() throws Exception {
+    assertEquals("someB", compositeSource.getProperty("b"));
+
+    //the config is updated before the change listeners are notified
+    someProperties.remove("b");
+    someProperties.put("c", "someC");
+
+    assertEquals("anotherB", compositeSource.getProperty("b"));
+
+    compositeSource.onChange(assembleChangeEvent("someNamespace", "c", null, "someC"));
+
+    assertEquals("anotherB", compositeSource.getProperty("b"));
+    assertEquals("someC", compositeSource.getProperty("c"));
+    assertEquals(ImmutableSet.of("a", "b", "c"), Sets.newHashSet(compositeSource.getPropertyNames()));
+  }
+
+  @Test
+  public void testChangeOfHigherNamespaceTakesEffectBeforeListenersAreNotified() throws Exception {
+    MockInjector.reset();
+    MockInjector.setInstance(ConfigUtil.class, new ConfigUtil());
+    ConfigRepository someRepository = mock(ConfigRepository.class);
+    Properties someRepositoryProperties = new Properties();
+    someRepositoryProperties.setProperty("d", "higherD");
+    when(someRepository.getConfig()).thenReturn(someRepositoryProperties);
+    SimpleConfig higherConfig = new SimpleConfig("higherNamespace", someRepository);
+
+    CompositeConfigPropertySource anotherCompositeSource = new CompositeConfigPropertySource("anotherName");
+    anotherCompositeSource.addPropertySource(new ConfigPropertySource("higherNamespace", higherConfig));
+    anotherCompositeSource.addPropertySource(new ConfigPropertySource("someNamespace", someConfig));
+
+    assertEquals("someB", anotherCompositeSource.getProperty("b"));
+
+    Properties newRepositoryProperties = new Properties();
+    newRepositoryProperties.putAll(someRepositoryProperties);
+    newRepositoryProperties.setProperty("b", "higherB");
+    higherConfig.onRepositoryChange("higherNamespace", newRepositoryProperties);
+
+    //the change listeners are notified asynchronously, the config version already tells the index is stale
+    assertEquals("higherB", anotherCompositeSource.getProperty("b"));
+    assertEquals(ImmutableSet.of("a", "b", "d"), Sets.newHashSet(anotherCompositeSource.getPropertyNames()));
+  }
+
+  private ConfigChangeEvent assembleChangeEvent(String namespace, String key, String oldValue, String newValue) {
+    Map<String, ConfigChange> changes = Maps.newHashMap();
+    changes.put(key, new ConfigChange(namespace, key, oldValue, newValue, null));
+    return new ConfigChangeEvent(namespace, changes);
+  }
+
+  private Config mockConfig(final Map<String, String> properties) {
+    Config config = mock(Config.class);
+    when(config.getProperty(anyString(), anyString())).thenAnswer(new Answer<String>() {
+      @Override
+      public String answer(InvocationOnMock invocation) throws Throwable {
+        String value = properties.get(invocation.getArguments()[0]);
+        return value == null ? (String) invocation.getArguments()[1] : value;
+      }
+    });
+    when(config.getPropertyNames()).thenAnswer(new Answer<Set<String>>() {
+      @Override
+      public Set<String> answer(InvocationOnMock invocation) throws Throwable {
+        return properties.keySet();
+      }
+    });
+    return config;
+  }
+}
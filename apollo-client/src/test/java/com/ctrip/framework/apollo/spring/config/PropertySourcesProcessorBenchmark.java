@@ -0,0 +1,175 @@
+package com.ctrip.framework.apollo.spring.config;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.util.ReflectionUtils;
+
+import com.ctrip.framework.apollo.Config;
+import com.ctrip.framework.apollo.ConfigFile;
+import com.ctrip.framework.apollo.ConfigService;
+import com.ctrip.framework.apollo.build.MockInjector;
+import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
+import com.ctrip.framework.apollo.internals.ConfigManager;
+import com.ctrip.framework.apollo.internals.ConfigRepository;
+import com.ctrip.framework.apollo.internals.DefaultConfigManager;
+import com.ctrip.framework.apollo.internals.RepositoryChangeListener;
+import com.ctrip.framework.apollo.internals.SimpleConfig;
+import com.ctrip.framework.apollo.spi.ConfigFactory;
+import com.ctrip.framework.apollo.spi.ConfigFactoryManager;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.google.common.collect.Lists;
+
+/**
+ * Measures the spring bootstrap of {@link PropertySourcesProcessor} for a growing number of namespaces, with the
+ * prefetch of the namespaces on and off. Every namespace is created from scratch by {@link DefaultConfigManager}, and
+ * its config factory takes {@code syncMillis} like the first sync of a remote config would, so the time is mostly
+ * spent waiting for the syncs, in a row or overlapped.
+ *
+ * <ul>
+ *   <li>{@code initializePropertySources}: getting the configs of the namespaces and adding their property sources to
+ *   a new environment</li>
+ * </ul>
+ *
+ * Config batch load is not involved, the syncs of the namespaces are separate here.
+ *
+ * Run the main method after {@code mvn test-compile}, the benchmarks are not part of the test suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class PropertySourcesProcessorBenchmark {
+  private static final Method PROPERTY_SOURCES_PROCESSOR_RESET =
+      ReflectionUtils.findMethod(PropertySourcesProcessor.class, "reset");
+  private static final Method CONFIG_SERVICE_RESET = ReflectionUtils.findMethod(ConfigService.class, "reset");
+
+  static {
+    ReflectionUtils.makeAccessible(PROPERTY_SOURCES_PROCESSOR_RESET);
+    ReflectionUtils.makeAccessible(CONFIG_SERVICE_RESET);
+  }
+
+  @Param({"1", "5", "20"})
+  public int namespaces;
+
+  @Param({"true", "false"})
+  public boolean prefetch;
+
+  @Param({"10"})
+  public int syncMillis;
+
+  private PropertySourcesProcessor processor;
+  private ConfigurableEnvironment environment;
+
+  @Setup(Level.Invocation)
+  public void setUp() {
+    //the namespaces and the configs are static, so they are cleared before every bootstrap
+    ReflectionUtils.invokeMethod(PROPERTY_SOURCES_PROCESSOR_RESET, null);
+    ReflectionUtils.invokeMethod(CONFIG_SERVICE_RESET, null);
+    MockInjector.reset();
+    MockInjector.setInstance(ConfigUtil.class, new ConfigUtil() {
+      @Override
+      public boolean isBootstrapPrefetchEnabled() {
+        return prefetch;
+      }
+    });
+    MockInjector.setInstance(ConfigFactoryManager.class, new ConfigFactoryManager() {
+      @Override
+      public ConfigFactory getFactory(String namespace) {
+        return new SlowConfigFactory(syncMillis);
+      }
+    });
+    MockInjector.setInstance(ConfigManager.class, new DefaultConfigManager());
+
+    List<String> namespaceNames = Lists.newArrayList();
+    for (int i = 0; i < namespaces; i++) {
+      namespaceNames.add("namespace" + i);
+    }
+    PropertySourcesProcessor.addNamespaces(namespaceNames, 0);
+
+    environment = new StandardEnvironment();
+    processor = new PropertySourcesProcessor();
+    processor.setEnvironment(environment);
+  }
+
+  @Benchmark
+  public ConfigurableEnvironment initializePropertySources() {
+    processor.initializePropertySources();
+    return environment;
+  }
+
+  private static class SlowConfigFactory implements ConfigFactory {
+    private final int m_syncMillis;
+
+    SlowConfigFactory(int syncMillis) {
+      m_syncMillis = syncMillis;
+    }
+
+    @Override
+    public Config create(String namespace) {
+      try {
+        TimeUnit.MILLISECONDS.sleep(m_syncMillis);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+      Properties properties = new Properties();
+      properties.setProperty(namespace + ".key", "value");
+      return new SimpleConfig(namespace, new StaticConfigRepository(properties));
+    }
+
+    @Override
+    public ConfigFile createConfigFile(String namespace, ConfigFileFormat configFileFormat) {
+      return null;
+    }
+  }
+
+  private static class StaticConfigRepository implements ConfigRepository {
+    private final Properties m_properties;
+
+    StaticConfigRepository(Properties properties) {
+      m_properties = properties;
+    }
+
+    @Override
+    public Properties getConfig() {
+      return m_properties;
+    }
+
+    @Override
+    public void setUpstreamRepository(ConfigRepository upstreamConfigRepository) {
+    }
+
+    @Override
+    public void addChangeListener(RepositoryChangeListener listener) {
+    }
+
+    @Override
+    public void removeChangeListener(RepositoryChangeListener listener) {
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(PropertySourcesProcessorBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -6,6 +6,8 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.collect.Sets;
+
 import static org.junit.Assert.*;
 
 /**
@@ -22,6 +24,8 @@ public class ConfigUtilTest {
     System.clearProperty("apollo.longPollQPS");
     System.clearProperty("apollo.configCacheSize");
     System.clearProperty("apollo.longPollingInitialDelayInMills");
+    System.clearProperty("apollo.bootstrap.prefetchEnabled");
+    System.clearProperty("apollo.bootstrap.namespaces");
   }
 
   @Test
@@ -173,4 +177,23 @@ public class ConfigUtilTest {
 
     assertTrue(configUtil.getLongPollingInitialDelayInMills() > 0);
   }
+
+  @Test
+  public void testCustomizeBootstrap() throws Exception {
+    System.setProperty("apollo.bootstrap.prefetchEnabled", "false");
+    System.setProperty("apollo.bootstrap.namespaces", "someNamespace, anotherNamespace,,");
+
+    ConfigUtil configUtil = new ConfigUtil();
+
+    assertFalse(configUtil.isBootstrapPrefetchEnabled());
+    assertEquals(Sets.newHashSet("someNamespace", "anotherNamespace"), configUtil.getBootstrapNamespaces());
+  }
+
+  @Test
+  public void testDefaultBootstrap() throws Exception {
+    ConfigUtil configUtil = new ConfigUtil();
+
+    assertTrue(configUtil.isBootstrapPrefetchEnabled());
+    assertTrue(configUtil.getBootstrapNamespaces().isEmpty());
+  }
 }
\ No newline at end of file
@@ -0,0 +1,235 @@
+package com.ctrip.framework.apollo.util.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.net.URLStreamHandlerFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.ctrip.framework.apollo.build.MockInjector;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.google.common.collect.Maps;
+import com.google.common.io.CharStreams;
+import com.google.gson.Gson;
+
+/**
+ * Compares {@link HttpUtil} on top of {@link DefaultHttpTransport}, which decodes the response body with gson as it
+ * is read, with the HttpUtil before, which read the body into a string with {@link CharStreams#toString} first, for a
+ * config of about 1 MB. The connections are served from memory by a {@code memory:} url handler, so no socket is
+ * involved and the benchmark only shows the cost of reading the body.
+ *
+ * <ul>
+ *   <li>{@code doGet}: getting the config, with the body compressed by gzip or not</li>
+ * </ul>
+ *
+ * The gc profiler shows the bytes allocated per request, the streamed read saves the string and the char buffers
+ * that held the whole body.
+ *
+ * Run the main method after {@code mvn test-compile}, the benchmarks are not part of the test suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class HttpUtilBenchmark {
+  private static final String MEMORY_PROTOCOL = "memory";
+  private static final String CONFIG_URL = MEMORY_PROTOCOL + "://localhost/configs";
+  private static final int CONFIGURATIONS = 20000;
+
+  //the body served by the memory connections
+  private static volatile byte[] s_body;
+  private static volatile boolean s_gzip;
+
+  static {
+    URL.setURLStreamHandlerFactory(new URLStreamHandlerFactory() {
+      @Override
+      public URLStreamHandler createURLStreamHandler(String protocol) {
+        if (!MEMORY_PROTOCOL.equals(protocol)) {
+          return null;
+        }
+        return new URLStreamHandler() {
+          @Override
+          protected URLConnection openConnection(URL url) {
+            return new MemoryHttpURLConnection(url);
+          }
+        };
+      }
+    });
+  }
+
+  @Param({"streamed", "string"})
+  public String implementation;
+
+  @Param({"true", "false"})
+  public boolean gzip;
+
+  private ConfigHttpClient configHttpClient;
+  private HttpRequest httpRequest;
+
+  @Setup
+  public void setUp() throws IOException {
+    MockInjector.reset();
+    MockInjector.setInstance(ConfigUtil.class, new ConfigUtil());
+    MockInjector.setInstance(HttpTransport.class, new DefaultHttpTransport());
+
+    Map<String, String> configurations = Maps.newHashMap();
+    //about 1 MB
+    for (int i = 0; i < CONFIGURATIONS; i++) {
+      configurations.put("someKey" + i, "someValue" + i + "-abcdefghijklmnopqrstuvwxyz");
+    }
+    ApolloConfig config = new ApolloConfig("someAppId", "someCluster", "someNamespace", "someReleaseKey");
+    config.setConfigurations(configurations);
+    byte[] json = new Gson().toJson(config).getBytes(StandardCharsets.UTF_8);
+
+    if (gzip) {
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      try (OutputStream out = new GZIPOutputStream(compressed)) {
+        out.write(json);
+      }
+      s_body = compressed.toByteArray();
+    } else {
+      s_body = json;
+    }
+    s_gzip = gzip;
+
+    configHttpClient = "streamed".equals(implementation) ? new StreamedConfigHttpClient() :
+        new StringBodyConfigHttpClient();
+    httpRequest = new HttpRequest(CONFIG_URL);
+    httpRequest.setConnectTimeout(1000);
+    httpRequest.setReadTimeout(1000);
+  }
+
+  @Benchmark
+  public ApolloConfig doGet() {
+    return configHttpClient.doGet(httpRequest).getBody();
+  }
+
+  private interface ConfigHttpClient {
+    HttpResponse<ApolloConfig> doGet(HttpRequest httpRequest);
+  }
+
+  private static class StreamedConfigHttpClient implements ConfigHttpClient {
+    private final HttpUtil m_httpUtil = new HttpUtil();
+
+    @Override
+    public HttpResponse<ApolloConfig> doGet(HttpRequest httpRequest) {
+      return m_httpUtil.doGet(httpRequest, ApolloConfig.class);
+    }
+  }
+
+  /**
+   * The get operation of HttpUtil before the transport, for 200 responses
+   */
+  private static class StringBodyConfigHttpClient implements ConfigHttpClient {
+    private final Gson gson = new Gson();
+
+    @Override
+    public HttpResponse<ApolloConfig> doGet(HttpRequest httpRequest) {
+      InputStreamReader isr = null;
+      try {
+        HttpURLConnection conn = (HttpURLConnection) new URL(httpRequest.getUrl()).openConnection();
+
+        conn.setRequestMethod("GET");
+        conn.setRequestProperty("Accept-Encoding", "gzip");
+        conn.setConnectTimeout(httpRequest.getConnectTimeout());
+        conn.setReadTimeout(httpRequest.getReadTimeout());
+
+        conn.connect();
+
+        int statusCode = conn.getResponseCode();
+        isr = new InputStreamReader(decode(conn, conn.getInputStream()), StandardCharsets.UTF_8);
+        String response = CharStreams.toString(isr);
+
+        return new HttpResponse<>(statusCode, gson.fromJson(response, ApolloConfig.class));
+      } catch (IOException ex) {
+        throw new IllegalStateException("Could not complete get operation", ex);
+      } finally {
+        if (isr != null) {
+          try {
+            isr.close();
+          } catch (IOException ex) {
+            // ignore
+          }
+        }
+      }
+    }
+
+    private InputStream decode(HttpURLConnection conn, InputStream inputStream) throws IOException {
+      if ("gzip".equalsIgnoreCase(conn.getContentEncoding())) {
+        return new GZIPInputStream(inputStream);
+      }
+      return inputStream;
+    }
+  }
+
+  /**
+   * A 200 response of the current body, without any socket
+   */
+  private static class MemoryHttpURLConnection extends HttpURLConnection {
+    MemoryHttpURLConnection(URL url) {
+      super(url);
+    }
+
+    @Override
+    public void connect() {
+      connected = true;
+    }
+
+    @Override
+    public int getResponseCode() {
+      return HTTP_OK;
+    }
+
+    @Override
+    public String getContentEncoding() {
+      return s_gzip ? "gzip" : null;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+      return new ByteArrayInputStream(s_body);
+    }
+
+    @Override
+    public void disconnect() {
+    }
+
+    @Override
+    public boolean usingProxy() {
+      return false;
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(HttpUtilBenchmark.class.getSimpleName()).addProfiler("gc").build()).run();
+  }
+}
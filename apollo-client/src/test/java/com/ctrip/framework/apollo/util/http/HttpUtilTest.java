@@ -0,0 +1,173 @@
+package com.ctrip.framework.apollo.util.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ctrip.framework.apollo.BaseIntegrationTest;
+import com.ctrip.framework.apollo.build.MockInjector;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.gson.reflect.TypeToken;
+
+public class HttpUtilTest extends BaseIntegrationTest {
+  private static final String SOME_SERVER_URL = "http://localhost:%d";
+  private Set<Integer> clientPorts;
+  private String someServerUrl;
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    clientPorts = Sets.newConcurrentHashSet();
+  }
+
+  @Test
+  public void testDoGetWithLargeGzipCompressedConfig() throws Exception {
+    Map<String, String> configurations = Maps.newHashMap();
+    //about 1 MB
+    for (int i = 0; i < 20000; i++) {
+      configurations.put("someKey" + i, "someValue" + i + "-abcdefghijklmnopqrstuvwxyz");
+    }
+    ApolloConfig someConfig = new ApolloConfig(someAppId, someClusterName, "someNamespace", "someReleaseKey");
+    someConfig.setConfigurations(configurations);
+    startServer(mockServerHandler("/configs", 200, gson.toJson(someConfig), true));
+
+    HttpResponse<ApolloConfig> response =
+        new HttpUtil().doGet(new HttpRequest(someServerUrl + "/configs"), ApolloConfig.class);
+
+    assertEquals(200, response.getStatusCode());
+    assertEquals("someReleaseKey", response.getBody().getReleaseKey());
+    assertEquals(configurations, response.getBody().getConfigurations());
+  }
+
+  @Test
+  public void testDoGetWithGenericType() throws Exception {
+    List<ApolloConfigNotification> notifications =
+        Lists.newArrayList(new ApolloConfigNotification("someNamespace", 1));
+    startServer(mockServerHandler("/notifications/v2", 200, gson.toJson(notifications), false));
+    Type responseType = new TypeToken<List<ApolloConfigNotification>>() {
+    }.getType();
+
+    HttpResponse<List<ApolloConfigNotification>> response =
+        new HttpUtil().doGet(new HttpRequest(someServerUrl + "/notifications/v2"), responseType);
+
+    assertEquals(1, response.getBody().size());
+    assertEquals("someNamespace", response.getBody().get(0).getNamespaceName());
+    assertEquals(1, response.getBody().get(0).getNotificationId());
+  }
+
+  @Test
+  public void testDoGetWithErrorStatusCode() throws Exception {
+    startServer(mockServerHandler("/configs", 404, "some error", false));
+
+    try {
+      new HttpUtil().doGet(new HttpRequest(someServerUrl + "/configs"), ApolloConfig.class);
+      fail("Should throw ApolloConfigStatusCodeException");
+    } catch (ApolloConfigStatusCodeException ex) {
+      assertEquals(404, ex.getStatusCode());
+    }
+  }
+
+  @Test
+  public void testConnectionIsReusedAfterEachResponse() throws Exception {
+    startServer(mockServerHandler("/configs", 200, gson.toJson(new ApolloConfig()), true),
+        mockServerHandler("/notModified", 304, null, false),
+        mockServerHandler("/notFound", 404, "some error", false));
+    HttpUtil httpUtil = new HttpUtil();
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals(200,
+          httpUtil.doGet(new HttpRequest(someServerUrl + "/configs"), ApolloConfig.class).getStatusCode());
+      assertNull(httpUtil.doGet(new HttpRequest(someServerUrl + "/notModified"), ApolloConfig.class).getBody());
+      try {
+        httpUtil.doGet(new HttpRequest(someServerUrl + "/notFound"), ApolloConfig.class);
+        fail("Should throw ApolloConfigStatusCodeException");
+      } catch (ApolloConfigStatusCodeException ex) {
+        //expected
+      }
+    }
+
+    assertEquals(1, clientPorts.size());
+  }
+
+  @Test
+  public void testDoGetWithCustomizedTransport() throws Exception {
+    final ConfigUtil configUtil = new MockConfigUtil();
+    final List<HttpRequest> requests = Lists.newArrayList();
+    MockInjector.setInstance(ConfigUtil.class, configUtil);
+    MockInjector.setInstance(HttpTransport.class, new HttpTransport() {
+      @Override
+      public <T> HttpResponse<T> doGet(HttpRequest httpRequest, HttpResponseBodyReader<T> bodyReader) {
+        requests.add(httpRequest);
+        return new HttpResponse<>(304, null);
+      }
+    });
+    int someReadTimeout = 90000;
+    HttpRequest someRequest = new HttpRequest("http://someServer/notifications/v2");
+    someRequest.setReadTimeout(someReadTimeout);
+
+    HttpResponse<ApolloConfig> response = new HttpUtil().doGet(someRequest, ApolloConfig.class);
+
+    assertEquals(304, response.getStatusCode());
+    assertEquals(1, requests.size());
+    assertEquals(configUtil.getConnectTimeout(), requests.get(0).getConnectTimeout());
+    assertEquals(someReadTimeout, requests.get(0).getReadTimeout());
+  }
+
+  private void startServer(ContextHandler... handlers) throws Exception {
+    Server server = startServerWithHandlers(handlers);
+    someServerUrl = String.format(SOME_SERVER_URL, ((ServerConnector) server.getConnectors()[0]).getLocalPort());
+  }
+
+  private ContextHandler mockServerHandler(String path, final int statusCode, final String body,
+                                           final boolean gzipCompressed) {
+    ContextHandler context = new ContextHandler(path);
+    context.setHandler(new AbstractHandler() {
+      @Override
+      public void handle(String target, Request baseRequest, HttpServletRequest request,
+                         HttpServletResponse response) throws IOException, ServletException {
+        clientPorts.add(request.getRemotePort());
+
+        response.setContentType("application/json;charset=UTF-8");
+        response.setStatus(statusCode);
+        if (body != null) {
+          if (gzipCompressed) {
+            response.setHeader("Content-Encoding", "gzip");
+            try (GZIPOutputStream gzip = new GZIPOutputStream(response.getOutputStream())) {
+              gzip.write(body.getBytes(Charsets.UTF_8));
+            }
+          } else {
+            response.getWriter().println(body);
+          }
+        }
+        baseRequest.setHandled(true);
+      }
+    });
+    return context;
+  }
+}
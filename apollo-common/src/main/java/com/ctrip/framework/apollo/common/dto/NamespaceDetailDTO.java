@@ -0,0 +1,40 @@
+package com.ctrip.framework.apollo.common.dto;
+
+import java.util.List;
+
+/**
+ * A namespace together with its items and latest active release, so that a cluster's namespaces can be loaded in one
+ * request.
+ */
+public class NamespaceDetailDTO {
+
+  private NamespaceDTO baseInfo;
+
+  private List<ItemDTO> items;
+
+  private ReleaseDTO latestRelease;
+
+  public NamespaceDTO getBaseInfo() {
+    return baseInfo;
+  }
+
+  public void setBaseInfo(NamespaceDTO baseInfo) {
+    this.baseInfo = baseInfo;
+  }
+
+  public List<ItemDTO> getItems() {
+    return items;
+  }
+
+  public void setItems(List<ItemDTO> items) {
+    this.items = items;
+  }
+
+  public ReleaseDTO getLatestRelease() {
+    return latestRelease;
+  }
+
+  public void setLatestRelease(ReleaseDTO latestRelease) {
+    this.latestRelease = latestRelease;
+  }
+}
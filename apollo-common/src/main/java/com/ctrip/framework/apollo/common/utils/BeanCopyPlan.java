@@ -0,0 +1,133 @@
+package com.ctrip.framework.apollo.common.utils;
+
+import com.ctrip.framework.apollo.common.exception.BeanUtilsException;
+
+import org.springframework.util.ClassUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The precompiled copy of the non null properties of a source class to a target class, used by
+ * {@link BeanUtils#transfrom(Class, Object)}.
+ *
+ * <p>The properties are matched the same way as {@link org.springframework.beans.BeanUtils#copyProperties(Object, Object)}
+ * does, but only once per (source, target) pair: the getters and setters are resolved to method handles when the plan is
+ * built, so a copy does no introspection at all.</p>
+ */
+final class BeanCopyPlan {
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+  private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+  // target class -> source class -> plan
+  private static final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, BeanCopyPlan>> PLANS = new ConcurrentHashMap<>();
+
+  private final MethodHandle constructor;
+  private final MethodHandle[] getters;
+  private final MethodHandle[] setters;
+
+  private BeanCopyPlan(MethodHandle constructor, List<MethodHandle> getters, List<MethodHandle> setters) {
+    this.constructor = constructor;
+    this.getters = getters.toArray(new MethodHandle[getters.size()]);
+    this.setters = setters.toArray(new MethodHandle[setters.size()]);
+  }
+
+  static BeanCopyPlan of(Class<?> sourceClass, Class<?> targetClass) {
+    ConcurrentMap<Class<?>, BeanCopyPlan> plansOfTarget = PLANS.get(targetClass);
+    if (plansOfTarget == null) {
+      plansOfTarget = new ConcurrentHashMap<>();
+      ConcurrentMap<Class<?>, BeanCopyPlan> existing = PLANS.putIfAbsent(targetClass, plansOfTarget);
+      if (existing != null) {
+        plansOfTarget = existing;
+      }
+    }
+
+    BeanCopyPlan plan = plansOfTarget.get(sourceClass);
+    if (plan == null) {
+      // building the same plan twice under contention is harmless, both are equivalent
+      plan = build(sourceClass, targetClass);
+      plansOfTarget.putIfAbsent(sourceClass, plan);
+    }
+    return plan;
+  }
+
+  private static BeanCopyPlan build(Class<?> sourceClass, Class<?> targetClass) {
+    try {
+      List<MethodHandle> getters = new ArrayList<>();
+      List<MethodHandle> setters = new ArrayList<>();
+
+      for (PropertyDescriptor targetPd : org.springframework.beans.BeanUtils.getPropertyDescriptors(targetClass)) {
+        Method writeMethod = targetPd.getWriteMethod();
+        if (writeMethod == null) {
+          continue;
+        }
+        PropertyDescriptor sourcePd =
+            org.springframework.beans.BeanUtils.getPropertyDescriptor(sourceClass, targetPd.getName());
+        if (sourcePd == null || sourcePd.getReadMethod() == null) {
+          continue;
+        }
+        Method readMethod = sourcePd.getReadMethod();
+        if (!ClassUtils.isAssignable(writeMethod.getParameterTypes()[0], readMethod.getReturnType())) {
+          continue;
+        }
+        getters.add(LOOKUP.unreflect(accessible(readMethod)).asType(GETTER_TYPE));
+        setters.add(LOOKUP.unreflect(accessible(writeMethod)).asType(SETTER_TYPE));
+      }
+
+      return new BeanCopyPlan(constructorOf(targetClass), getters, setters);
+    } catch (Exception e) {
+      throw new BeanUtilsException(e);
+    }
+  }
+
+  private static MethodHandle constructorOf(Class<?> targetClass) throws Exception {
+    if (targetClass.isInterface() || Modifier.isAbstract(targetClass.getModifiers())) {
+      throw new InstantiationException(targetClass.getName() + " is not a concrete class");
+    }
+    Constructor<?> constructor = targetClass.getDeclaredConstructor();
+    return LOOKUP.unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+  }
+
+  private static Method accessible(Method method) {
+    if (!Modifier.isPublic(method.getDeclaringClass().getModifiers()) || !Modifier.isPublic(method.getModifiers())) {
+      method.setAccessible(true);
+    }
+    return method;
+  }
+
+  Object newInstance() {
+    try {
+      return (Object) constructor.invokeExact();
+    } catch (Throwable e) {
+      throw new BeanUtilsException(e);
+    }
+  }
+
+  /**
+   * Copies the properties of source to target, the properties whose value is null in source are left untouched.
+   */
+  void copyNonNullProperties(Object source, Object target) {
+    try {
+      for (int i = 0; i < getters.length; i++) {
+        Object value = (Object) getters[i].invokeExact(source);
+        if (value != null) {
+          setters[i].invokeExact(target, value);
+        }
+      }
+    } catch (Throwable e) {
+      throw new BeanUtilsException(e);
+    }
+  }
+}
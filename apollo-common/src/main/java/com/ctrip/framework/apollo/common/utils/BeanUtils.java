@@ -2,11 +2,11 @@ package com.ctrip.framework.apollo.common.utils;
 
 import com.ctrip.framework.apollo.common.exception.BeanUtilsException;
 
-import org.springframework.beans.BeanWrapper;
-import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.util.CollectionUtils;
 
-import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -15,10 +15,19 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 
 public class BeanUtils {
 
+  private static final MethodType FIELD_GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+  // class -> field name -> accessor, NO_FIELD if the class has no such field
+  private static final ConcurrentMap<Class<?>, ConcurrentMap<String, FieldAccessor>> FIELD_ACCESSORS =
+      new ConcurrentHashMap<>();
+  private static final FieldAccessor NO_FIELD = new FieldAccessor(null, null);
+
   /**
    * <pre>
    *     List<UserBean> userBeans = userDao.queryUsers();
@@ -31,14 +40,24 @@ public class BeanUtils {
     }
 
     List<T> result = new ArrayList<>(srcList.size());
+    Class<?> planSourceClass = null;
+    BeanCopyPlan plan = null;
     for (Object srcObject : srcList) {
-      result.add(transfrom(clazz, srcObject));
+      if (srcObject == null) {
+        result.add(null);
+        continue;
+      }
+      if (srcObject.getClass() != planSourceClass) {
+        planSourceClass = srcObject.getClass();
+        plan = BeanCopyPlan.of(planSourceClass, clazz);
+      }
+      result.add(transfrom(plan, srcObject));
     }
     return result;
   }
 
   /**
-   * 封装{@link org.springframework.beans.BeanUtils#copyProperties}，惯用与直接将转换结果返回
+   * 封装{@link org.springframework.beans.BeanUtils#copyProperties}，惯用与直接将转换结果返回，src中为null的属性不会被复制
    *
    * <pre>
    *      UserBean userBean = new UserBean("username");
@@ -49,27 +68,14 @@ public class BeanUtils {
     if (src == null) {
       return null;
     }
-    T instance = null;
-    try {
-      instance = clazz.newInstance();
-    } catch (Exception e) {
-      throw new BeanUtilsException(e);
-    }
-    org.springframework.beans.BeanUtils.copyProperties(src, instance, getNullPropertyNames(src));
-    return instance;
+    return transfrom(BeanCopyPlan.of(src.getClass(), clazz), src);
   }
 
-  private static String[] getNullPropertyNames(Object source) {
-    final BeanWrapper src = new BeanWrapperImpl(source);
-    PropertyDescriptor[] pds = src.getPropertyDescriptors();
-
-    Set<String> emptyNames = new HashSet<String>();
-    for (PropertyDescriptor pd : pds) {
-      Object srcValue = src.getPropertyValue(pd.getName());
-      if (srcValue == null) emptyNames.add(pd.getName());
-    }
-    String[] result = new String[emptyNames.size()];
-    return emptyNames.toArray(result);
+  @SuppressWarnings("unchecked")
+  private static <T> T transfrom(BeanCopyPlan plan, Object src) {
+    T instance = (T) plan.newInstance();
+    plan.copyNonNullProperties(src, instance);
+    return instance;
   }
 
   /**
@@ -89,14 +95,11 @@ public class BeanUtils {
       return map;
     }
     try {
-      Class<? extends Object> clazz = list.get(0).getClass();
-      Field field = deepFindField(clazz, key);
-      if (field == null) throw new IllegalArgumentException("Could not find the key");
-      field.setAccessible(true);
+      MethodHandle getter = findKeyGetter(list.get(0).getClass(), key);
       for (Object o : list) {
-        map.put((K) field.get(o), (V) o);
+        map.put((K) getter.invokeExact(o), (V) o);
       }
-    } catch (Exception e) {
+    } catch (Throwable e) {
       throw new BeanUtilsException(e);
     }
     return map;
@@ -117,18 +120,15 @@ public class BeanUtils {
       return map;
     }
     try {
-      Class<? extends Object> clazz = list.get(0).getClass();
-      Field field = deepFindField(clazz, key);
-      if (field == null) throw new IllegalArgumentException("Could not find the key");
-      field.setAccessible(true);
+      MethodHandle getter = findKeyGetter(list.get(0).getClass(), key);
       for (Object o : list) {
-        K k = (K) field.get(o);
+        K k = (K) getter.invokeExact(o);
         if (map.get(k) == null) {
           map.put(k, new ArrayList<V>());
         }
         map.get(k).add((V) o);
       }
-    } catch (Exception e) {
+    } catch (Throwable e) {
       throw new BeanUtilsException(e);
     }
     return map;
@@ -149,19 +149,66 @@ public class BeanUtils {
       return set;
     }
     try {
-      Class<? extends Object> clazz = list.get(0).getClass();
-      Field field = deepFindField(clazz, key);
-      if (field == null) throw new IllegalArgumentException("Could not find the key");
-      field.setAccessible(true);
+      MethodHandle getter = findKeyGetter(list.get(0).getClass(), key);
       for (Object o : list) {
-        set.add((K)field.get(o));
+        set.add((K) getter.invokeExact(o));
       }
-    } catch (Exception e) {
+    } catch (Throwable e) {
       throw new BeanUtilsException(e);
     }
     return set;
   }
 
+  private static MethodHandle findKeyGetter(Class<?> clazz, String key) {
+    FieldAccessor accessor = findFieldAccessor(clazz, key);
+    if (accessor == NO_FIELD) {
+      throw new IllegalArgumentException("Could not find the key");
+    }
+    return accessor.getter;
+  }
+
+  /**
+   * The fields are looked up and made accessible once per (class, field name), as the same keys are used over and over
+   */
+  private static FieldAccessor findFieldAccessor(Class<?> clazz, String fieldName) {
+    ConcurrentMap<String, FieldAccessor> accessorsOfClass = FIELD_ACCESSORS.get(clazz);
+    if (accessorsOfClass == null) {
+      accessorsOfClass = new ConcurrentHashMap<>();
+      ConcurrentMap<String, FieldAccessor> existing = FIELD_ACCESSORS.putIfAbsent(clazz, accessorsOfClass);
+      if (existing != null) {
+        accessorsOfClass = existing;
+      }
+    }
+
+    FieldAccessor accessor = accessorsOfClass.get(fieldName);
+    if (accessor == null) {
+      Field field = deepFindField(clazz, fieldName);
+      if (field == null) {
+        accessor = NO_FIELD;
+      } else {
+        field.setAccessible(true);
+        try {
+          accessor = new FieldAccessor(field, MethodHandles.lookup().unreflectGetter(field).asType(FIELD_GETTER_TYPE));
+        } catch (IllegalAccessException e) {
+          throw new BeanUtilsException(e);
+        }
+      }
+      accessorsOfClass.putIfAbsent(fieldName, accessor);
+    }
+    return accessor;
+  }
+
+  private static class FieldAccessor {
+
+    private final Field field;
+    private final MethodHandle getter;
+
+    private FieldAccessor(Field field, MethodHandle getter) {
+      this.field = field;
+      this.getter = getter;
+    }
+  }
+
 
   private static Field deepFindField(Class<? extends Object> clazz, String key) {
     Field field = null;
@@ -183,12 +230,11 @@ public class BeanUtils {
    */
   public static Object getProperty(Object obj, String fieldName) {
     try {
-      Field field = deepFindField(obj.getClass(), fieldName);
-      if (field != null) {
-        field.setAccessible(true);
-        return field.get(obj);
+      FieldAccessor accessor = findFieldAccessor(obj.getClass(), fieldName);
+      if (accessor != NO_FIELD) {
+        return (Object) accessor.getter.invokeExact(obj);
       }
-    } catch (Exception e) {
+    } catch (Throwable e) {
       throw new BeanUtilsException(e);
     }
     return null;
@@ -199,10 +245,9 @@ public class BeanUtils {
    */
   public static void setProperty(Object obj, String fieldName, Object value) {
     try {
-      Field field = deepFindField(obj.getClass(), fieldName);
-      if (field != null) {
-        field.setAccessible(true);
-        field.set(obj, value);
+      FieldAccessor accessor = findFieldAccessor(obj.getClass(), fieldName);
+      if (accessor != NO_FIELD) {
+        accessor.field.set(obj, value);
       }
     } catch (Exception e) {
       throw new BeanUtilsException(e);
@@ -0,0 +1,38 @@
+package com.ctrip.framework.apollo.common.utils;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent latency samples in a fixed size ring buffer, so that tail latencies can be read cheaply.
+ */
+public class LatencySamples {
+  private final long[] samples;
+  private int next;
+  private int size;
+
+  public LatencySamples(int size) {
+    samples = new long[size];
+  }
+
+  public synchronized void add(long latency) {
+    samples[next] = latency;
+    next = (next + 1) % samples.length;
+    if (size < samples.length) {
+      size++;
+    }
+  }
+
+  /**
+   * @param percentile between 0 and 100
+   * @return the latency at the percentile of the recent samples, 0 if there is no sample yet
+   */
+  public synchronized long percentile(double percentile) {
+    if (size == 0) {
+      return 0;
+    }
+    long[] sorted = Arrays.copyOf(samples, size);
+    Arrays.sort(sorted);
+    int index = (int) Math.ceil(percentile / 100 * size) - 1;
+    return sorted[Math.max(0, Math.min(index, size - 1))];
+  }
+}
@@ -1,6 +1,7 @@
 package com.ctrip.framework.apollo.common;
 
 import com.ctrip.framework.apollo.common.conditional.ConditionalOnProfileTest;
+import com.ctrip.framework.apollo.common.utils.BeanUtilsTest;
 import com.ctrip.framework.apollo.common.utils.InputValidatorTest;
 
 import org.junit.runner.RunWith;
@@ -9,7 +10,7 @@ import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
 @SuiteClasses({
-    InputValidatorTest.class, ConditionalOnProfileTest.class
+    InputValidatorTest.class, ConditionalOnProfileTest.class, BeanUtilsTest.class
 })
 public class AllTests {
 
@@ -0,0 +1,174 @@
+package com.ctrip.framework.apollo.common.utils;
+
+import com.ctrip.framework.apollo.common.dto.AppDTO;
+import com.ctrip.framework.apollo.common.entity.App;
+import com.ctrip.framework.apollo.common.exception.BeanUtilsException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link BeanUtils#transfrom(Class, Object)} and {@link BeanUtils#batchTransform(Class, List)}, which copy
+ * through the cached {@link BeanCopyPlan}, with the BeanWrapperImpl and copyProperties copy they did before, on the
+ * App entity to AppDTO conversion of the admin service. Every other app has no owner email, so the null properties
+ * are skipped too.
+ *
+ * <ul>
+ *   <li>{@code transform}: a single app</li>
+ *   <li>{@code batchTransform}: a list of {@code batchSize} apps</li>
+ * </ul>
+ *
+ * The gc profiler shows the bytes allocated per copy.
+ *
+ * Run the main method after {@code mvn test-compile}, the benchmarks are not part of the test suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class BeanUtilsBenchmark {
+  private static final int APPS = 1024;
+
+  @Param({"copyPlan", "copyProperties"})
+  public String implementation;
+
+  @Param({"100"})
+  public int batchSize;
+
+  private BeanCopier beanCopier;
+  private App[] apps;
+  private List<App> batch;
+
+  @Setup
+  public void setUp() {
+    beanCopier = "copyPlan".equals(implementation) ? new CopyPlanBeanCopier() : new CopyPropertiesBeanCopier();
+
+    apps = new App[APPS];
+    for (int i = 0; i < APPS; i++) {
+      App app = new App();
+      app.setId(i);
+      app.setAppId("someAppId" + i);
+      app.setName("someName" + i);
+      app.setOrgId("someOrgId");
+      app.setOrgName("someOrgName");
+      app.setOwnerName("someOwner" + i);
+      app.setOwnerEmail(i % 2 == 0 ? "someOwner" + i + "@someCompany.com" : null);
+      app.setDataChangeCreatedBy("someOwner" + i);
+      app.setDataChangeCreatedTime(new Date());
+      apps[i] = app;
+    }
+
+    batch = new ArrayList<>(batchSize);
+    for (int i = 0; i < batchSize; i++) {
+      batch.add(apps[i % APPS]);
+    }
+  }
+
+  @Benchmark
+  public AppDTO transform(Cursor cursor) {
+    return beanCopier.transform(AppDTO.class, apps[cursor.next()]);
+  }
+
+  @Benchmark
+  public List<AppDTO> batchTransform() {
+    return beanCopier.batchTransform(AppDTO.class, batch);
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int position;
+
+    int next() {
+      position = (position + 1) & (APPS - 1);
+      return position;
+    }
+  }
+
+  private interface BeanCopier {
+    <T> T transform(Class<T> clazz, Object src);
+
+    <T> List<T> batchTransform(Class<T> clazz, List<?> srcList);
+  }
+
+  private static class CopyPlanBeanCopier implements BeanCopier {
+    @Override
+    public <T> T transform(Class<T> clazz, Object src) {
+      return BeanUtils.transfrom(clazz, src);
+    }
+
+    @Override
+    public <T> List<T> batchTransform(Class<T> clazz, List<?> srcList) {
+      return BeanUtils.batchTransform(clazz, srcList);
+    }
+  }
+
+  /**
+   * The copy of BeanUtils before the copy plans
+   */
+  private static class CopyPropertiesBeanCopier implements BeanCopier {
+    @Override
+    public <T> T transform(Class<T> clazz, Object src) {
+      if (src == null) {
+        return null;
+      }
+      T instance = null;
+      try {
+        instance = clazz.newInstance();
+      } catch (Exception e) {
+        throw new BeanUtilsException(e);
+      }
+      org.springframework.beans.BeanUtils.copyProperties(src, instance, getNullPropertyNames(src));
+      return instance;
+    }
+
+    @Override
+    public <T> List<T> batchTransform(Class<T> clazz, List<?> srcList) {
+      List<T> result = new ArrayList<>(srcList.size());
+      for (Object srcObject : srcList) {
+        result.add(transform(clazz, srcObject));
+      }
+      return result;
+    }
+
+    private static String[] getNullPropertyNames(Object source) {
+      final BeanWrapper src = new BeanWrapperImpl(source);
+      PropertyDescriptor[] pds = src.getPropertyDescriptors();
+
+      Set<String> emptyNames = new HashSet<String>();
+      for (PropertyDescriptor pd : pds) {
+        Object srcValue = src.getPropertyValue(pd.getName());
+        if (srcValue == null) emptyNames.add(pd.getName());
+      }
+      String[] result = new String[emptyNames.size()];
+      return emptyNames.toArray(result);
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(BeanUtilsBenchmark.class.getSimpleName()).addProfiler("gc").build()).run();
+  }
+}
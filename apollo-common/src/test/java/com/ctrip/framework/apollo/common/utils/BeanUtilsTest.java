@@ -0,0 +1,192 @@
+package com.ctrip.framework.apollo.common.utils;
+
+import com.ctrip.framework.apollo.common.exception.BeanUtilsException;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class BeanUtilsTest {
+
+  @Test
+  public void testTransform() throws Exception {
+    SomeEntity someEntity = new SomeEntity(1, "someName", 2);
+    someEntity.setComment("someComment");
+
+    SomeDTO someDTO = BeanUtils.transfrom(SomeDTO.class, someEntity);
+
+    assertEquals(1, someDTO.getId());
+    assertEquals("someName", someDTO.getName());
+    assertEquals(Integer.valueOf(2), someDTO.getLineNum());
+    assertEquals("someComment", someDTO.getComment());
+  }
+
+  @Test
+  public void testTransformSkipsNullProperties() throws Exception {
+    SomeEntity someEntity = new SomeEntity(1, null, 2);
+
+    SomeDTO someDTO = BeanUtils.transfrom(SomeDTO.class, someEntity);
+
+    assertEquals(SomeDTO.DEFAULT_NAME, someDTO.getName());
+    assertEquals(Integer.valueOf(2), someDTO.getLineNum());
+  }
+
+  @Test
+  public void testTransformNull() throws Exception {
+    assertNull(BeanUtils.transfrom(SomeDTO.class, null));
+  }
+
+  @Test(expected = BeanUtilsException.class)
+  public void testTransformToClassWithoutDefaultConstructor() throws Exception {
+    BeanUtils.transfrom(SomeEntity.class, new SomeDTO());
+  }
+
+  @Test
+  public void testBatchTransformWithDifferentSourceClasses() throws Exception {
+    SomeEntity someEntity = new SomeEntity(1, "someName", 2);
+    SomeSubEntity someSubEntity = new SomeSubEntity(3, "anotherName", 4);
+    someSubEntity.setComment("someComment");
+
+    List<SomeDTO> someDTOs = BeanUtils.batchTransform(SomeDTO.class, Arrays.asList(someEntity, null, someSubEntity));
+
+    assertEquals(3, someDTOs.size());
+    assertEquals("someName", someDTOs.get(0).getName());
+    assertNull(someDTOs.get(1));
+    assertEquals(3, someDTOs.get(2).getId());
+    assertEquals("anotherName", someDTOs.get(2).getName());
+    assertEquals("someComment", someDTOs.get(2).getComment());
+  }
+
+  @Test
+  public void testMapByKey() throws Exception {
+    SomeEntity someEntity = new SomeEntity(1, "someName", 2);
+    SomeEntity anotherEntity = new SomeEntity(3, "anotherName", 4);
+
+    Map<Long, SomeEntity> idToEntity = BeanUtils.mapByKey("id", Arrays.asList(someEntity, anotherEntity));
+
+    assertEquals(2, idToEntity.size());
+    assertSame(someEntity, idToEntity.get(1L));
+    assertSame(anotherEntity, idToEntity.get(3L));
+  }
+
+  @Test
+  public void testMapByKeyOfSuperClassField() throws Exception {
+    SomeSubEntity someSubEntity = new SomeSubEntity(1, "someName", 2);
+
+    Map<String, SomeSubEntity> nameToEntity = BeanUtils.mapByKey("name", Arrays.asList(someSubEntity));
+
+    assertSame(someSubEntity, nameToEntity.get("someName"));
+  }
+
+  @Test(expected = BeanUtilsException.class)
+  public void testMapByKeyNotExists() throws Exception {
+    BeanUtils.mapByKey("someNotExistsKey", Arrays.asList(new SomeEntity(1, "someName", 2)));
+  }
+
+  @Test
+  public void testGetAndSetProperty() throws Exception {
+    SomeEntity someEntity = new SomeEntity(1, "someName", 2);
+
+    BeanUtils.setProperty(someEntity, "name", "anotherName");
+
+    assertEquals("anotherName", BeanUtils.getProperty(someEntity, "name"));
+    assertNull(BeanUtils.getProperty(someEntity, "someNotExistsKey"));
+  }
+
+  @Test
+  public void testToPropertySet() throws Exception {
+    List<SomeEntity> someEntities = Arrays.asList(new SomeEntity(1, "someName", 2), new SomeEntity(3, "someName", 4));
+
+    assertEquals(Collections.singleton("someName"), BeanUtils.toPropertySet("name", someEntities));
+  }
+
+  public static class SomeEntity {
+
+    private long id;
+    private String name;
+    private int lineNum;
+    private String comment;
+
+    public SomeEntity(long id, String name, int lineNum) {
+      this.id = id;
+      this.name = name;
+      this.lineNum = lineNum;
+    }
+
+    public long getId() {
+      return id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public int getLineNum() {
+      return lineNum;
+    }
+
+    public String getComment() {
+      return comment;
+    }
+
+    public void setComment(String comment) {
+      this.comment = comment;
+    }
+  }
+
+  public static class SomeSubEntity extends SomeEntity {
+
+    public SomeSubEntity(long id, String name, int lineNum) {
+      super(id, name, lineNum);
+    }
+  }
+
+  public static class SomeDTO {
+
+    static final String DEFAULT_NAME = "default";
+
+    private long id;
+    private String name = DEFAULT_NAME;
+    private Integer lineNum;
+    private String comment;
+
+    public long getId() {
+      return id;
+    }
+
+    public void setId(long id) {
+      this.id = id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public Integer getLineNum() {
+      return lineNum;
+    }
+
+    public void setLineNum(Integer lineNum) {
+      this.lineNum = lineNum;
+    }
+
+    public String getComment() {
+      return comment;
+    }
+
+    public void setComment(String comment) {
+      this.comment = comment;
+    }
+  }
+}
@@ -1,6 +1,9 @@
 package com.ctrip.framework.apollo.configservice;
 
+import javax.servlet.DispatcherType;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -9,6 +12,7 @@ import com.ctrip.framework.apollo.biz.grayReleaseRule.GrayReleaseRulesHolder;
 import com.ctrip.framework.apollo.biz.message.ReleaseMessageScanner;
 import com.ctrip.framework.apollo.configservice.controller.ConfigFileController;
 import com.ctrip.framework.apollo.configservice.controller.NotificationControllerV2;
+import com.ctrip.framework.apollo.configservice.filter.ConfigResponseCompressionFilter;
 import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
 import com.ctrip.framework.apollo.configservice.service.config.ConfigService;
 import com.ctrip.framework.apollo.configservice.service.config.ConfigServiceWithCache;
@@ -36,6 +40,18 @@ public class ConfigServiceAutoConfiguration {
 		return new DefaultConfigService();
 	}
 
+	@Bean
+	public FilterRegistrationBean configResponseCompressionFilter() {
+		FilterRegistrationBean filterRegistrationBean = new FilterRegistrationBean();
+		filterRegistrationBean.setFilter(new ConfigResponseCompressionFilter(bizConfig));
+		filterRegistrationBean.setName("configResponseCompressionFilter");
+		filterRegistrationBean.addUrlPatterns("/configs/*", "/configfiles/*");
+		filterRegistrationBean.setDispatcherTypes(DispatcherType.REQUEST);
+		// the response is buffered and compressed on the request thread
+		filterRegistrationBean.setAsyncSupported(false);
+		return filterRegistrationBean;
+	}
+
 	@Configuration
 	static class MessageScannerConfiguration {
 		@Autowired
@@ -2,6 +2,7 @@ package com.ctrip.framework.apollo.configservice.controller;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -11,6 +12,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.util.CollectionUtils;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -19,18 +21,24 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
+import com.ctrip.framework.apollo.common.exception.BadRequestException;
+import com.ctrip.framework.apollo.configservice.filter.ConfigResponseCompressionFilter;
 import com.ctrip.framework.apollo.configservice.service.AppNamespaceServiceWithCache;
+import com.ctrip.framework.apollo.configservice.service.ConfigDeltaService;
+import com.ctrip.framework.apollo.configservice.service.ConfigDeltaService.ConfigDelta;
+import com.ctrip.framework.apollo.configservice.service.ReleaseConfigurationCache;
 import com.ctrip.framework.apollo.configservice.service.config.ConfigService;
 import com.ctrip.framework.apollo.configservice.util.InstanceConfigAuditUtil;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigResult;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
@@ -41,6 +49,7 @@ import com.google.gson.reflect.TypeToken;
 @RequestMapping("/configs")
 public class ConfigController {
 	private static final Splitter X_FORWARDED_FOR_SPLITTER = Splitter.on(",").omitEmptyStrings().trimResults();
+	private static final Joiner BODY_NAME_JOINER = Joiner.on("|").useForNull("");
 	@Autowired
 	private ConfigService configService;
 	@Autowired
@@ -50,23 +59,86 @@ public class ConfigController {
 	@Autowired
 	private InstanceConfigAuditUtil instanceConfigAuditUtil;
 	@Autowired
+	private ConfigDeltaService configDeltaService;
+	@Autowired
+	private ReleaseConfigurationCache releaseConfigurationCache;
+	@Autowired
 	private Gson gson;
 
-	private static final Type configurationTypeReference = new TypeToken<Map<String, String>>() {
+	private static final Type releaseKeysTypeReference = new TypeToken<LinkedHashMap<String, String>>() {
 	}.getType();
 
+	public ApolloConfig queryConfig(String appId, String clusterName, String namespace, String dataCenter,
+			String clientSideReleaseKey, String clientIp, String messagesAsString, HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+		return doQueryConfig(appId, clusterName, namespace, dataCenter, clientSideReleaseKey, clientIp, messagesAsString,
+				false, request, response);
+	}
+
+	/**
+	 * @param delta whether the client accepts only the changes since clientSideReleaseKey
+	 */
 	@RequestMapping(value = "/{appId}/{clusterName}/{namespace:.+}", method = RequestMethod.GET)
 	public ApolloConfig queryConfig(@PathVariable String appId, @PathVariable String clusterName,
 			@PathVariable String namespace, @RequestParam(value = "dataCenter", required = false) String dataCenter,
 			@RequestParam(value = "releaseKey", defaultValue = "-1") String clientSideReleaseKey,
 			@RequestParam(value = "ip", required = false) String clientIp,
-			@RequestParam(value = "messages", required = false) String messagesAsString, HttpServletRequest request,
+			@RequestParam(value = "messages", required = false) String messagesAsString,
+			@RequestParam(value = "delta", defaultValue = "false") boolean delta, HttpServletRequest request,
 			HttpServletResponse response) throws IOException {
-		String originalNamespace = namespace;
-		// strip out .properties suffix
-		namespace = namespaceUtil.filterNamespaceName(namespace);
-		// fix the character case issue, such as FX.apollo <-> fx.apollo
-		namespace = namespaceUtil.normalizeNamespace(appId, namespace);
+		ApolloConfig config = doQueryConfig(appId, clusterName, namespace, dataCenter, clientSideReleaseKey, clientIp,
+				messagesAsString, delta, request, response);
+
+		if (config != null
+				&& ConfigResponseCompressionFilter.nameResponseBody(request, "config|" + assembleBodyName(config))) {
+			// the compressed body is sent by the filter
+			return null;
+		}
+
+		return config;
+	}
+
+	private ApolloConfig doQueryConfig(String appId, String clusterName, String namespace, String dataCenter,
+			String clientSideReleaseKey, String clientIp, String messagesAsString, boolean delta,
+			HttpServletRequest request, HttpServletResponse response) throws IOException {
+		if (Strings.isNullOrEmpty(clientIp)) {
+			clientIp = tryToGetClientIp(request);
+		}
+
+		ApolloNotificationMessages clientMessages = transformMessages(messagesAsString);
+
+		ApolloConfigResult result = loadConfig(appId, clusterName, namespace, dataCenter, clientSideReleaseKey, clientIp,
+				clientMessages, delta);
+
+		if (result.getStatusCode() == HttpServletResponse.SC_NOT_FOUND) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND, String.format(
+					"Could not load configurations with appId: %s, clusterName: %s, namespace: %s", appId, clusterName,
+					namespace));
+			return null;
+		}
+
+		if (result.getStatusCode() == HttpServletResponse.SC_NOT_MODIFIED) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return null;
+		}
+
+		return result.getConfig();
+	}
+
+	/**
+	 * Query the configs of several namespaces in one request, each namespace has the same semantics as
+	 * {@link #queryConfig}
+	 *
+	 * @param namespacesAsString json map of namespace name to client side release key, -1 if the client has none
+	 */
+	@RequestMapping(value = "/{appId}/{clusterName}", method = RequestMethod.GET)
+	public List<ApolloConfigResult> queryConfigs(@PathVariable String appId, @PathVariable String clusterName,
+			@RequestParam(value = "namespaces") String namespacesAsString,
+			@RequestParam(value = "dataCenter", required = false) String dataCenter,
+			@RequestParam(value = "ip", required = false) String clientIp,
+			@RequestParam(value = "messages", required = false) String messagesAsString,
+			@RequestParam(value = "delta", defaultValue = "false") boolean delta, HttpServletRequest request) {
+		Map<String, String> clientSideReleaseKeys = transformReleaseKeys(namespacesAsString);
 
 		if (Strings.isNullOrEmpty(clientIp)) {
 			clientIp = tryToGetClientIp(request);
@@ -74,6 +146,46 @@ public class ConfigController {
 
 		ApolloNotificationMessages clientMessages = transformMessages(messagesAsString);
 
+		List<ApolloConfigResult> results = Lists.newArrayListWithCapacity(clientSideReleaseKeys.size());
+		for (Map.Entry<String, String> entry : clientSideReleaseKeys.entrySet()) {
+			String clientSideReleaseKey = Strings.isNullOrEmpty(entry.getValue()) ? "-1" : entry.getValue();
+			results.add(loadConfig(appId, clusterName, entry.getKey(), dataCenter, clientSideReleaseKey, clientIp,
+					clientMessages, delta));
+		}
+
+		Tracer.logEvent("Apollo.Config.Batch", String.valueOf(results.size()));
+
+		StringBuilder bodyName = new StringBuilder("configs");
+		for (ApolloConfigResult result : results) {
+			bodyName.append('|').append(result.getNamespaceName()).append('|').append(result.getStatusCode());
+			if (result.getConfig() != null) {
+				bodyName.append('|').append(assembleBodyName(result.getConfig()));
+			}
+		}
+		if (ConfigResponseCompressionFilter.nameResponseBody(request, bodyName.toString())) {
+			// the compressed body is sent by the filter
+			return null;
+		}
+
+		return results;
+	}
+
+	/**
+	 * The release keys identify the configurations, so together with the other fields they identify the body
+	 */
+	private String assembleBodyName(ApolloConfig config) {
+		return BODY_NAME_JOINER.join(config.getAppId(), config.getCluster(), config.getNamespaceName(),
+				config.getReleaseKey(), config.getBaseReleaseKey());
+	}
+
+	private ApolloConfigResult loadConfig(String appId, String clusterName, String namespace, String dataCenter,
+			String clientSideReleaseKey, String clientIp, ApolloNotificationMessages clientMessages, boolean delta) {
+		String originalNamespace = namespace;
+		// strip out .properties suffix
+		namespace = namespaceUtil.filterNamespaceName(namespace);
+		// fix the character case issue, such as FX.apollo <-> fx.apollo
+		namespace = namespaceUtil.normalizeNamespace(appId, namespace);
+
 		List<Release> releases = Lists.newLinkedList();
 
 		String appClusterNameLoaded = clusterName;
@@ -98,11 +210,8 @@ public class ConfigController {
 		}
 
 		if (releases.isEmpty()) {
-			response.sendError(HttpServletResponse.SC_NOT_FOUND, String.format(
-					"Could not load configurations with appId: %s, clusterName: %s, namespace: %s", appId, clusterName,
-					originalNamespace));
 			Tracer.logEvent("Apollo.Config.NotFound", assembleKey(appId, clusterName, originalNamespace, dataCenter));
-			return null;
+			return new ApolloConfigResult(originalNamespace, HttpServletResponse.SC_NOT_FOUND, null);
 		}
 
 		auditReleases(appId, clusterName, dataCenter, clientIp, releases);
@@ -112,17 +221,32 @@ public class ConfigController {
 
 		if (mergedReleaseKey.equals(clientSideReleaseKey)) {
 			// Client side configuration is the same with server side, return 304
-			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
 			Tracer.logEvent("Apollo.Config.NotModified",
 					assembleKey(appId, appClusterNameLoaded, originalNamespace, dataCenter));
-			return null;
+			return new ApolloConfigResult(originalNamespace, HttpServletResponse.SC_NOT_MODIFIED, null);
 		}
 
 		ApolloConfig apolloConfig = new ApolloConfig(appId, appClusterNameLoaded, originalNamespace, mergedReleaseKey);
-		apolloConfig.setConfigurations(mergeReleaseConfigurations(releases));
+		Map<String, String> configurations = mergeReleaseConfigurations(releases);
+
+		ConfigDelta configDelta = null;
+		if (delta && !"-1".equals(clientSideReleaseKey)) {
+			configDelta = configDeltaService.findDelta(clientSideReleaseKey, mergedReleaseKey, configurations);
+		}
+
+		if (configDelta != null) {
+			apolloConfig.setBaseReleaseKey(clientSideReleaseKey);
+			apolloConfig.setConfigurations(configDelta.getChanges());
+			apolloConfig.setDeletedKeys(configDelta.getDeletedKeys());
+			Tracer.logEvent("Apollo.Config.Delta", assembleKey(appId, appClusterNameLoaded, originalNamespace,
+					dataCenter));
+			return new ApolloConfigResult(originalNamespace, HttpServletResponse.SC_OK, apolloConfig);
+		}
+
+		apolloConfig.setConfigurations(configurations);
 
 		Tracer.logEvent("Apollo.Config.Found", assembleKey(appId, appClusterNameLoaded, originalNamespace, dataCenter));
-		return apolloConfig;
+		return new ApolloConfigResult(originalNamespace, HttpServletResponse.SC_OK, apolloConfig);
 	}
 
 	private boolean namespaceBelongsToAppId(String appId, String namespaceName) {
@@ -165,11 +289,7 @@ public class ConfigController {
 	 * Merge configurations of releases. Release in lower index override those in higher index
 	 */
 	Map<String, String> mergeReleaseConfigurations(List<Release> releases) {
-		Map<String, String> result = Maps.newHashMap();
-		for (Release release : Lists.reverse(releases)) {
-			result.putAll(gson.fromJson(release.getConfigurations(), configurationTypeReference));
-		}
-		return result;
+		return releaseConfigurationCache.getMergedConfigurations(releases);
 	}
 
 	private String assembleKey(String appId, String cluster, String namespace, String dataCenter) {
@@ -211,4 +331,19 @@ public class ConfigController {
 
 		return notificationMessages;
 	}
+
+	Map<String, String> transformReleaseKeys(String namespacesAsString) {
+		Map<String, String> releaseKeys = null;
+		try {
+			releaseKeys = gson.fromJson(namespacesAsString, releaseKeysTypeReference);
+		} catch (Throwable ex) {
+			Tracer.logError(ex);
+		}
+
+		if (CollectionUtils.isEmpty(releaseKeys)) {
+			throw new BadRequestException("Invalid format of namespaces: " + namespacesAsString);
+		}
+
+		return releaseKeys;
+	}
 }
@@ -8,8 +8,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import javax.servlet.http.HttpServletRequest;
@@ -20,6 +18,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.CollectionUtils;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -29,18 +28,20 @@ import org.springframework.web.context.request.async.DeferredResult;
 import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
-import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
+import com.ctrip.framework.apollo.biz.message.BatchReleaseMessageListener;
 import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.biz.service.ReleaseService;
 import com.ctrip.framework.apollo.biz.utils.EntityManagerUtil;
+import com.ctrip.framework.apollo.common.dto.InstanceDTO;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
+import com.ctrip.framework.apollo.configservice.util.NotificationDispatcher;
 import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
+import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultRegistry;
 import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
-import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
@@ -48,11 +49,9 @@ import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
 import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
@@ -62,20 +61,18 @@ import com.google.gson.reflect.TypeToken;
  */
 @RestController
 @RequestMapping("/notifications/v2")
-public class NotificationControllerV2 implements ReleaseMessageListener {
+public class NotificationControllerV2 implements BatchReleaseMessageListener {
 	private static final Logger logger = LoggerFactory.getLogger(NotificationControllerV2.class);
 
-	private final Multimap<String, DeferredResultWrapper> deferredResults = Multimaps
-			.synchronizedSetMultimap(HashMultimap.create());
+	private final DeferredResultRegistry deferredResults = new DeferredResultRegistry();
 	private static final Splitter STRING_SPLITTER = Splitter.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR)
 			.omitEmptyStrings();
 	private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
+	private static final Joiner MESSAGE_KEY_JOINER = Joiner.on(",");
 	private static final int INSTANCE_CONFIG_CACHE_MAX_SIZE = 50000;
 	private static final Type notificationsTypeReference = new TypeToken<List<ApolloConfigNotification>>() {
 	}.getType();
 
-	private final ExecutorService largeNotificationBatchExecutorService;
-
 	private Cache<String, String> instanceConfigActiveCache;
 
 	@Autowired
@@ -99,9 +96,10 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
 	@Autowired
 	private ReleaseService releaseService;
 
+	@Autowired
+	private NotificationDispatcher notificationDispatcher;
+
 	public NotificationControllerV2() {
-		largeNotificationBatchExecutorService = Executors.newSingleThreadExecutor(ApolloThreadFactory.create(
-				"NotificationControllerV2", true));
 		instanceConfigActiveCache = CacheBuilder.newBuilder().expireAfterWrite(70, TimeUnit.SECONDS)
 				.maximumSize(INSTANCE_CONFIG_CACHE_MAX_SIZE).build();
 	}
@@ -119,14 +117,7 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
 		}
 
 		Set<String> assembleWatchKeys = assembleWatchKeys(appId, clusterName, release.getNamespaceName(), dataCenter);
-		for (String key : assembleWatchKeys) {
-			String value = instanceConfigActiveCache.getIfPresent(key + "+" + clientIp);
-			if (null != value) {
-				return true;
-			}
-		}
-
-		return false;
+		return isInstanceActive(assembleWatchKeys, clientIp);
 	}
 
 	@RequestMapping(value = "/queryactiveByNamespace", method = RequestMethod.GET)
@@ -137,13 +128,59 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
 			HttpServletResponse response) throws IOException {
 
 		Set<String> assembleWatchKeys = assembleWatchKeys(appId, clusterName, namespaceName, dataCenter);
-		for (String key : assembleWatchKeys) {
+		return isInstanceActive(assembleWatchKeys, clientIp);
+	}
+
+	/**
+	 * Check in one request whether the instances polled the namespace recently, either releaseId or namespaceName is
+	 * required
+	 *
+	 * @param instances only appId, clusterName, dataCenter and ip are used
+	 * @return whether each instance is active, in the same order as the instances
+	 */
+	@RequestMapping(value = "/queryactive/batch", method = RequestMethod.POST)
+	public List<Boolean> queryActiveInstances(@RequestParam(value = "releaseId", required = false) Long releaseId,
+			@RequestParam(value = "namespaceName", required = false) String namespaceName,
+			@RequestBody List<InstanceDTO> instances) {
+		if (releaseId != null) {
+			Release release = releaseService.findActiveOne(releaseId);
+			if (null == release) {
+				logger.info("Can not get release for releaseId:" + releaseId);
+				return Collections.nCopies(instances.size(), true);
+			}
+			namespaceName = release.getNamespaceName();
+		}
+
+		if (Strings.isNullOrEmpty(namespaceName)) {
+			throw new BadRequestException("releaseId or namespaceName is required");
+		}
+
+		// instances on one page mostly share a few app, cluster and data center combinations
+		Map<String, Set<String>> watchKeysByCluster = Maps.newHashMap();
+		List<Boolean> activeInstances = Lists.newArrayListWithCapacity(instances.size());
+		for (InstanceDTO instance : instances) {
+			String clusterKey = instance.getAppId() + "+" + instance.getClusterName() + "+" + instance.getDataCenter();
+			Set<String> watchKeys = watchKeysByCluster.get(clusterKey);
+			if (watchKeys == null) {
+				watchKeys = assembleWatchKeys(instance.getAppId(), instance.getClusterName(), namespaceName,
+						instance.getDataCenter());
+				watchKeysByCluster.put(clusterKey, watchKeys);
+			}
+			activeInstances.add(isInstanceActive(watchKeys, instance.getIp()));
+		}
+
+		Tracer.logEvent("Apollo.Notification", "queryActiveInstances", "0",
+				String.format("instances=%d&clusters=%d", instances.size(), watchKeysByCluster.size()));
+		return activeInstances;
+	}
+
+	private boolean isInstanceActive(Set<String> watchKeys, String clientIp) {
+		for (String key : watchKeys) {
 			String value = instanceConfigActiveCache.getIfPresent(key + "+" + clientIp);
 			if (null != value) {
 				return true;
 			}
 		}
-
 		return false;
 	}
 
@@ -212,7 +249,7 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
 		} else {
 			// register all keys
 			for (String key : watchedKeys) {
-				this.deferredResults.put(key, deferredResultWrapper);
+				this.deferredResults.register(key, deferredResultWrapper);
 			}
 
 			deferredResultWrapper.onTimeout(() -> logWatchedKeys(watchedKeys, "Apollo.LongPoll.TimeOutKeys"));
@@ -220,7 +257,7 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
 			deferredResultWrapper.onCompletion(() -> {
 				// unregister all keys
 					for (String key : watchedKeys) {
-						deferredResults.remove(key, deferredResultWrapper);
+						deferredResults.unregister(key, deferredResultWrapper);
 					}
 					logWatchedKeys(watchedKeys, "Apollo.LongPoll.CompletedKeys");
 				});
@@ -299,48 +336,101 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
 
 	@Override
 	public void handleMessage(ReleaseMessage message, String channel) {
-		logger.info("message received - channel: {}, message: {}", channel, message);
+		handleMessages(Collections.singletonList(message), channel);
+	}
 
-		String content = message.getMessage();
-		Tracer.logEvent("Apollo.LongPoll.Messages", content);
-		if (!Topics.APOLLO_RELEASE_TOPIC.equals(channel) || Strings.isNullOrEmpty(content)) {
+	/**
+	 * Only the latest message of each key is handled, and a client watching several of the changed keys is notified
+	 * once with all of them
+	 */
+	@Override
+	public void handleMessages(List<ReleaseMessage> messages, String channel) {
+		Map<String, ReleaseMessage> latestMessages = Maps.newLinkedHashMap();
+		for (ReleaseMessage message : messages) {
+			logger.info("message received - channel: {}, message: {}", channel, message);
+
+			String content = message.getMessage();
+			Tracer.logEvent("Apollo.LongPoll.Messages", content);
+			if (!Topics.APOLLO_RELEASE_TOPIC.equals(channel) || Strings.isNullOrEmpty(content)) {
+				continue;
+			}
+
+			String changedNamespace = retrieveNamespaceFromReleaseMessage.apply(content);
+
+			if (Strings.isNullOrEmpty(changedNamespace)) {
+				logger.error("message format invalid - {}", content);
+				continue;
+			}
+
+			ReleaseMessage latestMessage = latestMessages.get(content);
+			if (latestMessage == null || latestMessage.getId() < message.getId()) {
+				latestMessages.put(content, message);
+			}
+		}
+
+		if (latestMessages.size() < messages.size()) {
+			logger.debug("Coalesced {} release messages into {} keys", messages.size(), latestMessages.size());
+		}
+
+		if (latestMessages.size() == 1) {
+			handleLatestMessage(latestMessages.values().iterator().next());
 			return;
 		}
 
-		String changedNamespace = retrieveNamespaceFromReleaseMessage.apply(content);
+		Map<DeferredResultWrapper, List<ReleaseMessage>> clientMessages = Maps.newLinkedHashMap();
+		for (ReleaseMessage message : latestMessages.values()) {
+			List<DeferredResultWrapper> results = deferredResults.get(message.getMessage());
+			if (results.isEmpty()) {
+				continue;
+			}
+			logRegistryStatus(message.getMessage(), results.size());
+			for (DeferredResultWrapper result : results) {
+				clientMessages.computeIfAbsent(result, key -> Lists.newArrayList()).add(message);
+			}
+		}
+
+		if (clientMessages.isEmpty()) {
+			return;
+		}
+
+		List<DeferredResultWrapper> results = Lists.newArrayList(clientMessages.keySet());
 
-		if (Strings.isNullOrEmpty(changedNamespace)) {
-			logger.error("message format invalid - {}", content);
+		// do async notification if too many clients
+		if (results.size() > bizConfig.releaseMessageNotificationBatch()) {
+			notificationDispatcher.dispatch(MESSAGE_KEY_JOINER.join(latestMessages.keySet()), results,
+					result -> mergeNotifications(clientMessages.get(result)));
 			return;
 		}
 
+		logger.debug("Notify {} clients for keys {}", results.size(), latestMessages.keySet());
+
+		for (DeferredResultWrapper result : results) {
+			result.setResult(mergeNotifications(clientMessages.get(result)));
+		}
+		logger.debug("Notification completed");
+	}
+
+	private void handleLatestMessage(ReleaseMessage message) {
+		String content = message.getMessage();
+
 		if (!deferredResults.containsKey(content)) {
 			return;
 		}
 
-		// create a new list to avoid ConcurrentModificationException
-		List<DeferredResultWrapper> results = Lists.newArrayList(deferredResults.get(content));
+		// snapshot of the waiters, so clients completing concurrently won't affect the iteration
+		List<DeferredResultWrapper> results = deferredResults.get(content);
+		if (results.isEmpty()) {
+			return;
+		}
+		logRegistryStatus(content, results.size());
 
+		String changedNamespace = retrieveNamespaceFromReleaseMessage.apply(content);
 		ApolloConfigNotification configNotification = new ApolloConfigNotification(changedNamespace, message.getId());
 		configNotification.addMessage(content, message.getId());
 
 		// do async notification if too many clients
 		if (results.size() > bizConfig.releaseMessageNotificationBatch()) {
-			largeNotificationBatchExecutorService.submit(() -> {
-				logger.debug("Async notify {} clients for key {} with batch {}", results.size(), content,
-						bizConfig.releaseMessageNotificationBatch());
-				for (int i = 0; i < results.size(); i++) {
-					if (i > 0 && i % bizConfig.releaseMessageNotificationBatch() == 0) {
-						try {
-							TimeUnit.MILLISECONDS.sleep(bizConfig.releaseMessageNotificationBatchIntervalInMilli());
-						} catch (InterruptedException e) {
-							// ignore
-				}
-			}
-			logger.debug("Async notify {}", results.get(i));
-			results.get(i).setResult(configNotification);
-		}
-	})		;
+			notificationDispatcher.dispatch(content, results, configNotification);
 			return;
 		}
 
@@ -352,6 +442,28 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
 		logger.debug("Notification completed");
 	}
 
+	/**
+	 * Merge the changed keys watched by one client into one notification per namespace
+	 */
+	private List<ApolloConfigNotification> mergeNotifications(List<ReleaseMessage> messages) {
+		Map<String, Long> latestNotificationIds = Maps.newLinkedHashMap();
+		for (ReleaseMessage message : messages) {
+			latestNotificationIds.merge(retrieveNamespaceFromReleaseMessage.apply(message.getMessage()), message.getId(),
+					Math::max);
+		}
+
+		Map<String, ApolloConfigNotification> notifications = Maps.newLinkedHashMap();
+		for (Map.Entry<String, Long> entry : latestNotificationIds.entrySet()) {
+			notifications.put(entry.getKey(), new ApolloConfigNotification(entry.getKey(), entry.getValue()));
+		}
+		for (ReleaseMessage message : messages) {
+			notifications.get(retrieveNamespaceFromReleaseMessage.apply(message.getMessage())).addMessage(
+					message.getMessage(), message.getId());
+		}
+
+		return Lists.newArrayList(notifications.values());
+	}
+
 	private static final Function<String, String> retrieveNamespaceFromReleaseMessage = releaseMessage -> {
 		if (Strings.isNullOrEmpty(releaseMessage)) {
 			return null;
@@ -365,6 +477,15 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
 		return keys.get(2);
 	};
 
+	private void logRegistryStatus(String watchKey, int waiters) {
+		Tracer.logEvent("Apollo.LongPoll.Registry", watchKey, "0", String.format(
+				"waiters=%d&registrations=%d&watchKeys=%d&peakRegistrations=%d&operations=%d&avgOperationNanos=%d"
+						+ "&maxOperationNanos=%d&peakOperationsInFlight=%d", waiters, deferredResults.size(),
+				deferredResults.watchKeySize(), deferredResults.peakSize(), deferredResults.operationCount(),
+				deferredResults.averageOperationNanos(), deferredResults.maxOperationNanos(),
+				deferredResults.peakOperationsInFlight()));
+	}
+
 	private void logWatchedKeys(Set<String> watchedKeys, String eventName) {
 		for (String watchedKey : watchedKeys) {
 			Tracer.logEvent(eventName, watchedKey);
@@ -0,0 +1,67 @@
+package com.ctrip.framework.apollo.configservice.controller;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.message.ReleaseMessageScanner;
+import com.ctrip.framework.apollo.common.exception.BadRequestException;
+import com.ctrip.framework.apollo.metaservice.service.DiscoveryService;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.netflix.appinfo.InstanceInfo;
+
+/**
+ * Receives the ids of the release messages pushed by admin service. The id only tells the scanner to load the new
+ * messages from the database right away, the pushed request itself is never trusted as a message.
+ *
+ * <p>The push switch lives in ServerConfig, which is only known once the beans are created and is refreshed at
+ * runtime, so the endpoint answers 404 while pushing is disabled instead of not being mapped at all.</p>
+ */
+@RestController
+@RequestMapping("/releasemessages")
+public class ReleaseMessageController {
+
+	@Autowired
+	private ReleaseMessageScanner releaseMessageScanner;
+
+	@Autowired
+	private BizConfig bizConfig;
+
+	@Autowired
+	private DiscoveryService discoveryService;
+
+	@RequestMapping(method = RequestMethod.POST)
+	public void push(@RequestParam("id") long id, HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		if (!bizConfig.isReleaseMessagePushEnabled()) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		if (!isAdminService(request.getRemoteAddr())) {
+			Tracer.logEvent("Apollo.ReleaseMessage.PushRejected", request.getRemoteAddr());
+			response.sendError(HttpServletResponse.SC_FORBIDDEN);
+			return;
+		}
+		if (id <= 0) {
+			throw new BadRequestException("Invalid release message id: " + id);
+		}
+		releaseMessageScanner.onMessagePushed(id);
+	}
+
+	private boolean isAdminService(String remoteAddress) {
+		for (InstanceInfo instance : discoveryService.getAdminServiceInstances()) {
+			if (remoteAddress.equals(instance.getIPAddr())) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,297 @@
+package com.ctrip.framework.apollo.configservice.filter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Gzip config responses for clients which send <code>Accept-Encoding: gzip</code>.
+ *
+ * <p>The same release is served to a lot of clients, so every distinct body is only compressed once. Controllers name
+ * the bodies they produce by {@link #nameResponseBody}, e.g. by the release keys, and skip producing a body whose
+ * compressed version is cached already. Bodies not named are cached by the digest of the uncompressed body. Responses
+ * smaller than {@link BizConfig#configResponseCompressionThreshold()} are sent as is.</p>
+ *
+ * <p>The body is buffered on the request thread, so the filter only serves synchronous requests, as all the config
+ * endpoints are.</p>
+ */
+public class ConfigResponseCompressionFilter implements Filter {
+	private static final String GZIP = "gzip";
+	private static final String X_GZIP = "x-gzip";
+	private static final Splitter CODING_SPLITTER = Splitter.on(',').omitEmptyStrings().trimResults();
+	private static final Splitter PARAMETER_SPLITTER = Splitter.on(';').trimResults();
+	private static final long MAX_CACHED_BYTES = 64 * 1024 * 1024;//64MB
+	private static final String FILTER_ATTRIBUTE = ConfigResponseCompressionFilter.class.getName();
+	private static final String BODY_NAME_ATTRIBUTE = FILTER_ATTRIBUTE + ".bodyName";
+	private static final String CACHED_BODY_ATTRIBUTE = FILTER_ATTRIBUTE + ".cachedBody";
+
+	private final BizConfig bizConfig;
+	private final Cache<Object, CompressedBody> compressedBodies;
+
+	public ConfigResponseCompressionFilter(BizConfig bizConfig) {
+		this.bizConfig = bizConfig;
+		this.compressedBodies = CacheBuilder.newBuilder().maximumWeight(MAX_CACHED_BYTES)
+				.weigher((Object key, CompressedBody value) -> value.body.length).build();
+	}
+
+	/**
+	 * Name the body of a successful response, so that its compressed version is cached by the name.
+	 *
+	 * @param bodyName identifies the body, e.g. by the type of the response and the release keys it is built from
+	 * @return true if the compressed body is cached and will be sent, so that the caller must not write the body
+	 */
+	public static boolean nameResponseBody(HttpServletRequest request, String bodyName) {
+		Object filter = request.getAttribute(FILTER_ATTRIBUTE);
+		if (!(filter instanceof ConfigResponseCompressionFilter)) {
+			// not compressed
+			return false;
+		}
+		request.setAttribute(BODY_NAME_ATTRIBUTE, bodyName);
+		CompressedBody compressed = ((ConfigResponseCompressionFilter) filter).compressedBodies.getIfPresent(bodyName);
+		if (compressed == null) {
+			return false;
+		}
+		// kept in the request, as it may be evicted before the response is sent
+		request.setAttribute(CACHED_BODY_ATTRIBUTE, compressed);
+		return true;
+	}
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		//nothing
+	}
+
+	@Override
+	public void doFilter(ServletRequest req, ServletResponse resp, FilterChain chain)
+			throws IOException, ServletException {
+		HttpServletRequest request = (HttpServletRequest) req;
+		HttpServletResponse response = (HttpServletResponse) resp;
+
+		if (!bizConfig.isConfigResponseCompressionEnabled() || !acceptsGzip(request)) {
+			chain.doFilter(req, resp);
+			return;
+		}
+
+		BufferedResponseWrapper responseWrapper = new BufferedResponseWrapper(response);
+		request.setAttribute(FILTER_ATTRIBUTE, this);
+		chain.doFilter(req, responseWrapper);
+
+		byte[] body = responseWrapper.getBody();
+		CompressedBody cachedBody = (CompressedBody) request.getAttribute(CACHED_BODY_ATTRIBUTE);
+		if (cachedBody != null && body.length == 0 && responseWrapper.getStatus() == HttpServletResponse.SC_OK
+				&& !response.isCommitted()) {
+			writeCompressedBody(response, cachedBody);
+			return;
+		}
+
+		if (body.length == 0 || response.isCommitted()) {
+			// nothing buffered, e.g. 304 or sendError
+			return;
+		}
+
+		if (responseWrapper.getStatus() != HttpServletResponse.SC_OK
+				|| body.length < bizConfig.configResponseCompressionThreshold()
+				|| response.containsHeader("Content-Encoding")) {
+			writeBody(response, body);
+			return;
+		}
+
+		Object bodyName = request.getAttribute(BODY_NAME_ATTRIBUTE);
+		writeCompressedBody(response, compress(bodyName != null ? bodyName : Hashing.sha256().hashBytes(body), body,
+				response.getContentType()));
+	}
+
+	/**
+	 * Whether the Accept-Encoding headers accept gzip, either by name or by the wildcard when gzip is not named. A
+	 * coding with the weight q=0 is refused, see RFC 7231 section 5.3.4.
+	 */
+	private boolean acceptsGzip(HttpServletRequest request) {
+		Float gzipWeight = null;
+		Float wildcardWeight = null;
+		Enumeration<String> headers = request.getHeaders("Accept-Encoding");
+		while (headers != null && headers.hasMoreElements()) {
+			for (String coding : CODING_SPLITTER.split(headers.nextElement())) {
+				Iterator<String> parts = PARAMETER_SPLITTER.split(coding).iterator();
+				String name = parts.next();
+				float weight = parseWeight(parts);
+				if (GZIP.equalsIgnoreCase(name) || X_GZIP.equalsIgnoreCase(name)) {
+					gzipWeight = gzipWeight == null ? weight : Math.max(gzipWeight, weight);
+				} else if ("*".equals(name)) {
+					wildcardWeight = weight;
+				}
+			}
+		}
+
+		if (gzipWeight != null) {
+			return gzipWeight > 0;
+		}
+		return wildcardWeight != null && wildcardWeight > 0;
+	}
+
+	private float parseWeight(Iterator<String> parameters) {
+		while (parameters.hasNext()) {
+			String parameter = parameters.next();
+			int separator = parameter.indexOf('=');
+			if (separator < 0 || !"q".equalsIgnoreCase(parameter.substring(0, separator).trim())) {
+				continue;
+			}
+			try {
+				return Float.parseFloat(parameter.substring(separator + 1).trim());
+			} catch (NumberFormatException ex) {
+				// taken as refused, the response is sent uncompressed then
+				return 0;
+			}
+		}
+		return 1;
+	}
+
+	CompressedBody compress(Object key, byte[] body, String contentType) throws IOException {
+		try {
+			return compressedBodies.get(key, () -> {
+				Tracer.logEvent("Apollo.Config.Compress", String.valueOf(body.length));
+				ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+				try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+					gzip.write(body);
+				}
+				return new CompressedBody(compressed.toByteArray(), contentType);
+			});
+		} catch (ExecutionException | UncheckedExecutionException ex) {
+			Throwables.propagateIfInstanceOf(ex.getCause(), IOException.class);
+			throw Throwables.propagate(ex.getCause());
+		}
+	}
+
+	private void writeCompressedBody(HttpServletResponse response, CompressedBody compressed) throws IOException {
+		if (compressed.contentType != null) {
+			response.setContentType(compressed.contentType);
+		}
+		response.setHeader("Content-Encoding", GZIP);
+		response.addHeader("Vary", "Accept-Encoding");
+		writeBody(response, compressed.body);
+	}
+
+	private void writeBody(HttpServletResponse response, byte[] body) throws IOException {
+		response.setContentLength(body.length);
+		response.getOutputStream().write(body);
+		response.flushBuffer();
+	}
+
+	@Override
+	public void destroy() {
+		//nothing
+	}
+
+	static class CompressedBody {
+		private final byte[] body;
+		private final String contentType;
+
+		CompressedBody(byte[] body, String contentType) {
+			this.body = body;
+			this.contentType = contentType;
+		}
+
+		byte[] getBody() {
+			return body;
+		}
+	}
+
+	private static class BufferedResponseWrapper extends HttpServletResponseWrapper {
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		private ServletOutputStream outputStream;
+		private PrintWriter writer;
+
+		BufferedResponseWrapper(HttpServletResponse response) {
+			super(response);
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			if (outputStream == null) {
+				outputStream = new ServletOutputStream() {
+					@Override
+					public boolean isReady() {
+						return true;
+					}
+
+					@Override
+					public void setWriteListener(WriteListener writeListener) {
+						// the body is written on the request thread, see the class doc
+						throw new IllegalStateException("Async IO is not supported when compressing config responses");
+					}
+
+					@Override
+					public void write(int b) throws IOException {
+						buffer.write(b);
+					}
+
+					@Override
+					public void write(byte[] b, int off, int len) throws IOException {
+						buffer.write(b, off, len);
+					}
+				};
+			}
+			return outputStream;
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			if (writer == null) {
+				String encoding = getCharacterEncoding();
+				writer = new PrintWriter(new OutputStreamWriter(buffer,
+						encoding == null ? StandardCharsets.ISO_8859_1.name() : encoding));
+			}
+			return writer;
+		}
+
+		@Override
+		public void setContentLength(int len) {
+			//the real length is set when the buffered body is written
+		}
+
+		@Override
+		public void setContentLengthLong(long len) {
+			//the real length is set when the buffered body is written
+		}
+
+		@Override
+		public void flushBuffer() throws IOException {
+			if (writer != null) {
+				writer.flush();
+			}
+		}
+
+		byte[] getBody() {
+			if (writer != null) {
+				writer.flush();
+			}
+			return buffer.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package com.ctrip.framework.apollo.configservice.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.service.ReleaseService;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Calculates the changes between two (merged) release keys, so that clients only download what they don't have yet.
+ * The calculated deltas are cached by (from release key, to release key).
+ */
+@Service
+public class ConfigDeltaService {
+  private static final int DELTA_CACHE_MAX_SIZE = 1000;
+  private static final long DELTA_CACHE_EXPIRED_AFTER_ACCESS_IN_MINUTES = 60;
+  private static final Splitter RELEASE_KEY_SPLITTER = Splitter.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR)
+      .omitEmptyStrings();
+  private static final ConfigDelta NO_DELTA = new ConfigDelta(Collections.emptyMap(), Collections.emptyList());
+
+  private final Cache<String, ConfigDelta> deltaCache;
+
+  @Autowired
+  private ReleaseService releaseService;
+
+  @Autowired
+  private ReleaseConfigurationCache releaseConfigurationCache;
+
+  public ConfigDeltaService() {
+    deltaCache = CacheBuilder.newBuilder().maximumSize(DELTA_CACHE_MAX_SIZE)
+        .expireAfterAccess(DELTA_CACHE_EXPIRED_AFTER_ACCESS_IN_MINUTES, TimeUnit.MINUTES).build();
+  }
+
+  /**
+   * @param fromReleaseKey the merged release key the client side currently has
+   * @param toReleaseKey the merged release key of the configurations to return
+   * @param toConfigurations the merged configurations of toReleaseKey
+   * @return the delta, or null if the client side configurations could not be found or the delta is not smaller than
+   * the full configurations
+   */
+  public ConfigDelta findDelta(String fromReleaseKey, String toReleaseKey, Map<String, String> toConfigurations) {
+    String cacheKey = fromReleaseKey + "/" + toReleaseKey;
+    ConfigDelta delta = deltaCache.getIfPresent(cacheKey);
+    if (delta == null) {
+      Tracer.logEvent("Apollo.ConfigDelta.CacheMiss", cacheKey);
+      Map<String, String> fromConfigurations = loadMergedConfigurations(fromReleaseKey);
+      delta = fromConfigurations == null ? NO_DELTA : calculateDelta(fromConfigurations, toConfigurations);
+      deltaCache.put(cacheKey, delta);
+    }
+    return delta == NO_DELTA ? null : delta;
+  }
+
+  ConfigDelta calculateDelta(Map<String, String> fromConfigurations, Map<String, String> toConfigurations) {
+    Map<String, String> changes = Maps.newHashMap();
+    for (Map.Entry<String, String> entry : toConfigurations.entrySet()) {
+      if (!Objects.equals(entry.getValue(), fromConfigurations.get(entry.getKey()))) {
+        changes.put(entry.getKey(), entry.getValue());
+      }
+    }
+    List<String> deletedKeys = Lists.newArrayList(Sets.difference(fromConfigurations.keySet(),
+        toConfigurations.keySet()));
+
+    // the client would then download more than the full configurations
+    if (changes.size() + deletedKeys.size() >= toConfigurations.size()) {
+      return NO_DELTA;
+    }
+    return new ConfigDelta(changes, deletedKeys);
+  }
+
+  /**
+   * @return the merged configurations of the releases in the merged release key, or null if any of them is not found
+   */
+  private Map<String, String> loadMergedConfigurations(String mergedReleaseKey) {
+    List<String> releaseKeys = RELEASE_KEY_SPLITTER.splitToList(mergedReleaseKey);
+    List<Release> releases = releaseService.findByReleaseKeys(Sets.newHashSet(releaseKeys));
+    Map<String, Release> releasesByKey = Maps.newHashMap();
+    for (Release release : releases) {
+      releasesByKey.put(release.getReleaseKey(), release);
+    }
+
+    List<Release> orderedReleases = Lists.newArrayListWithCapacity(releaseKeys.size());
+    for (String releaseKey : releaseKeys) {
+      Release release = releasesByKey.get(releaseKey);
+      if (release == null) {
+        return null;
+      }
+      orderedReleases.add(release);
+    }
+    return releaseConfigurationCache.getMergedConfigurations(orderedReleases);
+  }
+
+  public static class ConfigDelta {
+    private final Map<String, String> changes;
+    private final List<String> deletedKeys;
+
+    ConfigDelta(Map<String, String> changes, List<String> deletedKeys) {
+      this.changes = ImmutableMap.copyOf(changes);
+      this.deletedKeys = ImmutableList.copyOf(deletedKeys);
+    }
+
+    /**
+     * @return the added and changed configurations
+     */
+    public Map<String, String> getChanges() {
+      return changes;
+    }
+
+    public List<String> getDeletedKeys() {
+      return deletedKeys;
+    }
+  }
+}
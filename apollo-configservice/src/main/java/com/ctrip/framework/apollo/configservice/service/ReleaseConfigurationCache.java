@@ -0,0 +1,113 @@
+package com.ctrip.framework.apollo.configservice.service;
+
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Parsed configurations of releases.
+ *
+ * <p>The configurations of a release never change once it is created, so they are parsed only once per release key
+ * and shared as read-only maps. The merged configurations of app and public releases are cached by the merged release
+ * key as well, so serving a hot namespace does no json parsing at all.</p>
+ */
+@Service
+public class ReleaseConfigurationCache {
+  private static final long DEFAULT_MAXIMUM_SIZE = 10000;
+  private static final long DEFAULT_EXPIRED_AFTER_ACCESS_IN_MINUTES = 60;//1 hour
+  private static final String TRACER_EVENT_CACHE_PARSE = "ReleaseConfigurationCache.Parse";
+  private static final String TRACER_EVENT_CACHE_MERGE = "ReleaseConfigurationCache.Merge";
+  private static final Type configurationTypeReference = new TypeToken<Map<String, String>>() {
+  }.getType();
+
+  @Autowired
+  private Gson gson;
+
+  private final Cache<String, Map<String, String>> configurationsCache;
+
+  private final Cache<String, Map<String, String>> mergedConfigurationsCache;
+
+  public ReleaseConfigurationCache() {
+    configurationsCache = CacheBuilder.newBuilder().maximumSize(DEFAULT_MAXIMUM_SIZE)
+        .expireAfterAccess(DEFAULT_EXPIRED_AFTER_ACCESS_IN_MINUTES, TimeUnit.MINUTES).build();
+    mergedConfigurationsCache = CacheBuilder.newBuilder().maximumSize(DEFAULT_MAXIMUM_SIZE)
+        .expireAfterAccess(DEFAULT_EXPIRED_AFTER_ACCESS_IN_MINUTES, TimeUnit.MINUTES).build();
+  }
+
+  /**
+   * @return the read-only configurations of the release
+   */
+  public Map<String, String> getConfigurations(Release release) {
+    String releaseKey = release.getReleaseKey();
+    if (Strings.isNullOrEmpty(releaseKey)) {
+      return parse(release);
+    }
+    return getUnchecked(configurationsCache, releaseKey, () -> parse(release));
+  }
+
+  /**
+   * Merge configurations of releases. Release in lower index override those in higher index
+   *
+   * @return the read-only merged configurations
+   */
+  public Map<String, String> getMergedConfigurations(List<Release> releases) {
+    if (releases.size() == 1) {
+      return getConfigurations(releases.get(0));
+    }
+
+    List<String> releaseKeys = releases.stream().map(Release::getReleaseKey).collect(Collectors.toList());
+    if (releaseKeys.stream().anyMatch(Strings::isNullOrEmpty)) {
+      return merge(releases);
+    }
+    String mergedReleaseKey = String.join(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR, releaseKeys);
+    return getUnchecked(mergedConfigurationsCache, mergedReleaseKey, () -> merge(releases));
+  }
+
+  private Map<String, String> parse(Release release) {
+    Tracer.logEvent(TRACER_EVENT_CACHE_PARSE, Strings.nullToEmpty(release.getReleaseKey()));
+    Map<String, String> configurations = gson.fromJson(release.getConfigurations(), configurationTypeReference);
+    if (configurations == null) {
+      return Collections.emptyMap();
+    }
+    return Collections.unmodifiableMap(configurations);
+  }
+
+  private Map<String, String> merge(List<Release> releases) {
+    Tracer.logEvent(TRACER_EVENT_CACHE_MERGE, String.valueOf(releases.size()));
+    Map<String, String> result = Maps.newHashMap();
+    for (Release release : Lists.reverse(releases)) {
+      result.putAll(getConfigurations(release));
+    }
+    return Collections.unmodifiableMap(result);
+  }
+
+  private Map<String, String> getUnchecked(Cache<String, Map<String, String>> cache, String key,
+                                           Callable<Map<String, String>> loader) {
+    try {
+      return cache.get(key, loader);
+    } catch (ExecutionException | UncheckedExecutionException ex) {
+      throw Throwables.propagate(ex.getCause());
+    }
+  }
+}
@@ -16,6 +16,7 @@ import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.biz.service.ReleaseMessageService;
 import com.ctrip.framework.apollo.biz.service.ReleaseService;
 import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
+import com.ctrip.framework.apollo.configservice.service.ReleaseConfigurationCache;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.ctrip.framework.apollo.tracer.Tracer;
@@ -49,6 +50,9 @@ public class ConfigServiceWithCache extends AbstractConfigService {
   @Autowired
   private ReleaseMessageService releaseMessageService;
 
+  @Autowired
+  private ReleaseConfigurationCache releaseConfigurationCache;
+
   private LoadingCache<String, ConfigCacheEntry> configCache;
 
   private LoadingCache<Long, Optional<Release>> configIdCache;
@@ -162,7 +166,12 @@ public class ConfigServiceWithCache extends AbstractConfigService {
       invalidate(message.getMessage());
 
       //warm up the cache
-      configCache.getUnchecked(message.getMessage());
+      ConfigCacheEntry cacheEntry = configCache.getUnchecked(message.getMessage());
+
+      //parse the new release before clients ask for it
+      if (cacheEntry.getRelease() != null) {
+        releaseConfigurationCache.getConfigurations(cacheEntry.getRelease());
+      }
     } catch (Throwable ex) {
       //ignore
     }
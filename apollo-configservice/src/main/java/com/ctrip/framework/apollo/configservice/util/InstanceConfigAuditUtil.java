@@ -1,19 +1,26 @@
 package com.ctrip.framework.apollo.configservice.util;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.Instance;
 import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
 import com.ctrip.framework.apollo.biz.service.InstanceService;
@@ -25,9 +32,21 @@ import com.google.common.base.Strings;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Queues;
+import com.google.common.collect.Sets;
 
 /**
+ * Records which release each client instance has loaded.
+ *
+ * <p>Audits are queued and a collector thread coalesces them by (instance, config app id, namespace), so that only the
+ * latest one of repeated audits is written. The coalesced audits are flushed when there are
+ * {@link BizConfig#instanceConfigAuditBatch()} of them or the oldest has waited
+ * {@link BizConfig#instanceConfigAuditFlushIntervalInMilli()} ms. Each flush is split among
+ * {@link BizConfig#instanceConfigAuditThreads()} writers by instance, and each writer saves its part in one
+ * transaction. When the writers fall behind, the collector waits for them at most a flush interval, meanwhile audits
+ * exceeding the queue are dropped, and then drops the flush. Both are counted in {@link #droppedAudits()}.</p>
+ *
  * @author Jason Song(song_s@ctrip.com)
  */
 @Service
@@ -35,6 +54,7 @@ public class InstanceConfigAuditUtil implements InitializingBean {
 	private static final int INSTANCE_CONFIG_AUDIT_MAX_SIZE = 10000;
 	private static final int INSTANCE_CACHE_MAX_SIZE = 50000;
 	private static final int INSTANCE_CONFIG_CACHE_MAX_SIZE = 50000;
+	private static final int WRITER_MAX_PENDING_FLUSHES = 2;
 	private static final long OFFER_TIME_LAST_MODIFIED_TIME_THRESHOLD_IN_MILLI = TimeUnit.MINUTES.toMillis(5);// 5
 																												// minutes
 	private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
@@ -42,12 +62,22 @@ public class InstanceConfigAuditUtil implements InitializingBean {
 	private final AtomicBoolean auditStopped;
 	private BlockingQueue<InstanceConfigAuditModel> audits = Queues
 			.newLinkedBlockingQueue(INSTANCE_CONFIG_AUDIT_MAX_SIZE);
+	private ExecutorService[] writerExecutorServices;
 	private Cache<String, Long> instanceCache;
 	private Cache<String, String> instanceConfigReleaseKeyCache;
+	private final AtomicLong droppedAudits = new AtomicLong();
+	private final AtomicLong coalescedAudits = new AtomicLong();
+	private final AtomicLong flushedAudits = new AtomicLong();
+	// only accessed by the collector thread
+	private long reportedDroppedAudits;
+	private long reportedCoalescedAudits;
 
 	@Autowired
 	private InstanceService instanceService;
 
+	@Autowired
+	private BizConfig bizConfig;
+
 	public InstanceConfigAuditUtil() {
 		auditExecutorService = Executors.newSingleThreadExecutor(ApolloThreadFactory.create("InstanceConfigAuditUtil",
 				true));
@@ -60,18 +90,16 @@ public class InstanceConfigAuditUtil implements InitializingBean {
 
 	public boolean audit(String appId, String clusterName, String dataCenter, String ip, String configAppId,
 			String configClusterName, String configNamespace, String releaseKey) {
-		return this.audits.offer(new InstanceConfigAuditModel(appId, clusterName, dataCenter, ip, configAppId,
-				configClusterName, configNamespace, releaseKey));
+		boolean offered = this.audits.offer(new InstanceConfigAuditModel(appId, clusterName, dataCenter, ip,
+				configAppId, configClusterName, configNamespace, releaseKey));
+		if (!offered) {
+			droppedAudits.incrementAndGet();
+		}
+		return offered;
 	}
 
 	void doAudit(InstanceConfigAuditModel auditModel) {
-		String instanceCacheKey = assembleInstanceKey(auditModel.getAppId(), auditModel.getClusterName(),
-				auditModel.getIp(), auditModel.getDataCenter());
-		Long instanceId = instanceCache.getIfPresent(instanceCacheKey);
-		if (instanceId == null) {
-			instanceId = prepareInstanceId(auditModel);
-			instanceCache.put(instanceCacheKey, instanceId);
-		}
+		long instanceId = findOrCreateInstanceId(auditModel);
 
 		// load instance config release key from cache, and check if release key is the same
 		String instanceConfigCacheKey = assembleInstanceConfigKey(instanceId, auditModel.getConfigAppId(),
@@ -90,23 +118,95 @@ public class InstanceConfigAuditUtil implements InitializingBean {
 				auditModel.getConfigNamespace());
 
 		if (instanceConfig != null) {
-			if (!Objects.equals(instanceConfig.getReleaseKey(), auditModel.getReleaseKey())) {
-				instanceConfig.setConfigClusterName(auditModel.getConfigClusterName());
-				instanceConfig.setReleaseKey(auditModel.getReleaseKey());
-				instanceConfig.setReleaseDeliveryTime(auditModel.getOfferTime());
-			} else if (offerTimeAndLastModifiedTimeCloseEnough(auditModel.getOfferTime(),
-					instanceConfig.getDataChangeLastModifiedTime())) {
-				// when releaseKey is the same, optimize to reduce writes if the record was updated not long ago
-				return;
+			if (prepareInstanceConfigUpdate(instanceConfig, auditModel)) {
+				instanceService.updateInstanceConfig(instanceConfig);
 			}
-			// we need to update no matter the release key is the same or not, to ensure the
-			// last modified time is updated each day
-			instanceConfig.setDataChangeLastModifiedTime(auditModel.getOfferTime());
-			instanceService.updateInstanceConfig(instanceConfig);
 			return;
 		}
 
-		instanceConfig = new InstanceConfig();
+		try {
+			instanceService.createInstanceConfig(assembleInstanceConfig(instanceId, auditModel));
+		} catch (DataIntegrityViolationException ex) {
+			// concurrent insertion, safe to ignore
+		}
+	}
+
+	/**
+	 * Audit the models with one query for the existing instance configs and one transaction for the writes
+	 */
+	void doAudit(List<InstanceConfigAuditModel> auditModels) {
+		Map<String, InstanceConfigAuditModel> modelsToAudit = Maps.newLinkedHashMap();
+		Map<String, Long> instanceIds = Maps.newHashMap();
+		for (InstanceConfigAuditModel auditModel : auditModels) {
+			long instanceId = findOrCreateInstanceId(auditModel);
+			String instanceConfigCacheKey = assembleInstanceConfigKey(instanceId, auditModel.getConfigAppId(),
+					auditModel.getConfigNamespace());
+			String cacheReleaseKey = instanceConfigReleaseKeyCache.getIfPresent(instanceConfigCacheKey);
+			if (cacheReleaseKey != null && Objects.equals(cacheReleaseKey, auditModel.getReleaseKey())) {
+				continue;
+			}
+			modelsToAudit.put(instanceConfigCacheKey, auditModel);
+			instanceIds.put(instanceConfigCacheKey, instanceId);
+		}
+
+		if (modelsToAudit.isEmpty()) {
+			return;
+		}
+
+		Map<String, InstanceConfig> existingInstanceConfigs = Maps.newHashMap();
+		for (InstanceConfig instanceConfig : instanceService
+				.findInstanceConfigsByInstanceIds(Sets.newHashSet(instanceIds.values()))) {
+			existingInstanceConfigs.put(assembleInstanceConfigKey(instanceConfig.getInstanceId(),
+					instanceConfig.getConfigAppId(), instanceConfig.getConfigNamespaceName()), instanceConfig);
+		}
+
+		List<InstanceConfig> instanceConfigsToSave = Lists.newArrayList();
+		for (Map.Entry<String, InstanceConfigAuditModel> entry : modelsToAudit.entrySet()) {
+			InstanceConfig instanceConfig = existingInstanceConfigs.get(entry.getKey());
+			if (instanceConfig == null) {
+				instanceConfigsToSave.add(assembleInstanceConfig(instanceIds.get(entry.getKey()), entry.getValue()));
+			} else if (prepareInstanceConfigUpdate(instanceConfig, entry.getValue())) {
+				instanceConfigsToSave.add(instanceConfig);
+			}
+		}
+
+		if (!instanceConfigsToSave.isEmpty()) {
+			try {
+				instanceService.batchSaveInstanceConfigs(instanceConfigsToSave);
+			} catch (DataIntegrityViolationException ex) {
+				// concurrent insertion by another config service, audit them one by one
+				Tracer.logEvent("Apollo.InstanceConfigAudit.Conflict", String.valueOf(instanceConfigsToSave.size()));
+				modelsToAudit.values().forEach(this::doAudit);
+				return;
+			}
+		}
+
+		for (Map.Entry<String, InstanceConfigAuditModel> entry : modelsToAudit.entrySet()) {
+			instanceConfigReleaseKeyCache.put(entry.getKey(), entry.getValue().getReleaseKey());
+		}
+	}
+
+	/**
+	 * @return whether the instance config needs to be written
+	 */
+	private boolean prepareInstanceConfigUpdate(InstanceConfig instanceConfig, InstanceConfigAuditModel auditModel) {
+		if (!Objects.equals(instanceConfig.getReleaseKey(), auditModel.getReleaseKey())) {
+			instanceConfig.setConfigClusterName(auditModel.getConfigClusterName());
+			instanceConfig.setReleaseKey(auditModel.getReleaseKey());
+			instanceConfig.setReleaseDeliveryTime(auditModel.getOfferTime());
+		} else if (offerTimeAndLastModifiedTimeCloseEnough(auditModel.getOfferTime(),
+				instanceConfig.getDataChangeLastModifiedTime())) {
+			// when releaseKey is the same, optimize to reduce writes if the record was updated not long ago
+			return false;
+		}
+		// we need to update no matter the release key is the same or not, to ensure the
+		// last modified time is updated each day
+		instanceConfig.setDataChangeLastModifiedTime(auditModel.getOfferTime());
+		return true;
+	}
+
+	private InstanceConfig assembleInstanceConfig(long instanceId, InstanceConfigAuditModel auditModel) {
+		InstanceConfig instanceConfig = new InstanceConfig();
 		instanceConfig.setInstanceId(instanceId);
 		instanceConfig.setConfigAppId(auditModel.getConfigAppId());
 		instanceConfig.setConfigClusterName(auditModel.getConfigClusterName());
@@ -114,18 +214,23 @@ public class InstanceConfigAuditUtil implements InitializingBean {
 		instanceConfig.setReleaseKey(auditModel.getReleaseKey());
 		instanceConfig.setReleaseDeliveryTime(auditModel.getOfferTime());
 		instanceConfig.setDataChangeCreatedTime(auditModel.getOfferTime());
-
-		try {
-			instanceService.createInstanceConfig(instanceConfig);
-		} catch (DataIntegrityViolationException ex) {
-			// concurrent insertion, safe to ignore
-		}
+		return instanceConfig;
 	}
 
 	private boolean offerTimeAndLastModifiedTimeCloseEnough(Date offerTime, Date lastModifiedTime) {
 		return (offerTime.getTime() - lastModifiedTime.getTime()) < OFFER_TIME_LAST_MODIFIED_TIME_THRESHOLD_IN_MILLI;
 	}
 
+	private long findOrCreateInstanceId(InstanceConfigAuditModel auditModel) {
+		String instanceCacheKey = assembleInstanceKey(auditModel);
+		Long instanceId = instanceCache.getIfPresent(instanceCacheKey);
+		if (instanceId == null) {
+			instanceId = prepareInstanceId(auditModel);
+			instanceCache.put(instanceCacheKey, instanceId);
+		}
+		return instanceId;
+	}
+
 	private long prepareInstanceId(InstanceConfigAuditModel auditModel) {
 		Instance instance = instanceService.findInstance(auditModel.getAppId(), auditModel.getClusterName(),
 				auditModel.getDataCenter(), auditModel.getIp());
@@ -149,15 +254,40 @@ public class InstanceConfigAuditUtil implements InitializingBean {
 
 	@Override
 	public void afterPropertiesSet() throws Exception {
+		int writers = bizConfig.instanceConfigAuditThreads();
+		writerExecutorServices = new ExecutorService[writers];
+		for (int i = 0; i < writers; i++) {
+			// hold the collector when the writer falls behind, so that the audit queue fills up and new audits are
+			// dropped, instead of piling up flushes in memory
+			writerExecutorServices[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<>(WRITER_MAX_PENDING_FLUSHES),
+					ApolloThreadFactory.create("InstanceConfigAuditWriter", true), this::awaitWriter);
+		}
+
 		auditExecutorService.submit(() -> {
+			Map<String, InstanceConfigAuditModel> pendingAudits = Maps.newLinkedHashMap();
+			long flushDeadline = 0;
 			while (!auditStopped.get() && !Thread.currentThread().isInterrupted()) {
 				try {
-					InstanceConfigAuditModel model = audits.poll();
-					if (model == null) {
-						TimeUnit.SECONDS.sleep(1);
-						continue;
+					long waitTime = pendingAudits.isEmpty() ? TimeUnit.SECONDS.toMillis(1)
+							: flushDeadline - System.currentTimeMillis();
+					InstanceConfigAuditModel model = audits.poll(Math.max(waitTime, 0), TimeUnit.MILLISECONDS);
+					if (model != null) {
+						if (pendingAudits.isEmpty()) {
+							flushDeadline = System.currentTimeMillis() + bizConfig.instanceConfigAuditFlushIntervalInMilli();
+						}
+						// the latest audit of the same instance config wins
+						if (pendingAudits.put(assembleAuditKey(model), model) != null) {
+							coalescedAudits.incrementAndGet();
+						}
+					}
+					if (!pendingAudits.isEmpty() && (pendingAudits.size() >= bizConfig.instanceConfigAuditBatch()
+							|| System.currentTimeMillis() >= flushDeadline)) {
+						flush(pendingAudits.values());
+						pendingAudits = Maps.newLinkedHashMap();
 					}
-					doAudit(model);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
 				} catch (Throwable ex) {
 					Tracer.logError(ex);
 				}
@@ -165,6 +295,93 @@ public class InstanceConfigAuditUtil implements InitializingBean {
 		});
 	}
 
+	private void flush(Collection<InstanceConfigAuditModel> auditModels) {
+		// audits of the same instance always go to the same writer, so they are written in order
+		List<List<InstanceConfigAuditModel>> batches = Lists.newArrayListWithCapacity(writerExecutorServices.length);
+		for (int i = 0; i < writerExecutorServices.length; i++) {
+			batches.add(Lists.newArrayList());
+		}
+		for (InstanceConfigAuditModel auditModel : auditModels) {
+			int writer = (assembleInstanceKey(auditModel).hashCode() & Integer.MAX_VALUE) % writerExecutorServices.length;
+			batches.get(writer).add(auditModel);
+		}
+
+		for (int i = 0; i < writerExecutorServices.length; i++) {
+			List<InstanceConfigAuditModel> batch = batches.get(i);
+			if (batch.isEmpty()) {
+				continue;
+			}
+			try {
+				writerExecutorServices[i].execute(() -> {
+					try {
+						doAudit(batch);
+						flushedAudits.addAndGet(batch.size());
+					} catch (Throwable ex) {
+						Tracer.logError(ex);
+					}
+				});
+			} catch (RejectedExecutionException ex) {
+				droppedAudits.addAndGet(batch.size());
+				Tracer.logEvent("Apollo.InstanceConfigAudit.FlushDropped", String.valueOf(batch.size()));
+			}
+		}
+
+		long dropped = droppedAudits.get();
+		long coalesced = coalescedAudits.get();
+		Tracer.logEvent("Apollo.InstanceConfigAudit.Flush", String.valueOf(auditModels.size()), "0",
+				String.format("coalesced=%d&dropped=%d", coalesced - reportedCoalescedAudits,
+						dropped - reportedDroppedAudits));
+		reportedDroppedAudits = dropped;
+		reportedCoalescedAudits = coalesced;
+	}
+
+	/**
+	 * Only the collector thread hands flushes to the writers, so it is the one waiting here, at most a flush interval
+	 * for the writer to take a pending flush. The flush is rejected if the writer is still behind or is shut down.
+	 */
+	private void awaitWriter(Runnable task, ThreadPoolExecutor executor) {
+		if (!executor.isShutdown()) {
+			try {
+				if (executor.getQueue().offer(task, bizConfig.instanceConfigAuditFlushIntervalInMilli(),
+						TimeUnit.MILLISECONDS)) {
+					// the writer may be shut down meanwhile, and never take it
+					if (!executor.isShutdown() || !executor.getQueue().remove(task)) {
+						return;
+					}
+				}
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		throw new RejectedExecutionException("Instance config audit writer is behind or shut down");
+	}
+
+	/**
+	 * @return the number of audits dropped because the queue was full or the writer was behind
+	 */
+	public long droppedAudits() {
+		return droppedAudits.get();
+	}
+
+	/**
+	 * @return the number of audits replaced by a later audit of the same instance config before being flushed
+	 */
+	public long coalescedAudits() {
+		return coalescedAudits.get();
+	}
+
+	/**
+	 * @return the number of audits written
+	 */
+	public long flushedAudits() {
+		return flushedAudits.get();
+	}
+
+	private String assembleInstanceKey(InstanceConfigAuditModel auditModel) {
+		return assembleInstanceKey(auditModel.getAppId(), auditModel.getClusterName(), auditModel.getIp(),
+				auditModel.getDataCenter());
+	}
+
 	private String assembleInstanceKey(String appId, String cluster, String ip, String datacenter) {
 		List<String> keyParts = Lists.newArrayList(appId, cluster, ip);
 		if (!Strings.isNullOrEmpty(datacenter)) {
@@ -173,6 +390,11 @@ public class InstanceConfigAuditUtil implements InitializingBean {
 		return STRING_JOINER.join(keyParts);
 	}
 
+	private String assembleAuditKey(InstanceConfigAuditModel auditModel) {
+		return STRING_JOINER.join(assembleInstanceKey(auditModel), auditModel.getConfigAppId(),
+				auditModel.getConfigNamespace());
+	}
+
 	private String assembleInstanceConfigKey(long instanceId, String configAppId, String configNamespace) {
 		return STRING_JOINER.join(instanceId, configAppId, configNamespace);
 	}
@@ -0,0 +1,173 @@
+package com.ctrip.framework.apollo.configservice.util;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.common.utils.LatencySamples;
+import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.collect.Lists;
+
+/**
+ * Notifies large groups of long polling clients on a bounded worker pool.
+ *
+ * <p>Each fan-out is split into slices of {@link BizConfig#releaseMessageNotificationBatch()} clients. A finished slice
+ * re-queues the rest of its fan-out at the tail of the worker queue, so concurrent fan-outs for different watch keys are
+ * served round robin and one huge fan-out can't starve the others. All workers share one pacer which keeps the overall
+ * throughput at {@link BizConfig#releaseMessageNotificationRate()} notifications per second.</p>
+ */
+@Service
+public class NotificationDispatcher implements InitializingBean {
+	private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+	private static final int LATENCY_SAMPLE_SIZE = 1024;
+
+	private ExecutorService notificationExecutorService;
+	private final AtomicInteger pendingFanOuts = new AtomicInteger();
+	private final LatencySamples firstNotifiedLatencies = new LatencySamples(LATENCY_SAMPLE_SIZE);
+	private final LatencySamples lastNotifiedLatencies = new LatencySamples(LATENCY_SAMPLE_SIZE);
+	private long nextFreeNanos;
+
+	@Autowired
+	private BizConfig bizConfig;
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		int threads = bizConfig.releaseMessageNotificationThreads();
+		notificationExecutorService = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<>(), ApolloThreadFactory.create("NotificationDispatcher", true));
+	}
+
+	public void dispatch(String watchKey, List<DeferredResultWrapper> results, ApolloConfigNotification notification) {
+		dispatch(watchKey, results, result -> Lists.newArrayList(notification));
+	}
+
+	/**
+	 * @param notifications computes the notifications of each client when it is about to be notified
+	 */
+	public void dispatch(String watchKey, List<DeferredResultWrapper> results,
+			Function<DeferredResultWrapper, List<ApolloConfigNotification>> notifications) {
+		logger.debug("Async notify {} clients for key {} with batch {}", results.size(), watchKey,
+				bizConfig.releaseMessageNotificationBatch());
+		pendingFanOuts.incrementAndGet();
+		notificationExecutorService.execute(() -> notifySlice(new FanOut(watchKey, results, notifications)));
+	}
+
+	private void notifySlice(FanOut fanOut) {
+		int from = fanOut.notified;
+		int to = Math.min(from + bizConfig.releaseMessageNotificationBatch(), fanOut.results.size());
+
+		try {
+			pace(to - from);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+
+		for (int i = from; i < to; i++) {
+			try {
+				DeferredResultWrapper result = fanOut.results.get(i);
+				result.setResult(fanOut.notifications.apply(result));
+			} catch (Throwable ex) {
+				Tracer.logError(ex);
+			}
+			if (fanOut.firstNotifiedNanos == 0) {
+				fanOut.firstNotifiedNanos = System.nanoTime();
+			}
+		}
+		fanOut.notified = to;
+
+		if (to < fanOut.results.size()) {
+			notificationExecutorService.execute(() -> notifySlice(fanOut));
+			return;
+		}
+
+		complete(fanOut);
+	}
+
+	private void complete(FanOut fanOut) {
+		pendingFanOuts.decrementAndGet();
+		long lastNotifiedNanos = System.nanoTime();
+		long firstNotifiedLatency = TimeUnit.NANOSECONDS.toMillis(fanOut.firstNotifiedNanos - fanOut.startNanos);
+		long lastNotifiedLatency = TimeUnit.NANOSECONDS.toMillis(lastNotifiedNanos - fanOut.startNanos);
+		firstNotifiedLatencies.add(firstNotifiedLatency);
+		lastNotifiedLatencies.add(lastNotifiedLatency);
+
+		Tracer.logEvent("Apollo.LongPoll.FanOut", fanOut.watchKey, "0", String.format(
+				"clients=%d&firstNotifiedMs=%d&lastNotifiedMs=%d", fanOut.results.size(), firstNotifiedLatency,
+				lastNotifiedLatency));
+		logger.debug("Notified {} clients for key {} in {} ms", fanOut.results.size(), fanOut.watchKey,
+				lastNotifiedLatency);
+	}
+
+	/**
+	 * Reserve permits for the given number of notifications and wait until they are available. The reservations are
+	 * spread evenly over time, so idle periods never build up a burst.
+	 */
+	private void pace(int permits) throws InterruptedException {
+		long intervalNanos = TimeUnit.SECONDS.toNanos(1) / bizConfig.releaseMessageNotificationRate();
+		long waitNanos;
+		synchronized (this) {
+			long now = System.nanoTime();
+			long start = Math.max(now, nextFreeNanos);
+			nextFreeNanos = start + permits * intervalNanos;
+			waitNanos = start - now;
+		}
+		if (waitNanos > 0) {
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		}
+	}
+
+	/**
+	 * @return the number of fan-outs that are not completely notified yet
+	 */
+	public int pendingFanOuts() {
+		return pendingFanOuts.get();
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return the latency in ms between receiving the message and notifying the first client, of recent fan-outs
+	 */
+	public long firstNotifiedLatencyPercentile(double percentile) {
+		return firstNotifiedLatencies.percentile(percentile);
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return the latency in ms between receiving the message and notifying the last client, of recent fan-outs
+	 */
+	public long lastNotifiedLatencyPercentile(double percentile) {
+		return lastNotifiedLatencies.percentile(percentile);
+	}
+
+	private static class FanOut {
+		private final String watchKey;
+		private final List<DeferredResultWrapper> results;
+		private final Function<DeferredResultWrapper, List<ApolloConfigNotification>> notifications;
+		private final long startNanos;
+		// slices of one fan-out run one at a time, but may be picked up by different workers
+		private volatile int notified;
+		private volatile long firstNotifiedNanos;
+
+		FanOut(String watchKey, List<DeferredResultWrapper> results,
+				Function<DeferredResultWrapper, List<ApolloConfigNotification>> notifications) {
+			this.watchKey = watchKey;
+			this.results = results;
+			this.notifications = notifications;
+			this.startNanos = System.nanoTime();
+		}
+	}
+}
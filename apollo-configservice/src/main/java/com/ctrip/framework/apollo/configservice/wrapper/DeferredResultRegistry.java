@@ -0,0 +1,149 @@
+package com.ctrip.framework.apollo.configservice.wrapper;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Watch key to long polling clients index.
+ *
+ * <p>Backed by a {@link ConcurrentHashMap}, so register/unregister only lock the bin of the watch key involved instead
+ * of a global monitor, and empty watch keys are dropped atomically with the last unregister.</p>
+ *
+ * <p>To tell whether the clients still contend on the registry, it also keeps the time spent in register/unregister
+ * and the peak number of them running at the same time. A rising average or max time with many operations in flight
+ * means the threads wait on the same watch keys. The counters are {@link LongAdder}s, so the metrics themselves don't
+ * add a contended field.</p>
+ */
+public class DeferredResultRegistry {
+  private final ConcurrentMap<String, Set<DeferredResultWrapper>> deferredResults = new ConcurrentHashMap<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final AtomicInteger peakSize = new AtomicInteger();
+  private final AtomicLong registerCount = new AtomicLong();
+  private final AtomicLong unregisterCount = new AtomicLong();
+  private final AtomicInteger operationsInFlight = new AtomicInteger();
+  private final AtomicInteger peakOperationsInFlight = new AtomicInteger();
+  private final LongAdder operationCount = new LongAdder();
+  private final LongAdder operationNanos = new LongAdder();
+  private final AtomicLong maxOperationNanos = new AtomicLong();
+
+  public void register(String watchKey, DeferredResultWrapper deferredResultWrapper) {
+    long start = beginOperation();
+    boolean[] added = new boolean[1];
+    deferredResults.compute(watchKey, (key, wrappers) -> {
+      if (wrappers == null) {
+        wrappers = ConcurrentHashMap.newKeySet();
+      }
+      added[0] = wrappers.add(deferredResultWrapper);
+      return wrappers;
+    });
+    endOperation(start);
+
+    if (added[0]) {
+      registerCount.incrementAndGet();
+      int current = size.incrementAndGet();
+      peakSize.accumulateAndGet(current, Math::max);
+    }
+  }
+
+  public void unregister(String watchKey, DeferredResultWrapper deferredResultWrapper) {
+    long start = beginOperation();
+    boolean[] removed = new boolean[1];
+    deferredResults.computeIfPresent(watchKey, (key, wrappers) -> {
+      removed[0] = wrappers.remove(deferredResultWrapper);
+      return wrappers.isEmpty() ? null : wrappers;
+    });
+    endOperation(start);
+
+    if (removed[0]) {
+      unregisterCount.incrementAndGet();
+      size.decrementAndGet();
+    }
+  }
+
+  public boolean containsKey(String watchKey) {
+    return deferredResults.containsKey(watchKey);
+  }
+
+  /**
+   * @return a snapshot of the clients watching the key, safe to iterate while clients complete concurrently
+   */
+  public List<DeferredResultWrapper> get(String watchKey) {
+    Set<DeferredResultWrapper> wrappers = deferredResults.get(watchKey);
+    if (wrappers == null) {
+      return Collections.emptyList();
+    }
+    return Lists.newArrayList(wrappers);
+  }
+
+  /**
+   * @return the number of (watch key, client) registrations
+   */
+  public int size() {
+    return size.get();
+  }
+
+  public int watchKeySize() {
+    return deferredResults.size();
+  }
+
+  public int peakSize() {
+    return peakSize.get();
+  }
+
+  public long registerCount() {
+    return registerCount.get();
+  }
+
+  public long unregisterCount() {
+    return unregisterCount.get();
+  }
+
+  /**
+   * @return the number of register/unregister calls
+   */
+  public long operationCount() {
+    return operationCount.sum();
+  }
+
+  public long averageOperationNanos() {
+    long count = operationCount.sum();
+    return count == 0 ? 0 : operationNanos.sum() / count;
+  }
+
+  public long maxOperationNanos() {
+    return maxOperationNanos.get();
+  }
+
+  /**
+   * @return the most register/unregister calls running at the same time
+   */
+  public int peakOperationsInFlight() {
+    return peakOperationsInFlight.get();
+  }
+
+  private long beginOperation() {
+    int inFlight = operationsInFlight.incrementAndGet();
+    if (inFlight > peakOperationsInFlight.get()) {
+      peakOperationsInFlight.accumulateAndGet(inFlight, Math::max);
+    }
+    return System.nanoTime();
+  }
+
+  private void endOperation(long start) {
+    long nanos = System.nanoTime() - start;
+    operationsInFlight.decrementAndGet();
+    operationCount.increment();
+    operationNanos.add(nanos);
+    if (nanos > maxOperationNanos.get()) {
+      maxOperationNanos.accumulateAndGet(nanos, Math::max);
+    }
+  }
+}
@@ -7,18 +7,25 @@ import org.junit.runners.Suite.SuiteClasses;
 import com.ctrip.framework.apollo.configservice.controller.ConfigControllerTest;
 import com.ctrip.framework.apollo.configservice.controller.ConfigFileControllerTest;
 import com.ctrip.framework.apollo.configservice.controller.NotificationControllerV2Test;
+import com.ctrip.framework.apollo.configservice.controller.ReleaseMessageControllerTest;
+import com.ctrip.framework.apollo.configservice.filter.ConfigResponseCompressionFilterTest;
 import com.ctrip.framework.apollo.configservice.integration.ConfigControllerIntegrationTest;
 import com.ctrip.framework.apollo.configservice.integration.ConfigFileControllerIntegrationTest;
 import com.ctrip.framework.apollo.configservice.integration.NotificationControllerIntegrationTest;
 import com.ctrip.framework.apollo.configservice.integration.NotificationControllerV2IntegrationTest;
+import com.ctrip.framework.apollo.configservice.integration.ReleaseMessagePushIntegrationTest;
 import com.ctrip.framework.apollo.configservice.service.AppNamespaceServiceWithCacheTest;
+import com.ctrip.framework.apollo.configservice.service.ConfigDeltaServiceTest;
+import com.ctrip.framework.apollo.configservice.service.ReleaseConfigurationCacheTest;
 import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCacheTest;
 import com.ctrip.framework.apollo.configservice.service.config.ConfigServiceWithCacheTest;
 import com.ctrip.framework.apollo.configservice.service.config.DefaultConfigServiceTest;
 import com.ctrip.framework.apollo.configservice.util.InstanceConfigAuditUtilTest;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtilTest;
+import com.ctrip.framework.apollo.configservice.util.NotificationDispatcherTest;
 import com.ctrip.framework.apollo.configservice.util.WatchKeysUtilTest;
 import com.ctrip.framework.apollo.configservice.wrapper.CaseInsensitiveMapWrapperTest;
+import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultRegistryTest;
 
 @RunWith(Suite.class)
 @SuiteClasses({ConfigControllerTest.class, 
@@ -28,7 +35,9 @@ import com.ctrip.framework.apollo.configservice.wrapper.CaseInsensitiveMapWrappe
     NotificationControllerV2Test.class, NotificationControllerV2IntegrationTest.class,
     InstanceConfigAuditUtilTest.class, AppNamespaceServiceWithCacheTest.class,
     ReleaseMessageServiceWithCacheTest.class, DefaultConfigServiceTest.class, ConfigServiceWithCacheTest.class,
-    CaseInsensitiveMapWrapperTest.class
+    CaseInsensitiveMapWrapperTest.class, DeferredResultRegistryTest.class, NotificationDispatcherTest.class,
+    ConfigDeltaServiceTest.class, ReleaseConfigurationCacheTest.class, ConfigResponseCompressionFilterTest.class,
+    ReleaseMessageControllerTest.class, ReleaseMessagePushIntegrationTest.class
 })
 public class AllTests {
 
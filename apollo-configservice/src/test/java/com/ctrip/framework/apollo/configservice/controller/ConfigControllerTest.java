@@ -1,15 +1,21 @@
 package com.ctrip.framework.apollo.configservice.controller;
 
 import com.ctrip.framework.apollo.configservice.service.AppNamespaceServiceWithCache;
+import com.ctrip.framework.apollo.configservice.service.ConfigDeltaService;
+import com.ctrip.framework.apollo.configservice.service.ConfigDeltaService.ConfigDelta;
+import com.ctrip.framework.apollo.configservice.service.ReleaseConfigurationCache;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigResult;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 
 import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
+import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.configservice.service.config.ConfigService;
 import com.ctrip.framework.apollo.configservice.util.InstanceConfigAuditUtil;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
@@ -23,6 +29,7 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.List;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
@@ -30,6 +37,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyMapOf;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
@@ -69,6 +77,8 @@ public class ConfigControllerTest {
   private InstanceConfigAuditUtil instanceConfigAuditUtil;
   @Mock
   private HttpServletRequest someRequest;
+  @Mock
+  private ConfigDeltaService configDeltaService;
   private Gson gson = new Gson();
 
   @Before
@@ -78,7 +88,11 @@ public class ConfigControllerTest {
     ReflectionTestUtils.setField(configController, "appNamespaceService", appNamespaceService);
     ReflectionTestUtils.setField(configController, "namespaceUtil", namespaceUtil);
     ReflectionTestUtils.setField(configController, "instanceConfigAuditUtil", instanceConfigAuditUtil);
+    ReflectionTestUtils.setField(configController, "configDeltaService", configDeltaService);
     ReflectionTestUtils.setField(configController, "gson", gson);
+    ReleaseConfigurationCache releaseConfigurationCache = new ReleaseConfigurationCache();
+    ReflectionTestUtils.setField(releaseConfigurationCache, "gson", gson);
+    ReflectionTestUtils.setField(configController, "releaseConfigurationCache", releaseConfigurationCache);
 
     someAppId = "1";
     someClusterName = "someClusterName";
@@ -214,6 +228,50 @@ public class ConfigControllerTest {
     verify(someResponse, times(1)).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
   }
 
+  @Test
+  public void testQueryConfigWithDelta() throws Exception {
+    String someClientSideReleaseKey = "1";
+    String someServerSideNewReleaseKey = "2";
+    HttpServletResponse someResponse = mock(HttpServletResponse.class);
+    ConfigDelta someDelta = mock(ConfigDelta.class);
+    Map<String, String> someChanges = ImmutableMap.of("apollo.bar", "foo");
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+    when(configDeltaService.findDelta(eq(someClientSideReleaseKey), eq(someServerSideNewReleaseKey),
+        anyMapOf(String.class, String.class))).thenReturn(someDelta);
+    when(someDelta.getChanges()).thenReturn(someChanges);
+    when(someDelta.getDeletedKeys()).thenReturn(Lists.newArrayList("someDeletedKey"));
+
+    ApolloConfig result = configController.queryConfig(someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someClientSideReleaseKey, someClientIp, someMessagesAsString, true, someRequest,
+        someResponse);
+
+    assertEquals(someServerSideNewReleaseKey, result.getReleaseKey());
+    assertEquals(someClientSideReleaseKey, result.getBaseReleaseKey());
+    assertEquals(someChanges, result.getConfigurations());
+    assertEquals(Lists.newArrayList("someDeletedKey"), result.getDeletedKeys());
+  }
+
+  @Test
+  public void testQueryConfigWithDeltaNotAvailable() throws Exception {
+    String someClientSideReleaseKey = "1";
+    String someServerSideNewReleaseKey = "2";
+    HttpServletResponse someResponse = mock(HttpServletResponse.class);
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+
+    ApolloConfig result = configController.queryConfig(someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someClientSideReleaseKey, someClientIp, someMessagesAsString, true, someRequest,
+        someResponse);
+
+    assertNull(result.getBaseReleaseKey());
+    assertEquals(ImmutableMap.of("apollo.bar", "foo"), result.getConfigurations());
+  }
+
   @Test
   public void testQueryConfigWithAppOwnNamespace() throws Exception {
     String someClientSideReleaseKey = "1";
@@ -439,6 +497,72 @@ public class ConfigControllerTest {
     assertEquals("foo", result.getConfigurations().get("apollo.public.bar"));
   }
 
+  @Test
+  public void testQueryConfigs() throws Exception {
+    String someServerSideNewReleaseKey = "2";
+    String anotherNamespace = "anotherNamespace";
+    String anotherReleaseKey = "3";
+    String yetAnotherNamespace = "yetAnotherNamespace";
+    Release anotherRelease = mock(Release.class);
+    AppNamespace someAppNamespace = mock(AppNamespace.class);
+
+    when(namespaceUtil.filterNamespaceName(anotherNamespace)).thenReturn(anotherNamespace);
+    when(namespaceUtil.normalizeNamespace(someAppId, anotherNamespace)).thenReturn(anotherNamespace);
+    when(namespaceUtil.filterNamespaceName(yetAnotherNamespace)).thenReturn(yetAnotherNamespace);
+    when(namespaceUtil.normalizeNamespace(someAppId, yetAnotherNamespace)).thenReturn(yetAnotherNamespace);
+    when(appNamespaceService.findByAppIdAndNamespace(someAppId, anotherNamespace)).thenReturn(someAppNamespace);
+    when(appNamespaceService.findByAppIdAndNamespace(someAppId, yetAnotherNamespace)).thenReturn(someAppNamespace);
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+    when(someRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, anotherNamespace,
+        someDataCenter, someNotificationMessages)).thenReturn(anotherRelease);
+    when(anotherRelease.getReleaseKey()).thenReturn(anotherReleaseKey);
+
+    Map<String, String> clientSideReleaseKeys = Maps.newLinkedHashMap();
+    clientSideReleaseKeys.put(defaultNamespaceName, "-1");
+    clientSideReleaseKeys.put(anotherNamespace, anotherReleaseKey);
+    clientSideReleaseKeys.put(yetAnotherNamespace, "-1");
+
+    List<ApolloConfigResult> results = configController.queryConfigs(someAppId, someClusterName,
+        gson.toJson(clientSideReleaseKeys), someDataCenter, someClientIp, someMessagesAsString, false, someRequest);
+
+    assertEquals(3, results.size());
+
+    ApolloConfigResult someResult = results.get(0);
+    assertEquals(defaultNamespaceName, someResult.getNamespaceName());
+    assertEquals(HttpServletResponse.SC_OK, someResult.getStatusCode());
+    assertEquals(someServerSideNewReleaseKey, someResult.getConfig().getReleaseKey());
+    assertEquals("foo", someResult.getConfig().getConfigurations().get("apollo.bar"));
+
+    ApolloConfigResult anotherResult = results.get(1);
+    assertEquals(anotherNamespace, anotherResult.getNamespaceName());
+    assertEquals(HttpServletResponse.SC_NOT_MODIFIED, anotherResult.getStatusCode());
+    assertNull(anotherResult.getConfig());
+
+    ApolloConfigResult yetAnotherResult = results.get(2);
+    assertEquals(yetAnotherNamespace, yetAnotherResult.getNamespaceName());
+    assertEquals(HttpServletResponse.SC_NOT_FOUND, yetAnotherResult.getStatusCode());
+    assertNull(yetAnotherResult.getConfig());
+
+    verify(instanceConfigAuditUtil, times(1)).audit(someAppId, someClusterName, someDataCenter,
+        someClientIp, someAppId, someClusterName, defaultNamespaceName, someServerSideNewReleaseKey);
+  }
+
+  @Test(expected = BadRequestException.class)
+  public void testQueryConfigsWithInvalidNamespaces() throws Exception {
+    configController.queryConfigs(someAppId, someClusterName, "someInvalidNamespaces", someDataCenter,
+        someClientIp, someMessagesAsString, false, someRequest);
+  }
+
+  @Test(expected = BadRequestException.class)
+  public void testQueryConfigsWithEmptyNamespaces() throws Exception {
+    configController.queryConfigs(someAppId, someClusterName, "{}", someDataCenter,
+        someClientIp, someMessagesAsString, false, someRequest);
+  }
+
   @Test
   public void testTransformMessages() throws Exception {
     String someKey = "someKey";
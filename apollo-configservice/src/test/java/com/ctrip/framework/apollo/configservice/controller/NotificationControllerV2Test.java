@@ -1,5 +1,6 @@
 package com.ctrip.framework.apollo.configservice.controller;
 
+import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultRegistry;
 import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.google.common.base.Joiner;
@@ -12,9 +13,13 @@ import com.google.gson.Gson;
 import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.biz.service.ReleaseService;
 import com.ctrip.framework.apollo.biz.utils.EntityManagerUtil;
+import com.ctrip.framework.apollo.common.dto.InstanceDTO;
+import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
+import com.ctrip.framework.apollo.configservice.util.NotificationDispatcher;
 import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
@@ -68,7 +73,7 @@ public class NotificationControllerV2Test {
 
   private Gson gson;
 
-  private Multimap<String, DeferredResultWrapper> deferredResults;
+  private DeferredResultRegistry deferredResults;
 
   @Before
   public void setUp() throws Exception {
@@ -77,6 +82,12 @@ public class NotificationControllerV2Test {
 
     when(bizConfig.releaseMessageNotificationBatch()).thenReturn(100);
     when(bizConfig.releaseMessageNotificationBatchIntervalInMilli()).thenReturn(5);
+    when(bizConfig.releaseMessageNotificationRate()).thenReturn(100 * 1000 / 5);
+    when(bizConfig.releaseMessageNotificationThreads()).thenReturn(2);
+
+    NotificationDispatcher notificationDispatcher = new NotificationDispatcher();
+    ReflectionTestUtils.setField(notificationDispatcher, "bizConfig", bizConfig);
+    notificationDispatcher.afterPropertiesSet();
 
     ReflectionTestUtils.setField(controller, "releaseMessageService", releaseMessageService);
     ReflectionTestUtils.setField(controller, "entityManagerUtil", entityManagerUtil);
@@ -84,6 +95,7 @@ public class NotificationControllerV2Test {
     ReflectionTestUtils.setField(controller, "watchKeysUtil", watchKeysUtil);
     ReflectionTestUtils.setField(controller, "gson", gson);
     ReflectionTestUtils.setField(controller, "bizConfig", bizConfig);
+    ReflectionTestUtils.setField(controller, "notificationDispatcher", notificationDispatcher);
 
     someAppId = "someAppId";
     someCluster = "someCluster";
@@ -100,7 +112,7 @@ public class NotificationControllerV2Test {
     when(namespaceUtil.normalizeNamespace(someAppId, somePublicNamespace)).thenReturn(somePublicNamespace);
 
     deferredResults =
-        (Multimap<String, DeferredResultWrapper>) ReflectionTestUtils.getField(controller, "deferredResults");
+        (DeferredResultRegistry) ReflectionTestUtils.getField(controller, "deferredResults");
   }
 
   @Test
@@ -307,6 +319,104 @@ public class NotificationControllerV2Test {
     assertEquals(someId, notificationMessages.get(anotherWatchKey).longValue());
   }
 
+  @Test
+  public void testPollNotificationWithMultipleNamespacesAndHandleMessages() throws Exception {
+    String someWatchKey = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR)
+        .join(someAppId, someCluster, defaultNamespace);
+    String anotherWatchKey = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR)
+        .join(someAppId, someCluster, somePublicNamespace);
+
+    Multimap<String, String> watchKeysMap =
+        assembleMultiMap(defaultNamespace, Lists.newArrayList(someWatchKey));
+    watchKeysMap
+        .putAll(assembleMultiMap(somePublicNamespace, Lists.newArrayList(anotherWatchKey)));
+
+    when(watchKeysUtil
+        .assembleAllWatchKeys(someAppId, someCluster,
+            Sets.newHashSet(defaultNamespace, somePublicNamespace), someDataCenter)).thenReturn(
+        watchKeysMap);
+
+    String notificationAsString =
+        transformApolloConfigNotificationsToString(defaultNamespace, someNotificationId,
+            somePublicNamespace, someNotificationId);
+
+    DeferredResult<ResponseEntity<List<ApolloConfigNotification>>>
+        deferredResult = controller
+        .pollNotification(someAppId, someCluster, notificationAsString, someDataCenter,
+            someClientIp);
+
+    long someId = 1;
+    long anotherId = 2;
+    long yetAnotherId = 3;
+    ReleaseMessage someReleaseMessage = new ReleaseMessage(someWatchKey);
+    someReleaseMessage.setId(someId);
+    ReleaseMessage anotherReleaseMessage = new ReleaseMessage(anotherWatchKey);
+    anotherReleaseMessage.setId(anotherId);
+    ReleaseMessage yetAnotherReleaseMessage = new ReleaseMessage(someWatchKey);
+    yetAnotherReleaseMessage.setId(yetAnotherId);
+
+    controller.handleMessages(
+        Lists.newArrayList(someReleaseMessage, anotherReleaseMessage, yetAnotherReleaseMessage),
+        Topics.APOLLO_RELEASE_TOPIC);
+
+    ResponseEntity<List<ApolloConfigNotification>> response =
+        (ResponseEntity<List<ApolloConfigNotification>>) deferredResult.getResult();
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(2, response.getBody().size());
+
+    ApolloConfigNotification someNotification = response.getBody().get(0);
+    assertEquals(defaultNamespace, someNotification.getNamespaceName());
+    assertEquals(yetAnotherId, someNotification.getNotificationId());
+    assertEquals(1, someNotification.getMessages().getDetails().size());
+    assertEquals(yetAnotherId, someNotification.getMessages().get(someWatchKey).longValue());
+
+    ApolloConfigNotification anotherNotification = response.getBody().get(1);
+    assertEquals(somePublicNamespace, anotherNotification.getNamespaceName());
+    assertEquals(anotherId, anotherNotification.getNotificationId());
+    assertEquals(anotherId, anotherNotification.getMessages().get(anotherWatchKey).longValue());
+  }
+
+  @Test
+  public void testQueryActiveInstances() throws Exception {
+    String someWatchKey = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR)
+        .join(someAppId, someCluster, defaultNamespace);
+    String anotherClientIp = "anotherClientIp";
+
+    when(watchKeysUtil
+        .assembleAllWatchKeys(someAppId, someCluster, Sets.newHashSet(defaultNamespace),
+            someDataCenter)).thenReturn(assembleMultiMap(defaultNamespace, Lists.newArrayList(someWatchKey)));
+
+    controller.pollNotification(someAppId, someCluster,
+        transformApolloConfigNotificationsToString(defaultNamespace, someNotificationId), someDataCenter,
+        someClientIp);
+
+    List<Boolean> result = controller.queryActiveInstances(null, defaultNamespace, Lists.newArrayList(
+        assembleInstance(someAppId, someCluster, someDataCenter, someClientIp),
+        assembleInstance(someAppId, someCluster, someDataCenter, anotherClientIp),
+        assembleInstance(someAppId, someCluster, someDataCenter, someClientIp)));
+
+    assertEquals(Lists.newArrayList(true, false, true), result);
+  }
+
+  @Test
+  public void testQueryActiveInstancesWithReleaseNotFound() throws Exception {
+    long someReleaseId = 1;
+    ReleaseService releaseService = mock(ReleaseService.class);
+    ReflectionTestUtils.setField(controller, "releaseService", releaseService);
+
+    List<Boolean> result = controller.queryActiveInstances(someReleaseId, null, Lists.newArrayList(
+        assembleInstance(someAppId, someCluster, someDataCenter, someClientIp)));
+
+    assertEquals(Lists.newArrayList(true), result);
+  }
+
+  @Test(expected = BadRequestException.class)
+  public void testQueryActiveInstancesWithoutNamespace() throws Exception {
+    controller.queryActiveInstances(null, null, Lists.newArrayList(
+        assembleInstance(someAppId, someCluster, someDataCenter, someClientIp)));
+  }
+
   @Test
   public void testPollNotificationWithHandleMessageInBatch() throws Exception {
     String someWatchKey = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR)
@@ -326,6 +436,7 @@ public class NotificationControllerV2Test {
 
     when(bizConfig.releaseMessageNotificationBatch()).thenReturn(someBatch);
     when(bizConfig.releaseMessageNotificationBatchIntervalInMilli()).thenReturn(someBatchInterval);
+    when(bizConfig.releaseMessageNotificationRate()).thenReturn(someBatch * 1000 / someBatchInterval);
 
     DeferredResult<ResponseEntity<List<ApolloConfigNotification>>>
         deferredResult = controller
@@ -383,6 +494,15 @@ public class NotificationControllerV2Test {
     return notification;
   }
 
+  private InstanceDTO assembleInstance(String appId, String clusterName, String dataCenter, String ip) {
+    InstanceDTO instance = new InstanceDTO();
+    instance.setAppId(appId);
+    instance.setClusterName(clusterName);
+    instance.setDataCenter(dataCenter);
+    instance.setIp(ip);
+    return instance;
+  }
+
   private Multimap<String, String> assembleMultiMap(String key, Iterable<String> values) {
     Multimap<String, String> multimap = HashMultimap.create();
     multimap.putAll(key, values);
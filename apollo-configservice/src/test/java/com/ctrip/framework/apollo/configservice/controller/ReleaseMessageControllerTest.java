@@ -0,0 +1,87 @@
+package com.ctrip.framework.apollo.configservice.controller;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.message.ReleaseMessageScanner;
+import com.ctrip.framework.apollo.metaservice.service.DiscoveryService;
+import com.google.common.collect.Lists;
+import com.netflix.appinfo.InstanceInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReleaseMessageControllerTest {
+  private ReleaseMessageController releaseMessageController;
+  @Mock
+  private ReleaseMessageScanner releaseMessageScanner;
+  @Mock
+  private BizConfig bizConfig;
+  @Mock
+  private DiscoveryService discoveryService;
+  @Mock
+  private InstanceInfo someAdminServiceInstance;
+  @Mock
+  private HttpServletRequest someRequest;
+  @Mock
+  private HttpServletResponse someResponse;
+  private String someAdminServiceIp;
+  private long someMessageId;
+
+  @Before
+  public void setUp() throws Exception {
+    releaseMessageController = new ReleaseMessageController();
+    ReflectionTestUtils.setField(releaseMessageController, "releaseMessageScanner", releaseMessageScanner);
+    ReflectionTestUtils.setField(releaseMessageController, "bizConfig", bizConfig);
+    ReflectionTestUtils.setField(releaseMessageController, "discoveryService", discoveryService);
+
+    someAdminServiceIp = "1.1.1.1";
+    someMessageId = 1;
+    when(someAdminServiceInstance.getIPAddr()).thenReturn(someAdminServiceIp);
+    when(discoveryService.getAdminServiceInstances()).thenReturn(Lists.newArrayList(someAdminServiceInstance));
+    when(bizConfig.isReleaseMessagePushEnabled()).thenReturn(true);
+  }
+
+  @Test
+  public void testPushFromAdminService() throws Exception {
+    when(someRequest.getRemoteAddr()).thenReturn(someAdminServiceIp);
+
+    releaseMessageController.push(someMessageId, someRequest, someResponse);
+
+    verify(releaseMessageScanner).onMessagePushed(someMessageId);
+    verify(someResponse, never()).sendError(anyInt());
+  }
+
+  @Test
+  public void testPushFromOtherCallerIsRejected() throws Exception {
+    when(someRequest.getRemoteAddr()).thenReturn("2.2.2.2");
+
+    releaseMessageController.push(someMessageId, someRequest, someResponse);
+
+    verify(someResponse).sendError(HttpServletResponse.SC_FORBIDDEN);
+    verify(releaseMessageScanner, never()).onMessagePushed(anyLong());
+  }
+
+  @Test
+  public void testPushWhenPushDisabled() throws Exception {
+    when(bizConfig.isReleaseMessagePushEnabled()).thenReturn(false);
+    when(someRequest.getRemoteAddr()).thenReturn(someAdminServiceIp);
+
+    releaseMessageController.push(someMessageId, someRequest, someResponse);
+
+    verify(someResponse).sendError(HttpServletResponse.SC_NOT_FOUND);
+    verify(releaseMessageScanner, never()).onMessagePushed(anyLong());
+  }
+}
@@ -0,0 +1,191 @@
+package com.ctrip.framework.apollo.configservice.filter;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.configservice.filter.ConfigResponseCompressionFilter.CompressedBody;
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConfigResponseCompressionFilterTest {
+  private ConfigResponseCompressionFilter configResponseCompressionFilter;
+  @Mock
+  private BizConfig bizConfig;
+  private MockHttpServletRequest request;
+  private MockHttpServletResponse response;
+  private String someLargeBody;
+  private String someSmallBody;
+
+  @Before
+  public void setUp() throws Exception {
+    configResponseCompressionFilter = new ConfigResponseCompressionFilter(bizConfig);
+    request = new MockHttpServletRequest();
+    response = new MockHttpServletResponse();
+
+    when(bizConfig.isConfigResponseCompressionEnabled()).thenReturn(true);
+    when(bizConfig.configResponseCompressionThreshold()).thenReturn(1024);
+
+    someLargeBody = Strings.repeat("{\"someKey\":\"someValue\"}", 100);
+    someSmallBody = "{\"someKey\":\"someValue\"}";
+  }
+
+  @Test
+  public void testCompressLargeResponse() throws Exception {
+    request.addHeader("Accept-Encoding", "gzip, deflate");
+
+    configResponseCompressionFilter.doFilter(request, response, chainWriting(someLargeBody));
+
+    assertEquals("gzip", response.getHeader("Content-Encoding"));
+    assertEquals(response.getContentAsByteArray().length, response.getContentLength());
+    assertEquals(someLargeBody, decompress(response.getContentAsByteArray()));
+  }
+
+  @Test
+  public void testNotCompressSmallResponse() throws Exception {
+    request.addHeader("Accept-Encoding", "gzip");
+
+    configResponseCompressionFilter.doFilter(request, response, chainWriting(someSmallBody));
+
+    assertNull(response.getHeader("Content-Encoding"));
+    assertEquals(someSmallBody, response.getContentAsString());
+  }
+
+  @Test
+  public void testNotCompressWhenClientDoesNotAcceptGzip() throws Exception {
+    configResponseCompressionFilter.doFilter(request, response, chainWriting(someLargeBody));
+
+    assertNull(response.getHeader("Content-Encoding"));
+    assertEquals(someLargeBody, response.getContentAsString());
+  }
+
+  @Test
+  public void testNotCompressWhenClientRefusesGzip() throws Exception {
+    request.addHeader("Accept-Encoding", "gzip;q=0, deflate");
+
+    configResponseCompressionFilter.doFilter(request, response, chainWriting(someLargeBody));
+
+    assertNull(response.getHeader("Content-Encoding"));
+    assertEquals(someLargeBody, response.getContentAsString());
+  }
+
+  @Test
+  public void testNotCompressWhenGzipIsRefusedDespiteWildcard() throws Exception {
+    request.addHeader("Accept-Encoding", "*, gzip; q=0.0");
+
+    configResponseCompressionFilter.doFilter(request, response, chainWriting(someLargeBody));
+
+    assertNull(response.getHeader("Content-Encoding"));
+    assertEquals(someLargeBody, response.getContentAsString());
+  }
+
+  @Test
+  public void testCompressWhenGzipIsAcceptedWithLowerWeight() throws Exception {
+    request.addHeader("Accept-Encoding", "deflate, GZIP;q=0.5, identity;q=0");
+
+    configResponseCompressionFilter.doFilter(request, response, chainWriting(someLargeBody));
+
+    assertEquals("gzip", response.getHeader("Content-Encoding"));
+    assertEquals(someLargeBody, decompress(response.getContentAsByteArray()));
+  }
+
+  @Test
+  public void testCompressWhenClientAcceptsAnyEncoding() throws Exception {
+    request.addHeader("Accept-Encoding", "*");
+
+    configResponseCompressionFilter.doFilter(request, response, chainWriting(someLargeBody));
+
+    assertEquals("gzip", response.getHeader("Content-Encoding"));
+    assertEquals(someLargeBody, decompress(response.getContentAsByteArray()));
+  }
+
+  @Test
+  public void testNotModifiedResponse() throws Exception {
+    request.addHeader("Accept-Encoding", "gzip");
+
+    configResponseCompressionFilter.doFilter(request, response,
+        (req, resp) -> ((HttpServletResponse) resp).setStatus(HttpServletResponse.SC_NOT_MODIFIED));
+
+    assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+    assertNull(response.getHeader("Content-Encoding"));
+    assertEquals(0, response.getContentAsByteArray().length);
+  }
+
+  @Test
+  public void testCompressOnlyOnce() throws Exception {
+    byte[] body = someLargeBody.getBytes(Charsets.UTF_8);
+
+    CompressedBody compressed = configResponseCompressionFilter.compress("someKey", body, null);
+    CompressedBody anotherCompressed = configResponseCompressionFilter.compress("someKey", body.clone(), null);
+
+    assertSame(compressed, anotherCompressed);
+    assertArrayEquals(body, decompress(compressed.getBody()).getBytes(Charsets.UTF_8));
+  }
+
+  @Test
+  public void testNamedBodyNotProducedWhenCached() throws Exception {
+    String someBodyName = "someBodyName";
+    request.addHeader("Accept-Encoding", "gzip");
+
+    configResponseCompressionFilter.doFilter(request, response, (req, resp) -> {
+      assertFalse(ConfigResponseCompressionFilter.nameResponseBody((HttpServletRequest) req, someBodyName));
+      chainWriting(someLargeBody).doFilter(req, resp);
+    });
+
+    MockHttpServletRequest anotherRequest = new MockHttpServletRequest();
+    MockHttpServletResponse anotherResponse = new MockHttpServletResponse();
+    anotherRequest.addHeader("Accept-Encoding", "gzip");
+
+    configResponseCompressionFilter.doFilter(anotherRequest, anotherResponse, (req, resp) ->
+        assertTrue(ConfigResponseCompressionFilter.nameResponseBody((HttpServletRequest) req, someBodyName)));
+
+    assertEquals("gzip", anotherResponse.getHeader("Content-Encoding"));
+    assertEquals("application/json;charset=UTF-8", anotherResponse.getContentType());
+    assertEquals(someLargeBody, decompress(anotherResponse.getContentAsByteArray()));
+  }
+
+  @Test
+  public void testNamedBodyWhenNotCompressed() throws Exception {
+    configResponseCompressionFilter.doFilter(request, response, (req, resp) -> {
+      assertFalse(ConfigResponseCompressionFilter.nameResponseBody((HttpServletRequest) req, "someBodyName"));
+      chainWriting(someLargeBody).doFilter(req, resp);
+    });
+
+    assertNull(response.getHeader("Content-Encoding"));
+    assertEquals(someLargeBody, response.getContentAsString());
+  }
+
+  private FilterChain chainWriting(String body) {
+    return (req, resp) -> {
+      resp.setContentType("application/json;charset=UTF-8");
+      resp.getOutputStream().write(body.getBytes(Charsets.UTF_8));
+    };
+  }
+
+  private String decompress(byte[] compressed) throws Exception {
+    return new String(ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed))),
+        Charsets.UTF_8);
+  }
+}
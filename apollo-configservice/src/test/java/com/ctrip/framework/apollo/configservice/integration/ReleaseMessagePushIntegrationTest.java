@@ -0,0 +1,98 @@
+package com.ctrip.framework.apollo.configservice.integration;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.message.ReleaseMessageScanner;
+import com.ctrip.framework.apollo.biz.repository.ReleaseMessageRepository;
+import com.ctrip.framework.apollo.configservice.controller.ReleaseMessageController;
+import com.ctrip.framework.apollo.metaservice.service.DiscoveryService;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.SettableFuture;
+import com.netflix.appinfo.InstanceInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pushes a release message id the way admin service does and checks the message reaches the scanner listeners
+ * long before the next database scan
+ */
+public class ReleaseMessagePushIntegrationTest extends AbstractBaseIntegrationTest {
+  @Autowired
+  private ReleaseMessageController releaseMessageController;
+  @Autowired
+  private ReleaseMessageRepository releaseMessageRepository;
+
+  private Object originalReleaseMessageScanner;
+  private Object originalBizConfig;
+  private Object originalDiscoveryService;
+  private ReleaseMessageScanner releaseMessageScanner;
+  private int fallbackScanInterval;
+
+  @Before
+  public void setUp() throws Exception {
+    originalReleaseMessageScanner = ReflectionTestUtils.getField(releaseMessageController, "releaseMessageScanner");
+    originalBizConfig = ReflectionTestUtils.getField(releaseMessageController, "bizConfig");
+    originalDiscoveryService = ReflectionTestUtils.getField(releaseMessageController, "discoveryService");
+
+    fallbackScanInterval = 60000;
+    BizConfig bizConfig = mock(BizConfig.class);
+    when(bizConfig.isReleaseMessagePushEnabled()).thenReturn(true);
+    when(bizConfig.releaseMessageFallbackScanIntervalInMilli()).thenReturn(fallbackScanInterval);
+
+    InstanceInfo someAdminServiceInstance = mock(InstanceInfo.class);
+    when(someAdminServiceInstance.getIPAddr()).thenReturn("127.0.0.1");
+    DiscoveryService discoveryService = mock(DiscoveryService.class);
+    when(discoveryService.getAdminServiceInstances()).thenReturn(Lists.newArrayList(someAdminServiceInstance));
+
+    // a scanner of its own, so the scans of the shared context keep their interval for the other tests
+    releaseMessageScanner = new ReleaseMessageScanner();
+    ReflectionTestUtils.setField(releaseMessageScanner, "releaseMessageRepository", releaseMessageRepository);
+    ReflectionTestUtils.setField(releaseMessageScanner, "bizConfig", bizConfig);
+    releaseMessageScanner.afterPropertiesSet();
+
+    ReflectionTestUtils.setField(releaseMessageController, "releaseMessageScanner", releaseMessageScanner);
+    ReflectionTestUtils.setField(releaseMessageController, "bizConfig", bizConfig);
+    ReflectionTestUtils.setField(releaseMessageController, "discoveryService", discoveryService);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    ReflectionTestUtils.setField(releaseMessageController, "releaseMessageScanner", originalReleaseMessageScanner);
+    ReflectionTestUtils.setField(releaseMessageController, "bizConfig", originalBizConfig);
+    ReflectionTestUtils.setField(releaseMessageController, "discoveryService", originalDiscoveryService);
+  }
+
+  @Test(timeout = 5000L)
+  @Sql(scripts = "/integration-test/cleanup.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void testPushedMessageReachesListenersWithoutWaitingForScan() throws Exception {
+    String someMessage = "someAppId+someCluster+someNamespace";
+    SettableFuture<ReleaseMessage> someListenerFuture = SettableFuture.create();
+    releaseMessageScanner.addMessageListener((message, channel) -> someListenerFuture.set(message));
+
+    ReleaseMessage someReleaseMessage = releaseMessageRepository.save(new ReleaseMessage(someMessage));
+
+    ResponseEntity<Void> response = restTemplate.postForEntity("http://127.0.0.1:{port}/releasemessages?id={id}",
+        null, Void.class, port, someReleaseMessage.getId());
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+
+    // the next database scan is a whole fallback interval away
+    ReleaseMessage someListenerMessage = someListenerFuture.get(fallbackScanInterval / 2, TimeUnit.MILLISECONDS);
+
+    assertEquals(someReleaseMessage.getId(), someListenerMessage.getId());
+    assertEquals(someMessage, someListenerMessage.getMessage());
+  }
+}
@@ -0,0 +1,147 @@
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.ctrip.framework.apollo.configservice.service.ConfigDeltaService.ConfigDelta;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.google.common.base.Strings;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares the full config response with the delta response of a large namespace, in server CPU and in bytes on the
+ * wire.
+ *
+ * <ul>
+ *   <li>{@code fullResponse}: the full configurations serialized like the config controller does</li>
+ *   <li>{@code deltaResponse}: the delta calculated and serialized, i.e. a miss of the delta cache</li>
+ *   <li>{@code cachedDeltaResponse}: a delta already in the cache serialized</li>
+ * </ul>
+ *
+ * The bytes on the wire don't vary between runs, so the main method prints them for every namespace size, plain and
+ * gzipped, before it runs the benchmarks. Run it after {@code mvn test-compile}, the benchmarks are not part of the test
+ * suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ConfigDeltaBenchmark {
+  private static final String[] KEYS = {"1000", "10000"};
+  private static final String[] CHANGED_KEYS = {"1", "100"};
+  private static final int VALUE_LENGTH = 50;
+
+  @Param({"1000", "10000"})
+  public int keys;
+
+  @Param({"1", "100"})
+  public int changedKeys;
+
+  private final Gson gson = new Gson();
+  private final ConfigDeltaService configDeltaService = new ConfigDeltaService();
+  private String fromReleaseKey;
+  private String toReleaseKey;
+  private Map<String, String> fromConfigurations;
+  private Map<String, String> toConfigurations;
+  private ConfigDelta cachedDelta;
+
+  @Setup
+  public void setUp() {
+    fromReleaseKey = "20170101000000-someReleaseKey";
+    toReleaseKey = "20170102000000-someReleaseKey";
+    fromConfigurations = Maps.newHashMap();
+    for (int i = 0; i < keys; i++) {
+      fromConfigurations.put("some.key." + i, Strings.padEnd("value" + i, VALUE_LENGTH, 'v'));
+    }
+    toConfigurations = Maps.newHashMap(fromConfigurations);
+    for (int i = 0; i < changedKeys; i++) {
+      toConfigurations.put("some.key." + i, Strings.padEnd("changed" + i, VALUE_LENGTH, 'v'));
+    }
+    cachedDelta = configDeltaService.calculateDelta(fromConfigurations, toConfigurations);
+  }
+
+  @Benchmark
+  public byte[] fullResponse() {
+    return serialize(assembleFullConfig());
+  }
+
+  @Benchmark
+  public byte[] deltaResponse() {
+    return serialize(assembleDeltaConfig(configDeltaService.calculateDelta(fromConfigurations, toConfigurations)));
+  }
+
+  @Benchmark
+  public byte[] cachedDeltaResponse() {
+    return serialize(assembleDeltaConfig(cachedDelta));
+  }
+
+  private ApolloConfig assembleFullConfig() {
+    ApolloConfig apolloConfig = new ApolloConfig("someAppId", "default", "application", toReleaseKey);
+    apolloConfig.setConfigurations(toConfigurations);
+    return apolloConfig;
+  }
+
+  private ApolloConfig assembleDeltaConfig(ConfigDelta delta) {
+    ApolloConfig apolloConfig = new ApolloConfig("someAppId", "default", "application", toReleaseKey);
+    apolloConfig.setBaseReleaseKey(fromReleaseKey);
+    apolloConfig.setConfigurations(delta.getChanges());
+    apolloConfig.setDeletedKeys(delta.getDeletedKeys());
+    return apolloConfig;
+  }
+
+  private byte[] serialize(ApolloConfig apolloConfig) {
+    return gson.toJson(apolloConfig).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static int gzippedSize(byte[] body) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(body);
+    }
+    return out.size();
+  }
+
+  private static void printResponseSizes() throws IOException {
+    System.out.println("keys\tchangedKeys\tfull\tfullGzipped\tdelta\tdeltaGzipped");
+    for (String keys : KEYS) {
+      for (String changedKeys : CHANGED_KEYS) {
+        ConfigDeltaBenchmark benchmark = new ConfigDeltaBenchmark();
+        benchmark.keys = Integer.parseInt(keys);
+        benchmark.changedKeys = Integer.parseInt(changedKeys);
+        benchmark.setUp();
+        byte[] full = benchmark.fullResponse();
+        byte[] delta = benchmark.cachedDeltaResponse();
+        System.out.println(String.format("%s\t%s\t%d\t%d\t%d\t%d", keys, changedKeys, full.length, gzippedSize(full),
+            delta.length, gzippedSize(delta)));
+      }
+    }
+  }
+
+  public static void main(String[] args) throws IOException, RunnerException {
+    printResponseSizes();
+    new Runner(new OptionsBuilder().include(ConfigDeltaBenchmark.class.getSimpleName()).addProfiler("gc").build())
+        .run();
+  }
+}
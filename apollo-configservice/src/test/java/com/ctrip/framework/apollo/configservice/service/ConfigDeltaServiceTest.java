@@ -0,0 +1,96 @@
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.service.ReleaseService;
+import com.ctrip.framework.apollo.configservice.service.ConfigDeltaService.ConfigDelta;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.gson.Gson;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConfigDeltaServiceTest {
+  private ConfigDeltaService configDeltaService;
+  @Mock
+  private ReleaseService releaseService;
+  private Gson gson = new Gson();
+  private String someReleaseKey;
+  private String somePublicReleaseKey;
+  private String someNewReleaseKey;
+
+  @Before
+  public void setUp() throws Exception {
+    configDeltaService = new ConfigDeltaService();
+    ReflectionTestUtils.setField(configDeltaService, "releaseService", releaseService);
+    ReleaseConfigurationCache releaseConfigurationCache = new ReleaseConfigurationCache();
+    ReflectionTestUtils.setField(releaseConfigurationCache, "gson", gson);
+    ReflectionTestUtils.setField(configDeltaService, "releaseConfigurationCache", releaseConfigurationCache);
+
+    someReleaseKey = "20170101000000-someReleaseKey";
+    somePublicReleaseKey = "20170101000000-somePublicReleaseKey";
+    someNewReleaseKey = "20170102000000-someNewReleaseKey";
+  }
+
+  @Test
+  public void testFindDelta() throws Exception {
+    Release someRelease = assembleRelease(someReleaseKey,
+        ImmutableMap.of("k1", "v1", "k2", "v2", "k3", "v3", "k4", "v4"));
+    Release somePublicRelease = assembleRelease(somePublicReleaseKey, ImmutableMap.of("k1", "p1", "k5", "p5"));
+    String fromReleaseKey = someReleaseKey + "+" + somePublicReleaseKey;
+    String toReleaseKey = someNewReleaseKey + "+" + somePublicReleaseKey;
+    Map<String, String> toConfigurations = ImmutableMap.of("k1", "v1", "k2", "v2", "k3", "changed", "k5", "p5",
+        "k6", "v6");
+
+    when(releaseService.findByReleaseKeys(Sets.newHashSet(someReleaseKey, somePublicReleaseKey)))
+        .thenReturn(Lists.newArrayList(somePublicRelease, someRelease));
+
+    ConfigDelta delta = configDeltaService.findDelta(fromReleaseKey, toReleaseKey, toConfigurations);
+    ConfigDelta anotherDelta = configDeltaService.findDelta(fromReleaseKey, toReleaseKey, toConfigurations);
+
+    assertEquals(ImmutableMap.of("k3", "changed", "k6", "v6"), delta.getChanges());
+    assertEquals(Lists.newArrayList("k4"), delta.getDeletedKeys());
+    assertSame(delta, anotherDelta);
+    verify(releaseService, times(1)).findByReleaseKeys(Sets.newHashSet(someReleaseKey, somePublicReleaseKey));
+  }
+
+  @Test
+  public void testFindDeltaWithReleaseNotFound() throws Exception {
+    when(releaseService.findByReleaseKeys(Sets.newHashSet(someReleaseKey))).thenReturn(Collections.emptyList());
+
+    assertNull(configDeltaService.findDelta(someReleaseKey, someNewReleaseKey, ImmutableMap.of("k1", "v1")));
+  }
+
+  @Test
+  public void testFindDeltaNotSmallerThanFullConfigurations() throws Exception {
+    Release someRelease = assembleRelease(someReleaseKey, ImmutableMap.of("k1", "v1", "k2", "v2"));
+
+    when(releaseService.findByReleaseKeys(Sets.newHashSet(someReleaseKey)))
+        .thenReturn(Lists.newArrayList(someRelease));
+
+    assertNull(configDeltaService.findDelta(someReleaseKey, someNewReleaseKey, ImmutableMap.of("k1", "changed")));
+  }
+
+  private Release assembleRelease(String releaseKey, Map<String, String> configurations) {
+    Release release = new Release();
+    release.setReleaseKey(releaseKey);
+    release.setConfigurations(gson.toJson(configurations));
+    return release;
+  }
+}
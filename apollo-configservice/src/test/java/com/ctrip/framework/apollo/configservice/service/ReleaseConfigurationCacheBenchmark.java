@@ -0,0 +1,111 @@
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the config requests served per second by all processors, before and after the release configurations were
+ * cached.
+ *
+ * <ul>
+ *   <li>{@code parsePerRequest}: the configurations of the releases parsed with gson and merged on every request, as
+ *   ConfigController did before</li>
+ *   <li>{@code cachedConfigurations}: the merged configurations read from {@link ReleaseConfigurationCache}</li>
+ * </ul>
+ *
+ * Both serialize the response body, which is still done per request. The releases are an app release, or an app
+ * release and a public release like a namespace associated to a public one.
+ *
+ * Run the main method after {@code mvn test-compile}, the benchmarks are not part of the test suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(Threads.MAX)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ReleaseConfigurationCacheBenchmark {
+  private static final Type configurationTypeReference = new TypeToken<Map<String, String>>() {
+  }.getType();
+
+  @Param({"100", "1000"})
+  public int keys;
+
+  @Param({"1", "2"})
+  public int releases;
+
+  private final Gson gson = new Gson();
+  private ReleaseConfigurationCache releaseConfigurationCache;
+  private List<Release> someReleases;
+
+  @Setup
+  public void setUp() {
+    releaseConfigurationCache = new ReleaseConfigurationCache();
+    ReflectionTestUtils.setField(releaseConfigurationCache, "gson", gson);
+
+    someReleases = Lists.newArrayList();
+    for (int i = 0; i < releases; i++) {
+      Map<String, String> configurations = Maps.newHashMap();
+      for (int j = 0; j < keys; j++) {
+        configurations.put("some.key." + j, "release" + i + "-value" + j);
+      }
+      Release release = new Release();
+      release.setReleaseKey("20170101000000-someReleaseKey" + i);
+      release.setConfigurations(gson.toJson(configurations));
+      someReleases.add(release);
+    }
+  }
+
+  @Benchmark
+  public byte[] parsePerRequest() {
+    Map<String, String> result = Maps.newHashMap();
+    for (Release release : Lists.reverse(someReleases)) {
+      result.putAll(gson.fromJson(release.getConfigurations(), configurationTypeReference));
+    }
+    return serialize(result);
+  }
+
+  @Benchmark
+  public byte[] cachedConfigurations() {
+    return serialize(releaseConfigurationCache.getMergedConfigurations(someReleases));
+  }
+
+  private byte[] serialize(Map<String, String> configurations) {
+    ApolloConfig apolloConfig = new ApolloConfig("someAppId", "default", "application",
+        someReleases.get(0).getReleaseKey());
+    apolloConfig.setConfigurations(configurations);
+    return gson.toJson(apolloConfig).getBytes(StandardCharsets.UTF_8);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(ReleaseConfigurationCacheBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,78 @@
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ReleaseConfigurationCacheTest {
+  private ReleaseConfigurationCache releaseConfigurationCache;
+  private Gson gson;
+
+  @Before
+  public void setUp() throws Exception {
+    releaseConfigurationCache = new ReleaseConfigurationCache();
+    gson = new Gson();
+    ReflectionTestUtils.setField(releaseConfigurationCache, "gson", gson);
+  }
+
+  @Test
+  public void testGetConfigurationsParsesOnlyOnce() throws Exception {
+    Map<String, String> someConfigurations = ImmutableMap.of("someKey", "someValue");
+    Release someRelease = assembleRelease("someReleaseKey", someConfigurations);
+
+    Map<String, String> result = releaseConfigurationCache.getConfigurations(someRelease);
+    Map<String, String> anotherResult = releaseConfigurationCache.getConfigurations(someRelease);
+
+    assertEquals(someConfigurations, result);
+    assertSame(result, anotherResult);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testGetConfigurationsIsReadOnly() throws Exception {
+    Release someRelease = assembleRelease("someReleaseKey", ImmutableMap.of("someKey", "someValue"));
+
+    releaseConfigurationCache.getConfigurations(someRelease).put("someKey", "anotherValue");
+  }
+
+  @Test
+  public void testGetMergedConfigurations() throws Exception {
+    Release someAppRelease = assembleRelease("someAppReleaseKey", ImmutableMap.of("k1", "app"));
+    Release somePublicRelease = assembleRelease("somePublicReleaseKey", ImmutableMap.of("k1", "public", "k2",
+        "public"));
+
+    Map<String, String> result =
+        releaseConfigurationCache.getMergedConfigurations(Lists.newArrayList(someAppRelease, somePublicRelease));
+    Map<String, String> anotherResult =
+        releaseConfigurationCache.getMergedConfigurations(Lists.newArrayList(someAppRelease, somePublicRelease));
+
+    assertEquals(ImmutableMap.of("k1", "app", "k2", "public"), result);
+    assertSame(result, anotherResult);
+  }
+
+  @Test(expected = JsonSyntaxException.class)
+  public void testGetConfigurationsWithInvalidConfigurations() throws Exception {
+    Release someRelease = new Release();
+    someRelease.setReleaseKey("someReleaseKey");
+    someRelease.setConfigurations("xxx");
+
+    releaseConfigurationCache.getConfigurations(someRelease);
+  }
+
+  private Release assembleRelease(String releaseKey, Map<String, String> configurations) {
+    Release release = new Release();
+    release.setReleaseKey(releaseKey);
+    release.setConfigurations(gson.toJson(configurations));
+    return release;
+  }
+}
@@ -9,6 +9,7 @@ import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.biz.service.ReleaseMessageService;
 import com.ctrip.framework.apollo.biz.service.ReleaseService;
 import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
+import com.ctrip.framework.apollo.configservice.service.ReleaseConfigurationCache;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -36,6 +37,8 @@ public class ConfigServiceWithCacheTest {
   @Mock
   private ReleaseMessageService releaseMessageService;
   @Mock
+  private ReleaseConfigurationCache releaseConfigurationCache;
+  @Mock
   private Release someRelease;
   @Mock
   private ReleaseMessage someReleaseMessage;
@@ -52,6 +55,7 @@ public class ConfigServiceWithCacheTest {
     configServiceWithCache = new ConfigServiceWithCache();
     ReflectionTestUtils.setField(configServiceWithCache, "releaseService", releaseService);
     ReflectionTestUtils.setField(configServiceWithCache, "releaseMessageService", releaseMessageService);
+    ReflectionTestUtils.setField(configServiceWithCache, "releaseConfigurationCache", releaseConfigurationCache);
 
     configServiceWithCache.initialize();
 
@@ -242,6 +246,7 @@ public class ConfigServiceWithCacheTest {
     assertEquals(someRelease, release);
     assertEquals(someRelease, stillOldRelease);
     assertEquals(anotherRelease, shouldBeNewRelease);
+    verify(releaseConfigurationCache, times(1)).getConfigurations(anotherRelease);
 
     verify(releaseMessageService, times(2)).findLatestReleaseMessageForMessages(Lists.newArrayList(someKey));
     verify(releaseService, times(2)).findLatestActiveRelease(someAppId, someClusterName, someNamespaceName);
@@ -1,22 +1,35 @@
 package com.ctrip.framework.apollo.configservice.util;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.Instance;
 import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
 import com.ctrip.framework.apollo.biz.service.InstanceService;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -30,6 +43,8 @@ public class InstanceConfigAuditUtilTest {
 
   @Mock
   private InstanceService instanceService;
+  @Mock
+  private BizConfig bizConfig;
   private BlockingQueue<InstanceConfigAuditUtil.InstanceConfigAuditModel> audits;
 
   private String someAppId;
@@ -48,6 +63,7 @@ public class InstanceConfigAuditUtilTest {
     instanceConfigAuditUtil = new InstanceConfigAuditUtil();
 
     ReflectionTestUtils.setField(instanceConfigAuditUtil, "instanceService", instanceService);
+    ReflectionTestUtils.setField(instanceConfigAuditUtil, "bizConfig", bizConfig);
 
     audits = (BlockingQueue<InstanceConfigAuditUtil.InstanceConfigAuditModel>)
         ReflectionTestUtils.getField(instanceConfigAuditUtil, "audits");
@@ -95,5 +111,146 @@ public class InstanceConfigAuditUtilTest {
     verify(instanceService, times(1)).createInstanceConfig(any(InstanceConfig.class));
   }
 
+  @Test
+  public void testAuditDroppedWhenQueueIsFull() throws Exception {
+    for (int i = 0; i < 10000; i++) {
+      assertTrue(instanceConfigAuditUtil.audit(someAppId, someClusterName, someDataCenter, someIp,
+          someConfigAppId, someConfigClusterName, someConfigNamespace, someReleaseKey));
+    }
+
+    assertFalse(instanceConfigAuditUtil.audit(someAppId, someClusterName, someDataCenter, someIp,
+        someConfigAppId, someConfigClusterName, someConfigNamespace, someReleaseKey));
+    assertEquals(1, instanceConfigAuditUtil.droppedAudits());
+  }
+
+  @Test
+  public void testDoAuditInBatch() throws Exception {
+    long someInstanceId = 1;
+    String anotherConfigNamespace = "anotherConfigNamespace";
+    String someOldReleaseKey = "someOldReleaseKey";
+    Instance someInstance = mock(Instance.class);
+    InstanceConfig someInstanceConfig = new InstanceConfig();
+    someInstanceConfig.setInstanceId(someInstanceId);
+    someInstanceConfig.setConfigAppId(someConfigAppId);
+    someInstanceConfig.setConfigNamespaceName(someConfigNamespace);
+    someInstanceConfig.setReleaseKey(someOldReleaseKey);
+
+    when(someInstance.getId()).thenReturn(someInstanceId);
+    when(instanceService.findInstance(someAppId, someClusterName, someDataCenter, someIp)).thenReturn(someInstance);
+    when(instanceService.findInstanceConfigsByInstanceIds(Sets.newHashSet(someInstanceId)))
+        .thenReturn(Lists.newArrayList(someInstanceConfig));
+
+    List<InstanceConfigAuditUtil.InstanceConfigAuditModel> auditModels = Lists.newArrayList(someAuditModel,
+        new InstanceConfigAuditUtil.InstanceConfigAuditModel(someAppId, someClusterName, someDataCenter, someIp,
+            someConfigAppId, someConfigClusterName, anotherConfigNamespace, someReleaseKey));
+
+    instanceConfigAuditUtil.doAudit(auditModels);
+
+    ArgumentCaptor<List> instanceConfigsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(instanceService, times(1)).findInstance(someAppId, someClusterName, someDataCenter, someIp);
+    verify(instanceService, times(1)).batchSaveInstanceConfigs(instanceConfigsCaptor.capture());
+    verify(instanceService, never()).createInstanceConfig(any(InstanceConfig.class));
+    verify(instanceService, never()).updateInstanceConfig(any(InstanceConfig.class));
+
+    List<InstanceConfig> savedInstanceConfigs = instanceConfigsCaptor.getValue();
+    assertEquals(2, savedInstanceConfigs.size());
+    assertSame(someInstanceConfig, savedInstanceConfigs.get(0));
+    assertEquals(someReleaseKey, savedInstanceConfigs.get(0).getReleaseKey());
+    assertEquals(someConfigClusterName, savedInstanceConfigs.get(0).getConfigClusterName());
+    assertEquals(anotherConfigNamespace, savedInstanceConfigs.get(1).getConfigNamespaceName());
+    assertEquals(someInstanceId, savedInstanceConfigs.get(1).getInstanceId());
+
+    //audited already
+    instanceConfigAuditUtil.doAudit(auditModels);
+
+    verify(instanceService, times(1)).batchSaveInstanceConfigs(anyListOf(InstanceConfig.class));
+  }
+
+  @Test
+  public void testDoAuditInBatchWithConflict() throws Exception {
+    long someInstanceId = 1;
+    Instance someInstance = mock(Instance.class);
+
+    when(someInstance.getId()).thenReturn(someInstanceId);
+    when(instanceService.findInstance(someAppId, someClusterName, someDataCenter, someIp)).thenReturn(someInstance);
+    when(instanceService.batchSaveInstanceConfigs(anyListOf(InstanceConfig.class)))
+        .thenThrow(new DataIntegrityViolationException("some conflict"));
+
+    instanceConfigAuditUtil.doAudit(Lists.newArrayList(someAuditModel));
+
+    verify(instanceService, times(1)).findInstanceConfig(someInstanceId, someConfigAppId, someConfigNamespace);
+    verify(instanceService, times(1)).createInstanceConfig(any(InstanceConfig.class));
+  }
+
+  @Test
+  public void testAuditCoalescedAndFlushedInBatch() throws Exception {
+    long someInstanceId = 1;
+    String anotherConfigNamespace = "anotherConfigNamespace";
+    String anotherReleaseKey = "anotherReleaseKey";
+    Instance someInstance = mock(Instance.class);
+
+    when(someInstance.getId()).thenReturn(someInstanceId);
+    when(instanceService.findInstance(someAppId, someClusterName, someDataCenter, someIp)).thenReturn(someInstance);
+    when(bizConfig.instanceConfigAuditThreads()).thenReturn(1);
+    when(bizConfig.instanceConfigAuditBatch()).thenReturn(2);
+    when(bizConfig.instanceConfigAuditFlushIntervalInMilli()).thenReturn(60000);
+    instanceConfigAuditUtil.afterPropertiesSet();
+
+    instanceConfigAuditUtil.audit(someAppId, someClusterName, someDataCenter, someIp, someConfigAppId,
+        someConfigClusterName, someConfigNamespace, someReleaseKey);
+    instanceConfigAuditUtil.audit(someAppId, someClusterName, someDataCenter, someIp, someConfigAppId,
+        someConfigClusterName, someConfigNamespace, anotherReleaseKey);
+    instanceConfigAuditUtil.audit(someAppId, someClusterName, someDataCenter, someIp, someConfigAppId,
+        someConfigClusterName, anotherConfigNamespace, someReleaseKey);
+
+    for (int i = 0; i < 200 && instanceConfigAuditUtil.flushedAudits() < 2; i++) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+
+    ArgumentCaptor<List> instanceConfigsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(instanceService, times(1)).batchSaveInstanceConfigs(instanceConfigsCaptor.capture());
+    List<InstanceConfig> savedInstanceConfigs = instanceConfigsCaptor.getValue();
+
+    assertEquals(2, instanceConfigAuditUtil.flushedAudits());
+    assertEquals(1, instanceConfigAuditUtil.coalescedAudits());
+    assertEquals(2, savedInstanceConfigs.size());
+    assertEquals(anotherReleaseKey, savedInstanceConfigs.get(0).getReleaseKey());
+    assertEquals(anotherConfigNamespace, savedInstanceConfigs.get(1).getConfigNamespaceName());
+  }
+
+  @Test
+  public void testFlushDroppedWhenWriterFallsBehind() throws Exception {
+    long someInstanceId = 1;
+    Instance someInstance = mock(Instance.class);
+    CountDownLatch writerReleased = new CountDownLatch(1);
+
+    when(someInstance.getId()).thenReturn(someInstanceId);
+    when(instanceService.findInstance(someAppId, someClusterName, someDataCenter, someIp)).thenReturn(someInstance);
+    when(instanceService.batchSaveInstanceConfigs(anyListOf(InstanceConfig.class))).thenAnswer(invocation -> {
+      writerReleased.await(5, TimeUnit.SECONDS);
+      return null;
+    });
+    when(bizConfig.instanceConfigAuditThreads()).thenReturn(1);
+    when(bizConfig.instanceConfigAuditBatch()).thenReturn(1);
+    when(bizConfig.instanceConfigAuditFlushIntervalInMilli()).thenReturn(100);
+    instanceConfigAuditUtil.afterPropertiesSet();
+
+    //one flush being written, two pending and one dropped
+    for (int i = 0; i < 4; i++) {
+      instanceConfigAuditUtil.audit(someAppId, someClusterName, someDataCenter, someIp, someConfigAppId,
+          someConfigClusterName, someConfigNamespace + i, someReleaseKey);
+    }
 
+    for (int i = 0; i < 200 && instanceConfigAuditUtil.droppedAudits() < 1; i++) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    writerReleased.countDown();
+
+    for (int i = 0; i < 200 && instanceConfigAuditUtil.flushedAudits() < 3; i++) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+
+    assertEquals(1, instanceConfigAuditUtil.droppedAudits());
+    assertEquals(3, instanceConfigAuditUtil.flushedAudits());
+  }
 }
@@ -0,0 +1,107 @@
+package com.ctrip.framework.apollo.configservice.util;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.google.common.collect.Lists;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NotificationDispatcherTest {
+  private NotificationDispatcher notificationDispatcher;
+  @Mock
+  private BizConfig bizConfig;
+  private String someWatchKey;
+  private String anotherWatchKey;
+  private ApolloConfigNotification someNotification;
+
+  @Before
+  public void setUp() throws Exception {
+    notificationDispatcher = new NotificationDispatcher();
+    ReflectionTestUtils.setField(notificationDispatcher, "bizConfig", bizConfig);
+
+    someWatchKey = "someAppId+default+application";
+    anotherWatchKey = "anotherAppId+default+application";
+    someNotification = new ApolloConfigNotification("application", 1);
+  }
+
+  @Test
+  public void testDispatchWithRate() throws Exception {
+    int someBatch = 5;
+    int someRate = 100;
+    int someClients = 20;
+    setUpDispatcher(1, someBatch, someRate);
+
+    List<DeferredResultWrapper> results = assembleDeferredResults(someClients);
+
+    long start = System.currentTimeMillis();
+    notificationDispatcher.dispatch(someWatchKey, results, someNotification);
+
+    waitForAllNotified(results);
+    long elapsed = System.currentTimeMillis() - start;
+
+    // the last batch may only start after (someClients - someBatch) permits are consumed
+    assertTrue(elapsed >= (someClients - someBatch) * 1000 / someRate - 10);
+
+    for (int i = 0; i < 100 && notificationDispatcher.pendingFanOuts() > 0; i++) {
+      TimeUnit.MILLISECONDS.sleep(5);
+    }
+    assertEquals(0, notificationDispatcher.pendingFanOuts());
+    assertTrue(notificationDispatcher.lastNotifiedLatencyPercentile(99) >=
+        notificationDispatcher.firstNotifiedLatencyPercentile(99));
+  }
+
+  @Test
+  public void testDispatchIsFairAmongWatchKeys() throws Exception {
+    setUpDispatcher(1, 1, 100);
+
+    List<DeferredResultWrapper> someResults = assembleDeferredResults(50);
+    List<DeferredResultWrapper> anotherResults = assembleDeferredResults(2);
+
+    notificationDispatcher.dispatch(someWatchKey, someResults, someNotification);
+    notificationDispatcher.dispatch(anotherWatchKey, anotherResults, someNotification);
+
+    waitForAllNotified(anotherResults);
+
+    assertTrue(anotherResults.stream().allMatch(result -> result.getResult().hasResult()));
+    assertFalse(someResults.get(someResults.size() - 1).getResult().hasResult());
+  }
+
+  private void setUpDispatcher(int threads, int batch, int rate) throws Exception {
+    when(bizConfig.releaseMessageNotificationThreads()).thenReturn(threads);
+    when(bizConfig.releaseMessageNotificationBatch()).thenReturn(batch);
+    when(bizConfig.releaseMessageNotificationRate()).thenReturn(rate);
+    notificationDispatcher.afterPropertiesSet();
+  }
+
+  private List<DeferredResultWrapper> assembleDeferredResults(int size) {
+    List<DeferredResultWrapper> results = Lists.newArrayList();
+    for (int i = 0; i < size; i++) {
+      results.add(new DeferredResultWrapper());
+    }
+    return results;
+  }
+
+  private void waitForAllNotified(List<DeferredResultWrapper> results) throws InterruptedException {
+    for (int i = 0; i < 500; i++) {
+      if (results.stream().allMatch(result -> result.getResult().hasResult())) {
+        return;
+      }
+      TimeUnit.MILLISECONDS.sleep(5);
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package com.ctrip.framework.apollo.configservice.wrapper;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link DeferredResultRegistry} with the synchronized multimap NotificationControllerV2 used before.
+ *
+ * <ul>
+ *   <li>{@code registerAndUnregister}: long polling clients coming and going from as many threads as there are
+ *   processors</li>
+ *   <li>{@code longPolling}: three threads registering and unregistering clients while one thread looks up the
+ *   clients of the watch keys like a release message does</li>
+ * </ul>
+ *
+ * With a single watch key all the clients hit the same key, which is the worst case for the registry as well.
+ *
+ * Run the main method after {@code mvn test-compile}, the benchmarks are not part of the test suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class DeferredResultRegistryBenchmark {
+  private static final int WAITING_CLIENTS_PER_WATCH_KEY = 10;
+
+  @Param({"registry", "synchronizedMultimap"})
+  public String implementation;
+
+  @Param({"1", "1000"})
+  public int watchKeys;
+
+  private Registry registry;
+  private String[] keys;
+
+  @Setup
+  public void setUp() {
+    registry = "registry".equals(implementation) ? new ConcurrentRegistry() : new SynchronizedMultimapRegistry();
+    keys = new String[watchKeys];
+    for (int i = 0; i < watchKeys; i++) {
+      keys[i] = "someAppId+default+namespace" + i;
+      for (int j = 0; j < WAITING_CLIENTS_PER_WATCH_KEY; j++) {
+        registry.register(keys[i], new DeferredResultWrapper());
+      }
+    }
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public void registerAndUnregister(Client client) {
+    String key = keys[client.next(keys.length)];
+    registry.register(key, client.wrapper);
+    registry.unregister(key, client.wrapper);
+  }
+
+  @Benchmark
+  @Group("longPolling")
+  @GroupThreads(3)
+  public void clients(Client client) {
+    String key = keys[client.next(keys.length)];
+    registry.register(key, client.wrapper);
+    registry.unregister(key, client.wrapper);
+  }
+
+  @Benchmark
+  @Group("longPolling")
+  @GroupThreads(1)
+  public List<DeferredResultWrapper> releaseMessages(Client client) {
+    return registry.get(keys[client.next(keys.length)]);
+  }
+
+  @State(Scope.Thread)
+  public static class Client {
+    private final DeferredResultWrapper wrapper = new DeferredResultWrapper();
+    private int position;
+
+    int next(int length) {
+      if (++position >= length) {
+        position = 0;
+      }
+      return position;
+    }
+  }
+
+  private interface Registry {
+    void register(String watchKey, DeferredResultWrapper deferredResultWrapper);
+
+    void unregister(String watchKey, DeferredResultWrapper deferredResultWrapper);
+
+    List<DeferredResultWrapper> get(String watchKey);
+  }
+
+  private static class ConcurrentRegistry implements Registry {
+    private final DeferredResultRegistry deferredResults = new DeferredResultRegistry();
+
+    @Override
+    public void register(String watchKey, DeferredResultWrapper deferredResultWrapper) {
+      deferredResults.register(watchKey, deferredResultWrapper);
+    }
+
+    @Override
+    public void unregister(String watchKey, DeferredResultWrapper deferredResultWrapper) {
+      deferredResults.unregister(watchKey, deferredResultWrapper);
+    }
+
+    @Override
+    public List<DeferredResultWrapper> get(String watchKey) {
+      return deferredResults.get(watchKey);
+    }
+  }
+
+  private static class SynchronizedMultimapRegistry implements Registry {
+    private final Multimap<String, DeferredResultWrapper> deferredResults = Multimaps
+        .synchronizedSetMultimap(HashMultimap.create());
+
+    @Override
+    public void register(String watchKey, DeferredResultWrapper deferredResultWrapper) {
+      deferredResults.put(watchKey, deferredResultWrapper);
+    }
+
+    @Override
+    public void unregister(String watchKey, DeferredResultWrapper deferredResultWrapper) {
+      deferredResults.remove(watchKey, deferredResultWrapper);
+    }
+
+    @Override
+    public List<DeferredResultWrapper> get(String watchKey) {
+      // iterating a synchronized multimap needs its lock, or the copy may fail with ConcurrentModificationException
+      synchronized (deferredResults) {
+        return Lists.newArrayList(deferredResults.get(watchKey));
+      }
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(DeferredResultRegistryBenchmark.class.getSimpleName()).build()).run();
+  }
+}
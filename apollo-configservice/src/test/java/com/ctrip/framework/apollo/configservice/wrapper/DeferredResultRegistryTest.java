@@ -0,0 +1,102 @@
+package com.ctrip.framework.apollo.configservice.wrapper;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DeferredResultRegistryTest {
+  private DeferredResultRegistry registry;
+  private String someWatchKey;
+  private String anotherWatchKey;
+
+  @Before
+  public void setUp() throws Exception {
+    registry = new DeferredResultRegistry();
+    someWatchKey = "someAppId+default+application";
+    anotherWatchKey = "someAppId+default+somePublicNamespace";
+  }
+
+  @Test
+  public void testRegisterAndUnregister() throws Exception {
+    DeferredResultWrapper someWrapper = new DeferredResultWrapper();
+    DeferredResultWrapper anotherWrapper = new DeferredResultWrapper();
+
+    registry.register(someWatchKey, someWrapper);
+    registry.register(someWatchKey, someWrapper);
+    registry.register(someWatchKey, anotherWrapper);
+    registry.register(anotherWatchKey, someWrapper);
+
+    assertEquals(3, registry.size());
+    assertEquals(2, registry.watchKeySize());
+    assertEquals(2, registry.get(someWatchKey).size());
+    assertTrue(registry.containsKey(anotherWatchKey));
+
+    registry.unregister(anotherWatchKey, someWrapper);
+    registry.unregister(anotherWatchKey, someWrapper);
+
+    assertFalse(registry.containsKey(anotherWatchKey));
+    assertTrue(registry.get(anotherWatchKey).isEmpty());
+    assertEquals(2, registry.size());
+    assertEquals(3, registry.peakSize());
+    assertEquals(3, registry.registerCount());
+    assertEquals(1, registry.unregisterCount());
+    assertEquals(6, registry.operationCount());
+    assertEquals(1, registry.peakOperationsInFlight());
+    assertTrue(registry.maxOperationNanos() >= registry.averageOperationNanos());
+  }
+
+  @Test
+  public void testGetReturnsSnapshot() throws Exception {
+    DeferredResultWrapper someWrapper = new DeferredResultWrapper();
+    DeferredResultWrapper anotherWrapper = new DeferredResultWrapper();
+
+    registry.register(someWatchKey, someWrapper);
+    registry.register(someWatchKey, anotherWrapper);
+
+    List<DeferredResultWrapper> snapshot = registry.get(someWatchKey);
+
+    registry.unregister(someWatchKey, someWrapper);
+
+    assertEquals(2, snapshot.size());
+    assertEquals(1, registry.get(someWatchKey).size());
+  }
+
+  @Test
+  public void testConcurrentRegisterAndUnregister() throws Exception {
+    int someThreads = 8;
+    int someRounds = 1000;
+    ExecutorService executorService = Executors.newFixedThreadPool(someThreads);
+    CountDownLatch latch = new CountDownLatch(someThreads);
+
+    for (int i = 0; i < someThreads; i++) {
+      executorService.submit(() -> {
+        for (int j = 0; j < someRounds; j++) {
+          DeferredResultWrapper wrapper = new DeferredResultWrapper();
+          registry.register(someWatchKey, wrapper);
+          registry.register(anotherWatchKey, wrapper);
+          registry.unregister(someWatchKey, wrapper);
+          registry.unregister(anotherWatchKey, wrapper);
+        }
+        latch.countDown();
+      });
+    }
+
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    executorService.shutdown();
+
+    assertEquals(0, registry.size());
+    assertEquals(0, registry.watchKeySize());
+    assertEquals(someThreads * someRounds * 2, registry.registerCount());
+    assertEquals(someThreads * someRounds * 4, registry.operationCount());
+    assertTrue(registry.peakOperationsInFlight() <= someThreads);
+  }
+}
@@ -1,5 +1,6 @@
 package com.ctrip.framework.apollo.core.dto;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -17,6 +18,13 @@ public class ApolloConfig {
 
   private String releaseKey;
 
+  /**
+   * if not null, configurations only contain the added and changed items since this release key
+   */
+  private String baseReleaseKey;
+
+  private List<String> deletedKeys;
+
   public ApolloConfig() {
   }
 
@@ -70,6 +78,22 @@ public class ApolloConfig {
     this.configurations = configurations;
   }
 
+  public String getBaseReleaseKey() {
+    return baseReleaseKey;
+  }
+
+  public void setBaseReleaseKey(String baseReleaseKey) {
+    this.baseReleaseKey = baseReleaseKey;
+  }
+
+  public List<String> getDeletedKeys() {
+    return deletedKeys;
+  }
+
+  public void setDeletedKeys(List<String> deletedKeys) {
+    this.deletedKeys = deletedKeys;
+  }
+
   @Override
   public String toString() {
     final StringBuilder sb = new StringBuilder("ApolloConfig{");
@@ -78,6 +102,10 @@ public class ApolloConfig {
     sb.append(", namespaceName='").append(namespaceName).append('\'');
     sb.append(", configurations=").append(configurations);
     sb.append(", releaseKey='").append(releaseKey).append('\'');
+    if (baseReleaseKey != null) {
+      sb.append(", baseReleaseKey='").append(baseReleaseKey).append('\'');
+      sb.append(", deletedKeys=").append(deletedKeys);
+    }
     sb.append('}');
     return sb.toString();
   }
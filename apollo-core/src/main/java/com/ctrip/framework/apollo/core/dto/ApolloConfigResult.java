@@ -0,0 +1,62 @@
+package com.ctrip.framework.apollo.core.dto;
+
+/**
+ * The result of one namespace in a batch config query
+ */
+public class ApolloConfigResult {
+
+  private String namespaceName;
+
+  /**
+   * same as the status code of the single namespace query, i.e. 200, 304 or 404
+   */
+  private int statusCode;
+
+  /**
+   * only present when statusCode is 200
+   */
+  private ApolloConfig config;
+
+  public ApolloConfigResult() {
+  }
+
+  public ApolloConfigResult(String namespaceName, int statusCode, ApolloConfig config) {
+    this.namespaceName = namespaceName;
+    this.statusCode = statusCode;
+    this.config = config;
+  }
+
+  public String getNamespaceName() {
+    return namespaceName;
+  }
+
+  public void setNamespaceName(String namespaceName) {
+    this.namespaceName = namespaceName;
+  }
+
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+  public void setStatusCode(int statusCode) {
+    this.statusCode = statusCode;
+  }
+
+  public ApolloConfig getConfig() {
+    return config;
+  }
+
+  public void setConfig(ApolloConfig config) {
+    this.config = config;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder("ApolloConfigResult{");
+    sb.append("namespaceName='").append(namespaceName).append('\'');
+    sb.append(", statusCode=").append(statusCode);
+    sb.append(", config=").append(config);
+    sb.append('}');
+    return sb.toString();
+  }
+}
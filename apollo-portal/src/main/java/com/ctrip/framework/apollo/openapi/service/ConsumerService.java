@@ -4,6 +4,8 @@ import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.hash.Hashing;
 
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
@@ -27,6 +29,8 @@ import org.apache.commons.lang.time.FastDateFormat;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.Arrays;
 import java.util.Date;
@@ -40,6 +44,7 @@ public class ConsumerService {
 
   private static final FastDateFormat TIMESTAMP_FORMAT = FastDateFormat.getInstance("yyyyMMddHHmmss");
   private static final Joiner KEY_JOINER = Joiner.on("|");
+  private static final int MAX_CACHED_TOKENS = 10000;
 
   @Autowired
   private UserInfoHolder userInfoHolder;
@@ -58,6 +63,12 @@ public class ConsumerService {
   @Autowired
   private UserService userService;
 
+  /**
+   * token -> resolved consumer, including tokens which turned out to be invalid
+   */
+  private final Cache<String, CachedConsumerToken> consumerTokenCache =
+      CacheBuilder.newBuilder().maximumSize(MAX_CACHED_TOKENS).build();
+
 
   public Consumer createConsumer(Consumer consumer) {
     String appId = consumer.getAppId();
@@ -87,7 +98,9 @@ public class ConsumerService {
     ConsumerToken consumerToken = generateConsumerToken(consumer, expires);
     consumerToken.setId(0);
 
-    return consumerTokenRepository.save(consumerToken);
+    ConsumerToken savedConsumerToken = consumerTokenRepository.save(consumerToken);
+    invalidateConsumerToken(savedConsumerToken);
+    return savedConsumerToken;
   }
 
   public ConsumerToken getConsumerTokenByAppId(String appId) {
@@ -99,13 +112,34 @@ public class ConsumerService {
     return consumerTokenRepository.findByConsumerId(consumer.getId());
   }
 
+  /**
+   * Resolved tokens are cached until they expire or for {@link PortalConfig#consumerTokenCacheExpireTime()}, unknown
+   * tokens for {@link PortalConfig#consumerTokenNegativeCacheExpireTime()}
+   */
   public Long getConsumerIdByToken(String token) {
     if (Strings.isNullOrEmpty(token)) {
       return null;
     }
+    long now = System.currentTimeMillis();
+    CachedConsumerToken cached = consumerTokenCache.getIfPresent(token);
+    if (cached != null && cached.isValidAt(now)) {
+      return cached.consumerId;
+    }
+
     ConsumerToken consumerToken = consumerTokenRepository.findTopByTokenAndExpiresAfter(token,
-                                                                                        new Date());
-    return consumerToken == null ? null : consumerToken.getConsumerId();
+                                                                                        new Date(now));
+    Long consumerId = consumerToken == null ? null : consumerToken.getConsumerId();
+    if (consumerId == null) {
+      consumerTokenCache.put(token,
+          new CachedConsumerToken(null, now + portalConfig.consumerTokenNegativeCacheExpireTime()));
+    } else {
+      long validUntil = now + portalConfig.consumerTokenCacheExpireTime();
+      if (consumerToken.getExpires() != null) {
+        validUntil = Math.min(validUntil, consumerToken.getExpires().getTime());
+      }
+      consumerTokenCache.put(token, new CachedConsumerToken(consumerId, validUntil));
+    }
+    return consumerId;
   }
 
   public Consumer getConsumerByConsumerId(long consumerId) {
@@ -180,7 +214,29 @@ public class ConsumerService {
   public ConsumerToken createConsumerToken(ConsumerToken entity) {
     entity.setId(0); //for protection
 
-    return consumerTokenRepository.save(entity);
+    ConsumerToken savedConsumerToken = consumerTokenRepository.save(entity);
+    invalidateConsumerToken(savedConsumerToken);
+    return savedConsumerToken;
+  }
+
+  /**
+   * Forget what is cached about the token, also once the current transaction completes so that the token is not cached
+   * again from the data before the change
+   */
+  private void invalidateConsumerToken(ConsumerToken consumerToken) {
+    if (consumerToken == null || consumerToken.getToken() == null) {
+      return;
+    }
+    String token = consumerToken.getToken();
+    consumerTokenCache.invalidate(token);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+        @Override
+        public void afterCompletion(int status) {
+          consumerTokenCache.invalidate(token);
+        }
+      });
+    }
   }
 
   private ConsumerToken generateConsumerToken(Consumer consumer, Date expires) {
@@ -229,4 +285,18 @@ public class ConsumerService {
     return consumerRole;
   }
 
+  private static class CachedConsumerToken {
+    private final Long consumerId;
+    private final long validUntil;
+
+    CachedConsumerToken(Long consumerId, long validUntil) {
+      this.consumerId = consumerId;
+      this.validUntil = validUntil;
+    }
+
+    boolean isValidAt(long time) {
+      return time < validUntil;
+    }
+  }
+
 }
@@ -4,11 +4,17 @@ import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Queues;
 
+import com.ctrip.framework.apollo.common.utils.LatencySamples;
 import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.openapi.entity.ConsumerAudit;
 import com.ctrip.framework.apollo.openapi.service.ConsumerService;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.ctrip.framework.apollo.portal.constant.TracerEventType;
 import com.ctrip.framework.apollo.tracer.Tracer;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -18,30 +24,42 @@ import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.servlet.http.HttpServletRequest;
 
 /**
+ * Audits are queued and written in batches by {@link PortalConfig#consumerAuditWriters()} writers. When the writers
+ * can't keep up and the queue is full, new audits are dropped. The queue depth, dropped audits and write latency are
+ * logged every minute.
+ *
  * @author Jason Song(song_s@ctrip.com)
  */
 @Service
-public class ConsumerAuditUtil implements InitializingBean {
-  private static final int CONSUMER_AUDIT_MAX_SIZE = 10000;
-  private BlockingQueue<ConsumerAudit> audits = Queues.newLinkedBlockingQueue(CONSUMER_AUDIT_MAX_SIZE);
-  private final ExecutorService auditExecutorService;
+public class ConsumerAuditUtil implements InitializingBean, DisposableBean {
+  private static final Logger logger = LoggerFactory.getLogger(ConsumerAuditUtil.class);
+  private static final int LATENCY_SAMPLE_SIZE = 1024;
+  private static final long STATS_LOG_INTERVAL_IN_SECONDS = 60;
+  private BlockingQueue<ConsumerAudit> audits;
+  private ExecutorService auditExecutorService;
+  private ScheduledExecutorService statsLogger;
   private final AtomicBoolean auditStopped;
+  private final AtomicLong droppedAudits = new AtomicLong();
+  private final AtomicLong writtenAudits = new AtomicLong();
+  private final LatencySamples writeLatencies = new LatencySamples(LATENCY_SAMPLE_SIZE);
   private int BATCH_SIZE = 100;
   private long BATCH_TIMEOUT = 5;
   private TimeUnit BATCH_TIMEUNIT = TimeUnit.SECONDS;
 
   @Autowired
   private ConsumerService consumerService;
+  @Autowired
+  private PortalConfig portalConfig;
 
   public ConsumerAuditUtil() {
-    auditExecutorService = Executors.newSingleThreadExecutor(
-        ApolloThreadFactory.create("ConsumerAuditUtil", true));
     auditStopped = new AtomicBoolean(false);
   }
 
@@ -64,27 +82,98 @@ public class ConsumerAuditUtil implements InitializingBean {
     consumerAudit.setDataChangeLastModifiedTime(now);
 
     //throw away audits if exceeds the max size
-    return this.audits.offer(consumerAudit);
+    boolean queued = this.audits.offer(consumerAudit);
+    if (!queued) {
+      droppedAudits.incrementAndGet();
+    }
+    return queued;
   }
 
   @Override
   public void afterPropertiesSet() throws Exception {
-    auditExecutorService.submit(() -> {
-      while (!auditStopped.get() && !Thread.currentThread().isInterrupted()) {
-        List<ConsumerAudit> toAudit = Lists.newArrayList();
-        try {
-          Queues.drain(audits, toAudit, BATCH_SIZE, BATCH_TIMEOUT, BATCH_TIMEUNIT);
-          if (!toAudit.isEmpty()) {
-            consumerService.createConsumerAudits(toAudit);
-          }
-        } catch (Throwable ex) {
-          Tracer.logError(ex);
+    audits = Queues.newLinkedBlockingQueue(portalConfig.consumerAuditQueueSize());
+    BATCH_SIZE = portalConfig.consumerAuditBatchSize();
+
+    int writers = Math.max(1, portalConfig.consumerAuditWriters());
+    auditExecutorService = Executors.newFixedThreadPool(writers,
+        ApolloThreadFactory.create("ConsumerAuditUtil", true));
+    for (int i = 0; i < writers; i++) {
+      auditExecutorService.submit(this::writeAudits);
+    }
+
+    statsLogger = Executors.newSingleThreadScheduledExecutor(
+        ApolloThreadFactory.create("ConsumerAuditUtil-Stats", true));
+    statsLogger.scheduleWithFixedDelay(this::logStats, STATS_LOG_INTERVAL_IN_SECONDS,
+        STATS_LOG_INTERVAL_IN_SECONDS, TimeUnit.SECONDS);
+  }
+
+  private void writeAudits() {
+    while (!auditStopped.get() && !Thread.currentThread().isInterrupted()) {
+      List<ConsumerAudit> toAudit = Lists.newArrayList();
+      try {
+        Queues.drain(audits, toAudit, BATCH_SIZE, BATCH_TIMEOUT, BATCH_TIMEUNIT);
+        if (!toAudit.isEmpty()) {
+          long start = System.currentTimeMillis();
+          consumerService.createConsumerAudits(toAudit);
+          writeLatencies.add(System.currentTimeMillis() - start);
+          writtenAudits.addAndGet(toAudit.size());
         }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      } catch (Throwable ex) {
+        Tracer.logError(ex);
       }
-    });
+    }
+  }
+
+  /**
+   * @return the audits waiting to be written
+   */
+  public int getQueueDepth() {
+    return audits.size();
+  }
+
+  /**
+   * @return the audits thrown away so far because the queue was full
+   */
+  public long getDroppedAudits() {
+    return droppedAudits.get();
+  }
+
+  public long getWrittenAudits() {
+    return writtenAudits.get();
+  }
+
+  /**
+   * @param percentile between 0 and 100
+   * @return the time in ms recent batches took to be written
+   */
+  public long writeLatencyPercentile(double percentile) {
+    return writeLatencies.percentile(percentile);
+  }
+
+  private void logStats() {
+    try {
+      Tracer.logEvent(TracerEventType.CONSUMER_AUDIT, "stats", "0", String.format(
+          "queued=%d&dropped=%d&written=%d&writeP99Ms=%d", getQueueDepth(), getDroppedAudits(), getWrittenAudits(),
+          writeLatencyPercentile(99)));
+    } catch (Throwable ex) {
+      logger.warn("Log consumer audit stats failed", ex);
+    }
   }
 
   public void stopAudit() {
     auditStopped.set(true);
   }
+
+  @Override
+  public void destroy() {
+    stopAudit();
+    if (statsLogger != null) {
+      statsLogger.shutdown();
+    }
+    if (auditExecutorService != null) {
+      auditExecutorService.shutdown();
+    }
+  }
 }
@@ -2,9 +2,7 @@ package com.ctrip.framework.apollo.portal.api;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -33,6 +31,7 @@ import com.ctrip.framework.apollo.common.dto.InstanceDTO;
 import com.ctrip.framework.apollo.common.dto.ItemChangeSets;
 import com.ctrip.framework.apollo.common.dto.ItemDTO;
 import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceDetailDTO;
 import com.ctrip.framework.apollo.common.dto.NamespaceLockDTO;
 import com.ctrip.framework.apollo.common.dto.PageDTO;
 import com.ctrip.framework.apollo.common.dto.ReleaseDTO;
@@ -85,6 +84,12 @@ public class AdminServiceAPI {
 			return Arrays.asList(namespaceDTOs);
 		}
 
+		public List<NamespaceDetailDTO> findNamespaceDetailsByCluster(String appId, Env env, String clusterName) {
+			NamespaceDetailDTO[] details = restTemplate.get(env, "apps/{appId}/clusters/{clusterName}/namespace-details",
+					NamespaceDetailDTO[].class, appId, clusterName);
+			return Arrays.asList(details);
+		}
+
 		public NamespaceDTO loadNamespace(String appId, Env env, String clusterName, String namespaceName) {
 			return restTemplate.get(env, "apps/{appId}/clusters/{clusterName}/namespaces/{namespaceName}",
 					NamespaceDTO.class, appId, clusterName, namespaceName);
@@ -317,7 +322,7 @@ public class AdminServiceAPI {
 		private ParameterizedTypeReference<PageDTO<InstanceDTO>> pageInstanceDtoType = new ParameterizedTypeReference<PageDTO<InstanceDTO>>() {
 		};
 
-		private ParameterizedTypeReference<Boolean> instaceActiveType = new ParameterizedTypeReference<Boolean>() {
+		private ParameterizedTypeReference<List<Boolean>> instancesActiveType = new ParameterizedTypeReference<List<Boolean>>() {
 		};
 
 		public PageDTO<InstanceDTO> getByRelease(Env env, long releaseId, int page, int size) {
@@ -331,74 +336,56 @@ public class AdminServiceAPI {
 
 		private PageDTO<InstanceDTO> filterNoActiveInstanceByReleaseId(Env env, long releaseId, int page, int size,
 				final PageDTO<InstanceDTO> entityBody) {
-			List<InstanceDTO> list = new ArrayList<InstanceDTO>(entityBody.getContent());
-			if (!CollectionUtils.isEmpty(list)) {
-				Iterator<InstanceDTO> iterator = list.iterator();
-				while (iterator.hasNext()) {
-					InstanceDTO instanceDTO = iterator.next();
-					try {
-						Map<String, ResponseEntity<Boolean>> retMap = restTemplate
-								.getFromAllConfigService(
-										env,
-										"/notifications/v2/queryactive?appId={appId}&clusterName={clusterName}&releaseId={releaseId}&dataCenter={dataCenter}&ip={ip}",
-										instaceActiveType, instanceDTO.getAppId(), instanceDTO.getClusterName(),
-										releaseId, instanceDTO.getDataCenter(), instanceDTO.getIp(), page, size);
-
-						if (!retMap.isEmpty()) {
-							Collection<ResponseEntity<Boolean>> result = retMap.values();
-							boolean active = false;
-							for (ResponseEntity<Boolean> responseEntity : result) {
-								active = active || responseEntity.getBody();
-							}
-
-							if (!active) {
-								// not active instance
-								iterator.remove();
-								logger.info("will remove not active instace :"
-										+ ToStringBuilder.reflectionToString(instanceDTO));
-							}
-						}
-					} catch (Exception e) {
-						logger.warn("get instace active status failed  for releaseId:" + releaseId, e);
-					}
-				}
-			}
-
-			return new PageDTO<InstanceDTO>(list, new PageRequest(page, size), list.size());
+			return filterNoActiveInstances(env, "/notifications/v2/queryactive/batch?releaseId={releaseId}", page, size,
+					entityBody, releaseId);
 		}
 
 		private PageDTO<InstanceDTO> filterNoActiveInstanceByNamespace(Env env, String namespaceName, int page,
 				int size, final PageDTO<InstanceDTO> entityBody) {
+			return filterNoActiveInstances(env, "/notifications/v2/queryactive/batch?namespaceName={namespaceName}",
+					page, size, entityBody, namespaceName);
+		}
+
+		/**
+		 * Ask all the config services at once which instances of the page are active, an instance is active if any config
+		 * service says so. The instances are kept if the config services could not tell.
+		 */
+		private PageDTO<InstanceDTO> filterNoActiveInstances(Env env, String path, int page, int size,
+				final PageDTO<InstanceDTO> entityBody, Object... uriVariables) {
 			List<InstanceDTO> list = new ArrayList<InstanceDTO>(entityBody.getContent());
 			if (!CollectionUtils.isEmpty(list)) {
-				Iterator<InstanceDTO> iterator = list.iterator();
-				while (iterator.hasNext()) {
-					InstanceDTO instanceDTO = iterator.next();
-					try {
-						Map<String, ResponseEntity<Boolean>> retMap = restTemplate
-								.getFromAllConfigService(
-										env,
-										"/notifications/v2/queryactiveByNamespace?appId={appId}&clusterName={clusterName}&namespaceName={namespaceName}&dataCenter={dataCenter}&ip={ip}",
-										instaceActiveType, instanceDTO.getAppId(), instanceDTO.getClusterName(),
-										namespaceName, instanceDTO.getDataCenter(), instanceDTO.getIp(), page, size);
-
-						if (!retMap.isEmpty()) {
-							Collection<ResponseEntity<Boolean>> result = retMap.values();
-							boolean active = false;
-							for (ResponseEntity<Boolean> responseEntity : result) {
-								active = active || responseEntity.getBody();
-							}
+				try {
+					Map<String, ResponseEntity<List<Boolean>>> retMap = restTemplate.postToAllConfigServices(env, path,
+							list, instancesActiveType, uriVariables);
+
+					boolean[] active = new boolean[list.size()];
+					boolean answered = false;
+					for (ResponseEntity<List<Boolean>> responseEntity : retMap.values()) {
+						List<Boolean> body = responseEntity.getBody();
+						if (body == null || body.size() != list.size()) {
+							continue;
+						}
+						answered = true;
+						for (int i = 0; i < active.length; i++) {
+							active[i] = active[i] || Boolean.TRUE.equals(body.get(i));
+						}
+					}
 
-							if (!active) {
+					if (answered) {
+						List<InstanceDTO> activeInstances = new ArrayList<InstanceDTO>(list.size());
+						for (int i = 0; i < active.length; i++) {
+							if (active[i]) {
+								activeInstances.add(list.get(i));
+							} else {
 								// not active instance
-								iterator.remove();
 								logger.info("will remove not active instace :"
-										+ ToStringBuilder.reflectionToString(instanceDTO));
+										+ ToStringBuilder.reflectionToString(list.get(i)));
 							}
 						}
-					} catch (Exception e) {
-						logger.warn("get instace active status failed  for namespaceName:" + namespaceName, e);
+						list = activeInstances;
 					}
+				} catch (Exception e) {
+					logger.warn("get instace active status failed, path: " + path, e);
 				}
 			}
 
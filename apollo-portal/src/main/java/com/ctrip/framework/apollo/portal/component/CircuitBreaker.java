@@ -0,0 +1,92 @@
+package com.ctrip.framework.apollo.portal.component;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.ctrip.framework.apollo.portal.constant.TracerEventType;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.collect.Maps;
+
+/**
+ * Tracks the consecutive connection failures of each service. A service which failed too many times in a row is opened,
+ * i.e. not requested any more, until the open duration passes. Then one trial request is let through, which closes
+ * the service again if it succeeds.
+ */
+class CircuitBreaker {
+
+	private final ConcurrentMap<String, NodeState> states = Maps.newConcurrentMap();
+
+	/**
+	 * @return whether a request may be sent to the node
+	 */
+	boolean allowRequest(String node) {
+		NodeState state = states.get(node);
+		return state == null || state.allowRequest(System.nanoTime());
+	}
+
+	void onSuccess(String node) {
+		NodeState state = states.get(node);
+		if (state != null) {
+			state.reset();
+		}
+	}
+
+	/**
+	 * @param failureThreshold the consecutive failures to open the node, 0 to never open it
+	 * @param openDuration the time in ms to keep the node open
+	 */
+	void onFailure(String node, int failureThreshold, long openDuration) {
+		if (failureThreshold <= 0) {
+			return;
+		}
+		NodeState state = states.get(node);
+		if (state == null) {
+			states.putIfAbsent(node, new NodeState());
+			state = states.get(node);
+		}
+		if (state.fail(failureThreshold, System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(openDuration))) {
+			Tracer.logEvent(TracerEventType.API_CIRCUIT_OPEN, node);
+		}
+	}
+
+	private static class NodeState {
+		private int failures;
+		// 0 if closed
+		private long openUntilNanos;
+		private long openDurationNanos;
+
+		/**
+		 * Once the open duration passes, one request is let through and the node stays open for another duration, unless
+		 * the request succeeds.
+		 */
+		synchronized boolean allowRequest(long nowNanos) {
+			if (openUntilNanos == 0) {
+				return true;
+			}
+			if (nowNanos - openUntilNanos < 0) {
+				return false;
+			}
+			openUntilNanos = nowNanos + openDurationNanos;
+			return true;
+		}
+
+		synchronized void reset() {
+			failures = 0;
+			openUntilNanos = 0;
+		}
+
+		/**
+		 * @return whether the node is opened by this failure
+		 */
+		synchronized boolean fail(int failureThreshold, long nowNanos, long openDurationNanos) {
+			failures++;
+			if (openUntilNanos == 0 && failures < failureThreshold) {
+				return false;
+			}
+			boolean opened = openUntilNanos == 0;
+			this.openDurationNanos = openDurationNanos;
+			this.openUntilNanos = nowNanos + openDurationNanos;
+			return opened;
+		}
+	}
+}
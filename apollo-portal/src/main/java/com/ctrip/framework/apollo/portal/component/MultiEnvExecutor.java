@@ -0,0 +1,176 @@
+package com.ctrip.framework.apollo.portal.component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.ctrip.framework.apollo.core.enums.Env;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.ctrip.framework.apollo.portal.constant.TracerEventType;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.collect.Lists;
+
+/**
+ * Runs the same work for several envs concurrently, so that the time taken is that of the slowest env rather than the
+ * sum of all of them. Each env is given {@link PortalConfig#multiEnvTimeout()} to finish, envs which take longer are
+ * cancelled and reported as timed out without holding up the others.
+ *
+ * <p>When all the threads are busy, the work of an env with a timeout, e.g. a read, is not run at all and the env is
+ * reported as failed right away, rather than run on the calling thread where it would hold up the envs after it. The
+ * work without a timeout, e.g. a write, is run on the calling thread instead, as it must not be skipped.</p>
+ */
+@Component
+public class MultiEnvExecutor {
+
+	private static final int MAX_THREADS = 64;
+
+	private Logger logger = LoggerFactory.getLogger(MultiEnvExecutor.class);
+
+	private final ExecutorService executorService = new ThreadPoolExecutor(0, MAX_THREADS, 60L, TimeUnit.SECONDS,
+			new SynchronousQueue<>(), ApolloThreadFactory.create("MultiEnvExecutor", true));
+
+	@Autowired
+	private PortalConfig portalConfig;
+
+	public <T> Map<Env, EnvResult<T>> invokeAll(Collection<Env> envs, EnvTask<T> task) {
+		return invokeAll(envs, task, portalConfig.multiEnvTimeout());
+	}
+
+	/**
+	 * @param timeout the max time in ms to wait for each env, 0 to wait for all of them, e.g. for writes which should
+	 *                not be abandoned halfway
+	 * @return env -> result, in the order of the given envs
+	 */
+	public <T> Map<Env, EnvResult<T>> invokeAll(Collection<Env> envs, EnvTask<T> task, long timeout) {
+		List<Future<T>> futures = Lists.newArrayListWithCapacity(envs.size());
+		List<Env> rejectedEnvs = Lists.newArrayList();
+		for (Env env : envs) {
+			try {
+				futures.add(executorService.submit(() -> task.call(env)));
+			} catch (RejectedExecutionException e) {
+				Tracer.logEvent(TracerEventType.ENV_REJECTED, env.name());
+				futures.add(null);
+				rejectedEnvs.add(env);
+			}
+		}
+
+		// run while the submitted ones are running
+		Map<Env, EnvResult<T>> rejectedResults = new LinkedHashMap<>();
+		for (Env env : rejectedEnvs) {
+			if (timeout > 0) {
+				logger.warn("Too many concurrent env requests, env is not requested: {}", env);
+				rejectedResults.put(env, EnvResult.failure(
+						new RejectedExecutionException("Too many concurrent env requests, env is not requested")));
+				continue;
+			}
+			logger.warn("Too many concurrent env requests, env is requested on the calling thread: {}", env);
+			try {
+				rejectedResults.put(env, EnvResult.success(task.call(env)));
+			} catch (Exception e) {
+				rejectedResults.put(env, EnvResult.failure(e));
+			}
+		}
+
+		Map<Env, EnvResult<T>> results = new LinkedHashMap<>();
+		long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		int i = 0;
+		for (Env env : envs) {
+			Future<T> future = futures.get(i++);
+			if (future == null) {
+				results.put(env, rejectedResults.get(env));
+				continue;
+			}
+			try {
+				if (timeout > 0) {
+					long remainingNanos = Math.max(0, deadlineNanos - System.nanoTime());
+					results.put(env, EnvResult.success(future.get(remainingNanos, TimeUnit.NANOSECONDS)));
+				} else {
+					results.put(env, EnvResult.success(future.get()));
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				future.cancel(true);
+				results.put(env, EnvResult.failure(e));
+			} catch (TimeoutException e) {
+				logger.warn("Env did not respond in {} ms, env: {}", timeout, env);
+				Tracer.logEvent(TracerEventType.ENV_TIMEOUT, env.name());
+				future.cancel(true);
+				results.put(env, EnvResult.timeout(e));
+			} catch (ExecutionException e) {
+				results.put(env, EnvResult.failure(e.getCause()));
+			}
+		}
+		return results;
+	}
+
+	public interface EnvTask<T> {
+
+		T call(Env env) throws Exception;
+	}
+
+	public static class EnvResult<T> {
+
+		private final T value;
+		private final Throwable error;
+		private final boolean timeout;
+
+		private EnvResult(T value, Throwable error, boolean timeout) {
+			this.value = value;
+			this.error = error;
+			this.timeout = timeout;
+		}
+
+		static <T> EnvResult<T> success(T value) {
+			return new EnvResult<>(value, null, false);
+		}
+
+		static <T> EnvResult<T> failure(Throwable error) {
+			return new EnvResult<>(null, error, false);
+		}
+
+		static <T> EnvResult<T> timeout(TimeoutException error) {
+			return new EnvResult<>(null, error, true);
+		}
+
+		public boolean isSuccess() {
+			return error == null;
+		}
+
+		public boolean isTimeout() {
+			return timeout;
+		}
+
+		public T getValue() {
+			return value;
+		}
+
+		public Throwable getError() {
+			return error;
+		}
+
+		/**
+		 * @return the message of the error, which for a timeout says the env did not respond in time
+		 */
+		public String getErrorMessage() {
+			if (timeout) {
+				return "env did not respond in time";
+			}
+			return error == null ? null : error.getMessage();
+		}
+	}
+}
@@ -1,12 +1,15 @@
 package com.ctrip.framework.apollo.portal.component;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -53,9 +56,12 @@ public class PortalSettings {
 
 		ScheduledExecutorService healthCheckService = Executors.newScheduledThreadPool(1,
 				ApolloThreadFactory.create("EnvHealthChecker", true));
+		// a thread per env of its own, so that the checks are not held up by the multi env requests of the pages
+		ExecutorService envCheckService = Executors.newFixedThreadPool(Math.max(allEnvs.size(), 1),
+				ApolloThreadFactory.create("EnvHealthChecker", true));
 
-		healthCheckService.scheduleWithFixedDelay(new HealthCheckTask(applicationContext), 1000, HEALTH_CHECK_INTERVAL,
-				TimeUnit.MILLISECONDS);
+		healthCheckService.scheduleWithFixedDelay(new HealthCheckTask(applicationContext, envCheckService), 1000,
+				HEALTH_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
 
 	}
 
@@ -82,43 +88,63 @@ public class PortalSettings {
 
 		private static final int ENV_DOWN_THRESHOLD = 2;
 
-		private Map<Env, Integer> healthCheckFailedCounter = new HashMap<>();
+		private Map<Env, Integer> healthCheckFailedCounter = new ConcurrentHashMap<>();
 
 		private AdminServiceAPI.HealthAPI healthAPI;
 
-		public HealthCheckTask(ApplicationContext context) {
+		private final ExecutorService envCheckService;
+
+		public HealthCheckTask(ApplicationContext context, ExecutorService envCheckService) {
 			healthAPI = context.getBean(AdminServiceAPI.HealthAPI.class);
+			this.envCheckService = envCheckService;
 			for (Env env : allEnvs) {
 				healthCheckFailedCounter.put(env, 0);
 			}
 		}
 
 		public void run() {
-
+			// envs are checked concurrently and each one is marked as soon as its own check completes, so an unreachable
+			// env does not delay the others
+			Map<Env, Future<?>> futures = new LinkedHashMap<>();
 			for (Env env : allEnvs) {
+				futures.put(env, envCheckService.submit(() -> check(env)));
+			}
+
+			for (Map.Entry<Env, Future<?>> entry : futures.entrySet()) {
 				try {
-					if (isUp(env)) {
-						// revive
-						if (!envStatusMark.get(env)) {
-							envStatusMark.put(env, true);
-							healthCheckFailedCounter.put(env, 0);
-							logger.info("Env revived because env health check success. env: {}", env);
-						}
-					} else {
-						logger.error(
-								"Env health check failed, maybe because of admin server down. env: {}, meta server address: {}",
-								env, MetaDomainConsts.getDomain(env));
-						handleEnvDown(env);
-					}
+					entry.getValue().get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				} catch (ExecutionException e) {
+					logger.error("Env health check failed. env: {}", entry.getKey(), e.getCause());
+					handleEnvDown(entry.getKey());
+				}
+			}
+		}
 
-				} catch (Exception e) {
-					logger.error("Env health check failed, maybe because of meta server down "
-							+ "or configure wrong meta server address. env: {}, meta server address: {}", env,
-							MetaDomainConsts.getDomain(env), e);
+		private void check(Env env) {
+			try {
+				if (isUp(env)) {
+					// revive
+					if (!envStatusMark.get(env)) {
+						envStatusMark.put(env, true);
+						healthCheckFailedCounter.put(env, 0);
+						logger.info("Env revived because env health check success. env: {}", env);
+					}
+				} else {
+					logger.error(
+							"Env health check failed, maybe because of admin server down. env: {}, meta server address: {}",
+							env, MetaDomainConsts.getDomain(env));
 					handleEnvDown(env);
 				}
-			}
 
+			} catch (Exception e) {
+				logger.error("Env health check failed, maybe because of meta server down "
+						+ "or configure wrong meta server address. env: {}, meta server address: {}", env,
+						MetaDomainConsts.getDomain(env), e);
+				handleEnvDown(env);
+			}
 		}
 
 		private boolean isUp(Env env) {
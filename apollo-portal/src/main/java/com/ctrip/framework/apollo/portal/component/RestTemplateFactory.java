@@ -1,9 +1,27 @@
 package com.ctrip.framework.apollo.portal.component;
 
+import com.ctrip.framework.apollo.common.utils.LatencySamples;
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.core.enums.Env;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.ctrip.framework.apollo.portal.constant.TracerEventType;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.collect.Maps;
 
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,10 +30,29 @@ import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Builds the RestTemplate used to talk to the admin and config services, backed by a pool of keep-alive connections.
+ *
+ * <p>The pool of each service is sized by {@link PortalConfig#maxConnectionsPerRoute(Env)} once the service is known,
+ * see {@link #configureRoutes(Env, List)}. The pool usage and the time spent waiting for a free connection are logged
+ * every minute.</p>
+ */
 @Component
-public class RestTemplateFactory implements FactoryBean<RestTemplate>, InitializingBean {
+public class RestTemplateFactory implements FactoryBean<RestTemplate>, InitializingBean, DisposableBean {
+  private static final Logger logger = LoggerFactory.getLogger(RestTemplateFactory.class);
+  private static final int LATENCY_SAMPLE_SIZE = 1024;
+  private static final long POOL_STATS_LOG_INTERVAL_IN_SECONDS = 60;
 
   @Autowired
   private HttpMessageConverters httpMessageConverters;
@@ -23,6 +60,10 @@ public class RestTemplateFactory implements FactoryBean<RestTemplate>, Initializ
   private PortalConfig portalConfig;
 
   private RestTemplate restTemplate;
+  private CloseableHttpClient httpClient;
+  private InstrumentedConnectionManager connectionManager;
+  private final ConcurrentMap<HttpRoute, Integer> routeMaxConnections = Maps.newConcurrentMap();
+  private ScheduledExecutorService poolStatsLogger;
 
   public RestTemplate getObject() {
     return restTemplate;
@@ -37,16 +78,130 @@ public class RestTemplateFactory implements FactoryBean<RestTemplate>, Initializ
   }
 
   public void afterPropertiesSet() throws UnsupportedEncodingException {
-    CloseableHttpClient httpClient = HttpClientBuilder.create().build();
+    connectionManager = new InstrumentedConnectionManager();
+    connectionManager.setMaxTotal(portalConfig.maxConnections());
+    connectionManager.setDefaultMaxPerRoute(portalConfig.maxConnectionsPerRoute());
+
+    int keepAlive = portalConfig.connectionKeepAlive();
+    httpClient = HttpClientBuilder.create()
+        .setConnectionManager(connectionManager)
+        .setKeepAliveStrategy((response, context) -> {
+          long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+          return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAlive) : keepAlive;
+        })
+        .evictExpiredConnections()
+        .evictIdleConnections((long) portalConfig.connectionIdleTimeout(), TimeUnit.MILLISECONDS)
+        .build();
 
     restTemplate = new RestTemplate(httpMessageConverters.getConverters());
     HttpComponentsClientHttpRequestFactory requestFactory =
         new HttpComponentsClientHttpRequestFactory(httpClient);
     requestFactory.setConnectTimeout(portalConfig.connectTimeout());
     requestFactory.setReadTimeout(portalConfig.readTimeout());
+    requestFactory.setConnectionRequestTimeout(portalConfig.connectionRequestTimeout());
 
     restTemplate.setRequestFactory(requestFactory);
+
+    poolStatsLogger = Executors.newSingleThreadScheduledExecutor(
+        ApolloThreadFactory.create("RestTemplateFactory", true));
+    poolStatsLogger.scheduleWithFixedDelay(this::logPoolStats, POOL_STATS_LOG_INTERVAL_IN_SECONDS,
+        POOL_STATS_LOG_INTERVAL_IN_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Size the connection pools of the services of the env, which is only done again if the configured size changes
+   */
+  public void configureRoutes(Env env, List<ServiceDTO> services) {
+    if (connectionManager == null) {
+      return;
+    }
+    int maxPerRoute = portalConfig.maxConnectionsPerRoute(env);
+    for (ServiceDTO service : services) {
+      HttpRoute route = toRoute(service.getHomepageUrl());
+      if (route == null || Objects.equals(routeMaxConnections.put(route, maxPerRoute), maxPerRoute)) {
+        continue;
+      }
+      connectionManager.setMaxPerRoute(route, maxPerRoute);
+    }
+  }
+
+  private HttpRoute toRoute(String homepageUrl) {
+    try {
+      URI uri = URI.create(homepageUrl);
+      boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+      int port = uri.getPort() > 0 ? uri.getPort() : (secure ? 443 : 80);
+      return new HttpRoute(new HttpHost(uri.getHost(), port, uri.getScheme()), null, secure);
+    } catch (Throwable ex) {
+      logger.warn("Parse service address failed: {}", homepageUrl, ex);
+      return null;
+    }
+  }
+
+  /**
+   * @return the usage of the whole connection pool
+   */
+  public PoolStats getPoolStats() {
+    return connectionManager.getTotalStats();
   }
 
+  /**
+   * @param percentile between 0 and 100
+   * @return the time in ms recent requests waited for a free connection
+   */
+  public long connectionWaitPercentile(double percentile) {
+    return connectionManager.leaseWaits.percentile(percentile);
+  }
+
+  private void logPoolStats() {
+    try {
+      PoolStats stats = getPoolStats();
+      Tracer.logEvent(TracerEventType.API_CONNECTION_POOL, "total", "0", String.format(
+          "leased=%d&pending=%d&available=%d&max=%d&waitP99Ms=%d", stats.getLeased(), stats.getPending(),
+          stats.getAvailable(), stats.getMax(), connectionWaitPercentile(99)));
+    } catch (Throwable ex) {
+      logger.warn("Log connection pool stats failed", ex);
+    }
+  }
+
+  @Override
+  public void destroy() throws IOException {
+    if (poolStatsLogger != null) {
+      poolStatsLogger.shutdown();
+    }
+    if (httpClient != null) {
+      httpClient.close();
+    }
+  }
+
+  /**
+   * Records how long each request waits for a free connection
+   */
+  private static class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+    private final LatencySamples leaseWaits = new LatencySamples(LATENCY_SAMPLE_SIZE);
 
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+      ConnectionRequest request = super.requestConnection(route, state);
+      return new ConnectionRequest() {
+        @Override
+        public HttpClientConnection get(long timeout, TimeUnit tunit)
+            throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+          long start = System.nanoTime();
+          try {
+            return request.get(timeout, tunit);
+          } catch (ConnectionPoolTimeoutException ex) {
+            Tracer.logEvent(TracerEventType.API_CONNECTION_POOL, "exhausted:" + route.getTargetHost());
+            throw ex;
+          } finally {
+            leaseWaits.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+          }
+        }
+
+        @Override
+        public boolean cancel() {
+          return request.cancel();
+        }
+      };
+    }
+  }
 }
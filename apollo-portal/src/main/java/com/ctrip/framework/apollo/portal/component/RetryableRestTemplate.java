@@ -3,7 +3,19 @@ package com.ctrip.framework.apollo.portal.component;
 import java.net.SocketTimeoutException;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.PostConstruct;
 
@@ -13,6 +25,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
@@ -23,25 +36,51 @@ import org.springframework.web.util.DefaultUriTemplateHandler;
 import org.springframework.web.util.UriTemplateHandler;
 
 import com.ctrip.framework.apollo.common.exception.ServiceException;
+import com.ctrip.framework.apollo.common.utils.LatencySamples;
 import com.ctrip.framework.apollo.core.MetaDomainConsts;
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
 import com.ctrip.framework.apollo.core.enums.Env;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
 import com.ctrip.framework.apollo.portal.constant.TracerEventType;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 /**
  * 封装RestTemplate. admin server集群在某些机器宕机或者超时的情况下轮询重试
+ *
+ * <p>GET requests to the admin services are hedged: if the current admin service does not respond within
+ * {@link PortalConfig#hedgeDelay()}, the request is sent to the next one as well and the first response wins. Requests
+ * to all the config services are sent at once and gathered within {@link PortalConfig#fanOutDeadline()}.</p>
+ *
+ * <p>Services which keep failing to connect or respond are skipped for a while, see {@link CircuitBreaker}.</p>
  */
 @Component
 public class RetryableRestTemplate {
 
+	private static final int MAX_REQUEST_THREADS = 32;
+	private static final int LATENCY_SAMPLE_SIZE = 1024;
+
 	private Logger logger = LoggerFactory.getLogger(RetryableRestTemplate.class);
 
 	private UriTemplateHandler uriTemplateHandler = new DefaultUriTemplateHandler();
 
 	private RestTemplate restTemplate;
 
+	// requests rejected when all the threads are busy are counted and handled explicitly, see submit
+	private final ExecutorService executorService = new ThreadPoolExecutor(0, MAX_REQUEST_THREADS, 60L,
+			TimeUnit.SECONDS, new SynchronousQueue<>(), ApolloThreadFactory.create("RetryableRestTemplate", true));
+
+	private final AtomicLong rejectedRequests = new AtomicLong();
+
+	private final ConcurrentMap<String, LatencySamples> latencies = Maps.newConcurrentMap();
+
+	private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+
 	@Autowired
 	private RestTemplateFactory restTemplateFactory;
 
@@ -51,6 +90,9 @@ public class RetryableRestTemplate {
 	@Autowired
 	private ConfigServiceAddressLocator configServiceAddressLocator;
 
+	@Autowired
+	private PortalConfig portalConfig;
+
 	@PostConstruct
 	private void postConstruct() {
 		restTemplate = restTemplateFactory.getObject();
@@ -70,6 +112,60 @@ public class RetryableRestTemplate {
 		return exchangeGetFromAllConfigService(env, path, reference, uriVariables);
 	}
 
+	/**
+	 * Post the request to all the config services concurrently
+	 *
+	 * @return config service instance id -> response, of the config services which responded
+	 */
+	public <T> Map<String, ResponseEntity<T>> postToAllConfigServices(Env env, String path, Object request,
+			ParameterizedTypeReference<T> reference, Object... uriVariables) throws RestClientException {
+		return exchangeWithAllConfigServices(HttpMethod.POST, env, path, new HttpEntity<>(request), reference,
+				uriVariables);
+	}
+
+	/**
+	 * Send the request to all the config services concurrently and wait for them until
+	 * {@link PortalConfig#fanOutDeadline()}. The requests still running then are cancelled.
+	 *
+	 * @return the responses and the status of every config service
+	 */
+	public <T> ScatterGatherResult<T> scatterGather(HttpMethod method, Env env, String path, Object request,
+			ParameterizedTypeReference<T> reference, Object... uriVariables) throws RestClientException {
+		if (path.startsWith("/")) {
+			path = path.substring(1, path.length());
+		}
+
+		String uri = uriTemplateHandler.expand(path, uriVariables).getPath();
+		Transaction ct = Tracer.newTransaction("ConfigAPI", uri);
+		ct.addData("Env", env);
+
+		List<ServiceDTO> configServices = getConfigServices(env, ct);
+		ScatterGatherResult<T> result = doScatterGather(method, env, uri, path, configServices,
+				request == null ? null : new HttpEntity<>(request), reference, uriVariables);
+
+		ct.addData("Statuses", result.getStatuses());
+		ct.setStatus(Transaction.SUCCESS);
+		ct.complete();
+		return result;
+	}
+
+	/**
+	 * @param node the service instance id, or the homepage url if the service has no instance id
+	 * @param percentile between 0 and 100
+	 * @return the latency in ms of the recent requests to the service
+	 */
+	public long latencyPercentile(Env env, String node, double percentile) {
+		LatencySamples samples = latencies.get(nodeKey(env, node));
+		return samples == null ? 0 : samples.percentile(percentile);
+	}
+
+	/**
+	 * @return the number of concurrent requests rejected so far, as all the request threads were busy
+	 */
+	public long getRejectedRequestCount() {
+		return rejectedRequests.get();
+	}
+
 	public <T> T post(Env env, String path, Object request, Class<T> responseType, Object... uriVariables)
 			throws RestClientException {
 		return execute(HttpMethod.POST, env, path, request, responseType, uriVariables);
@@ -96,34 +192,9 @@ public class RetryableRestTemplate {
 
 		List<ServiceDTO> services = getAdminServices(env, ct);
 
-		for (ServiceDTO serviceDTO : services) {
-			try {
-
-				T result = doExecute(method, serviceDTO, path, request, responseType, uriVariables);
-
-				ct.setStatus(Transaction.SUCCESS);
-				ct.complete();
-				return result;
-			} catch (Throwable t) {
-				logger.error("Http request failed, uri: {}, method: {}", uri, method, t);
-				Tracer.logError(t);
-				if (canRetry(t, method)) {
-					Tracer.logEvent(TracerEventType.API_RETRY, uri);
-				} else {// biz exception rethrow
-					ct.setStatus(t);
-					ct.complete();
-					throw t;
-				}
-			}
-		}
-
-		// all admin server down
-		ServiceException e = new ServiceException(String.format(
-				"Admin servers are unresponsive. meta server address: %s, admin servers: %s",
-				MetaDomainConsts.getDomain(env), services));
-		ct.setStatus(e);
-		ct.complete();
-		throw e;
+		String finalPath = path;
+		return executeOnAdminServices(method, env, uri, services, ct,
+				serviceDTO -> doExecute(method, serviceDTO, finalPath, request, responseType, uriVariables));
 	}
 
 	private <T> ResponseEntity<T> exchangeGet(Env env, String path, ParameterizedTypeReference<T> reference,
@@ -138,40 +209,169 @@ public class RetryableRestTemplate {
 
 		List<ServiceDTO> services = getAdminServices(env, ct);
 
+		String finalPath = path;
+		return executeOnAdminServices(HttpMethod.GET, env, uri, services, ct,
+				serviceDTO -> restTemplate.exchange(parseHost(serviceDTO) + finalPath, HttpMethod.GET, null, reference,
+						uriVariables));
+	}
+
+	private <R> R executeOnAdminServices(HttpMethod method, Env env, String uri, List<ServiceDTO> services,
+			Transaction ct, AdminServiceCall<R> call) {
+		int hedgeDelay = portalConfig.hedgeDelay();
+		if (method == HttpMethod.GET && hedgeDelay > 0 && services.size() > 1) {
+			return hedgedExecute(env, uri, services, ct, call, hedgeDelay);
+		}
+
+		return sequentialExecute(method, env, uri, services, ct, call);
+	}
+
+	private <R> R sequentialExecute(HttpMethod method, Env env, String uri, List<ServiceDTO> services,
+			Transaction ct, AdminServiceCall<R> call) {
 		for (ServiceDTO serviceDTO : services) {
 			try {
 
-				ResponseEntity<T> result = restTemplate.exchange(parseHost(serviceDTO) + path, HttpMethod.GET, null,
-						reference, uriVariables);
+				R result = timed(env, serviceDTO, () -> call.execute(serviceDTO));
 
 				ct.setStatus(Transaction.SUCCESS);
 				ct.complete();
 				return result;
 			} catch (Throwable t) {
-				logger.error("Http request failed, uri: {}, method: {}", uri, HttpMethod.GET, t);
+				logger.error("Http request failed, uri: {}, method: {}", uri, method, t);
 				Tracer.logError(t);
-				if (canRetry(t, HttpMethod.GET)) {
+				if (canRetry(t, method)) {
 					Tracer.logEvent(TracerEventType.API_RETRY, uri);
 				} else {// biz exception rethrow
 					ct.setStatus(t);
 					ct.complete();
-					throw t;
+					throw Throwables.propagate(t);
 				}
+			}
+		}
+
+		throw allAdminServicesDown(env, services, ct);
+	}
 
+	/**
+	 * Send the GET request to the admin services one after another, the next one is tried once the current one fails or
+	 * does not respond within the hedge delay. The first successful response wins and the other requests are cancelled.
+	 *
+	 * <p>When all the request threads are busy, a hedge is skipped and the request in flight is waited for. If no
+	 * request could be started at all, the remaining admin services are tried one after another without hedging, the
+	 * same as when hedging is disabled.</p>
+	 */
+	private <R> R hedgedExecute(Env env, String uri, List<ServiceDTO> services, Transaction ct,
+			AdminServiceCall<R> call, int hedgeDelay) {
+		CompletionService<R> completionService = new ExecutorCompletionService<>(executorService);
+		List<Future<R>> futures = Lists.newArrayListWithCapacity(services.size());
+		int next = 0;
+		int pending = 0;
+		boolean hedgeRejected = false;
+
+		try {
+			Future<R> first = submit(completionService, env, uri, services.get(next), call);
+			if (first == null) {
+				return sequentialExecute(HttpMethod.GET, env, uri, services, ct, call);
 			}
+			futures.add(first);
+			next++;
+			pending++;
+
+			while (pending > 0) {
+				Future<R> done = next < services.size() && !hedgeRejected ?
+						completionService.poll(hedgeDelay, TimeUnit.MILLISECONDS) : completionService.take();
+
+				if (done == null) {
+					Future<R> hedge = submit(completionService, env, uri, services.get(next), call);
+					if (hedge == null) {
+						hedgeRejected = true;
+						continue;
+					}
+					Tracer.logEvent(TracerEventType.API_HEDGE, uri);
+					futures.add(hedge);
+					next++;
+					pending++;
+					continue;
+				}
+
+				pending--;
+				try {
+					R result = done.get();
+
+					ct.setStatus(Transaction.SUCCESS);
+					ct.complete();
+					return result;
+				} catch (ExecutionException e) {
+					Throwable t = e.getCause();
+					logger.error("Http request failed, uri: {}, method: {}", uri, HttpMethod.GET, t);
+					Tracer.logError(t);
+					if (!canRetry(t, HttpMethod.GET)) {// biz exception rethrow
+						ct.setStatus(t);
+						ct.complete();
+						throw Throwables.propagate(t);
+					}
+					Tracer.logEvent(TracerEventType.API_RETRY, uri);
+					if (next < services.size()) {
+						Future<R> retry = submit(completionService, env, uri, services.get(next), call);
+						if (retry != null) {
+							futures.add(retry);
+							next++;
+							pending++;
+						} else if (pending == 0) {
+							return sequentialExecute(HttpMethod.GET, env, uri, services.subList(next, services.size()),
+									ct, call);
+						}
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			for (Future<R> future : futures) {
+				future.cancel(true);
+			}
+		}
+
+		throw allAdminServicesDown(env, services, ct);
+	}
+
+	/**
+	 * @return the future of the call, or null if all the request threads are busy
+	 */
+	private <R> Future<R> submit(CompletionService<R> completionService, Env env, String uri, ServiceDTO serviceDTO,
+			AdminServiceCall<R> call) {
+		try {
+			return completionService.submit(() -> timed(env, serviceDTO, () -> call.execute(serviceDTO)));
+		} catch (RejectedExecutionException e) {
+			onRejected(uri);
+			return null;
 		}
+	}
+
+	private void onRejected(String uri) {
+		rejectedRequests.incrementAndGet();
+		Tracer.logEvent(TracerEventType.API_REJECTED, uri);
+	}
 
+	private ServiceException allAdminServicesDown(Env env, List<ServiceDTO> services, Transaction ct) {
 		// all admin server down
 		ServiceException e = new ServiceException(String.format(
 				"Admin servers are unresponsive. meta server address: %s, admin servers: %s",
 				MetaDomainConsts.getDomain(env), services));
 		ct.setStatus(e);
 		ct.complete();
-		throw e;
+		return e;
 	}
 	
 	private <T> Map<String,ResponseEntity<T>> exchangeGetFromAllConfigService(Env env, String path, ParameterizedTypeReference<T> reference,
  Object... uriVariables) {
+		return exchangeWithAllConfigServices(HttpMethod.GET, env, path, null, reference, uriVariables);
+	}
+
+	/**
+	 * Send the request to all the config services concurrently, the failed ones are left out of the result
+	 */
+	private <T> Map<String, ResponseEntity<T>> exchangeWithAllConfigServices(HttpMethod method, Env env, String path,
+			HttpEntity<?> requestEntity, ParameterizedTypeReference<T> reference, Object... uriVariables) {
 		if (path.startsWith("/")) {
 			path = path.substring(1, path.length());
 		}
@@ -180,23 +380,14 @@ public class RetryableRestTemplate {
 		Transaction ct = Tracer.newTransaction("ConfigAPI", uri);
 		ct.addData("Env", env);
 
-		Map<String, ResponseEntity<T>> retMap = new ConcurrentHashMap<String, ResponseEntity<T>>();
 		List<ServiceDTO> configServices = getConfigServices(env, ct);
-		for (ServiceDTO serviceDTO : configServices) {
-			try {
-				ResponseEntity<T> result = restTemplate.exchange(parseHost(serviceDTO) + path, HttpMethod.GET, null,
-						reference, uriVariables);
-				retMap.put(serviceDTO.getInstanceId(), result);
-			} catch (Throwable t) {
-				logger.error("Http request failed, uri: {}, method: {}", uri, HttpMethod.GET, t);
-				Tracer.logError(t);
-			}
-		}
+		ScatterGatherResult<T> result = doScatterGather(method, env, uri, path, configServices, requestEntity,
+				reference, uriVariables);
 
-		if (retMap.size() > 0) {
+		if (result.getResponses().size() > 0) {
 			ct.setStatus(Transaction.SUCCESS);
 			ct.complete();
-			return retMap;
+			return result.getResponses();
 		}
 
 		// all config server down
@@ -208,6 +399,116 @@ public class RetryableRestTemplate {
 		throw e;
 	}
 
+	private <T> ScatterGatherResult<T> doScatterGather(HttpMethod method, Env env, String uri, String path,
+			List<ServiceDTO> services, HttpEntity<?> requestEntity, ParameterizedTypeReference<T> reference,
+			Object... uriVariables) {
+		ScatterGatherResult<T> result = new ScatterGatherResult<>();
+		List<ServiceDTO> availableServices = availableServices(env, services);
+		for (ServiceDTO serviceDTO : services) {
+			if (!availableServices.contains(serviceDTO)) {
+				result.fail(nodeOf(serviceDTO), ScatterGatherResult.Status.CIRCUIT_OPEN);
+			}
+		}
+
+		List<Future<ResponseEntity<T>>> futures = Lists.newArrayListWithCapacity(availableServices.size());
+		for (ServiceDTO serviceDTO : availableServices) {
+			String url = parseHost(serviceDTO) + path;
+			try {
+				futures.add(executorService.submit(() -> timed(env, serviceDTO,
+						() -> restTemplate.exchange(url, method, requestEntity, reference, uriVariables))));
+			} catch (RejectedExecutionException e) {
+				// not sent at all, rather than sent by this thread past the deadline
+				onRejected(uri);
+				futures.add(null);
+			}
+		}
+
+		int deadline = portalConfig.fanOutDeadline();
+		long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadline);
+		for (int i = 0; i < availableServices.size(); i++) {
+			String node = nodeOf(availableServices.get(i));
+			Future<ResponseEntity<T>> future = futures.get(i);
+			if (future == null) {
+				result.fail(node, ScatterGatherResult.Status.REJECTED);
+				continue;
+			}
+			try {
+				if (deadline > 0) {
+					long remainingNanos = Math.max(0, deadlineNanos - System.nanoTime());
+					result.success(node, future.get(remainingNanos, TimeUnit.NANOSECONDS));
+				} else {
+					result.success(node, future.get());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				future.cancel(true);
+				result.fail(node, ScatterGatherResult.Status.FAILED);
+			} catch (TimeoutException e) {
+				logger.warn("Http request timed out, uri: {}, method: {}, service: {}", uri, method, node);
+				Tracer.logEvent(TracerEventType.API_TIMEOUT, uri);
+				future.cancel(true);
+				result.fail(node, ScatterGatherResult.Status.TIMEOUT);
+			} catch (ExecutionException e) {
+				logger.error("Http request failed, uri: {}, method: {}", uri, method, e.getCause());
+				Tracer.logError(e.getCause());
+				result.fail(node, ScatterGatherResult.Status.FAILED);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Call the service, recording the latency and whether the service could be reached
+	 */
+	private <R> R timed(Env env, ServiceDTO serviceDTO, Callable<R> call) throws Exception {
+		String key = nodeKey(env, nodeOf(serviceDTO));
+		long start = System.nanoTime();
+		try {
+			R result = call.call();
+			circuitBreaker.onSuccess(key);
+			return result;
+		} catch (Throwable t) {
+			if (canRetry(t, HttpMethod.GET)) {
+				circuitBreaker.onFailure(key, portalConfig.circuitBreakerFailureThreshold(),
+						portalConfig.circuitBreakerOpenDuration());
+			} else {
+				// the service did respond
+				circuitBreaker.onSuccess(key);
+			}
+			throw t;
+		} finally {
+			long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			LatencySamples samples = latencies.get(key);
+			if (samples == null) {
+				latencies.putIfAbsent(key, new LatencySamples(LATENCY_SAMPLE_SIZE));
+				samples = latencies.get(key);
+			}
+			samples.add(latency);
+		}
+	}
+
+	/**
+	 * @return the services whose circuit is not open, or all the services if every circuit is open
+	 */
+	private List<ServiceDTO> availableServices(Env env, List<ServiceDTO> services) {
+		List<ServiceDTO> availableServices = Lists.newArrayListWithCapacity(services.size());
+		for (ServiceDTO serviceDTO : services) {
+			if (circuitBreaker.allowRequest(nodeKey(env, nodeOf(serviceDTO)))) {
+				availableServices.add(serviceDTO);
+			}
+		}
+		return availableServices.isEmpty() ? services : availableServices;
+	}
+
+	private String nodeKey(Env env, String node) {
+		return env + "/" + node;
+	}
+
+	private String nodeOf(ServiceDTO serviceDTO) {
+		return Strings.isNullOrEmpty(serviceDTO.getInstanceId()) ? serviceDTO.getHomepageUrl() :
+				serviceDTO.getInstanceId();
+	}
+
 	private List<ServiceDTO> getAdminServices(Env env, Transaction ct) {
 		List<ServiceDTO> services = adminServiceAddressLocator.getServiceList(env);
 
@@ -220,7 +521,8 @@ public class RetryableRestTemplate {
 			throw e;
 		}
 
-		return services;
+		restTemplateFactory.configureRoutes(env, services);
+		return availableServices(env, services);
 	}
 	
 	private List<ServiceDTO> getConfigServices(Env env, Transaction ct) {
@@ -235,6 +537,7 @@ public class RetryableRestTemplate {
 			throw e;
 		}
 
+		restTemplateFactory.configureRoutes(env, configServices);
 		return configServices;
 	}
 
@@ -265,6 +568,10 @@ public class RetryableRestTemplate {
 		return serviceAddress.getHomepageUrl() + "/";
 	}
 
+	private interface AdminServiceCall<R> {
+		R execute(ServiceDTO serviceDTO);
+	}
+
 	// post,delete,put请求在admin server处理超时情况下不重试
 	private boolean canRetry(Throwable e, HttpMethod method) {
 		Throwable nestedException = e.getCause();
@@ -0,0 +1,55 @@
+package com.ctrip.framework.apollo.portal.component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+
+/**
+ * The result of a request sent to several services at once, keyed by the service instance id
+ */
+public class ScatterGatherResult<T> {
+
+	public enum Status {
+		SUCCESS, FAILED, TIMEOUT,
+		/**
+		 * not requested, as the service failed too many times recently
+		 */
+		CIRCUIT_OPEN,
+		/**
+		 * not requested, as all the request threads were busy
+		 */
+		REJECTED
+	}
+
+	private final Map<String, ResponseEntity<T>> responses = new LinkedHashMap<>();
+	private final Map<String, Status> statuses = new LinkedHashMap<>();
+
+	void success(String node, ResponseEntity<T> response) {
+		responses.put(node, response);
+		statuses.put(node, Status.SUCCESS);
+	}
+
+	void fail(String node, Status status) {
+		statuses.put(node, status);
+	}
+
+	/**
+	 * @return node -> response, of the nodes which responded in time
+	 */
+	public Map<String, ResponseEntity<T>> getResponses() {
+		return Collections.unmodifiableMap(responses);
+	}
+
+	/**
+	 * @return node -> status, of all the nodes the request was sent to
+	 */
+	public Map<String, Status> getStatuses() {
+		return Collections.unmodifiableMap(statuses);
+	}
+
+	public boolean isComplete() {
+		return responses.size() == statuses.size();
+	}
+}
@@ -83,6 +83,85 @@ public class PortalConfig extends RefreshableConfig {
 		return getIntProperty("api.readTimeout", 10000);
 	}
 
+	/**
+	 * @return the delay in ms after which a slow GET request is sent to the next admin service as well, 0 to disable
+	 */
+	public int hedgeDelay() {
+		return getIntProperty("api.hedgeDelay", 1000);
+	}
+
+	/**
+	 * @return the max time in ms to wait for the responses of a request sent to all the config services, 0 to wait for
+	 * all of them
+	 */
+	public int fanOutDeadline() {
+		return getIntProperty("api.fanOutDeadline", 5000);
+	}
+
+	public int maxConnections() {
+		return getIntProperty("api.pool.maxTotal", 200);
+	}
+
+	public int maxConnectionsPerRoute() {
+		return getIntProperty("api.pool.maxPerRoute", 20);
+	}
+
+	/**
+	 * @return the max connections to each service of the env, api.pool.maxPerRoute.{env} overrides api.pool.maxPerRoute
+	 */
+	public int maxConnectionsPerRoute(Env env) {
+		return getIntProperty("api.pool.maxPerRoute." + env.name().toLowerCase(), maxConnectionsPerRoute());
+	}
+
+	/**
+	 * @return the max time in ms to wait for a free connection in the pool
+	 */
+	public int connectionRequestTimeout() {
+		return getIntProperty("api.pool.connectionRequestTimeout", 1000);
+	}
+
+	/**
+	 * @return the max time in ms to keep an idle connection alive, if the server does not say otherwise
+	 */
+	public int connectionKeepAlive() {
+		return getIntProperty("api.pool.keepAlive", 60000);
+	}
+
+	/**
+	 * @return the time in ms after which idle connections are evicted from the pool
+	 */
+	public int connectionIdleTimeout() {
+		return getIntProperty("api.pool.idleTimeout", 30000);
+	}
+
+	/**
+	 * @return the max time in ms to wait for each env when working on several envs at once, 0 to wait for all of them
+	 */
+	public int multiEnvTimeout() {
+		return getIntProperty("api.multiEnvTimeout", 10000);
+	}
+
+	/**
+	 * @return the consecutive connection failures after which a service is not requested for a while, 0 to disable
+	 */
+	public int circuitBreakerFailureThreshold() {
+		return getIntProperty("api.circuitBreaker.failureThreshold", 5);
+	}
+
+	/**
+	 * @return the time in ms a service is not requested after too many failures, before a trial request is let through
+	 */
+	public int circuitBreakerOpenDuration() {
+		return getIntProperty("api.circuitBreaker.openDuration", 10000);
+	}
+
+	/**
+	 * @return the time in ms after which the cached permissions of a user are reloaded, 0 to disable the cache
+	 */
+	public int permissionCacheExpireTime() {
+		return getIntProperty("permission.cache.expireTime", 60000);
+	}
+
 	public List<Organization> organizations() {
 
 		String organizations = getValue("organizations");
@@ -129,6 +208,38 @@ public class PortalConfig extends RefreshableConfig {
 		return getValue("consumer.token.salt", "apollo-portal");
 	}
 
+	/**
+	 * @return the time in ms a resolved consumer token is cached, 0 to disable the cache
+	 */
+	public int consumerTokenCacheExpireTime() {
+		return getIntProperty("consumer.token.cache.expireTime", 60000);
+	}
+
+	/**
+	 * @return the time in ms an unknown or expired consumer token is remembered as invalid
+	 */
+	public int consumerTokenNegativeCacheExpireTime() {
+		return getIntProperty("consumer.token.cache.negativeExpireTime", 5000);
+	}
+
+	/**
+	 * @return the max consumer audits waiting to be written, further audits are dropped
+	 */
+	public int consumerAuditQueueSize() {
+		return getIntProperty("consumer.audit.queueSize", 10000);
+	}
+
+	public int consumerAuditBatchSize() {
+		return getIntProperty("consumer.audit.batchSize", 100);
+	}
+
+	/**
+	 * @return the threads writing consumer audits to the db
+	 */
+	public int consumerAuditWriters() {
+		return getIntProperty("consumer.audit.writers", 2);
+	}
+
 	public String emailSender() {
 		return getValue("email.sender");
 	}
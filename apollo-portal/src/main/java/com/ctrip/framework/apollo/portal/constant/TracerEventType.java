@@ -18,8 +18,24 @@ public interface TracerEventType {
 
   String API_RETRY = "API.Retry";
 
+  String API_HEDGE = "API.Hedge";
+
+  String API_TIMEOUT = "API.Timeout";
+
+  String API_CIRCUIT_OPEN = "API.CircuitOpen";
+
+  String API_REJECTED = "API.Rejected";
+
+  String API_CONNECTION_POOL = "API.ConnectionPool";
+
+  String ENV_TIMEOUT = "Env.Timeout";
+
+  String ENV_REJECTED = "Env.Rejected";
+
   String USER_ACCESS = "User.Access";
 
+  String CONSUMER_AUDIT = "Consumer.Audit";
+
   String CREATE_GRAY_RELEASE = "GrayRelease.Create";
 
   String DELETE_GRAY_RELEASE = "GrayRelease.Delete";
@@ -3,6 +3,7 @@ package com.ctrip.framework.apollo.portal.controller;
 
 import com.google.common.collect.Sets;
 
+import com.ctrip.framework.apollo.common.dto.AppDTO;
 import com.ctrip.framework.apollo.common.entity.App;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.common.http.MultiResponseEntity;
@@ -10,6 +11,8 @@ import com.ctrip.framework.apollo.common.http.RichResponseEntity;
 import com.ctrip.framework.apollo.common.utils.InputValidator;
 import com.ctrip.framework.apollo.common.utils.RequestPrecondition;
 import com.ctrip.framework.apollo.core.enums.Env;
+import com.ctrip.framework.apollo.portal.component.MultiEnvExecutor;
+import com.ctrip.framework.apollo.portal.component.MultiEnvExecutor.EnvResult;
 import com.ctrip.framework.apollo.portal.component.PortalSettings;
 import com.ctrip.framework.apollo.portal.entity.model.AppModel;
 import com.ctrip.framework.apollo.portal.entity.vo.EnvClusterInfo;
@@ -37,6 +40,7 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.client.HttpClientErrorException;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
@@ -55,6 +59,8 @@ public class AppController {
   private ApplicationEventPublisher publisher;
   @Autowired
   private RolePermissionService rolePermissionService;
+  @Autowired
+  private MultiEnvExecutor multiEnvExecutor;
 
   @RequestMapping(value = "", method = RequestMethod.GET)
   public List<App> findApps(@RequestParam(value = "appIds", required = false) String appIds) {
@@ -122,14 +128,16 @@ public class AppController {
   public MultiResponseEntity<EnvClusterInfo> nav(@PathVariable String appId) {
 
     MultiResponseEntity<EnvClusterInfo> response = MultiResponseEntity.ok();
-    List<Env> envs = portalSettings.getActiveEnvs();
-    for (Env env : envs) {
-      try {
-        response.addResponseEntity(RichResponseEntity.ok(appService.createEnvNavNode(env, appId)));
-      } catch (Exception e) {
+    Map<Env, EnvResult<EnvClusterInfo>> results =
+        multiEnvExecutor.invokeAll(portalSettings.getActiveEnvs(), env -> appService.createEnvNavNode(env, appId));
+    for (Map.Entry<Env, EnvResult<EnvClusterInfo>> entry : results.entrySet()) {
+      EnvResult<EnvClusterInfo> result = entry.getValue();
+      if (result.isSuccess()) {
+        response.addResponseEntity(RichResponseEntity.ok(result.getValue()));
+      } else {
         response.addResponseEntity(RichResponseEntity.error(HttpStatus.INTERNAL_SERVER_ERROR,
-                                                            "load env:" + env.name() + " cluster error." + e
-                                                                .getMessage()));
+                                                            "load env:" + entry.getKey().name() + " cluster error."
+                                                            + result.getErrorMessage()));
       }
     }
     return response;
@@ -160,19 +168,23 @@ public class AppController {
   public MultiResponseEntity<Env> findMissEnvs(@PathVariable String appId) {
 
     MultiResponseEntity<Env> response = MultiResponseEntity.ok();
-    for (Env env : portalSettings.getActiveEnvs()) {
-      try {
-        appService.load(env, appId);
-      } catch (Exception e) {
-        if (e instanceof HttpClientErrorException &&
-            ((HttpClientErrorException) e).getStatusCode() == HttpStatus.NOT_FOUND) {
-          response.addResponseEntity(RichResponseEntity.ok(env));
-        } else {
-          response.addResponseEntity(RichResponseEntity.error(HttpStatus.INTERNAL_SERVER_ERROR,
-                                                              String.format("load appId:%s from env %s error.", appId,
-                                                                            env)
-                                                              + e.getMessage()));
-        }
+    Map<Env, EnvResult<AppDTO>> results =
+        multiEnvExecutor.invokeAll(portalSettings.getActiveEnvs(), env -> appService.load(env, appId));
+    for (Map.Entry<Env, EnvResult<AppDTO>> entry : results.entrySet()) {
+      Env env = entry.getKey();
+      EnvResult<AppDTO> result = entry.getValue();
+      if (result.isSuccess()) {
+        continue;
+      }
+      Throwable e = result.getError();
+      if (e instanceof HttpClientErrorException &&
+          ((HttpClientErrorException) e).getStatusCode() == HttpStatus.NOT_FOUND) {
+        response.addResponseEntity(RichResponseEntity.ok(env));
+      } else {
+        response.addResponseEntity(RichResponseEntity.error(HttpStatus.INTERNAL_SERVER_ERROR,
+                                                            String.format("load appId:%s from env %s error.", appId,
+                                                                          env)
+                                                            + result.getErrorMessage()));
       }
     }
 
@@ -4,6 +4,8 @@ import com.ctrip.framework.apollo.common.dto.AppDTO;
 import com.ctrip.framework.apollo.common.utils.BeanUtils;
 import com.ctrip.framework.apollo.core.enums.Env;
 import com.ctrip.framework.apollo.portal.api.AdminServiceAPI;
+import com.ctrip.framework.apollo.portal.component.MultiEnvExecutor;
+import com.ctrip.framework.apollo.portal.component.MultiEnvExecutor.EnvResult;
 import com.ctrip.framework.apollo.portal.component.PortalSettings;
 import com.ctrip.framework.apollo.tracer.Tracer;
 
@@ -13,7 +15,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
+import java.util.Map;
 
 @Component
 public class AppInfoChangedListener {
@@ -23,6 +25,8 @@ public class AppInfoChangedListener {
   private AdminServiceAPI.AppAPI appAPI;
   @Autowired
   private PortalSettings portalSettings;
+  @Autowired
+  private MultiEnvExecutor multiEnvExecutor;
 
 
   @EventListener
@@ -30,11 +34,14 @@ public class AppInfoChangedListener {
     AppDTO appDTO = BeanUtils.transfrom(AppDTO.class, event.getApp());
     String appId = appDTO.getAppId();
 
-    List<Env> envs = portalSettings.getActiveEnvs();
-    for (Env env : envs) {
-      try {
-        appAPI.updateApp(env, appDTO);
-      } catch (Throwable e) {
+    Map<Env, EnvResult<Void>> results = multiEnvExecutor.invokeAll(portalSettings.getActiveEnvs(), env -> {
+      appAPI.updateApp(env, appDTO);
+      return null;
+    }, 0);
+    for (Map.Entry<Env, EnvResult<Void>> entry : results.entrySet()) {
+      Env env = entry.getKey();
+      Throwable e = entry.getValue().getError();
+      if (e != null) {
         logger.error("Update app's info failed. Env = {}, AppId = {}", env, appId, e);
         Tracer.logError(String.format("Update app's info failed. Env = %s, AppId = %s", env, appId), e);
       }
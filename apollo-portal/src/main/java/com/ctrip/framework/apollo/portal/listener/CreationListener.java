@@ -5,6 +5,8 @@ import com.ctrip.framework.apollo.common.dto.AppNamespaceDTO;
 import com.ctrip.framework.apollo.common.utils.BeanUtils;
 import com.ctrip.framework.apollo.core.enums.Env;
 import com.ctrip.framework.apollo.portal.api.AdminServiceAPI;
+import com.ctrip.framework.apollo.portal.component.MultiEnvExecutor;
+import com.ctrip.framework.apollo.portal.component.MultiEnvExecutor.EnvResult;
 import com.ctrip.framework.apollo.portal.component.PortalSettings;
 import com.ctrip.framework.apollo.tracer.Tracer;
 
@@ -14,7 +16,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
+import java.util.Map;
 
 @Component
 public class CreationListener {
@@ -24,6 +26,8 @@ public class CreationListener {
   @Autowired
   private PortalSettings portalSettings;
   @Autowired
+  private MultiEnvExecutor multiEnvExecutor;
+  @Autowired
   private AdminServiceAPI.AppAPI appAPI;
   @Autowired
   private AdminServiceAPI.NamespaceAPI namespaceAPI;
@@ -31,11 +35,14 @@ public class CreationListener {
   @EventListener
   public void onAppCreationEvent(AppCreationEvent event) {
     AppDTO appDTO = BeanUtils.transfrom(AppDTO.class, event.getApp());
-    List<Env> envs = portalSettings.getActiveEnvs();
-    for (Env env : envs) {
-      try {
-        appAPI.createApp(env, appDTO);
-      } catch (Throwable e) {
+    Map<Env, EnvResult<Void>> results = multiEnvExecutor.invokeAll(portalSettings.getActiveEnvs(), env -> {
+      appAPI.createApp(env, appDTO);
+      return null;
+    }, 0);
+    for (Map.Entry<Env, EnvResult<Void>> entry : results.entrySet()) {
+      Env env = entry.getKey();
+      Throwable e = entry.getValue().getError();
+      if (e != null) {
         logger.error("Create app failed. appId = {}, env = {})", appDTO.getAppId(), env, e);
         Tracer.logError(String.format("Create app failed. appId = %s, env = %s", appDTO.getAppId(), env), e);
       }
@@ -45,11 +52,12 @@ public class CreationListener {
   @EventListener
   public void onAppNamespaceCreationEvent(AppNamespaceCreationEvent event) {
     AppNamespaceDTO appNamespace = BeanUtils.transfrom(AppNamespaceDTO.class, event.getAppNamespace());
-    List<Env> envs = portalSettings.getActiveEnvs();
-    for (Env env : envs) {
-      try {
-        namespaceAPI.createAppNamespace(env, appNamespace);
-      } catch (Throwable e) {
+    Map<Env, EnvResult<AppNamespaceDTO>> results = multiEnvExecutor.invokeAll(portalSettings.getActiveEnvs(),
+        env -> namespaceAPI.createAppNamespace(env, appNamespace), 0);
+    for (Map.Entry<Env, EnvResult<AppNamespaceDTO>> entry : results.entrySet()) {
+      Env env = entry.getKey();
+      Throwable e = entry.getValue().getError();
+      if (e != null) {
         logger.error("Create appNamespace failed. appId = {}, env = {}", appNamespace.getAppId(), env, e);
         Tracer.logError(String.format("Create appNamespace failed. appId = %s, env = %s", appNamespace.getAppId(), env), e);
       }
@@ -8,6 +8,7 @@ import com.google.gson.Gson;
 import com.ctrip.framework.apollo.common.constants.GsonType;
 import com.ctrip.framework.apollo.common.dto.ItemDTO;
 import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceDetailDTO;
 import com.ctrip.framework.apollo.common.dto.ReleaseDTO;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
@@ -16,6 +17,8 @@ import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
 import com.ctrip.framework.apollo.core.enums.Env;
 import com.ctrip.framework.apollo.core.utils.StringUtils;
 import com.ctrip.framework.apollo.portal.api.AdminServiceAPI;
+import com.ctrip.framework.apollo.portal.component.MultiEnvExecutor;
+import com.ctrip.framework.apollo.portal.component.MultiEnvExecutor.EnvResult;
 import com.ctrip.framework.apollo.portal.component.PortalSettings;
 import com.ctrip.framework.apollo.portal.constant.TracerEventType;
 import com.ctrip.framework.apollo.portal.entity.bo.ItemBO;
@@ -26,8 +29,10 @@ import com.ctrip.framework.apollo.tracer.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.HttpClientErrorException;
 
 import java.util.*;
 
@@ -55,6 +60,8 @@ public class NamespaceService {
   private InstanceService instanceService;
   @Autowired
   private NamespaceBranchService branchService;
+  @Autowired
+  private MultiEnvExecutor multiEnvExecutor;
 
 
   public NamespaceDTO createNamespace(Env env, NamespaceDTO namespace) {
@@ -116,6 +123,44 @@ public class NamespaceService {
    */
   public List<NamespaceBO> findNamespaceBOs(String appId, Env env, String clusterName) {
 
+    List<NamespaceDetailDTO> details;
+    try {
+      details = namespaceAPI.findNamespaceDetailsByCluster(appId, env, clusterName);
+    } catch (HttpClientErrorException e) {
+      if (e.getStatusCode() != HttpStatus.NOT_FOUND) {
+        throw e;
+      }
+      //admin service does not provide namespace details yet, load namespaces one by one
+      return findNamespaceBOsOneByOne(appId, env, clusterName);
+    }
+
+    if (details == null || details.size() == 0) {
+      throw new BadRequestException("namespaces not exist");
+    }
+
+    Map<String, AppNamespace> appNamespaces = BeanUtils.mapByKey("name", appNamespaceService.findByAppId(appId));
+
+    List<NamespaceBO> namespaceBOs = new LinkedList<>();
+    for (NamespaceDetailDTO detail : details) {
+      NamespaceDTO namespace = detail.getBaseInfo();
+      try {
+        AppNamespace appNamespace = appNamespaces.get(namespace.getNamespaceName());
+        if (appNamespace == null) {
+          appNamespace = appNamespaceService.findPublicAppNamespace(namespace.getNamespaceName());
+        }
+        namespaceBOs.add(transformNamespace2BO(namespace, appNamespace, detail.getItems(), detail.getLatestRelease()));
+      } catch (Exception e) {
+        logger.error("parse namespace error. app id:{}, env:{}, clusterName:{}, namespace:{}",
+                     appId, env, clusterName, namespace.getNamespaceName(), e);
+        throw e;
+      }
+    }
+
+    return namespaceBOs;
+  }
+
+  private List<NamespaceBO> findNamespaceBOsOneByOne(String appId, Env env, String clusterName) {
+
     List<NamespaceDTO> namespaces = namespaceAPI.findNamespaceByCluster(appId, env, clusterName);
     if (namespaces == null || namespaces.size() == 0) {
       throw new BadRequestException("namespaces not exist");
@@ -174,10 +219,22 @@ public class NamespaceService {
   public Map<String, Map<String, Boolean>> getNamespacesPublishInfo(String appId) {
     Map<String, Map<String, Boolean>> result = Maps.newHashMap();
 
-    Set<Env> envs = portalConfig.publishTipsSupportedEnvs();
-    for (Env env : envs) {
+    List<Env> envs = new LinkedList<>();
+    for (Env env : portalConfig.publishTipsSupportedEnvs()) {
       if (portalSettings.isEnvActive(env)) {
-        result.put(env.toString(), namespaceAPI.getNamespacePublishInfo(env, appId));
+        envs.add(env);
+      }
+    }
+
+    Map<Env, EnvResult<Map<String, Boolean>>> publishInfos =
+        multiEnvExecutor.invokeAll(envs, env -> namespaceAPI.getNamespacePublishInfo(env, appId));
+    for (Map.Entry<Env, EnvResult<Map<String, Boolean>>> entry : publishInfos.entrySet()) {
+      EnvResult<Map<String, Boolean>> publishInfo = entry.getValue();
+      if (publishInfo.isSuccess()) {
+        result.put(entry.getKey().toString(), publishInfo.getValue());
+      } else {
+        logger.error("load namespace publish info error. app id:{}, env:{}", appId, entry.getKey(),
+                     publishInfo.getError());
       }
     }
 
@@ -185,28 +242,44 @@ public class NamespaceService {
   }
 
   private NamespaceBO transformNamespace2BO(Env env, NamespaceDTO namespace) {
-    NamespaceBO namespaceBO = new NamespaceBO();
-    namespaceBO.setBaseInfo(namespace);
-
     String appId = namespace.getAppId();
     String clusterName = namespace.getClusterName();
     String namespaceName = namespace.getNamespaceName();
 
-    fillAppNamespaceProperties(namespaceBO);
+    //先从当前appId下面找,包含私有的和公共的
+    AppNamespace appNamespace = appNamespaceService.findByAppIdAndName(appId, namespaceName);
+    //再从公共的app namespace里面找
+    if (appNamespace == null) {
+      appNamespace = appNamespaceService.findPublicAppNamespace(namespaceName);
+    }
+
+    //latest Release
+    ReleaseDTO latestRelease = releaseService.loadLatestRelease(appId, env, clusterName, namespaceName);
+
+    //not Release config items
+    List<ItemDTO> items = itemService.findItems(appId, env, clusterName, namespaceName);
+
+    return transformNamespace2BO(namespace, appNamespace, items, latestRelease);
+  }
+
+  private NamespaceBO transformNamespace2BO(NamespaceDTO namespace, AppNamespace appNamespace,
+                                            List<ItemDTO> items, ReleaseDTO latestRelease) {
+    NamespaceBO namespaceBO = new NamespaceBO();
+    namespaceBO.setBaseInfo(namespace);
+
+    fillAppNamespaceProperties(namespaceBO, appNamespace);
 
     List<ItemBO> itemBOs = new LinkedList<>();
     namespaceBO.setItems(itemBOs);
 
-    //latest Release
-    ReleaseDTO latestRelease;
     Map<String, String> releaseItems = new HashMap<>();
-    latestRelease = releaseService.loadLatestRelease(appId, env, clusterName, namespaceName);
     if (latestRelease != null) {
       releaseItems = gson.fromJson(latestRelease.getConfigurations(), GsonType.CONFIG);
     }
 
-    //not Release config items
-    List<ItemDTO> items = itemService.findItems(appId, env, clusterName, namespaceName);
+    if (items == null) {
+      items = Collections.emptyList();
+    }
     int modifiedItemCnt = 0;
     for (ItemDTO itemDTO : items) {
 
@@ -229,17 +302,7 @@ public class NamespaceService {
     return namespaceBO;
   }
 
-  private void fillAppNamespaceProperties(NamespaceBO namespace) {
-
-    NamespaceDTO namespaceDTO = namespace.getBaseInfo();
-    //先从当前appId下面找,包含私有的和公共的
-    AppNamespace appNamespace =
-        appNamespaceService.findByAppIdAndName(namespaceDTO.getAppId(), namespaceDTO.getNamespaceName());
-    //再从公共的app namespace里面找
-    if (appNamespace == null) {
-      appNamespace = appNamespaceService.findPublicAppNamespace(namespaceDTO.getNamespaceName());
-    }
-
+  private void fillAppNamespaceProperties(NamespaceBO namespace, AppNamespace appNamespace) {
     String format;
     boolean isPublic;
     if (appNamespace == null) {
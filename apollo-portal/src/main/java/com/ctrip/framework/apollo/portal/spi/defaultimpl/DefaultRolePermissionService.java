@@ -11,21 +11,40 @@ import com.ctrip.framework.apollo.portal.repository.RolePermissionRepository;
 import com.ctrip.framework.apollo.portal.repository.RoleRepository;
 import com.ctrip.framework.apollo.portal.repository.UserRoleRepository;
 import com.ctrip.framework.apollo.portal.service.RolePermissionService;
+import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.AtomicLongMap;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.CollectionUtils;
 
+import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by timothy on 2017/4/26.
+ *
+ * <p>The permissions of each user are indexed in memory, so permission checks don't query the db. The index of a user
+ * is dropped when roles are assigned to or removed from the user, and expires after
+ * {@link PortalConfig#permissionCacheExpireTime()} so that changes made by other portal instances are picked up.</p>
+ *
+ * <p>Every drop also bumps the generation of the user, and an index loaded under an older generation is loaded again,
+ * so that a load which read the roles before the change and finished after the drop is not kept.</p>
  */
 public class DefaultRolePermissionService implements RolePermissionService {
+    private static final int MAX_CACHED_USERS = 10000;
+    private static final Joiner PERMISSION_KEY_JOINER = Joiner.on("+");
+
     @Autowired
     private RoleRepository roleRepository;
     @Autowired
@@ -37,6 +56,26 @@ public class DefaultRolePermissionService implements RolePermissionService {
     @Autowired
     private PortalConfig portalConfig;
 
+    private final AtomicLongMap<String> userGenerations = AtomicLongMap.create();
+    private LoadingCache<String, UserPermissions> userPermissions;
+
+    @PostConstruct
+    private void initialize() {
+        int expireTime = portalConfig.permissionCacheExpireTime();
+        // an expire time of 0 turns the index off
+        userPermissions = CacheBuilder.newBuilder()
+                .maximumSize(expireTime > 0 ? MAX_CACHED_USERS : 0)
+                .expireAfterWrite(Math.max(expireTime, 0), TimeUnit.MILLISECONDS)
+                .build(new CacheLoader<String, UserPermissions>() {
+                    @Override
+                    public UserPermissions load(String userId) {
+                        // read the generation before the roles, a drop after this point makes the load stale
+                        long generation = userGenerations.get(userId);
+                        return new UserPermissions(generation, loadUserPermissions(userId));
+                    }
+                });
+    }
+
 
     /**
      * Create role with permissions, note that role name should be unique
@@ -92,6 +131,7 @@ public class DefaultRolePermissionService implements RolePermissionService {
         });
 
         userRoleRepository.save(toCreate);
+        invalidateUserPermissions(toAssignUserIds);
         return toAssignUserIds;
     }
 
@@ -113,6 +153,7 @@ public class DefaultRolePermissionService implements RolePermissionService {
         }
 
         userRoleRepository.save(existedUserRoles);
+        invalidateUserPermissions(userIds);
     }
 
     /**
@@ -147,35 +188,73 @@ public class DefaultRolePermissionService implements RolePermissionService {
      * Check whether user has the permission
      */
     public boolean userHasPermission(String userId, String permissionType, String targetId) {
-        Permission permission =
-                permissionRepository.findTopByPermissionTypeAndTargetId(permissionType, targetId);
-        if (permission == null) {
-            return false;
+        if (isSuperAdmin(userId)) {
+            // super admins have all the existing permissions
+            return permissionRepository.findTopByPermissionTypeAndTargetId(permissionType, targetId) != null;
         }
 
-        if (isSuperAdmin(userId)) {
-            return true;
+        return getUserPermissions(userId).contains(permissionKey(permissionType, targetId));
+    }
+
+    private Set<String> getUserPermissions(String userId) {
+        UserPermissions permissions = userPermissions.getUnchecked(userId);
+        while (permissions.generation != userGenerations.get(userId)) {
+            // the roles of the user were changed while the entry was loaded, so it may hold the roles before the change
+            userPermissions.asMap().remove(userId, permissions);
+            permissions = userPermissions.getUnchecked(userId);
         }
+        return permissions.permissions;
+    }
 
+    private Set<String> loadUserPermissions(String userId) {
         List<UserRole> userRoles = userRoleRepository.findByUserId(userId);
         if (CollectionUtils.isEmpty(userRoles)) {
-            return false;
+            return Collections.emptySet();
         }
 
         Set<Long> roleIds =
                 FluentIterable.from(userRoles).transform(userRole -> userRole.getRoleId()).toSet();
         List<RolePermission> rolePermissions = rolePermissionRepository.findByRoleIdIn(roleIds);
         if (CollectionUtils.isEmpty(rolePermissions)) {
-            return false;
+            return Collections.emptySet();
         }
 
-        for (RolePermission rolePermission : rolePermissions) {
-            if (rolePermission.getPermissionId() == permission.getId()) {
-                return true;
-            }
+        Set<Long> permissionIds =
+                FluentIterable.from(rolePermissions).transform(RolePermission::getPermissionId).toSet();
+        Iterable<Permission> permissions = permissionRepository.findAll(permissionIds);
+
+        return FluentIterable.from(permissions)
+                .transform(permission -> permissionKey(permission.getPermissionType(), permission.getTargetId()))
+                .toSet();
+    }
+
+    private String permissionKey(String permissionType, String targetId) {
+        return PERMISSION_KEY_JOINER.join(permissionType, targetId);
+    }
+
+    /**
+     * Drop the permission index of the users once the current transaction commits, so that it is not reloaded with
+     * the roles before the change
+     */
+    private void invalidateUserPermissions(Collection<String> userIds) {
+        Set<String> toInvalidate = Sets.newHashSet(userIds);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            doInvalidateUserPermissions(toInvalidate);
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                doInvalidateUserPermissions(toInvalidate);
+            }
+        });
+    }
 
-        return false;
+    private void doInvalidateUserPermissions(Set<String> userIds) {
+        for (String userId : userIds) {
+            userGenerations.incrementAndGet(userId);
+        }
+        userPermissions.invalidateAll(userIds);
     }
 
     public boolean isSuperAdmin(String userId) {
@@ -220,4 +299,14 @@ public class DefaultRolePermissionService implements RolePermissionService {
         return FluentIterable.from(results).toSet();
     }
 
+    private static class UserPermissions {
+        private final long generation;
+        private final Set<String> permissions;
+
+        private UserPermissions(long generation, Set<String> permissions) {
+            this.generation = generation;
+            this.permissions = permissions;
+        }
+    }
+
 }
@@ -82,6 +82,75 @@ public class ConsumerServiceTest extends AbstractUnitTest {
     assertEquals(someConsumerId, consumerService.getConsumerIdByToken(someToken).longValue());
   }
 
+  @Test
+  public void testGetConsumerIdCached() throws Exception {
+    String someToken = "someToken";
+    long someConsumerId = 1;
+    ConsumerToken someConsumerToken = new ConsumerToken();
+    someConsumerToken.setConsumerId(someConsumerId);
+    someConsumerToken.setExpires(new Date(System.currentTimeMillis() + 60000));
+
+    when(portalConfig.consumerTokenCacheExpireTime()).thenReturn(60000);
+    when(consumerTokenRepository.findTopByTokenAndExpiresAfter(eq(someToken), any(Date.class)))
+        .thenReturn(someConsumerToken);
+
+    assertEquals(someConsumerId, consumerService.getConsumerIdByToken(someToken).longValue());
+    assertEquals(someConsumerId, consumerService.getConsumerIdByToken(someToken).longValue());
+
+    verify(consumerTokenRepository, times(1)).findTopByTokenAndExpiresAfter(eq(someToken), any(Date.class));
+  }
+
+  @Test
+  public void testGetConsumerIdWithExpiredCachedToken() throws Exception {
+    String someToken = "someToken";
+    ConsumerToken someConsumerToken = new ConsumerToken();
+    someConsumerToken.setConsumerId(1);
+    someConsumerToken.setExpires(new Date(System.currentTimeMillis() - 1));
+
+    when(portalConfig.consumerTokenCacheExpireTime()).thenReturn(60000);
+    when(consumerTokenRepository.findTopByTokenAndExpiresAfter(eq(someToken), any(Date.class)))
+        .thenReturn(someConsumerToken).thenReturn(null);
+
+    consumerService.getConsumerIdByToken(someToken);
+
+    assertNull(consumerService.getConsumerIdByToken(someToken));
+    verify(consumerTokenRepository, times(2)).findTopByTokenAndExpiresAfter(eq(someToken), any(Date.class));
+  }
+
+  @Test
+  public void testGetConsumerIdWithInvalidTokenCached() throws Exception {
+    String someInvalidToken = "someInvalidToken";
+
+    when(portalConfig.consumerTokenNegativeCacheExpireTime()).thenReturn(60000);
+
+    assertNull(consumerService.getConsumerIdByToken(someInvalidToken));
+    assertNull(consumerService.getConsumerIdByToken(someInvalidToken));
+
+    verify(consumerTokenRepository, times(1)).findTopByTokenAndExpiresAfter(eq(someInvalidToken), any(Date.class));
+  }
+
+  @Test
+  public void testCreateConsumerTokenInvalidatesCachedToken() throws Exception {
+    String someToken = "someToken";
+    long someConsumerId = 1;
+    ConsumerToken someConsumerToken = new ConsumerToken();
+    someConsumerToken.setConsumerId(someConsumerId);
+    someConsumerToken.setToken(someToken);
+    someConsumerToken.setExpires(new Date(System.currentTimeMillis() + 60000));
+
+    when(portalConfig.consumerTokenNegativeCacheExpireTime()).thenReturn(60000);
+    when(portalConfig.consumerTokenCacheExpireTime()).thenReturn(60000);
+    when(consumerTokenRepository.findTopByTokenAndExpiresAfter(eq(someToken), any(Date.class)))
+        .thenReturn(null).thenReturn(someConsumerToken);
+    when(consumerTokenRepository.save(someConsumerToken)).thenReturn(someConsumerToken);
+
+    assertNull(consumerService.getConsumerIdByToken(someToken));
+
+    consumerService.createConsumerToken(someConsumerToken);
+
+    assertEquals(someConsumerId, consumerService.getConsumerIdByToken(someToken).longValue());
+  }
+
   @Test
   public void testGetConsumerIdWithNullToken() throws Exception {
     Long consumerId = consumerService.getConsumerIdByToken(null);
@@ -4,6 +4,7 @@ import com.google.common.util.concurrent.SettableFuture;
 
 import com.ctrip.framework.apollo.openapi.entity.ConsumerAudit;
 import com.ctrip.framework.apollo.openapi.service.ConsumerService;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
 
 import org.junit.After;
 import org.junit.Before;
@@ -16,11 +17,13 @@ import org.mockito.stubbing.Answer;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import javax.servlet.http.HttpServletRequest;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
@@ -35,13 +38,19 @@ public class ConsumerAuditUtilTest {
   private ConsumerService consumerService;
   @Mock
   private HttpServletRequest request;
+  @Mock
+  private PortalConfig portalConfig;
   private long batchTimeout = 50;
   private TimeUnit batchTimeUnit = TimeUnit.MILLISECONDS;
 
   @Before
   public void setUp() throws Exception {
     consumerAuditUtil = new ConsumerAuditUtil();
+    when(portalConfig.consumerAuditQueueSize()).thenReturn(100);
+    when(portalConfig.consumerAuditBatchSize()).thenReturn(1);
+    when(portalConfig.consumerAuditWriters()).thenReturn(2);
     ReflectionTestUtils.setField(consumerAuditUtil, "consumerService", consumerService);
+    ReflectionTestUtils.setField(consumerAuditUtil, "portalConfig", portalConfig);
     ReflectionTestUtils.setField(consumerAuditUtil, "BATCH_TIMEOUT", batchTimeout);
     ReflectionTestUtils.setField(consumerAuditUtil, "BATCH_TIMEUNIT", batchTimeUnit);
     consumerAuditUtil.afterPropertiesSet();
@@ -49,7 +58,7 @@ public class ConsumerAuditUtilTest {
 
   @After
   public void tearDown() throws Exception {
-    consumerAuditUtil.stopAudit();
+    consumerAuditUtil.destroy();
   }
 
   @Test
@@ -88,4 +97,34 @@ public class ConsumerAuditUtilTest {
     assertEquals(someConsumerId, audit.getConsumerId());
   }
 
+  @Test
+  public void testAuditDroppedWhenQueueIsFull() throws Exception {
+    when(request.getRequestURI()).thenReturn("someUri");
+    when(request.getMethod()).thenReturn("POST");
+
+    CountDownLatch writing = new CountDownLatch(2);
+    CountDownLatch release = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      writing.countDown();
+      release.await(5, TimeUnit.SECONDS);
+      return null;
+    }).when(consumerService).createConsumerAudits(anyCollectionOf(ConsumerAudit.class));
+
+    //keep both writers busy
+    consumerAuditUtil.audit(request, 1);
+    consumerAuditUtil.audit(request, 1);
+    assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+    int queued = 0;
+    for (int i = 0; i < 150; i++) {
+      if (consumerAuditUtil.audit(request, 1)) {
+        queued++;
+      }
+    }
+    release.countDown();
+
+    assertEquals(100, queued);
+    assertEquals(50, consumerAuditUtil.getDroppedAudits());
+  }
+
 }
\ No newline at end of file
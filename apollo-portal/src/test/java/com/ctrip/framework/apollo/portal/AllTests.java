@@ -6,6 +6,7 @@ import com.ctrip.framework.apollo.openapi.service.ConsumerRolePermissionServiceT
 import com.ctrip.framework.apollo.openapi.service.ConsumerServiceTest;
 import com.ctrip.framework.apollo.openapi.util.ConsumerAuditUtilTest;
 import com.ctrip.framework.apollo.openapi.util.ConsumerAuthUtilTest;
+import com.ctrip.framework.apollo.portal.component.MultiEnvExecutorTest;
 import com.ctrip.framework.apollo.portal.component.txtresolver.FileTextResolverTest;
 import com.ctrip.framework.apollo.portal.component.txtresolver.PropertyResolverTest;
 import com.ctrip.framework.apollo.portal.config.ConfigTest;
@@ -29,7 +30,7 @@ import org.junit.runners.Suite.SuiteClasses;
     RetryableRestTemplateTest.class, ConsumerRolePermissionServiceTest.class,
     ConsumerAuthenticationFilterTest.class, ConsumerAuthUtilTest.class, ConsumerServiceTest.class,
     ConsumerAuditUtilTest.class, ConfigTest.class, FavoriteServiceTest.class,
-    CtripUserServiceTest.class
+    CtripUserServiceTest.class, MultiEnvExecutorTest.class
 
 })
 public class AllTests {
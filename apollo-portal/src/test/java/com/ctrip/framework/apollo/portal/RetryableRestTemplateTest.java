@@ -4,7 +4,11 @@ import com.ctrip.framework.apollo.common.exception.ServiceException;
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
 import com.ctrip.framework.apollo.core.enums.Env;
 import com.ctrip.framework.apollo.portal.component.AdminServiceAddressLocator;
+import com.ctrip.framework.apollo.portal.component.ConfigServiceAddressLocator;
+import com.ctrip.framework.apollo.portal.component.RestTemplateFactory;
 import com.ctrip.framework.apollo.portal.component.RetryableRestTemplate;
+import com.ctrip.framework.apollo.portal.component.ScatterGatherResult;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
 
 import org.apache.http.HttpHost;
 import org.apache.http.conn.ConnectTimeoutException;
@@ -14,14 +18,22 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
 import java.net.SocketTimeoutException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.times;
@@ -33,7 +45,13 @@ public class RetryableRestTemplateTest extends AbstractUnitTest {
   @Mock
   private AdminServiceAddressLocator serviceAddressLocator;
   @Mock
+  private ConfigServiceAddressLocator configServiceAddressLocator;
+  @Mock
   private RestTemplate restTemplate;
+  @Mock
+  private PortalConfig portalConfig;
+  @Mock
+  private RestTemplateFactory restTemplateFactory;
   @InjectMocks
   private RetryableRestTemplate retryableRestTemplate;
 
@@ -137,9 +155,200 @@ public class RetryableRestTemplateTest extends AbstractUnitTest {
     verify(restTemplate).put(serviceOne + "/" + path, request);
   }
 
+  @Test
+  public void testPostToAllConfigServices() {
+    ParameterizedTypeReference<Object> reference = new ParameterizedTypeReference<Object>() {
+    };
+    when(configServiceAddressLocator.getServiceList(any()))
+        .thenReturn(Arrays.asList(mockService(serviceOne), mockService(serviceTwo), mockService(serviceThree)));
+    when(restTemplate.exchange(serviceOne + "/" + path, HttpMethod.POST, new HttpEntity<>(request), reference))
+        .thenReturn(entity);
+    when(restTemplate.exchange(serviceTwo + "/" + path, HttpMethod.POST, new HttpEntity<>(request), reference))
+        .thenThrow(socketTimeoutException);
+    when(restTemplate.exchange(serviceThree + "/" + path, HttpMethod.POST, new HttpEntity<>(request), reference))
+        .thenReturn(entity);
+
+    Map<String, ResponseEntity<Object>> result = retryableRestTemplate.postToAllConfigServices(Env.DEV, path,
+        request, reference);
+
+    Assert.assertEquals(2, result.size());
+    Assert.assertSame(entity, result.get(serviceOne));
+    Assert.assertSame(entity, result.get(serviceThree));
+  }
+
+  @Test(expected = ServiceException.class)
+  public void testPostToAllConfigServicesAllDown() {
+    ParameterizedTypeReference<Object> reference = new ParameterizedTypeReference<Object>() {
+    };
+    when(configServiceAddressLocator.getServiceList(any()))
+        .thenReturn(Arrays.asList(mockService(serviceOne), mockService(serviceTwo)));
+    when(restTemplate.exchange(serviceOne + "/" + path, HttpMethod.POST, new HttpEntity<>(request), reference))
+        .thenThrow(socketTimeoutException);
+    when(restTemplate.exchange(serviceTwo + "/" + path, HttpMethod.POST, new HttpEntity<>(request), reference))
+        .thenThrow(connectTimeoutException);
+
+    retryableRestTemplate.postToAllConfigServices(Env.DEV, path, request, reference);
+  }
+
+  @Test
+  public void testScatterGatherWithDeadline() {
+    ParameterizedTypeReference<Object> reference = new ParameterizedTypeReference<Object>() {
+    };
+    when(portalConfig.fanOutDeadline()).thenReturn(500);
+    when(configServiceAddressLocator.getServiceList(any()))
+        .thenReturn(Arrays.asList(mockService(serviceOne), mockService(serviceTwo), mockService(serviceThree)));
+    when(restTemplate.exchange(serviceOne + "/" + path, HttpMethod.GET, null, reference)).thenAnswer(invocation -> {
+      TimeUnit.MILLISECONDS.sleep(50);
+      return entity;
+    });
+    when(restTemplate.exchange(serviceTwo + "/" + path, HttpMethod.GET, null, reference)).thenAnswer(invocation -> {
+      TimeUnit.SECONDS.sleep(5);
+      return entity;
+    });
+    when(restTemplate.exchange(serviceThree + "/" + path, HttpMethod.GET, null, reference))
+        .thenThrow(connectTimeoutException);
+
+    long start = System.currentTimeMillis();
+    ScatterGatherResult<Object> result = retryableRestTemplate.scatterGather(HttpMethod.GET, Env.DEV, path, null,
+        reference);
+
+    Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+    Assert.assertFalse(result.isComplete());
+    Assert.assertEquals(1, result.getResponses().size());
+    Assert.assertSame(entity, result.getResponses().get(serviceOne));
+    Assert.assertEquals(ScatterGatherResult.Status.SUCCESS, result.getStatuses().get(serviceOne));
+    Assert.assertEquals(ScatterGatherResult.Status.TIMEOUT, result.getStatuses().get(serviceTwo));
+    Assert.assertEquals(ScatterGatherResult.Status.FAILED, result.getStatuses().get(serviceThree));
+    Assert.assertTrue(retryableRestTemplate.latencyPercentile(Env.DEV, serviceOne, 99) >= 50);
+  }
+
+  @Test
+  public void testHedgedGet() {
+    Object slowResult = new Object();
+    Object result = new Object();
+    when(portalConfig.hedgeDelay()).thenReturn(50);
+    when(serviceAddressLocator.getServiceList(any()))
+        .thenReturn(Arrays.asList(mockService(serviceOne), mockService(serviceTwo), mockService(serviceThree)));
+    when(restTemplate.getForObject(serviceOne + "/" + path, Object.class)).thenAnswer(invocation -> {
+      TimeUnit.SECONDS.sleep(5);
+      return slowResult;
+    });
+    when(restTemplate.getForObject(serviceTwo + "/" + path, Object.class)).thenReturn(result);
+
+    long start = System.currentTimeMillis();
+    Object o = retryableRestTemplate.get(Env.DEV, path, Object.class);
+
+    Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+    Assert.assertSame(result, o);
+    verify(restTemplate, times(0)).getForObject(serviceThree + "/" + path, Object.class);
+  }
+
+  @Test
+  public void testHedgedGetRetriesOnFailure() {
+    Object result = new Object();
+    when(portalConfig.hedgeDelay()).thenReturn(5000);
+    when(serviceAddressLocator.getServiceList(any()))
+        .thenReturn(Arrays.asList(mockService(serviceOne), mockService(serviceTwo)));
+    when(restTemplate.getForObject(serviceOne + "/" + path, Object.class)).thenThrow(connectTimeoutException);
+    when(restTemplate.getForObject(serviceTwo + "/" + path, Object.class)).thenReturn(result);
+
+    long start = System.currentTimeMillis();
+    Object o = retryableRestTemplate.get(Env.DEV, path, Object.class);
+
+    Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+    Assert.assertSame(result, o);
+  }
+
+  @Test
+  public void testCircuitBreakerSkipsFailingService() {
+    Object result = new Object();
+    when(portalConfig.circuitBreakerFailureThreshold()).thenReturn(2);
+    when(portalConfig.circuitBreakerOpenDuration()).thenReturn(60000);
+    when(serviceAddressLocator.getServiceList(any()))
+        .thenReturn(Arrays.asList(mockService(serviceOne), mockService(serviceTwo)));
+    when(restTemplate.getForObject(serviceOne + "/" + path, Object.class)).thenThrow(connectTimeoutException);
+    when(restTemplate.getForObject(serviceTwo + "/" + path, Object.class)).thenReturn(result);
+
+    for (int i = 0; i < 5; i++) {
+      Assert.assertSame(result, retryableRestTemplate.get(Env.DEV, path, Object.class));
+    }
+
+    verify(restTemplate, times(2)).getForObject(serviceOne + "/" + path, Object.class);
+    verify(restTemplate, times(5)).getForObject(serviceTwo + "/" + path, Object.class);
+    verify(restTemplateFactory, times(5)).configureRoutes(any(), any());
+  }
+
+  @Test
+  public void testScatterGatherSkipsOpenCircuit() {
+    ParameterizedTypeReference<Object> reference = new ParameterizedTypeReference<Object>() {
+    };
+    when(portalConfig.circuitBreakerFailureThreshold()).thenReturn(1);
+    when(portalConfig.circuitBreakerOpenDuration()).thenReturn(60000);
+    when(configServiceAddressLocator.getServiceList(any()))
+        .thenReturn(Arrays.asList(mockService(serviceOne), mockService(serviceTwo)));
+    when(restTemplate.exchange(serviceOne + "/" + path, HttpMethod.GET, null, reference)).thenReturn(entity);
+    when(restTemplate.exchange(serviceTwo + "/" + path, HttpMethod.GET, null, reference))
+        .thenThrow(httpHostConnectException);
+
+    retryableRestTemplate.scatterGather(HttpMethod.GET, Env.DEV, path, null, reference);
+    ScatterGatherResult<Object> result = retryableRestTemplate.scatterGather(HttpMethod.GET, Env.DEV, path, null,
+        reference);
+
+    Assert.assertEquals(ScatterGatherResult.Status.SUCCESS, result.getStatuses().get(serviceOne));
+    Assert.assertEquals(ScatterGatherResult.Status.CIRCUIT_OPEN, result.getStatuses().get(serviceTwo));
+    verify(restTemplate, times(1)).exchange(serviceTwo + "/" + path, HttpMethod.GET, null, reference);
+  }
+
+  @Test
+  public void testScatterGatherRejectsServicesWhenThreadsAreBusy() {
+    ParameterizedTypeReference<Object> reference = new ParameterizedTypeReference<Object>() {
+    };
+    useSingleRequestThread();
+    when(portalConfig.fanOutDeadline()).thenReturn(1000);
+    when(configServiceAddressLocator.getServiceList(any()))
+        .thenReturn(Arrays.asList(mockService(serviceOne), mockService(serviceTwo)));
+    when(restTemplate.exchange(serviceOne + "/" + path, HttpMethod.GET, null, reference)).thenAnswer(invocation -> {
+      TimeUnit.MILLISECONDS.sleep(100);
+      return entity;
+    });
+
+    ScatterGatherResult<Object> result = retryableRestTemplate.scatterGather(HttpMethod.GET, Env.DEV, path, null,
+        reference);
+
+    Assert.assertEquals(ScatterGatherResult.Status.SUCCESS, result.getStatuses().get(serviceOne));
+    Assert.assertEquals(ScatterGatherResult.Status.REJECTED, result.getStatuses().get(serviceTwo));
+    Assert.assertEquals(1, retryableRestTemplate.getRejectedRequestCount());
+    verify(restTemplate, times(0)).exchange(serviceTwo + "/" + path, HttpMethod.GET, null, reference);
+  }
+
+  @Test
+  public void testHedgeIsSkippedWhenThreadsAreBusy() {
+    Object slowResult = new Object();
+    useSingleRequestThread();
+    when(portalConfig.hedgeDelay()).thenReturn(50);
+    when(serviceAddressLocator.getServiceList(any()))
+        .thenReturn(Arrays.asList(mockService(serviceOne), mockService(serviceTwo)));
+    when(restTemplate.getForObject(serviceOne + "/" + path, Object.class)).thenAnswer(invocation -> {
+      TimeUnit.MILLISECONDS.sleep(200);
+      return slowResult;
+    });
+
+    Object o = retryableRestTemplate.get(Env.DEV, path, Object.class);
+
+    Assert.assertSame(slowResult, o);
+    Assert.assertEquals(1, retryableRestTemplate.getRejectedRequestCount());
+    verify(restTemplate, times(0)).getForObject(serviceTwo + "/" + path, Object.class);
+  }
+
+  private void useSingleRequestThread() {
+    ReflectionTestUtils.setField(retryableRestTemplate, "executorService",
+        new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new SynchronousQueue<>()));
+  }
+
   private ServiceDTO mockService(String homeUrl) {
     ServiceDTO serviceDTO = new ServiceDTO();
     serviceDTO.setHomepageUrl(homeUrl);
+    serviceDTO.setInstanceId(homeUrl);
     return serviceDTO;
   }
 
@@ -0,0 +1,109 @@
+package com.ctrip.framework.apollo.portal.component;
+
+import com.ctrip.framework.apollo.core.enums.Env;
+import com.ctrip.framework.apollo.portal.AbstractUnitTest;
+import com.ctrip.framework.apollo.portal.component.MultiEnvExecutor.EnvResult;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+public class MultiEnvExecutorTest extends AbstractUnitTest {
+
+  @Mock
+  private PortalConfig portalConfig;
+  @InjectMocks
+  private MultiEnvExecutor multiEnvExecutor;
+
+  @Test
+  public void testInvokeAll() {
+    when(portalConfig.multiEnvTimeout()).thenReturn(5000);
+
+    Map<Env, EnvResult<String>> results = multiEnvExecutor.invokeAll(Arrays.asList(Env.PRO, Env.DEV, Env.FAT), env -> {
+      if (env == Env.DEV) {
+        throw new IllegalStateException("dev is down");
+      }
+      return env.name();
+    });
+
+    assertEquals(Arrays.asList(Env.PRO, Env.DEV, Env.FAT), Arrays.asList(results.keySet().toArray()));
+    assertTrue(results.get(Env.PRO).isSuccess());
+    assertEquals("PRO", results.get(Env.PRO).getValue());
+    assertFalse(results.get(Env.DEV).isSuccess());
+    assertFalse(results.get(Env.DEV).isTimeout());
+    assertEquals("dev is down", results.get(Env.DEV).getErrorMessage());
+    assertEquals("FAT", results.get(Env.FAT).getValue());
+  }
+
+  @Test
+  public void testSlowEnvTimesOut() {
+    CountDownLatch neverReleased = new CountDownLatch(1);
+
+    long start = System.currentTimeMillis();
+    Map<Env, EnvResult<String>> results = multiEnvExecutor.invokeAll(Arrays.asList(Env.DEV, Env.PRO), env -> {
+      if (env == Env.DEV) {
+        neverReleased.await(10, TimeUnit.SECONDS);
+      }
+      return env.name();
+    }, 200);
+
+    assertTrue(System.currentTimeMillis() - start < 5000);
+    assertTrue(results.get(Env.DEV).isTimeout());
+    assertFalse(results.get(Env.DEV).isSuccess());
+    assertEquals("PRO", results.get(Env.PRO).getValue());
+  }
+
+  @Test
+  public void testEnvIsRejectedWhenThreadsAreBusy() {
+    ReflectionTestUtils.setField(multiEnvExecutor, "executorService",
+        new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new SynchronousQueue<>()));
+    CountDownLatch neverReleased = new CountDownLatch(1);
+
+    long start = System.currentTimeMillis();
+    Map<Env, EnvResult<String>> results = multiEnvExecutor.invokeAll(Arrays.asList(Env.DEV, Env.PRO), env -> {
+      neverReleased.await(10, TimeUnit.SECONDS);
+      return env.name();
+    }, 200);
+
+    assertTrue(System.currentTimeMillis() - start < 5000);
+    assertTrue(results.get(Env.DEV).isTimeout());
+    assertFalse(results.get(Env.PRO).isSuccess());
+    assertFalse(results.get(Env.PRO).isTimeout());
+    assertTrue(results.get(Env.PRO).getError() instanceof RejectedExecutionException);
+  }
+
+  @Test
+  public void testEnvWithoutTimeoutIsRunOnCallingThreadWhenThreadsAreBusy() {
+    ReflectionTestUtils.setField(multiEnvExecutor, "executorService",
+        new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new SynchronousQueue<>()));
+    Thread callingThread = Thread.currentThread();
+
+    Map<Env, EnvResult<Boolean>> results = multiEnvExecutor.invokeAll(Arrays.asList(Env.DEV, Env.PRO), env -> {
+      if (env == Env.DEV) {
+        //hold the only thread until the other env is done
+        TimeUnit.MILLISECONDS.sleep(200);
+      }
+      return Thread.currentThread() == callingThread;
+    }, 0);
+
+    assertTrue(results.get(Env.DEV).isSuccess());
+    assertFalse(results.get(Env.DEV).getValue());
+    assertTrue(results.get(Env.PRO).isSuccess());
+    assertTrue(results.get(Env.PRO).getValue());
+  }
+}
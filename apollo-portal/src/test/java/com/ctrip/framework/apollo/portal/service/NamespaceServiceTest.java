@@ -2,6 +2,7 @@ package com.ctrip.framework.apollo.portal.service;
 
 import com.ctrip.framework.apollo.common.dto.ItemDTO;
 import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceDetailDTO;
 import com.ctrip.framework.apollo.common.dto.ReleaseDTO;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
@@ -18,13 +19,20 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -62,6 +70,56 @@ public class NamespaceServiceTest extends AbstractUnitTest {
 
   @Test
   public void testFindNamespace() {
+    AppNamespace hermesAppNamespace = createAppNamespace("someOtherAppId", "hermes", true);
+    hermesAppNamespace.setFormat(ConfigFileFormat.XML.getValue());
+
+    ReleaseDTO someRelease = new ReleaseDTO();
+    someRelease.setConfigurations("{\"a\":\"123\",\"b\":\"123\"}");
+
+    ItemDTO i1 = new ItemDTO("a", "123", "", 1);
+    ItemDTO i2 = new ItemDTO("b", "1", "", 2);
+    ItemDTO i3 = new ItemDTO("", "", "#dddd", 3);
+    ItemDTO i4 = new ItemDTO("c", "1", "", 4);
+
+    NamespaceDetailDTO application =
+        createNamespaceDetail(createNamespace(testAppId, testClusterName, testNamespaceName),
+                              Arrays.asList(i1, i2, i3, i4), someRelease);
+    NamespaceDetailDTO hermes =
+        createNamespaceDetail(createNamespace(testAppId, testClusterName, "hermes"), null, someRelease);
+
+    when(namespaceAPI.findNamespaceDetailsByCluster(testAppId, Env.DEV, testClusterName))
+        .thenReturn(Arrays.asList(application, hermes));
+    when(appNamespaceService.findByAppId(testAppId))
+        .thenReturn(Collections.singletonList(createAppNamespace(testAppId, testNamespaceName, false)));
+    when(appNamespaceService.findPublicAppNamespace("hermes")).thenReturn(hermesAppNamespace);
+
+    List<NamespaceBO> namespaceBOs = namespaceService.findNamespaceBOs(testAppId, Env.DEV, testClusterName);
+
+    assertEquals(2, namespaceBOs.size());
+    NamespaceBO applicationBO = namespaceBOs.get(0);
+    assertEquals(4, applicationBO.getItems().size());
+    assertEquals("a", applicationBO.getItems().get(0).getItem().getKey());
+    assertEquals(2, applicationBO.getItemModifiedCnt());
+    assertEquals(testNamespaceName, applicationBO.getBaseInfo().getNamespaceName());
+    assertFalse(applicationBO.isPublic());
+
+    NamespaceBO hermesBO = namespaceBOs.get(1);
+    assertEquals(ConfigFileFormat.XML.getValue(), hermesBO.getFormat());
+    assertTrue(hermesBO.isPublic());
+    assertEquals("someOtherAppId", hermesBO.getParentAppId());
+    //all released items are deleted
+    assertEquals(2, hermesBO.getItems().size());
+    assertEquals(2, hermesBO.getItemModifiedCnt());
+
+    verify(namespaceAPI, never()).findNamespaceByCluster(testAppId, Env.DEV, testClusterName);
+    verify(itemService, never()).findItems(anyString(), any(Env.class), anyString(), anyString());
+    verify(releaseService, never()).loadLatestRelease(anyString(), any(Env.class), anyString(), anyString());
+  }
+
+  @Test
+  public void testFindNamespaceOneByOneWhenAdminServiceHasNoNamespaceDetails() {
+    when(namespaceAPI.findNamespaceDetailsByCluster(testAppId, Env.DEV, testClusterName))
+        .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
 
     AppNamespace applicationAppNamespace = mock(AppNamespace.class);
     AppNamespace hermesAppNamespace = mock(AppNamespace.class);
@@ -204,6 +262,17 @@ public class NamespaceServiceTest extends AbstractUnitTest {
     return instance;
   }
 
+  private NamespaceDetailDTO createNamespaceDetail(NamespaceDTO namespace, List<ItemDTO> items,
+                                                  ReleaseDTO latestRelease) {
+    NamespaceDetailDTO instance = new NamespaceDetailDTO();
+
+    instance.setBaseInfo(namespace);
+    instance.setItems(items);
+    instance.setLatestRelease(latestRelease);
+
+    return instance;
+  }
+
   private NamespaceDTO createNamespace(String appId, String clusterName, String namespaceName) {
     NamespaceDTO instance = new NamespaceDTO();
 
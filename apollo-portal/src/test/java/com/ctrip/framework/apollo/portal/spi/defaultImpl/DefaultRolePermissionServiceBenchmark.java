@@ -0,0 +1,310 @@
+package com.ctrip.framework.apollo.portal.spi.defaultImpl;
+
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.ctrip.framework.apollo.portal.entity.po.Permission;
+import com.ctrip.framework.apollo.portal.entity.po.RolePermission;
+import com.ctrip.framework.apollo.portal.entity.po.UserRole;
+import com.ctrip.framework.apollo.portal.repository.PermissionRepository;
+import com.ctrip.framework.apollo.portal.repository.RolePermissionRepository;
+import com.ctrip.framework.apollo.portal.repository.UserRoleRepository;
+import com.ctrip.framework.apollo.portal.service.RolePermissionService;
+import com.ctrip.framework.apollo.portal.spi.defaultimpl.DefaultRolePermissionService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.CollectionUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the permission checks of {@link DefaultRolePermissionService}, which are answered from the permissions
+ * indexed per user, with the three repository queries it ran for every check before, from as many threads as there
+ * are processors. Half of the checks are granted.
+ *
+ * <ul>
+ *   <li>{@code userHasPermission}: a permission check of a user holding {@code rolesPerUser} roles</li>
+ * </ul>
+ *
+ * The repositories are kept in memory, so the queries of the old checks cost far less here than a round trip to the
+ * portal db, and the difference is a lower bound.
+ *
+ * Run the main method after {@code mvn test-compile}, the benchmarks are not part of the test suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(Threads.MAX)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class DefaultRolePermissionServiceBenchmark {
+  private static final int USERS = 1024;
+  private static final int ROLES = 1000;
+  private static final int PERMISSIONS_PER_ROLE = 4;
+  private static final int LOOKUPS = 1024;
+
+  @Param({"index", "queryPerCheck"})
+  public String implementation;
+
+  @Param({"5", "50"})
+  public int rolesPerUser;
+
+  private PermissionChecks permissionChecks;
+  private String[] userIds;
+  private String[] permissionTypes;
+  private String[] targetIds;
+
+  @Setup
+  public void setUp() {
+    Map<String, List<UserRole>> userRoles = Maps.newHashMap();
+    for (int user = 0; user < USERS; user++) {
+      List<UserRole> roles = Lists.newArrayList();
+      for (int role : rolesOf(user)) {
+        UserRole userRole = new UserRole();
+        userRole.setUserId("user" + user);
+        userRole.setRoleId(role);
+        roles.add(userRole);
+      }
+      userRoles.put("user" + user, roles);
+    }
+
+    Map<Long, List<RolePermission>> rolePermissions = Maps.newHashMap();
+    Map<Long, Permission> permissions = Maps.newHashMap();
+    for (int role = 0; role < ROLES; role++) {
+      List<RolePermission> permissionsOfRole = Lists.newArrayList();
+      for (int type = 0; type < PERMISSIONS_PER_ROLE; type++) {
+        Permission permission = new Permission();
+        permission.setId(role * PERMISSIONS_PER_ROLE + type);
+        permission.setPermissionType("permissionType" + type);
+        permission.setTargetId("app" + role);
+        permissions.put(permission.getId(), permission);
+
+        RolePermission rolePermission = new RolePermission();
+        rolePermission.setRoleId(role);
+        rolePermission.setPermissionId(permission.getId());
+        permissionsOfRole.add(rolePermission);
+      }
+      rolePermissions.put((long) role, permissionsOfRole);
+    }
+
+    InMemoryRepositories repositories = new InMemoryRepositories(userRoles, rolePermissions, permissions);
+    permissionChecks = "index".equals(implementation) ? new IndexedPermissionChecks(repositories) :
+        new QueryPerCheckPermissionChecks(repositories);
+
+    userIds = new String[LOOKUPS];
+    permissionTypes = new String[LOOKUPS];
+    targetIds = new String[LOOKUPS];
+    for (int i = 0; i < LOOKUPS; i++) {
+      int user = i % USERS;
+      int[] roles = rolesOf(user);
+      userIds[i] = "user" + user;
+      permissionTypes[i] = "permissionType" + i % PERMISSIONS_PER_ROLE;
+      // every other check is for an app the user has no role of
+      int role = i % 2 == 0 ? roles[i % roles.length] : roleOf(user, rolesPerUser);
+      targetIds[i] = "app" + role;
+    }
+  }
+
+  private int[] rolesOf(int user) {
+    int[] roles = new int[rolesPerUser];
+    for (int i = 0; i < rolesPerUser; i++) {
+      roles[i] = roleOf(user, i);
+    }
+    return roles;
+  }
+
+  private int roleOf(int user, int index) {
+    return (user + index * 37) % ROLES;
+  }
+
+  @Benchmark
+  public boolean userHasPermission(Cursor cursor) {
+    int i = cursor.next();
+    return permissionChecks.userHasPermission(userIds[i], permissionTypes[i], targetIds[i]);
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int position;
+
+    int next() {
+      position = (position + 1) & (LOOKUPS - 1);
+      return position;
+    }
+  }
+
+  private interface PermissionChecks {
+    boolean userHasPermission(String userId, String permissionType, String targetId);
+  }
+
+  private static class IndexedPermissionChecks implements PermissionChecks {
+    private final RolePermissionService rolePermissionService = new DefaultRolePermissionService();
+
+    IndexedPermissionChecks(InMemoryRepositories repositories) {
+      PortalConfig portalConfig = new PortalConfig() {
+        @Override
+        public int permissionCacheExpireTime() {
+          return 60000;
+        }
+
+        @Override
+        public List<String> superAdmins() {
+          return Collections.emptyList();
+        }
+      };
+      ReflectionTestUtils.setField(rolePermissionService, "userRoleRepository", repositories.userRoleRepository());
+      ReflectionTestUtils.setField(rolePermissionService, "rolePermissionRepository",
+          repositories.rolePermissionRepository());
+      ReflectionTestUtils.setField(rolePermissionService, "permissionRepository", repositories.permissionRepository());
+      ReflectionTestUtils.setField(rolePermissionService, "portalConfig", portalConfig);
+      ReflectionTestUtils.invokeMethod(rolePermissionService, "initialize");
+    }
+
+    @Override
+    public boolean userHasPermission(String userId, String permissionType, String targetId) {
+      return rolePermissionService.userHasPermission(userId, permissionType, targetId);
+    }
+  }
+
+  /**
+   * The permission check of DefaultRolePermissionService before the index, without super admins
+   */
+  private static class QueryPerCheckPermissionChecks implements PermissionChecks {
+    private final UserRoleRepository userRoleRepository;
+    private final RolePermissionRepository rolePermissionRepository;
+    private final PermissionRepository permissionRepository;
+
+    QueryPerCheckPermissionChecks(InMemoryRepositories repositories) {
+      userRoleRepository = repositories.userRoleRepository();
+      rolePermissionRepository = repositories.rolePermissionRepository();
+      permissionRepository = repositories.permissionRepository();
+    }
+
+    @Override
+    public boolean userHasPermission(String userId, String permissionType, String targetId) {
+      Permission permission =
+          permissionRepository.findTopByPermissionTypeAndTargetId(permissionType, targetId);
+      if (permission == null) {
+        return false;
+      }
+
+      List<UserRole> userRoles = userRoleRepository.findByUserId(userId);
+      if (CollectionUtils.isEmpty(userRoles)) {
+        return false;
+      }
+
+      Set<Long> roleIds =
+          FluentIterable.from(userRoles).transform(userRole -> userRole.getRoleId()).toSet();
+      List<RolePermission> rolePermissions = rolePermissionRepository.findByRoleIdIn(roleIds);
+      if (CollectionUtils.isEmpty(rolePermissions)) {
+        return false;
+      }
+
+      for (RolePermission rolePermission : rolePermissions) {
+        if (rolePermission.getPermissionId() == permission.getId()) {
+          return true;
+        }
+      }
+
+      return false;
+    }
+  }
+
+  /**
+   * Answers the queries of the permission checks from maps, the other repository methods are not supported
+   */
+  private static class InMemoryRepositories {
+    private final Map<String, List<UserRole>> userRoles;
+    private final Map<Long, List<RolePermission>> rolePermissions;
+    private final Map<Long, Permission> permissions;
+    private final Map<String, Permission> permissionsByKey = Maps.newHashMap();
+
+    InMemoryRepositories(Map<String, List<UserRole>> userRoles, Map<Long, List<RolePermission>> rolePermissions,
+                         Map<Long, Permission> permissions) {
+      this.userRoles = userRoles;
+      this.rolePermissions = rolePermissions;
+      this.permissions = permissions;
+      for (Permission permission : permissions.values()) {
+        permissionsByKey.put(permission.getPermissionType() + "+" + permission.getTargetId(), permission);
+      }
+    }
+
+    UserRoleRepository userRoleRepository() {
+      return repository(UserRoleRepository.class, ImmutableMap.of("findByUserId", args -> {
+        List<UserRole> roles = userRoles.get(args[0]);
+        return roles == null ? Collections.emptyList() : Lists.newArrayList(roles);
+      }));
+    }
+
+    @SuppressWarnings("unchecked")
+    RolePermissionRepository rolePermissionRepository() {
+      return repository(RolePermissionRepository.class, ImmutableMap.of("findByRoleIdIn", args -> {
+        List<RolePermission> result = Lists.newArrayList();
+        for (Long roleId : (Collection<Long>) args[0]) {
+          List<RolePermission> permissionsOfRole = rolePermissions.get(roleId);
+          if (permissionsOfRole != null) {
+            result.addAll(permissionsOfRole);
+          }
+        }
+        return result;
+      }));
+    }
+
+    @SuppressWarnings("unchecked")
+    PermissionRepository permissionRepository() {
+      return repository(PermissionRepository.class, ImmutableMap.of(
+          "findTopByPermissionTypeAndTargetId", args -> permissionsByKey.get(args[0] + "+" + args[1]),
+          "findAll", args -> {
+            List<Permission> result = Lists.newArrayList();
+            for (Long permissionId : (Iterable<Long>) args[0]) {
+              result.add(permissions.get(permissionId));
+            }
+            return result;
+          }));
+    }
+
+    private <T> T repository(Class<T> type, Map<String, QueryAnswer> queries) {
+      return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type}, (proxy, method, args) -> {
+        QueryAnswer query = queries.get(method.getName());
+        if (query == null || args == null) {
+          throw new UnsupportedOperationException(method.getName());
+        }
+        return query.answer(args);
+      }));
+    }
+  }
+
+  private interface QueryAnswer {
+    Object answer(Object[] args);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(DefaultRolePermissionServiceBenchmark.class.getSimpleName())
+        .addProfiler("gc").build()).run();
+  }
+}
@@ -20,13 +20,19 @@ import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
@@ -309,6 +315,65 @@ public class RolePermissionServiceTest extends AbstractIntegrationTest {
 
   }
 
+  @Test
+  @Sql(scripts = "/sql/permission/insert-test-roles.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/permission/insert-test-permissions.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/permission/insert-test-rolepermissions.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/cleanup.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void testUserHasPermissionAfterRoleChanged() throws Exception {
+    String someRoleName = "someRoleName";
+    String somePermissionType = "somePermissionType";
+    String someTargetId = "someTargetId";
+    String someNewUser = "someNewUser";
+    String operator = "operator";
+
+    assertFalse(rolePermissionService.userHasPermission(someNewUser, somePermissionType, someTargetId));
+
+    rolePermissionService.assignRoleToUsers(someRoleName, Sets.newHashSet(someNewUser), operator);
+
+    assertTrue(rolePermissionService.userHasPermission(someNewUser, somePermissionType, someTargetId));
+
+    rolePermissionService.removeRoleFromUsers(someRoleName, Sets.newHashSet(someNewUser), operator);
+
+    assertFalse(rolePermissionService.userHasPermission(someNewUser, somePermissionType, someTargetId));
+  }
+
+  @Test
+  @Sql(scripts = "/sql/permission/insert-test-roles.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/permission/insert-test-permissions.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/permission/insert-test-rolepermissions.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/cleanup.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void testUserHasPermissionWhenRoleRemovedDuringLoad() throws Exception {
+    String someRoleName = "someRoleName";
+    String somePermissionType = "somePermissionType";
+    String someTargetId = "someTargetId";
+    String someNewUser = "someNewUser";
+    String operator = "operator";
+
+    rolePermissionService.assignRoleToUsers(someRoleName, Sets.newHashSet(someNewUser), operator);
+
+    Object target = AopTestUtils.getUltimateTargetObject(rolePermissionService);
+    UserRoleRepository racingUserRoleRepository = mock(UserRoleRepository.class, delegatesTo(userRoleRepository));
+    AtomicBoolean roleRemoved = new AtomicBoolean();
+    // the role is removed after the load read the roles of the user, but before the load finishes
+    doAnswer(invocation -> {
+      List<UserRole> userRoles = userRoleRepository.findByUserId(someNewUser);
+      if (roleRemoved.compareAndSet(false, true)) {
+        rolePermissionService.removeRoleFromUsers(someRoleName, Sets.newHashSet(someNewUser), operator);
+      }
+      return userRoles;
+    }).when(racingUserRoleRepository).findByUserId(someNewUser);
+
+    ReflectionTestUtils.setField(target, "userRoleRepository", racingUserRoleRepository);
+    try {
+      assertFalse(rolePermissionService.userHasPermission(someNewUser, somePermissionType, someTargetId));
+      assertFalse(rolePermissionService.userHasPermission(someNewUser, somePermissionType, someTargetId));
+      assertTrue(roleRemoved.get());
+    } finally {
+      ReflectionTestUtils.setField(target, "userRoleRepository", userRoleRepository);
+    }
+  }
+
   private Role assembleRole(String roleName) {
     Role role = new Role();
     role.setRoleName(roleName);